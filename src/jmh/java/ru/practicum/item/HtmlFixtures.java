@@ -0,0 +1,107 @@
+package ru.practicum.item;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+// Страницы для бенчмарков разбора HTML. Генерируются с фиксированным seed, поэтому
+// от запуска к запуску одинаковы. Устроены как реальные:
+// article   - статья: большой <head> с метаданными, скриптами и стилями, навигация,
+//             абзацы с картинками, счётчики в конце страницы;
+// long-read - длинная статья, больше лимита чтения url-metadata-retriever.max-html-bytes;
+// spa       - приложение на JavaScript: состояние страницы в <script> до <title>,
+//             почти пустой <body>;
+// no-title  - страница без <title> и картинок: читается до конца или до лимита
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class HtmlFixtures {
+    private static final String[] WORDS = {"производительность", "память", "поток", "запрос", "страница",
+            "latency", "throughput", "allocation", "парсер", "кэш", "сервер", "данные", "the", "and", "ссылка"};
+
+    static byte[] page(String name, Charset charset) {
+        Random random = new Random(name.hashCode());
+        String html = switch (name) {
+            case "article" -> article(random, 150, true);
+            case "long-read" -> article(random, 1_500, true);
+            case "spa" -> spa(random);
+            case "no-title" -> article(random, 150, false);
+            default -> throw new IllegalArgumentException("Unknown page: " + name);
+        };
+        return html.getBytes(charset);
+    }
+
+    private static String article(Random random, int paragraphs, boolean withTitle) {
+        StringBuilder html = new StringBuilder(paragraphs * 700 + 100_000);
+        html.append("<!DOCTYPE html>\n<html lang=\"ru\"><head>\n<meta charset=\"utf-8\">\n");
+        for (int i = 0; i < 25; i++) {
+            html.append("<meta property=\"og:tag").append(i).append("\" content=\"").append(words(random, 8))
+                    .append("\">\n");
+        }
+        html.append("<link rel=\"stylesheet\" href=\"/static/main.css\">\n");
+        appendState(html, random, 300);
+        html.append("<style>");
+        for (int i = 0; i < 400; i++) {
+            html.append(".block-").append(i).append(" { margin: 0 ").append(i % 16).append("px; color: #333; }\n");
+        }
+        html.append("</style>\n");
+        if (withTitle) {
+            html.append("<title>Длинная статья о производительности &mdash; Later</title>\n");
+        }
+        html.append("</head>\n<body>\n<header><nav><ul>");
+        for (int i = 0; i < 60; i++) {
+            html.append("<li><a href=\"/section/").append(i).append("\">").append(words(random, 2))
+                    .append("</a></li>");
+        }
+        html.append("</ul></nav></header>\n<article>\n<h1>").append(words(random, 6)).append("</h1>\n");
+        for (int i = 0; i < paragraphs; i++) {
+            html.append("<p class=\"block-").append(i % 400).append("\">").append(words(random, 90))
+                    .append("</p>\n");
+            if (withTitle && i % 12 == 11) {
+                html.append("<figure><img src=\"/img/").append(i).append(".jpg\" alt=\"")
+                        .append(words(random, 4)).append("\"><figcaption>").append(words(random, 10))
+                        .append("</figcaption></figure>\n");
+            }
+            if (i % 50 == 49) {
+                html.append("<!-- ad slot ").append(i).append(" -->\n");
+            }
+        }
+        html.append("</article>\n<footer>").append(words(random, 40)).append("</footer>\n");
+        html.append("<script src=\"/static/analytics.js\"></script>\n</body></html>\n");
+        return html.toString();
+    }
+
+    private static String spa(Random random) {
+        StringBuilder html = new StringBuilder(200_000);
+        html.append("<!DOCTYPE html>\n<html><head>\n<meta charset=\"utf-8\">\n");
+        appendState(html, random, 5_000);
+        html.append("<title>Dashboard &middot; Later</title>\n</head>\n<body>\n")
+                .append("<div id=\"root\"></div>\n<noscript>").append(words(random, 12)).append("</noscript>\n")
+                .append("<script src=\"/static/app.js\"></script>\n</body></html>\n");
+        return html.toString();
+    }
+
+    // состояние страницы в <script>: "<img" в строке скрипта не считается картинкой
+    private static void appendState(StringBuilder html, Random random, int keys) {
+        html.append("<script>window.__STATE__ = {");
+        for (int i = 0; i < keys; i++) {
+            html.append("\"key").append(i).append("\":\"").append(words(random, 3));
+            if (i % 100 == 0) {
+                html.append(" <img src=x>");
+            }
+            html.append("\",");
+        }
+        html.append("};</script>\n");
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package ru.practicum.item;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+// Разбор тела страницы в UrlMetaDataRetrieverImpl.handleText: потоковый
+// HtmlMetadataExtractor с лимитами по умолчанию (url-metadata-retriever.max-html-bytes
+// и max-text-length) и для сравнения полный разбор Jsoup.parse с построением DOM.
+// Страницы - HtmlFixtures, в UTF-8 и windows-1251
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC", "-Duser.timezone=UTC"})
+public class HtmlParsingBenchmark {
+    private static final long MAX_HTML_BYTES = 524_288;
+    private static final int MAX_TEXT_LENGTH = 4_096;
+
+    @Param({"article", "long-read", "spa", "no-title"})
+    String page;
+
+    @Param({"UTF-8", "windows-1251"})
+    String charsetName;
+
+    private Charset charset;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        charset = Charset.forName(charsetName);
+        body = HtmlFixtures.page(page, charset);
+    }
+
+    @Benchmark
+    public HtmlMetadataExtractor.Result streaming() throws IOException {
+        return HtmlMetadataExtractor.extract(new ByteArrayInputStream(body), charset, MAX_HTML_BYTES,
+                MAX_TEXT_LENGTH);
+    }
+
+    @Benchmark
+    public Document jsoupParse() throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(body), charsetName, "https://example.com/");
+    }
+}
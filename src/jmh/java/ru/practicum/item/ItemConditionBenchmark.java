@@ -0,0 +1,74 @@
+package ru.practicum.item;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.item.dto.GetItemRequest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+// Сборка условия QueryDSL для GET /items (ItemServiceImpl.makeCondition)
+// без обращения к БД; сортировка - в ItemOrderBenchmark. Варианты запроса:
+// all     - только пользователь, первая страница;
+// filters - состояние, тип содержимого и тэги проверяет БД;
+// index   - id подходящих ссылок из ItemFilterIndex;
+// cursor  - фильтры и следующая страница после курсора
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC", "-Duser.timezone=UTC"})
+public class ItemConditionBenchmark {
+    @Param({"all", "filters", "index", "cursor"})
+    String request;
+
+    private GetItemRequest getItemRequest;
+    private List<Long> matchingIds;
+
+    @Setup
+    public void setUp() {
+        GetItemRequest all = GetItemRequest.builder()
+                .userId(1L)
+                .state(GetItemRequest.State.ALL)
+                .contentType(GetItemRequest.ContentType.ALL)
+                .sort(GetItemRequest.Sort.NEWEST)
+                .limit(10)
+                .build();
+        GetItemRequest filtered = all.toBuilder()
+                .state(GetItemRequest.State.UNREAD)
+                .contentType(GetItemRequest.ContentType.ARTICLE)
+                .tags(Set.of("java", "performance", "jvm"))
+                .build();
+
+        getItemRequest = switch (request) {
+            case "all" -> all;
+            case "filters", "index" -> filtered;
+            case "cursor" -> filtered.toBuilder()
+                    .cursor(new ItemCursor(GetItemRequest.Sort.NEWEST, "2024-05-01T10:15:30Z", 123_456L).encode())
+                    .build();
+            default -> throw new IllegalArgumentException(request);
+        };
+        // ItemFilterIndex отдаёт id, только если их немного
+        matchingIds = "index".equals(request)
+                ? LongStream.range(0, 200).map(i -> 1_000_000L + i * 7).boxed().toList()
+                : null;
+    }
+
+    @Benchmark
+    public BooleanExpression condition() {
+        return ItemServiceImpl.makeCondition(getItemRequest, matchingIds);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.practicum.item;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.item.dto.ItemDto;
+import ru.practicum.item.model.Item;
+import ru.practicum.item.model.ItemStatus;
+import ru.practicum.item.model.Tag;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// ItemMapper.mapToItemDto для страницы GET /items: builder, форматирование dateResolved
+// и копия тэгов в HashSet у каждой ссылки. tags - число тэгов у каждой ссылки, page - размер
+// страницы (limit по умолчанию - 10). Одна ссылка - в ItemMapperOneBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC", "-Duser.timezone=UTC"})
+public class ItemMapperBenchmark {
+    @Param({"0", "5", "20"})
+    int tags;
+
+    @Param({"10", "100"})
+    int page;
+
+    private List<Item> items;
+
+    @Setup
+    public void setUp() {
+        items = items(page, tags);
+    }
+
+    @Benchmark
+    public List<ItemDto> mapPage() {
+        return ItemMapper.mapToItemDto(items);
+    }
+
+    // count ссылок, у каждой - tags случайных тэгов из словаря на 50 тэгов
+    static List<Item> items(int count, int tags) {
+        Random random = new Random(42);
+        List<Tag> dictionary = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            dictionary.add(Tag.builder().id((long) i + 1).name("tag" + i).build());
+        }
+
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Set<Tag> itemTags = new HashSet<>();
+            while (itemTags.size() < tags) {
+                itemTags.add(dictionary.get(random.nextInt(dictionary.size())));
+            }
+            items.add(Item.builder()
+                    .id(1_000_000L + i)
+                    .url("https://example.com/articles/" + i + "?utm_source=later")
+                    .resolvedUrl("https://www.example.com/articles/" + i)
+                    .mimeType("text")
+                    .title("Article number " + i + " about performance")
+                    .hasImage(random.nextBoolean())
+                    .dateResolved(Instant.ofEpochSecond(1_700_000_000L + random.nextInt(10_000_000)))
+                    .unread(random.nextBoolean())
+                    .status(ItemStatus.RESOLVED)
+                    .tags(itemTags)
+                    .build());
+        }
+        return items;
+    }
+}
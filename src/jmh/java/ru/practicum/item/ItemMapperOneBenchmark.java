@@ -0,0 +1,42 @@
+package ru.practicum.item;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.item.dto.ItemDto;
+import ru.practicum.item.model.Item;
+
+import java.util.concurrent.TimeUnit;
+
+// ItemMapper.mapToItemDto для одной ссылки - ответ POST /items и PATCH /items/{id}.
+// tags - число тэгов у ссылки; ссылки те же, что в ItemMapperBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC", "-Duser.timezone=UTC"})
+public class ItemMapperOneBenchmark {
+    @Param({"0", "5", "20"})
+    int tags;
+
+    private Item item;
+
+    @Setup
+    public void setUp() {
+        item = ItemMapperBenchmark.items(1, tags).getFirst();
+    }
+
+    @Benchmark
+    public ItemDto mapOne() {
+        return ItemMapper.mapToItemDto(item);
+    }
+}
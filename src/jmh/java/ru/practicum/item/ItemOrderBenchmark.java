@@ -0,0 +1,34 @@
+package ru.practicum.item;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+import ru.practicum.item.dto.GetItemRequest;
+
+import java.util.concurrent.TimeUnit;
+
+// Сортировка для GET /items (ItemServiceImpl.makeOrderByClause) - зависит только
+// от порядка, который выбрал пользователь, поэтому перебираются все его варианты
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC", "-Duser.timezone=UTC"})
+public class ItemOrderBenchmark {
+    @Param({"NEWEST", "OLDEST", "TITLE", "SITE"})
+    GetItemRequest.Sort sort;
+
+    @Benchmark
+    public Sort orderBy() {
+        return ItemServiceImpl.makeOrderByClause(sort);
+    }
+}
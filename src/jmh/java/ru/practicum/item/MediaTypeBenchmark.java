@@ -0,0 +1,62 @@
+package ru.practicum.item;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+// Разбор заголовка Content-Type ответа сайта: тип содержимого и кодировка страницы.
+// В UrlMetaDataRetrieverImpl заголовок разбирается для каждого ответа.
+// MimeTypeUtils хранит последние 64 разобранных типа (ConcurrentLruCache), поэтому
+// parseMediaType и charset перебирают 4096 разных заголовков - с параметром x-seq,
+// и каждый вызов разбирает строку. parseMediaTypeCached разбирает один и тот же
+// заголовок - это поиск в кэше, как у ответов с одинаковым Content-Type
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC", "-Duser.timezone=UTC"})
+public class MediaTypeBenchmark {
+    // намного больше размера кэша MimeTypeUtils; степень двойки - для выбора по маске
+    private static final int HEADERS = 4096;
+
+    @Param({"text/html; charset=utf-8", "text/html;charset=windows-1251", "image/jpeg", "video/mp4"})
+    String contentType;
+
+    private final String[] headers = new String[HEADERS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < HEADERS; i++) {
+            headers[i] = contentType + "; x-seq=" + i;
+        }
+    }
+
+    @Benchmark
+    public MediaType parseMediaType() {
+        return UrlMetaDataRetrieverImpl.parseMediaType(headers[next++ & (HEADERS - 1)]);
+    }
+
+    @Benchmark
+    public MediaType parseMediaTypeCached() {
+        return UrlMetaDataRetrieverImpl.parseMediaType(contentType);
+    }
+
+    @Benchmark
+    public Charset charset() {
+        return UrlMetaDataRetrieverImpl.charsetOf(headers[next++ & (HEADERS - 1)]);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.note;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.item.model.Item;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ItemNoteMapper в обе стороны: страница заметок в DTO (форматирование даты)
+// и заметка из тела запроса в сущность (разбор даты)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC", "-Duser.timezone=UTC"})
+public class ItemNoteMapperBenchmark {
+    @Param({"10", "100"})
+    int page;
+
+    private Item item;
+    private List<ItemNote> notes;
+    private ItemNoteDto dto;
+
+    @Setup
+    public void setUp() {
+        item = Item.builder()
+                .id(1_000_000L)
+                .url("https://example.com/articles/1")
+                .build();
+        notes = new ArrayList<>(page);
+        for (int i = 0; i < page; i++) {
+            notes.add(ItemNote.builder()
+                    .id(2_000_000L + i)
+                    .item(item)
+                    .text("Note " + i + ": re-read the section about allocation profiling")
+                    .itemNoteDate(Instant.ofEpochSecond(1_700_000_000L + i * 3_600L))
+                    .build());
+        }
+        dto = ItemNoteMapper.mapToItemNoteDto(notes.getFirst());
+    }
+
+    @Benchmark
+    public List<ItemNoteDto> mapPage() {
+        return ItemNoteMapper.mapToItemNoteDto(notes);
+    }
+
+    @Benchmark
+    public ItemNote mapFromDto() {
+        return ItemNoteMapper.mapToItemNote(dto, item);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.user;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// UserMapper: список пользователей в DTO (GET /users) и DTO в сущность с разбором даты регистрации
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseParallelGC", "-Duser.timezone=UTC"})
+public class UserMapperBenchmark {
+    private static final int USERS = 100;
+
+    private List<User> users;
+    private UserDto dto;
+
+    @Setup
+    public void setUp() {
+        users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(User.builder()
+                    .id(3_000_000L + i)
+                    .email("user" + i + "@example.com")
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .state(UserState.ACTIVE)
+                    .registrationDate(Instant.ofEpochSecond(1_600_000_000L + i * 86_400L))
+                    .build());
+        }
+        dto = UserMapper.mapToUserDTO(users.getFirst());
+    }
+
+    @Benchmark
+    public List<UserDto> mapList() {
+        return UserMapper.mapToUserDto(users);
+    }
+
+    @Benchmark
+    public User mapFromDto() {
+        return UserMapper.mapToUser(dto);
+    }
+}
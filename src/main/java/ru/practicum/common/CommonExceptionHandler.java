@@ -18,4 +18,22 @@ public class CommonExceptionHandler extends ResponseEntityExceptionHandler {
                 new HttpHeaders(), HttpStatus.INTERNAL_SERVER_ERROR, request);
     }
 
+    @ExceptionHandler(BadRequestException.class)
+    protected ResponseEntity<Object> handleBadRequestException(BadRequestException e, WebRequest request) {
+        return handleExceptionInternal(e, e.getMessage(),
+                new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ExceptionHandler(NotFoundException.class)
+    protected ResponseEntity<Object> handleNotFoundException(NotFoundException e, WebRequest request) {
+        return handleExceptionInternal(e, e.getMessage(),
+                new HttpHeaders(), HttpStatus.NOT_FOUND, request);
+    }
+
+    @ExceptionHandler(GoneException.class)
+    protected ResponseEntity<Object> handleGoneException(GoneException e, WebRequest request) {
+        return handleExceptionInternal(e, e.getMessage(),
+                new HttpHeaders(), HttpStatus.GONE, request);
+    }
+
 }
@@ -0,0 +1,55 @@
+package ru.practicum.common;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// Упаковка курсора постраничного вывода (значений ключа сортировки последней
+// записи страницы) в непрозрачную для клиента строку и обратно.
+// Каждая часть записывается как "длина:значение", null - как "-1:".
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class CursorCodec {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static String encode(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (part == null) {
+                sb.append("-1:");
+            } else {
+                sb.append(part.length()).append(':').append(part);
+            }
+        }
+        return ENCODER.encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static List<String> decode(String cursor, int expectedParts) {
+        try {
+            String s = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+            List<String> parts = new ArrayList<>(expectedParts);
+            int position = 0;
+            while (position < s.length()) {
+                int colon = s.indexOf(':', position);
+                int length = Integer.parseInt(s.substring(position, colon));
+                position = colon + 1;
+                if (length < 0) {
+                    parts.add(null);
+                } else {
+                    parts.add(s.substring(position, position + length));
+                    position += length;
+                }
+            }
+            if (parts.size() != expectedParts) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+}
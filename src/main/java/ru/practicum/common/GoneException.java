@@ -0,0 +1,9 @@
+package ru.practicum.common;
+
+// Запрошенные данные больше недоступны - например, истёк срок действия
+// токена синхронизации, и клиенту нужно получить всё заново
+public class GoneException extends RuntimeException {
+    public GoneException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.practicum.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Номера версий данных пользователей - ссылок, их тэгов и заметок. Любое изменение
+// данных пользователя после фиксации транзакции выдаёт ему новый номер. По номеру
+// кэш списков ссылок отличает актуальные результаты, а клиенты получают ETag и
+// при неизменных данных ответ 304 без обращения к БД.
+// Номера выдаются из общего счётчика и не повторяются ни у разных пользователей,
+// ни у одного пользователя: пользователь, забытый из-за ограничения размера,
+// при следующем обращении получает новый номер. ETag дополнительно включает время
+// запуска приложения - после перезапуска счётчик начинается заново.
+@Component
+public class UserVersions {
+    private final Cache<Long, Long> versions;
+    private final AtomicLong nextVersion = new AtomicLong();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    @Autowired
+    public UserVersions(@Value("${user-versions.max-size:100000}") long maxSize) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    // Текущая версия данных пользователя
+    public long current(long userId) {
+        return versions.get(userId, id -> nextVersion.incrementAndGet());
+    }
+
+    // Значение заголовка ETag для ответов с данными пользователя. Версию нужно
+    // получить до чтения данных: изменение, зафиксированное во время чтения,
+    // даст новую версию, и следующий запрос клиента получит данные заново
+    public String etag(long userId) {
+        return "\"" + epoch + "." + current(userId) + "\"";
+    }
+
+    // Данные пользователя изменились. Внутри транзакции версия меняется после её
+    // фиксации: до этого другие транзакции ещё читают старые данные, и их результат
+    // получил бы новую версию. Откат транзакции версию не меняет
+    public void changed(long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            next(userId);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Long> changed = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            Set<Long> users = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, users);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    users.forEach(UserVersions.this::next);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(UserVersions.this);
+                }
+            });
+            changed = users;
+        }
+        changed.add(userId);
+    }
+
+    // Данные пользователя изменены в текущей, ещё не зафиксированной транзакции:
+    // его текущая версия их ещё не отражает
+    public boolean changedInTransaction(long userId) {
+        Object changed = TransactionSynchronizationManager.getResource(this);
+        return changed != null && ((Set<?>) changed).contains(userId);
+    }
+
+    private void next(long userId) {
+        versions.put(userId, nextVersion.incrementAndGet());
+    }
+}
@@ -0,0 +1,170 @@
+package ru.practicum.item;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Кэширующая обёртка над UrlMetaDataRetrieverImpl. Популярные страницы сохраняют
+// многие пользователи, и повторно скачивать и разбирать их незачем.
+// Ключ кэша - нормализованный адрес. Результат запоминается и под адресом,
+// который прислал пользователь, и под итоговым адресом после перенаправлений.
+// Одновременные запросы одного адреса объединяются в одно обращение к сайту.
+// В кэше хранятся CompletableFuture: сайт опрашивает поток, первым запросивший адрес,
+// вне блокировок кэша, поэтому долгая загрузка (в том числе ожидание в очереди
+// HostRequestScheduler) не задерживает запросы других адресов.
+@Primary
+@Component("urlMetaDataRetriever")
+@ConditionalOnProperty(prefix = "url-metadata-retriever.cache", name = "enabled", matchIfMissing = true)
+class CachingUrlMetaDataRetriever implements UrlMetaDataRetriever {
+    private final UrlMetaDataRetriever delegate;
+    private final AsyncCache<String, UrlMetadata> cache;
+
+    @Autowired
+    CachingUrlMetaDataRetriever(UrlMetaDataRetrieverImpl delegate,
+                                @Value("${url-metadata-retriever.cache.ttl-sec:3600}") long ttlSeconds,
+                                @Value("${url-metadata-retriever.cache.max-size:10000}") long maxSize) {
+        this(delegate, Duration.ofSeconds(ttlSeconds), maxSize, Ticker.systemTicker());
+    }
+
+    CachingUrlMetaDataRetriever(UrlMetaDataRetriever delegate, Duration ttl, long maxSize, Ticker ticker) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .ticker(ticker)
+                // обслуживание кэша (вытеснение и счётчики) выполняем в вызывающем потоке
+                .executor(Runnable::run)
+                .recordStats()
+                .buildAsync();
+    }
+
+    @Override
+    public UrlMetadata retrieve(String url) {
+        String key = normalize(url);
+        if (key == null) {
+            // адрес не удалось разобрать - пусть ошибку сформирует основная реализация
+            return delegate.retrieve(url);
+        }
+
+        // Под блокировкой Caffeine в кэш только кладётся незавершённый future.
+        // Загружает страницу поток, чей future попал в кэш, остальные потоки
+        // с тем же ключом ждут его результата. Ошибки в кэш не попадают.
+        CompletableFuture<UrlMetadata> loading = new CompletableFuture<>();
+        CompletableFuture<UrlMetadata> future = cache.get(key, (k, executor) -> loading);
+        if (future == loading) {
+            load(key, url, loading);
+        }
+        UrlMetadata metadata = join(future);
+
+        String resolvedKey = normalize(metadata.getResolvedUrl());
+        if (resolvedKey != null && !resolvedKey.equals(key)) {
+            cache.asMap().putIfAbsent(resolvedKey, CompletableFuture.completedFuture(metadata));
+        }
+
+        return forRequest(metadata, url);
+    }
+
+    // счётчики попаданий, промахов и вытеснений
+    CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    private void load(String key, String url, CompletableFuture<UrlMetadata> loading) {
+        try {
+            loading.complete(delegate.retrieve(url));
+        } catch (RuntimeException | Error e) {
+            // неудачный future Caffeine удаляет сам, здесь - чтобы следующий
+            // запрос не застал его в кэше ни при каком порядке потоков
+            cache.asMap().remove(key, loading);
+            loading.completeExceptionally(e);
+        }
+    }
+
+    // Результат загрузки; ошибка загрузчика выбрасывается как есть, без CompletionException
+    private static UrlMetadata join(CompletableFuture<UrlMetadata> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Приводит адрес к единому виду: схема и хост в нижнем регистре,
+    // без порта по умолчанию и без фрагмента, пустой путь заменяется на "/"
+    static String normalize(String url) {
+        if (url == null) {
+            return null;
+        }
+        final URI uri;
+        try {
+            uri = new URI(url.trim()).normalize();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            return null;
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        int port = uri.getPort();
+        if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+            port = -1;
+        }
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+
+        StringBuilder normalized = new StringBuilder()
+                .append(scheme)
+                .append("://")
+                .append(uri.getHost().toLowerCase(Locale.ROOT));
+        if (port != -1) {
+            normalized.append(':').append(port);
+        }
+        normalized.append(path);
+        if (uri.getRawQuery() != null) {
+            normalized.append('?').append(uri.getRawQuery());
+        }
+        return normalized.toString();
+    }
+
+    // Копия результата для запроса: адрес - как прислал пользователь, дата - момент запроса.
+    // dateResolved задаёт место ссылки при сортировке NEWEST/OLDEST, в курсоре страниц
+    // и в выгрузке, поэтому дата из кэша (до ttl-sec в прошлом) не годится
+    private static UrlMetadata forRequest(UrlMetadata metadata, String url) {
+        return UrlMetaDataRetrieverImpl.UrlMetadataImpl.builder()
+                .normalUrl(url)
+                .resolvedUrl(metadata.getResolvedUrl())
+                .mimeType(metadata.getMimeType())
+                .title(metadata.getTitle())
+                .hasImage(metadata.isHasImage())
+                .hasVideo(metadata.isHasVideo())
+                .dateResolved(Instant.now())
+                .text(metadata.getText())
+                .etag(metadata.getEtag())
+                .lastModified(metadata.getLastModified())
+                .build();
+    }
+}
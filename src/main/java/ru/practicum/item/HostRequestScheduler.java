@@ -0,0 +1,347 @@
+package ru.practicum.item;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.common.ItemRetrieverException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Очередь запросов к сайтам перед UrlMetaDataRetrieverImpl.
+// К одному сайту одновременно выполняется не больше max-concurrency запросов
+// от всех пользователей вместе. Остальные ждут, и освободившееся место достаётся
+// по очереди каждому ожидающему пользователю: импорт тысяч ссылок одного сайта
+// не задерживает сохранение ссылки на тот же сайт другим пользователем.
+// Ответ 429 или 503 приостанавливает все запросы к сайту на время из Retry-After,
+// а без него - на время, которое удваивается с каждым следующим отказом.
+@Component
+class HostRequestScheduler {
+    // пользователь, от имени которого поток обращается к сайтам
+    private static final ThreadLocal<Long> REQUESTER = new ThreadLocal<>();
+    private static final long UNKNOWN_REQUESTER = 0;
+
+    private final int maxConcurrency;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final int maxRetries;
+    private final Duration maxWait;
+    private final Duration idleTimeout;
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    @Autowired
+    HostRequestScheduler(@Value("${url-metadata-retriever.per-host.max-concurrency:4}") int maxConcurrency,
+                         @Value("${url-metadata-retriever.per-host.backoff-ms:1000}") long backoffMillis,
+                         @Value("${url-metadata-retriever.per-host.max-backoff-ms:60000}") long maxBackoffMillis,
+                         @Value("${url-metadata-retriever.per-host.max-retries:2}") int maxRetries,
+                         @Value("${url-metadata-retriever.per-host.max-wait-sec:30}") long maxWaitSeconds,
+                         @Value("${url-metadata-retriever.per-host.idle-timeout-sec:600}") long idleTimeoutSeconds) {
+        this(maxConcurrency, Duration.ofMillis(backoffMillis), Duration.ofMillis(maxBackoffMillis), maxRetries,
+                Duration.ofSeconds(maxWaitSeconds), Duration.ofSeconds(idleTimeoutSeconds));
+    }
+
+    HostRequestScheduler(int maxConcurrency, Duration backoff, Duration maxBackoff, int maxRetries,
+                         Duration maxWait, Duration idleTimeout) {
+        this.maxConcurrency = maxConcurrency;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        this.maxRetries = maxRetries;
+        this.maxWait = maxWait;
+        this.idleTimeout = idleTimeout;
+    }
+
+    // Выполняет action от имени пользователя: его запросы к сайтам
+    // чередуются в очереди с запросами других пользователей
+    static <T> T onBehalfOf(long userId, Supplier<T> action) {
+        Long previous = REQUESTER.get();
+        REQUESTER.set(userId);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                REQUESTER.remove();
+            } else {
+                REQUESTER.set(previous);
+            }
+        }
+    }
+
+    // Ждёт своей очереди на запрос к сайту. Разрешение нужно закрыть,
+    // когда ответ прочитан. Если сайт попросил не обращаться к нему дольше
+    // max-wait, запрос сразу завершается ошибкой, а не занимает поток.
+    Permit acquire(String host) throws InterruptedException {
+        String key = host == null ? "" : host.toLowerCase(Locale.ROOT);
+        Long requester = REQUESTER.get();
+        while (true) {
+            HostState state = hosts.computeIfAbsent(key, h -> new HostState());
+            state.lock.lock();
+            try {
+                // состояние успели удалить как неиспользуемое - берём новое
+                if (state.removed) {
+                    continue;
+                }
+                state.acquire(key, requester != null ? requester : UNKNOWN_REQUESTER);
+                return new Permit(state);
+            } finally {
+                state.lock.unlock();
+            }
+        }
+    }
+
+    // Состояние очередей по сайтам на данный момент
+    Map<String, HostStats> stats() {
+        Map<String, HostStats> result = new TreeMap<>();
+        hosts.forEach((host, state) -> {
+            state.lock.lock();
+            try {
+                result.put(host, state.stats());
+            } finally {
+                state.lock.unlock();
+            }
+        });
+        return result;
+    }
+
+    // Забывает сайты, к которым давно не обращались
+    @Scheduled(fixedDelayString = "${url-metadata-retriever.per-host.cleanup-interval-ms:60000}")
+    void removeIdleHosts() {
+        long now = System.nanoTime();
+        hosts.forEach((host, state) -> {
+            state.lock.lock();
+            try {
+                if (state.isIdle(now)) {
+                    state.removed = true;
+                    hosts.remove(host, state);
+                }
+            } finally {
+                state.lock.unlock();
+            }
+        });
+    }
+
+    // Время паузы из заголовка Retry-After: число секунд или дата
+    static Optional<Duration> parseRetryAfter(String retryAfter, ZonedDateTime now) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return Optional.empty();
+        }
+        String value = retryAfter.trim();
+        try {
+            return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(value))));
+        } catch (NumberFormatException e) {
+            // не число - значит, дата
+        }
+        try {
+            Duration delay = Duration.between(now, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+            return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Разрешение на один запрос к сайту
+    final class Permit implements AutoCloseable {
+        private final HostState state;
+        private boolean throttled;
+        private boolean closed;
+
+        private Permit(HostState state) {
+            this.state = state;
+        }
+
+        // Сайт ответил 429 или 503: приостанавливает все запросы к нему.
+        // Возвращает паузу перед повтором запроса или пустой результат,
+        // если попыток больше не осталось или ждать пришлось бы дольше max-wait
+        Optional<Duration> throttle(String retryAfter, int attempt) {
+            throttled = true;
+            state.lock.lock();
+            try {
+                Duration delay = parseRetryAfter(retryAfter, ZonedDateTime.now())
+                        .orElseGet(state::nextBackoff);
+                state.pause(delay);
+                return attempt <= maxRetries && delay.compareTo(maxWait) <= 0 ? Optional.of(delay) : Optional.empty();
+            } finally {
+                state.lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            state.lock.lock();
+            try {
+                state.release(!throttled);
+            } finally {
+                state.lock.unlock();
+            }
+        }
+    }
+
+    // queued - ждут очереди, inFlight - выполняются, granted - всего получено разрешений,
+    // throttled - сколько раз сайт ответил 429/503
+    record HostStats(int queued, int inFlight, long granted, long throttled, Duration totalWait, Duration maxWait,
+                     Duration pausedFor) {
+        Duration averageWait() {
+            return granted == 0 ? Duration.ZERO : totalWait.dividedBy(granted);
+        }
+    }
+
+    private static final class Waiter {
+        private final Condition ready;
+        private final long enqueuedAt;
+        private boolean granted;
+
+        private Waiter(Condition ready, long enqueuedAt) {
+            this.ready = ready;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    // Все поля меняются только под lock
+    private final class HostState {
+        private final ReentrantLock lock = new ReentrantLock();
+        // ожидающие по пользователям; порядок ключей - очередь пользователей
+        private final LinkedHashMap<Long, ArrayDeque<Waiter>> waiting = new LinkedHashMap<>();
+        private int queued;
+        private int inFlight;
+        private long pausedUntil = System.nanoTime();
+        private long lastUsed = System.nanoTime();
+        private int consecutiveThrottles;
+        private boolean removed;
+
+        private long granted;
+        private long throttled;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        private void acquire(String host, long requester) throws InterruptedException {
+            long now = System.nanoTime();
+            lastUsed = now;
+            checkPause(host, now);
+            if (queued == 0 && inFlight < maxConcurrency && pausedUntil - now <= 0) {
+                inFlight++;
+                granted++;
+                return;
+            }
+
+            Waiter waiter = new Waiter(lock.newCondition(), now);
+            waiting.computeIfAbsent(requester, r -> new ArrayDeque<>()).addLast(waiter);
+            queued++;
+            try {
+                while (!waiter.granted) {
+                    long pause = pausedUntil - System.nanoTime();
+                    if (pause > 0) {
+                        waiter.ready.awaitNanos(pause);
+                    } else {
+                        waiter.ready.await();
+                    }
+                    if (!waiter.granted) {
+                        checkPause(host, System.nanoTime());
+                        dispatch();
+                    }
+                }
+            } catch (InterruptedException | RuntimeException e) {
+                if (waiter.granted) {
+                    release(false);
+                } else {
+                    remove(requester, waiter);
+                }
+                throw e;
+            }
+        }
+
+        private void checkPause(String host, long now) {
+            long pause = pausedUntil - now;
+            if (pause > maxWait.toNanos()) {
+                throw new ItemRetrieverException("The server " + host + " asked to retry after "
+                                                 + Duration.ofNanos(pause).toSeconds() + " seconds");
+            }
+        }
+
+        private void release(boolean succeeded) {
+            inFlight--;
+            lastUsed = System.nanoTime();
+            if (succeeded) {
+                consecutiveThrottles = 0;
+            }
+            dispatch();
+        }
+
+        // Раздаёт свободные места ожидающим - по одному от каждого пользователя по очереди
+        private void dispatch() {
+            long now = System.nanoTime();
+            while (queued > 0 && inFlight < maxConcurrency && pausedUntil - now <= 0) {
+                Iterator<Map.Entry<Long, ArrayDeque<Waiter>>> first = waiting.entrySet().iterator();
+                Map.Entry<Long, ArrayDeque<Waiter>> next = first.next();
+                first.remove();
+                Waiter waiter = next.getValue().pollFirst();
+                if (!next.getValue().isEmpty()) {
+                    // пользователь переходит в конец очереди
+                    waiting.put(next.getKey(), next.getValue());
+                }
+                queued--;
+                inFlight++;
+                granted++;
+                long wait = now - waiter.enqueuedAt;
+                totalWaitNanos += wait;
+                maxWaitNanos = Math.max(maxWaitNanos, wait);
+                waiter.granted = true;
+                waiter.ready.signal();
+            }
+        }
+
+        private void remove(long requester, Waiter waiter) {
+            ArrayDeque<Waiter> queue = waiting.get(requester);
+            if (queue != null && queue.remove(waiter)) {
+                queued--;
+                if (queue.isEmpty()) {
+                    waiting.remove(requester);
+                }
+            }
+        }
+
+        private Duration nextBackoff() {
+            Duration delay = backoff.multipliedBy(1L << Math.min(consecutiveThrottles, 20));
+            consecutiveThrottles++;
+            return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+        }
+
+        private void pause(Duration delay) {
+            throttled++;
+            long until = System.nanoTime() + delay.toNanos();
+            if (until - pausedUntil > 0) {
+                pausedUntil = until;
+            }
+            // ожидающие без ограничения по времени должны узнать о паузе
+            waiting.values().forEach(queue -> queue.forEach(waiter -> waiter.ready.signal()));
+        }
+
+        private boolean isIdle(long now) {
+            return queued == 0 && inFlight == 0 && pausedUntil - now <= 0
+                   && now - lastUsed >= idleTimeout.toNanos();
+        }
+
+        private HostStats stats() {
+            long pause = Math.max(0, pausedUntil - System.nanoTime());
+            return new HostStats(queued, inFlight, granted, throttled, Duration.ofNanos(totalWaitNanos),
+                    Duration.ofNanos(maxWaitNanos), Duration.ofNanos(pause));
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package ru.practicum.item;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.jsoup.parser.Parser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+// Потоковое извлечение метаданных из HTML: заголовок страницы, признаки
+// наличия изображений и видео и начало текста страницы для полнотекстового поиска.
+// В отличие от Jsoup.parse не строит DOM и не загружает страницу целиком - читает
+// её по частям и прекращает чтение, как только всё нужное найдено или прочитано
+// больше maxBytes байт.
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class HtmlMetadataExtractor {
+    private static final int MAX_TITLE_LENGTH = 2048;
+    private static final int MAX_TAG_NAME_LENGTH = 16;
+
+    record Result(String title, boolean hasImage, boolean hasVideo, String text) {
+    }
+
+    static Result extract(InputStream in, Charset charset, long maxBytes) throws IOException {
+        return extract(in, charset, maxBytes, 0);
+    }
+
+    // maxTextLength - сколько символов текста страницы (без разметки, скриптов и стилей) вернуть
+    static Result extract(InputStream in, Charset charset, long maxBytes, int maxTextLength) throws IOException {
+        Scanner scanner = new Scanner(new InputStreamReader(new LimitedInputStream(in, maxBytes), charset));
+
+        String title = null;
+        boolean hasImage = false;
+        boolean hasVideo = false;
+        // сущности (&amp;) раскрываются в конце, поэтому берём текст с запасом
+        int maxRawTextLength = maxTextLength > 0 ? maxTextLength + maxTextLength / 4 : 0;
+        StringBuilder text = new StringBuilder();
+
+        int c;
+        while ((c = scanner.next()) != -1) {
+            if (c != '<') {
+                if (text.length() < maxRawTextLength) {
+                    text.append((char) c);
+                } else if (title != null && hasImage && hasVideo) {
+                    break;
+                }
+                continue;
+            }
+            // тэг отделяет слова: "<p>один</p><p>два</p>" - это "один два"
+            if (text.length() < maxRawTextLength) {
+                text.append(' ');
+            }
+            c = scanner.next();
+            if (c == '!') {
+                // комментарий или <!DOCTYPE ...>: тэги внутри комментария не учитываем
+                if (scanner.next() == '-' && scanner.next() == '-') {
+                    scanner.skipUntil("-->");
+                } else {
+                    scanner.skipUntil(">");
+                }
+                continue;
+            }
+            if (c == '/') {
+                // закрывающий тэг
+                scanner.skipUntil(">");
+                continue;
+            }
+            if (!Character.isLetter(c)) {
+                // "<" в тексте, а не начало тэга
+                if (c != -1 && text.length() < maxRawTextLength) {
+                    text.append('<').append((char) c);
+                }
+                continue;
+            }
+
+            StringBuilder name = new StringBuilder();
+            while (c != -1 && Character.isLetterOrDigit(c) && name.length() < MAX_TAG_NAME_LENGTH) {
+                name.append(Character.toLowerCase((char) c));
+                c = scanner.next();
+            }
+
+            // атрибуты тэга - не текст страницы
+            if (c != '>') {
+                scanner.skipUntil(">");
+            }
+
+            switch (name.toString()) {
+                case "title" -> {
+                    String rawTitle = scanner.readUntil("</title", MAX_TITLE_LENGTH);
+                    scanner.skipUntil(">");
+                    if (title == null) {
+                        title = normalizeWhitespace(Parser.unescapeEntities(rawTitle, false));
+                    }
+                }
+                case "img" -> hasImage = true;
+                case "video" -> hasVideo = true;
+                // содержимое скриптов и стилей - не разметка и не текст,
+                // "<img" в строке скрипта не считается
+                case "script", "style" -> {
+                    scanner.skipUntil("</" + name);
+                    scanner.skipUntil(">");
+                }
+                default -> {
+                }
+            }
+
+            if (title != null && hasImage && hasVideo && text.length() >= maxRawTextLength) {
+                break;
+            }
+        }
+
+        return new Result(title != null ? title : "", hasImage, hasVideo, pageText(text, maxTextLength));
+    }
+
+    private static String pageText(StringBuilder rawText, int maxTextLength) {
+        if (maxTextLength <= 0) {
+            return "";
+        }
+        String text = normalizeWhitespace(Parser.unescapeEntities(rawText.toString(), false));
+        return text.length() > maxTextLength ? text.substring(0, maxTextLength) : text;
+    }
+
+    // Как Element.text() в Jsoup: пробельные символы (включая неразрывный пробел)
+    // схлопываются, края обрезаются
+    private static String normalizeWhitespace(String s) {
+        StringBuilder result = new StringBuilder(s.length());
+        boolean lastWasSpace = true;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (Character.isWhitespace(ch) || ch == '\u00A0') {
+                if (!lastWasSpace) {
+                    result.append(' ');
+                    lastWasSpace = true;
+                }
+            } else {
+                result.append(ch);
+                lastWasSpace = false;
+            }
+        }
+        int length = result.length();
+        if (length > 0 && result.charAt(length - 1) == ' ') {
+            result.setLength(length - 1);
+        }
+        return result.toString();
+    }
+
+    // Посимвольное чтение с собственным буфером, без синхронизации BufferedReader
+    private static final class Scanner {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+
+        private Scanner(Reader reader) {
+            this.reader = reader;
+        }
+
+        int next() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        // Пропускает символы до конца marker включительно (marker - в нижнем регистре)
+        void skipUntil(String marker) throws IOException {
+            readUntil(marker, 0);
+        }
+
+        // Возвращает не более maxLength символов до marker, сам marker пропускает
+        String readUntil(String marker, int maxLength) throws IOException {
+            StringBuilder text = new StringBuilder();
+            char[] window = new char[marker.length()];
+            char lastMarkerChar = marker.charAt(marker.length() - 1);
+            int windowPosition = 0;
+            long seen = 0;
+            int c;
+            while ((c = next()) != -1) {
+                window[windowPosition] = (char) c;
+                windowPosition = (windowPosition + 1) % window.length;
+                seen++;
+                // окно целиком сравниваем, только если совпал последний символ
+                if (seen >= window.length
+                    && Character.toLowerCase((char) c) == lastMarkerChar
+                    && endsWith(window, windowPosition, marker)) {
+                    long textLength = Math.min(Math.min(text.length(), seen - window.length), maxLength);
+                    text.setLength((int) textLength);
+                    return text.toString();
+                }
+                if (text.length() < maxLength + marker.length()) {
+                    text.append((char) c);
+                }
+            }
+            text.setLength(Math.min(text.length(), maxLength));
+            return text.toString();
+        }
+
+        private static boolean endsWith(char[] window, int start, String marker) {
+            for (int i = 0; i < window.length; i++) {
+                if (Character.toLowerCase(window[(start + i) % window.length]) != marker.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Ограничивает количество прочитанных байт, дальше поток считается закончившимся
+    private static final class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        private LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.remaining = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ru.practicum.item;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+
+// Пакетное изменение и удаление ссылок (PATCH /items/batch, POST /items/batch/delete):
+// каждая таблица изменяется одним запросом по массиву id, без загрузки сущностей.
+// Журнал изменений и счётчики ведут триггеры БД, как и при изменении по одной ссылке.
+// Выполняется в транзакции вызывающего кода.
+@Repository
+@Timed(ItemMetrics.JDBC_REPOSITORY_INVOCATIONS)
+@RequiredArgsConstructor
+class ItemBatchRepository {
+    // Выбранные ссылки блокируются до конца транзакции - по порядку id, чтобы одновременные
+    // пакетные операции не ждали друг друга по кругу. Пока операция не завершится, к ссылкам
+    // нельзя добавить тэги или заметки, и следующие запросы операции видят тот же набор ссылок
+    static final String FIND_IDS_BY_IDS = """
+            SELECT id FROM items WHERE user_id = ? AND id = ANY (?) ORDER BY id FOR UPDATE""";
+    // не заданный (NULL) фильтр не проверяется
+    static final String FIND_IDS = """
+            SELECT i.id
+            FROM items i
+            WHERE i.user_id = ?
+              AND (CAST(? AS BOOLEAN) IS NULL OR i.unread = ?)
+              AND (CAST(? AS VARCHAR) IS NULL OR i.mime_type = ?)
+              AND (CAST(? AS VARCHAR[]) IS NULL OR EXISTS (SELECT 1
+                                                          FROM item_tags it
+                                                          JOIN tags t ON t.id = it.tag_id
+                                                          WHERE it.item_id = i.id AND t.user_id = ?
+                                                            AND t.name = ANY (?)))
+            ORDER BY i.id
+            FOR UPDATE OF i""";
+    // строки, где состояние уже такое, не изменяются и не попадают в журнал
+    static final String SET_UNREAD = "UPDATE items SET unread = ? WHERE id = ANY (?) AND unread <> ?";
+    // тэги, которые останутся у ссылок, не удаляются, чтобы не добавлять их заново
+    static final String DELETE_OTHER_TAGS = "DELETE FROM item_tags WHERE item_id = ANY (?) AND tag_id <> ALL (?)";
+    static final String INSERT_TAGS = """
+            INSERT INTO item_tags (item_id, tag_id)
+            SELECT item_id, tag_id
+            FROM unnest(CAST(? AS BIGINT[])) AS item_id
+            CROSS JOIN unnest(CAST(? AS BIGINT[])) AS tag_id
+            ON CONFLICT DO NOTHING""";
+    static final String DELETE_NOTES = "DELETE FROM item_notes WHERE item_id = ANY (?)";
+    // тэги удаляются отдельным запросом до ссылок: триггер счётчиков item_counts
+    // берёт состояние и тип тэга из ещё не удалённой ссылки
+    static final String DELETE_TAGS = "DELETE FROM item_tags WHERE item_id = ANY (?)";
+    static final String DELETE_ITEMS = "DELETE FROM items WHERE id = ANY (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    List<Long> findIds(long userId, Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(FIND_IDS_BY_IDS,
+                ps -> {
+                    ps.setLong(1, userId);
+                    ps.setArray(2, bigints(ps.getConnection(), itemIds));
+                },
+                (rs, rowNum) -> rs.getLong("id"));
+    }
+
+    // unread, mimeType, tags - null, если по ним не фильтровать
+    List<Long> findIds(long userId, Boolean unread, String mimeType, Collection<String> tags) {
+        return jdbcTemplate.query(FIND_IDS,
+                ps -> {
+                    ps.setLong(1, userId);
+                    ps.setObject(2, unread, Types.BOOLEAN);
+                    ps.setObject(3, unread, Types.BOOLEAN);
+                    ps.setString(4, mimeType);
+                    ps.setString(5, mimeType);
+                    Array names = tags == null ? null : ps.getConnection().createArrayOf("varchar", tags.toArray());
+                    ps.setArray(6, names);
+                    ps.setLong(7, userId);
+                    ps.setArray(8, names);
+                },
+                (rs, rowNum) -> rs.getLong("id"));
+    }
+
+    void setUnread(Collection<Long> itemIds, boolean unread) {
+        jdbcTemplate.update(SET_UNREAD, ps -> {
+            ps.setBoolean(1, unread);
+            ps.setArray(2, bigints(ps.getConnection(), itemIds));
+            ps.setBoolean(3, unread);
+        });
+    }
+
+    // Оставляет у ссылок только тэги keepTagIds из тех, что у них есть
+    void deleteOtherTags(Collection<Long> itemIds, Collection<Long> keepTagIds) {
+        jdbcTemplate.update(DELETE_OTHER_TAGS, ps -> {
+            ps.setArray(1, bigints(ps.getConnection(), itemIds));
+            ps.setArray(2, bigints(ps.getConnection(), keepTagIds));
+        });
+    }
+
+    void insertTags(Collection<Long> itemIds, Collection<Long> tagIds) {
+        if (tagIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(INSERT_TAGS, ps -> {
+            ps.setArray(1, bigints(ps.getConnection(), itemIds));
+            ps.setArray(2, bigints(ps.getConnection(), tagIds));
+        });
+    }
+
+    // Удаляет ссылки вместе с их заметками и связями с тэгами
+    void delete(Collection<Long> itemIds) {
+        for (String sql : List.of(DELETE_NOTES, DELETE_TAGS, DELETE_ITEMS)) {
+            jdbcTemplate.update(sql, ps -> ps.setArray(1, bigints(ps.getConnection(), itemIds)));
+        }
+    }
+
+    private static Array bigints(Connection connection, Collection<Long> ids) throws SQLException {
+        return connection.createArrayOf("bigint", ids.toArray());
+    }
+}
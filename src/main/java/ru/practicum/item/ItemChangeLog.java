@@ -0,0 +1,52 @@
+package ru.practicum.item;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.common.GoneException;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Срок действия токенов синхронизации и сокращение журнала изменений ссылок.
+// Записи об удалении ссылок хранятся token-ttl-days дней и ещё сутки - запас
+// на расхождение часов приложения и БД. Клиент с более старым токеном мог бы
+// не узнать об удалении, поэтому получает 410 и загружает все ссылки заново.
+// Остальные записи, устаревшие из-за более новых записей той же ссылки, удаляются
+// при каждом проходе: у каждой существующей ссылки в журнале остаётся последняя запись.
+@Slf4j
+@Component
+class ItemChangeLog {
+    private static final Duration CLOCK_MARGIN = Duration.ofDays(1);
+
+    private final ItemChangeRepository itemChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration tokenTtl;
+
+    ItemChangeLog(ItemChangeRepository itemChangeRepository,
+                  TransactionTemplate transactionTemplate,
+                  @Value("${item-changes.token-ttl-days:30}") long tokenTtlDays) {
+        this.itemChangeRepository = itemChangeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.tokenTtl = Duration.ofDays(tokenTtlDays);
+    }
+
+    // Токен клиента, если журнал ещё содержит все нужные ему записи
+    ItemChangesToken check(ItemChangesToken token, Instant now) {
+        if (token.issuedAt().isBefore(now.minus(tokenTtl))) {
+            throw new GoneException("Sync token expired, reload all items");
+        }
+        return token;
+    }
+
+    @Scheduled(fixedDelayString = "${item-changes.cleanup-interval-ms:3600000}")
+    void compact() {
+        Instant deletedBefore = Instant.now().minus(tokenTtl).minus(CLOCK_MARGIN);
+        Integer removed = transactionTemplate.execute(status -> itemChangeRepository.compact(deletedBefore));
+        if (removed != null && removed > 0) {
+            log.info("Removed {} item change log entries", removed);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.item;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+// Журнал изменений ссылок (таблица item_changes, миграция V7__item_changes.sql).
+// Записи добавляют триггеры БД при фиксации транзакций, здесь журнал только читается
+// и сокращается. Выполняется в транзакции вызывающего кода.
+@Repository
+@Timed(ItemMetrics.JDBC_REPOSITORY_INVOCATIONS)
+@RequiredArgsConstructor
+class ItemChangeRepository {
+    // у ссылки важна только последняя запись - по ней ссылка и упорядочивается
+    static final String FIND_CHANGES = """
+            SELECT item_id, max(change_seq) AS change_seq, (array_agg(deleted ORDER BY change_seq DESC))[1] AS deleted
+            FROM item_changes
+            WHERE user_id = ? AND change_seq > ?
+            GROUP BY item_id
+            ORDER BY change_seq
+            LIMIT ?""";
+    // записи, после которых у ссылки есть более новые, ничего не дают ни одному клиенту
+    static final String DELETE_SUPERSEDED = """
+            DELETE FROM item_changes c
+            WHERE EXISTS (SELECT 1 FROM item_changes n WHERE n.item_id = c.item_id AND n.change_seq > c.change_seq)""";
+    static final String DELETE_OLD_DELETIONS = "DELETE FROM item_changes WHERE deleted AND changed_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    record Change(long itemId, long changeSeq, boolean deleted) {
+    }
+
+    // Ссылки пользователя, изменённые после afterSeq, в порядке их последнего изменения
+    List<Change> findChanges(long userId, long afterSeq, int limit) {
+        return jdbcTemplate.query(FIND_CHANGES,
+                (rs, rowNum) -> new Change(rs.getLong("item_id"), rs.getLong("change_seq"),
+                        rs.getBoolean("deleted")),
+                userId, afterSeq, limit);
+    }
+
+    // Сокращает журнал: удаляет записи, устаревшие из-за более новых записей той же ссылки,
+    // и записи об удалении старше deletedBefore. Возвращает число удалённых записей
+    int compact(Instant deletedBefore) {
+        int superseded = jdbcTemplate.update(DELETE_SUPERSEDED);
+        return superseded + jdbcTemplate.update(DELETE_OLD_DELETIONS,
+                Timestamp.valueOf(LocalDateTime.ofInstant(deletedBefore, ZoneOffset.UTC)));
+    }
+}
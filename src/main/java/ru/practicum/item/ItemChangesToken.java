@@ -0,0 +1,27 @@
+package ru.practicum.item;
+
+import ru.practicum.common.BadRequestException;
+import ru.practicum.common.CursorCodec;
+
+import java.time.Instant;
+import java.util.List;
+
+// Токен синхронизации: номер последнего полученного клиентом изменения в журнале
+// item_changes и время, с которого клиент знает все изменения до этого номера.
+// По времени определяется, не удалены ли из журнала нужные клиенту записи об удалении.
+record ItemChangesToken(long changeSeq, Instant issuedAt) {
+
+    static ItemChangesToken decode(String token) {
+        List<String> parts = CursorCodec.decode(token, 2);
+        try {
+            return new ItemChangesToken(Long.parseLong(parts.get(0)),
+                    Instant.ofEpochMilli(Long.parseLong(parts.get(1))));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+
+    String encode() {
+        return CursorCodec.encode(String.valueOf(changeSeq), String.valueOf(issuedAt.toEpochMilli()));
+    }
+}
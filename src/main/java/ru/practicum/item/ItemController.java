@@ -1,11 +1,21 @@
 package ru.practicum.item;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.practicum.common.UserVersions;
 import ru.practicum.item.dto.AddItemRequest;
+import ru.practicum.item.dto.ItemBatchResult;
+import ru.practicum.item.dto.ItemChangesDto;
 import ru.practicum.item.dto.GetItemRequest;
 import ru.practicum.item.dto.ItemDto;
+import ru.practicum.item.dto.ItemFacetsDto;
+import ru.practicum.item.dto.ItemSelection;
 import ru.practicum.item.dto.ModifyItemRequest;
+import ru.practicum.item.dto.ModifyItemsRequest;
+import ru.practicum.item.model.ItemStatus;
 
 import java.util.HashSet;
 import java.util.List;
@@ -14,17 +24,26 @@ import java.util.List;
 @RequestMapping("/items")
 @RequiredArgsConstructor
 public class ItemController {
+    private static final String NEXT_CURSOR_HEADER = "X-Later-Next-Cursor";
+
     private final ItemService itemService;
+    private final UserVersions userVersions;
 
     @GetMapping
-    public List<ItemDto> get(
+    public ResponseEntity<List<ItemDto>> get(
             @RequestHeader("X-Later-User-Id") long userId,
             @RequestParam(name = "state", defaultValue = "unread") String state,
             @RequestParam(name = "contentType", defaultValue = "all") String contentType,
             @RequestParam(name = "sort", defaultValue = "newest") String sort,
             @RequestParam(name = "limit", defaultValue = "10") int limit,
-            @RequestParam(name = "tags", required = false) List<String> tags
+            @RequestParam(name = "tags", required = false) List<String> tags,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            WebRequest webRequest
     ) {
+        // Данные пользователя не менялись с прошлого запроса клиента - 304 без обращения к БД
+        if (webRequest.checkNotModified(userVersions.etag(userId))) {
+            return null;
+        }
         GetItemRequest request = GetItemRequest.builder()
                 .userId(userId)
                 .state(GetItemRequest.State.valueOf(state.toUpperCase()))
@@ -32,14 +51,82 @@ public class ItemController {
                 .sort(GetItemRequest.Sort.valueOf(sort.toUpperCase()))
                 .limit(limit)
                 .tags(tags != null ? new HashSet<>(tags) : new HashSet<>())
+                .cursor(cursor)
                 .build();
-        return itemService.getItems(request);
+        List<ItemDto> items = itemService.getItems(request);
+
+        // Страница заполнена целиком - возможно, есть следующая. Чтобы её получить,
+        // клиент повторяет запрос с теми же параметрами и cursor из заголовка
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (limit > 0 && items.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, ItemCursor.after(request.sort(), items.getLast()).encode());
+        }
+        return response.body(items);
+    }
+
+    // Число ссылок по состоянию, типу содержимого и тэгам для панели фильтров -
+    // с теми же фильтрами, что у GET /items
+    @GetMapping("/facets")
+    public ItemFacetsDto getFacets(@RequestHeader("X-Later-User-Id") long userId,
+                                   @RequestParam(name = "state", defaultValue = "unread") String state,
+                                   @RequestParam(name = "contentType", defaultValue = "all") String contentType,
+                                   @RequestParam(name = "tags", required = false) List<String> tags,
+                                   WebRequest webRequest) {
+        if (webRequest.checkNotModified(userVersions.etag(userId))) {
+            return null;
+        }
+        return itemService.getFacets(GetItemRequest.builder()
+                .userId(userId)
+                .state(GetItemRequest.State.valueOf(state.toUpperCase()))
+                .contentType(GetItemRequest.ContentType.valueOf(contentType.toUpperCase()))
+                .tags(tags != null ? new HashSet<>(tags) : new HashSet<>())
+                .build());
+    }
+
+    // Полнотекстовый поиск по заголовкам, тексту страниц и заметкам пользователя
+    @GetMapping("/search")
+    public List<ItemDto> search(@RequestHeader("X-Later-User-Id") long userId,
+                                @RequestParam(name = "q") String query,
+                                @RequestParam(name = "limit", defaultValue = "10") int limit,
+                                WebRequest webRequest) {
+        if (webRequest.checkNotModified(userVersions.etag(userId))) {
+            return null;
+        }
+        return itemService.search(userId, query, limit);
+    }
+
+    // Синхронизация: ссылки, добавленные, изменённые и удалённые после токена since.
+    // Первый запрос без since возвращает все ссылки. Если токен устарел - 410,
+    // и клиент загружает ссылки заново без since
+    @GetMapping("/changes")
+    public ItemChangesDto getChanges(@RequestHeader("X-Later-User-Id") long userId,
+                                     @RequestParam(name = "since", required = false) String since,
+                                     @RequestParam(name = "limit", defaultValue = "1000") int limit,
+                                     WebRequest webRequest) {
+        if (webRequest.checkNotModified(userVersions.etag(userId))) {
+            return null;
+        }
+        return itemService.getChanges(userId, since, limit);
+    }
+
+    @GetMapping("/{itemId}")
+    public ItemDto getItem(@RequestHeader("X-Later-User-Id") long userId,
+                           @PathVariable(name = "itemId") long itemId,
+                           WebRequest webRequest) {
+        if (webRequest.checkNotModified(userVersions.etag(userId))) {
+            return null;
+        }
+        return itemService.getItem(userId, itemId);
     }
 
     @PostMapping
-    public ItemDto add(@RequestHeader("X-Later-User-Id") Long userId,
-                       @RequestBody AddItemRequest request) {
-        return itemService.addNewItem(userId, request);
+    public ResponseEntity<ItemDto> add(@RequestHeader("X-Later-User-Id") Long userId,
+                                       @RequestBody AddItemRequest request) {
+        ItemDto item = itemService.addNewItem(userId, request);
+        // Если метаданные ещё не получены, отвечаем 202 - клиент может
+        // узнать результат позже через GET /items/{itemId}
+        HttpStatus status = item.status() == ItemStatus.PENDING ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(status).body(item);
     }
 
     @DeleteMapping("/{itemId}")
@@ -54,4 +141,19 @@ public class ItemController {
 
         return itemService.modifyItem(userId, request);
     }
+
+    // Изменение сразу многих ссылок - по списку id или по фильтрам, как у GET /items.
+    // Отвечает числом выбранных ссылок
+    @PatchMapping("/batch")
+    public ItemBatchResult modifyItems(@RequestHeader("X-Later-User-Id") long userId,
+                                       @RequestBody ModifyItemsRequest request) {
+        return itemService.modifyItems(userId, request);
+    }
+
+    // Удаление ссылок вместе с заметками - по списку id или по фильтрам
+    @PostMapping("/batch/delete")
+    public ItemBatchResult deleteItems(@RequestHeader("X-Later-User-Id") long userId,
+                                       @RequestBody ItemSelection selection) {
+        return itemService.deleteItems(userId, selection);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package ru.practicum.item;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// Складывает приращения счётчиков ссылок (item_counts) в итоговые строки. Без этого
+// число строк пользователя росло бы с каждым изменением, и с ним - время GET /items/facets.
+// Каждый пользователь - в своей транзакции, за проход - не больше batch-size пользователей
+@Slf4j
+@Component
+class ItemCountCompactor {
+    private final ItemCountRepository itemCountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    ItemCountCompactor(ItemCountRepository itemCountRepository,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${item-facets.compact-batch-size:1000}") int batchSize) {
+        this.itemCountRepository = itemCountRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${item-facets.compact-interval-ms:60000}")
+    void compact() {
+        List<Long> users = itemCountRepository.findUsersToCompact(batchSize);
+        for (long userId : users) {
+            transactionTemplate.executeWithoutResult(status -> itemCountRepository.compact(userId));
+        }
+        if (!users.isEmpty()) {
+            log.debug("Compacted item counts of {} users", users.size());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.item;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+// Счётчики ссылок пользователей (таблица item_counts, миграция V9__item_counts.sql).
+// Приращения добавляют триггеры БД, здесь счётчики читаются и складываются.
+// Выполняется в транзакции вызывающего кода.
+@Repository
+@Timed(ItemMetrics.JDBC_REPOSITORY_INVOCATIONS)
+@RequiredArgsConstructor
+class ItemCountRepository {
+    // строк у пользователя - по числу сочетаний тэга, состояния и типа плюс несложенные приращения
+    static final String FIND_COUNTS = """
+            SELECT t.name, c.unread, c.mime_type, sum(c.item_count) AS item_count
+            FROM item_counts c
+            LEFT JOIN tags t ON t.id = c.tag_id
+            WHERE c.user_id = ?
+            GROUP BY c.tag_id, t.name, c.unread, c.mime_type
+            HAVING sum(c.item_count) <> 0""";
+    // ссылки хотя бы с одним из тэгов: пересечения тэгов счётчики не хранят
+    static final String FIND_TAGGED_COUNTS = """
+            SELECT i.unread, i.mime_type, count(*) AS item_count
+            FROM items i
+            WHERE i.user_id = ? AND i.id IN (SELECT it.item_id
+                                             FROM tags t
+                                             JOIN item_tags it ON it.tag_id = t.id
+                                             WHERE t.user_id = ? AND t.name = ANY (?))
+            GROUP BY i.unread, i.mime_type""";
+    static final String FIND_USERS_TO_COMPACT = """
+            SELECT DISTINCT user_id FROM item_counts WHERE NOT compacted LIMIT ?""";
+    // приращения складываются с итоговыми строками; нулевые счётчики удаляются
+    static final String COMPACT = """
+            WITH removed AS (DELETE FROM item_counts WHERE user_id = ? RETURNING *)
+            INSERT INTO item_counts (user_id, tag_id, unread, mime_type, item_count, compacted)
+            SELECT user_id, tag_id, unread, mime_type, sum(item_count), true
+            FROM removed
+            GROUP BY user_id, tag_id, unread, mime_type
+            HAVING sum(item_count) <> 0""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Число ссылок с данным состоянием и типом содержимого; tag - null для всех ссылок
+    record Count(String tag, boolean unread, String mimeType, long count) {
+    }
+
+    List<Count> findCounts(long userId) {
+        return jdbcTemplate.query(FIND_COUNTS,
+                (rs, rowNum) -> new Count(rs.getString("name"), rs.getBoolean("unread"),
+                        rs.getString("mime_type"), rs.getLong("item_count")),
+                userId);
+    }
+
+    // Число ссылок хотя бы с одним из тэгов - без разбивки по тэгам
+    List<Count> findTaggedCounts(long userId, Collection<String> tags) {
+        return jdbcTemplate.query(FIND_TAGGED_COUNTS,
+                ps -> {
+                    ps.setLong(1, userId);
+                    ps.setLong(2, userId);
+                    ps.setArray(3, ps.getConnection().createArrayOf("varchar", tags.toArray()));
+                },
+                (rs, rowNum) -> new Count(null, rs.getBoolean("unread"), rs.getString("mime_type"),
+                        rs.getLong("item_count")));
+    }
+
+    List<Long> findUsersToCompact(int limit) {
+        return jdbcTemplate.queryForList(FIND_USERS_TO_COMPACT, Long.class, limit);
+    }
+
+    // Складывает приращения пользователя. Приращения, зафиксированные после начала
+    // запроса, им не видны и останутся до следующего раза
+    void compact(long userId) {
+        jdbcTemplate.update(COMPACT, userId);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.item;
+
+import ru.practicum.common.BadRequestException;
+import ru.practicum.common.CursorCodec;
+import ru.practicum.item.dto.GetItemRequest;
+import ru.practicum.item.dto.ItemDto;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+// Положение в списке ссылок: значение ключа сортировки и id последней
+// ссылки предыдущей страницы. Следующая страница начинается строго после них,
+// поэтому её стоимость не зависит от глубины, а добавленные тем временем
+// ссылки не сдвигают и не повторяют уже показанные.
+record ItemCursor(GetItemRequest.Sort sort, String value, long id) {
+
+    static ItemCursor after(GetItemRequest.Sort sort, ItemDto last) {
+        String value = switch (sort) {
+            case NEWEST, OLDEST -> last.dateResolved();
+            case TITLE -> last.title();
+            case SITE -> last.resolvedUrl();
+        };
+        return new ItemCursor(sort, value, last.id());
+    }
+
+    // Курсор действителен только для той сортировки, с которой он получен
+    static ItemCursor decode(String cursor, GetItemRequest.Sort sort) {
+        List<String> parts = CursorCodec.decode(cursor, 3);
+        if (!sort.name().equals(parts.get(0))) {
+            throw new BadRequestException("Cursor does not match sort " + sort.name().toLowerCase());
+        }
+        try {
+            ItemCursor result = new ItemCursor(sort, parts.get(1), Long.parseLong(parts.get(2)));
+            if (result.value() != null && (sort == GetItemRequest.Sort.NEWEST || sort == GetItemRequest.Sort.OLDEST)) {
+                result.instantValue();
+            }
+            return result;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+
+    String encode() {
+        return CursorCodec.encode(sort.name(), value, String.valueOf(id));
+    }
+
+    Instant instantValue() {
+        return value != null ? Instant.parse(value) : null;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.item;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.common.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+// Выгрузка всех ссылок пользователя с тэгами и заметками: format=ndjson, csv или html
+// (закладки Netscape). Ответ передаётся по мере чтения ссылок из БД.
+@RestController
+@RequestMapping("/items/export")
+@RequiredArgsConstructor
+public class ItemExportController {
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType TEXT_HTML = new MediaType("text", "html", StandardCharsets.UTF_8);
+
+    private final ItemExportService itemExportService;
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportItems(
+            @RequestHeader("X-Later-User-Id") long userId,
+            @RequestParam(name = "format", defaultValue = "ndjson") String format) {
+        ItemExportService.Format exportFormat = parseFormat(format);
+        // несуществующего пользователя отклоняем до начала передачи ответа
+        itemExportService.checkUser(userId);
+
+        StreamingResponseBody body = out -> itemExportService.exportItems(userId, exportFormat, out);
+
+        MediaType contentType = switch (exportFormat) {
+            case NDJSON -> MediaType.APPLICATION_NDJSON;
+            case CSV -> TEXT_CSV;
+            case HTML -> TEXT_HTML;
+        };
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename("later-items." + exportFormat.name().toLowerCase(Locale.ROOT))
+                .build();
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
+
+    private static ItemExportService.Format parseFormat(String format) {
+        try {
+            return ItemExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unknown export format: " + format);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.item;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.item.dto.ExportedItem;
+import ru.practicum.item.model.ItemStatus;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Чтение всех ссылок пользователя для выгрузки (GET /items/export).
+// Строки читаются курсором по fetchSize штук: в памяти одновременно не больше
+// одной порции, сколько бы ссылок ни было. Драйвер PostgreSQL читает курсором
+// только внутри транзакции, поэтому вызывающий код должен её открыть.
+@Repository
+@Timed(ItemMetrics.JDBC_REPOSITORY_INVOCATIONS)
+@RequiredArgsConstructor
+class ItemExportRepository {
+    // Порядок индекса items_user_id_date_resolved_idx: строки идут сразу из индекса,
+    // без сортировки всех ссылок пользователя перед отправкой первой.
+    // Тэги и заметки собираются в массивы подзапросами по первичному ключу item_tags
+    // и индексу item_notes_item_id_idx
+    static final String FIND_ITEMS = """
+            SELECT i.id, i.url, i.resolved_url, i.mime_type, i.title, i.has_image, i.has_video,
+                   i.unread, i.date_resolved, i.status,
+                   ARRAY(SELECT t.name
+                         FROM item_tags it
+                         JOIN tags t ON t.id = it.tag_id
+                         WHERE it.item_id = i.id
+                         ORDER BY t.name) AS tags,
+                   ARRAY(SELECT n.text FROM item_notes n WHERE n.item_id = i.id ORDER BY n.id) AS note_texts,
+                   ARRAY(SELECT n.note_date FROM item_notes n WHERE n.item_id = i.id ORDER BY n.id) AS note_dates
+            FROM items i
+            WHERE i.user_id = ?
+            ORDER BY i.date_resolved, i.id""";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_INSTANT.withZone(ZoneOffset.UTC);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Передаёт ссылки пользователя в consumer по одной, в порядке сохранения
+    void forEachItem(long userId, int fetchSize, Consumer<ExportedItem> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(FIND_ITEMS);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, userId);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs)));
+    }
+
+    private static ExportedItem mapRow(ResultSet rs) throws SQLException {
+        String status = rs.getString("status");
+        return ExportedItem.builder()
+                .id(rs.getLong("id"))
+                .url(rs.getString("url"))
+                .resolvedUrl(rs.getString("resolved_url"))
+                .mimeType(rs.getString("mime_type"))
+                .title(rs.getString("title"))
+                .hasImage(rs.getBoolean("has_image"))
+                .hasVideo(rs.getBoolean("has_video"))
+                .unread(rs.getBoolean("unread"))
+                .dateResolved(format(rs.getObject("date_resolved", LocalDateTime.class)))
+                .status(status == null ? null : ItemStatus.valueOf(status))
+                .tags(Arrays.asList((String[]) rs.getArray("tags").getArray()))
+                .notes(notes((String[]) rs.getArray("note_texts").getArray(),
+                        (Timestamp[]) rs.getArray("note_dates").getArray()))
+                .build();
+    }
+
+    private static List<ExportedItem.Note> notes(String[] texts, Timestamp[] dates) {
+        List<ExportedItem.Note> notes = new ArrayList<>(texts.length);
+        for (int i = 0; i < texts.length; i++) {
+            notes.add(new ExportedItem.Note(texts[i], dates[i] == null ? null : format(dates[i].toLocalDateTime())));
+        }
+        return notes;
+    }
+
+    // даты хранятся без часового пояса, в UTC (hibernate.jdbc.time_zone)
+    private static String format(LocalDateTime dateTime) {
+        return dateTime == null ? null : DATE_FORMATTER.format(dateTime.toInstant(ZoneOffset.UTC));
+    }
+}
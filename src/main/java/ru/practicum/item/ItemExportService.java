@@ -0,0 +1,15 @@
+package ru.practicum.item;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ItemExportService {
+    // Записывает в out все ссылки пользователя с тэгами и заметками.
+    // Ссылки пишутся по мере чтения из БД, весь список в памяти не собирается.
+    void exportItems(long userId, Format format, OutputStream out) throws IOException;
+
+    void checkUser(long userId);
+
+    // HTML - формат закладок Netscape, который понимают браузеры и сервисы отложенного чтения
+    enum Format {NDJSON, CSV, HTML}
+}
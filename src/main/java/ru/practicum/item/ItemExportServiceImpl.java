@@ -0,0 +1,76 @@
+package ru.practicum.item;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.common.NotFoundException;
+import ru.practicum.user.UserRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Выгрузка всех ссылок пользователя. Ссылки читаются курсором (ItemExportRepository)
+// и сразу пишутся в ответ через буфер: память не зависит от размера библиотеки.
+// Транзакция только на чтение нужна курсору и держит соединение с БД до конца выгрузки;
+// медленный клиент задерживает чтение курсора, а не накапливает строки в памяти.
+@Service
+public class ItemExportServiceImpl implements ItemExportService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UserRepository userRepository;
+    private final ItemExportRepository itemExportRepository;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    ItemExportServiceImpl(UserRepository userRepository,
+                          ItemExportRepository itemExportRepository,
+                          ObjectMapper objectMapper,
+                          @Value("${item-export.fetch-size:500}") int fetchSize) {
+        this.userRepository = userRepository;
+        this.itemExportRepository = itemExportRepository;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void checkUser(long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException(String.format("User with id %d not found", userId));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportItems(long userId, Format format, OutputStream out) throws IOException {
+        checkUser(userId);
+
+        ItemOperationEvent event = new ItemOperationEvent("exportItems", userId);
+        event.begin();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        ItemExportWriter exportWriter = new ItemExportWriter(format, writer, objectMapper);
+        long[] rows = {0};
+        exportWriter.begin();
+        try {
+            itemExportRepository.forEachItem(userId, fetchSize, item -> {
+                try {
+                    exportWriter.write(item);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // клиент закрыл соединение - курсор закрывается вместе с транзакцией
+            throw e.getCause();
+        }
+        exportWriter.end();
+        writer.flush();
+        event.commit(format::name, rows[0], 0);
+    }
+}
@@ -0,0 +1,151 @@
+package ru.practicum.item;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.util.HtmlUtils;
+import ru.practicum.item.dto.ExportedItem;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.List;
+
+// Запись выгрузки ссылок в одном из форматов ItemExportService.Format.
+// NDJSON - в каждой строке объект ExportedItem.
+// CSV - строка заголовка, затем по строке на ссылку; тэги и заметки разделяются
+// символом |, как в файле импорта. Переводы строк в заметках заменяются пробелами:
+// ItemImportReader читает файл построчно.
+// HTML - формат закладок Netscape: тэги - в атрибуте TAGS, непрочитанные
+// отмечены TOREAD, заметки - в <DD> под ссылкой.
+final class ItemExportWriter {
+    static final String CSV_HEADER =
+            "url,title,tags,unread,date_resolved,resolved_url,mime_type,has_image,has_video,status,notes\n";
+    static final String HTML_HEADER = """
+            <!DOCTYPE NETSCAPE-Bookmark-file-1>
+            <!-- This is an automatically generated file.
+                 It will be read and overwritten.
+                 DO NOT EDIT! -->
+            <META HTTP-EQUIV="Content-Type" CONTENT="text/html; charset=UTF-8">
+            <TITLE>Bookmarks</TITLE>
+            <H1>Bookmarks</H1>
+            <DL><p>
+            """;
+    static final String HTML_FOOTER = "</DL><p>\n";
+
+    private final ItemExportService.Format format;
+    private final Writer out;
+    private final ObjectMapper objectMapper;
+
+    ItemExportWriter(ItemExportService.Format format, Writer out, ObjectMapper objectMapper) {
+        this.format = format;
+        this.out = out;
+        this.objectMapper = objectMapper;
+    }
+
+    void begin() throws IOException {
+        switch (format) {
+            case CSV -> out.write(CSV_HEADER);
+            case HTML -> out.write(HTML_HEADER);
+            case NDJSON -> {
+            }
+        }
+    }
+
+    void write(ExportedItem item) throws IOException {
+        switch (format) {
+            case NDJSON -> {
+                out.write(objectMapper.writeValueAsString(item));
+                out.write('\n');
+            }
+            case CSV -> writeCsv(item);
+            case HTML -> writeHtml(item);
+        }
+    }
+
+    void end() throws IOException {
+        if (format == ItemExportService.Format.HTML) {
+            out.write(HTML_FOOTER);
+        }
+    }
+
+    private void writeCsv(ExportedItem item) throws IOException {
+        out.write(csv(item.url()));
+        out.write(',');
+        out.write(csv(item.title()));
+        out.write(',');
+        out.write(csv(String.join("|", item.tags())));
+        out.write(',');
+        out.write(String.valueOf(item.unread()));
+        out.write(',');
+        out.write(csv(item.dateResolved()));
+        out.write(',');
+        out.write(csv(item.resolvedUrl()));
+        out.write(',');
+        out.write(csv(item.mimeType()));
+        out.write(',');
+        out.write(String.valueOf(item.hasImage()));
+        out.write(',');
+        out.write(String.valueOf(item.hasVideo()));
+        out.write(',');
+        out.write(item.status() == null ? "" : item.status().name());
+        out.write(',');
+        out.write(csv(noteTexts(item.notes(), "|")));
+        out.write('\n');
+    }
+
+    private void writeHtml(ExportedItem item) throws IOException {
+        out.write("    <DT><A HREF=\"");
+        out.write(html(item.url()));
+        out.write('"');
+        if (item.dateResolved() != null) {
+            out.write(" ADD_DATE=\"");
+            out.write(String.valueOf(Instant.parse(item.dateResolved()).getEpochSecond()));
+            out.write('"');
+        }
+        if (!item.tags().isEmpty()) {
+            out.write(" TAGS=\"");
+            out.write(html(String.join(",", item.tags())));
+            out.write('"');
+        }
+        if (item.unread()) {
+            out.write(" TOREAD=\"1\"");
+        }
+        out.write('>');
+        out.write(html(item.title() == null || item.title().isBlank() ? item.url() : item.title()));
+        out.write("</A>\n");
+        if (!item.notes().isEmpty()) {
+            out.write("    <DD>");
+            out.write(html(noteTexts(item.notes(), "\n")).replace("\n", "<br>"));
+            out.write('\n');
+        }
+    }
+
+    private static String noteTexts(List<ExportedItem.Note> notes, String delimiter) {
+        StringBuilder texts = new StringBuilder();
+        for (ExportedItem.Note note : notes) {
+            if (note.text() == null) {
+                continue;
+            }
+            if (!texts.isEmpty()) {
+                texts.append(delimiter);
+            }
+            texts.append(note.text());
+        }
+        return texts.toString();
+    }
+
+    // Поле CSV по RFC 4180: в кавычках, если содержит запятую или кавычку
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        String line = value.replace("\r\n", " ").replace('\n', ' ').replace('\r', ' ');
+        if (line.indexOf(',') < 0 && line.indexOf('"') < 0) {
+            return line;
+        }
+        return '"' + line.replace("\"", "\"\"") + '"';
+    }
+
+    private static String html(String value) {
+        return value == null ? "" : HtmlUtils.htmlEscape(value, "UTF-8");
+    }
+}
@@ -0,0 +1,262 @@
+package ru.practicum.item;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.common.UserVersions;
+import ru.practicum.item.dto.GetItemRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Индекс фильтров GET /items в памяти: для каждого пользователя - сжатые битовые
+// множества id ссылок по состоянию (unread), типу содержимого (mime_type) и каждому тэгу.
+// Фильтр запроса вычисляется пересечением и объединением множеств, и если под него
+// подходит немного ссылок, из БД читается страница только среди них - по первичному ключу.
+// Без индекса БД просматривает ссылки по порядку сортировки и проверяет фильтры
+// у каждой: по редкому тэгу - почти все ссылки пользователя.
+// Индекс пользователя строится при первом его запросе и отмечается версией его данных
+// (UserVersions). Новая версия означает зафиксированные изменения - они догоняются
+// по журналу item_changes: журнал пишут триггеры БД, и в нём есть изменения, сделанные
+// любым путём - через ItemService, импорт или фоновое получение метаданных.
+// Пользователи, у которых меньше min-items ссылок, не индексируются.
+@Component
+class ItemFilterIndex {
+    private final boolean enabled;
+    private final long minItems;
+    private final int maxIds;
+    private final int maxCatchUp;
+    private final UserVersions userVersions;
+    private final ItemFilterRepository itemFilterRepository;
+    private final ItemChangeRepository itemChangeRepository;
+    private final Cache<Long, UserIndex> users;
+
+    ItemFilterIndex(UserVersions userVersions,
+                    ItemFilterRepository itemFilterRepository,
+                    ItemChangeRepository itemChangeRepository,
+                    @Value("${item-filter-index.enabled:false}") boolean enabled,
+                    @Value("${item-filter-index.min-items:10000}") long minItems,
+                    @Value("${item-filter-index.max-ids:1000}") int maxIds,
+                    @Value("${item-filter-index.max-catch-up:10000}") int maxCatchUp,
+                    @Value("${item-filter-index.max-items:5000000}") long maxItems) {
+        this.enabled = enabled;
+        this.minItems = minItems;
+        this.maxIds = maxIds;
+        this.maxCatchUp = maxCatchUp;
+        this.userVersions = userVersions;
+        this.itemFilterRepository = itemFilterRepository;
+        this.itemChangeRepository = itemChangeRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumWeight(maxItems)
+                .<Long, UserIndex>weigher((userId, index) -> (int) Math.min(Integer.MAX_VALUE, index.size() + 1))
+                .executor(Runnable::run)
+                .build();
+    }
+
+    // id ссылок, подходящих под фильтры запроса, в порядке возрастания. null - индекс
+    // не помогает и запрос нужно выполнить как обычно: индекс выключен, фильтров нет,
+    // у пользователя мало ссылок, под фильтры подходит больше max-ids ссылок или индекс
+    // пользователя сейчас обновляет другой запрос.
+    // Транзакция, которая сама изменила ссылки пользователя, обходит индекс: изменения
+    // попадут в журнал только при её фиксации
+    List<Long> find(GetItemRequest request) {
+        long userId = request.userId();
+        if (!enabled || !hasFilters(request) || userVersions.changedInTransaction(userId)) {
+            return null;
+        }
+        UserIndex index = users.get(userId, id -> new UserIndex());
+        // Индекс пользователя обновляет один запрос. Остальные запросы пользователя его не ждут,
+        // а выполняются без индекса: построение индекса большого пользователя читает все его
+        // ссылки, и ожидающие запросы держали бы соединения с БД из пула всё это время
+        if (!index.lock.tryLock()) {
+            return null;
+        }
+        try {
+            // версия - до чтения из БД: изменение, зафиксированное во время чтения,
+            // даст новую версию, и следующий запрос его догонит
+            long version = userVersions.current(userId);
+            if (index.version != version) {
+                long size = index.size();
+                refresh(userId, index);
+                index.version = version;
+                if (index.size() != size) {
+                    // размер записи в кэше пересчитывается при её замене
+                    users.put(userId, index);
+                }
+            }
+            if (!index.built) {
+                return null;
+            }
+            Roaring64Bitmap matches = index.match(request);
+            if (matches.getLongCardinality() > maxIds) {
+                return null;
+            }
+            List<Long> ids = new ArrayList<>((int) matches.getLongCardinality());
+            matches.forEach(ids::add);
+            return ids;
+        } finally {
+            index.lock.unlock();
+        }
+    }
+
+    // число пользователей в кэше индексов и ссылок в их индексах
+    long users() {
+        return users.estimatedSize();
+    }
+
+    long items() {
+        return users.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+
+    private static boolean hasFilters(GetItemRequest request) {
+        return request.state() != GetItemRequest.State.ALL
+                || request.contentType() != GetItemRequest.ContentType.ALL
+                || (request.tags() != null && !request.tags().isEmpty());
+    }
+
+    private void refresh(long userId, UserIndex index) {
+        if (index.built) {
+            List<ItemChangeRepository.Change> changes = itemChangeRepository.findChanges(userId, index.changeSeq,
+                    maxCatchUp + 1);
+            if (changes.size() <= maxCatchUp) {
+                catchUp(userId, index, changes);
+                return;
+            }
+        }
+        if (itemFilterRepository.countItems(userId) < minItems) {
+            index.clear();
+            return;
+        }
+        build(userId, index);
+    }
+
+    // Индекс строится заново. Номер записи журнала читается до ссылок: изменения,
+    // зафиксированные во время чтения, получат номера больше и будут применены ещё раз
+    // при следующем обновлении - применение текущего состояния ссылки можно повторять
+    private void build(long userId, UserIndex index) {
+        long changeSeq = itemFilterRepository.lastChangeSeq(userId);
+        Bitmaps bitmaps = new Bitmaps();
+        itemFilterRepository.findItems(userId, bitmaps::add);
+        itemFilterRepository.findTags(userId, bitmaps::addTag);
+        bitmaps.optimize();
+        index.bitmaps = bitmaps;
+        index.changeSeq = changeSeq;
+        index.built = true;
+    }
+
+    // Изменённые ссылки убираются из всех множеств и добавляются заново
+    // по своему текущему состоянию; удалённые ссылки в БД уже не найдутся
+    private void catchUp(long userId, UserIndex index, List<ItemChangeRepository.Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<Long> itemIds = changes.stream().map(ItemChangeRepository.Change::itemId).toList();
+        Bitmaps changed = new Bitmaps();
+        itemFilterRepository.findItems(userId, itemIds, changed::add);
+        itemFilterRepository.findTags(itemIds, changed::addTag);
+
+        Roaring64Bitmap removed = new Roaring64Bitmap();
+        itemIds.forEach(removed::addLong);
+        index.bitmaps.remove(removed);
+        index.bitmaps.addAll(changed);
+        index.changeSeq = changes.getLast().changeSeq();
+    }
+
+    private static final class UserIndex {
+        private final ReentrantLock lock = new ReentrantLock();
+        // версия данных пользователя, которую отражает индекс; 0 версий не бывает
+        private long version;
+        // false - индекс не построен: у пользователя мало ссылок
+        private boolean built;
+        private long changeSeq;
+        private Bitmaps bitmaps = new Bitmaps();
+
+        long size() {
+            return bitmaps.all.getLongCardinality();
+        }
+
+        void clear() {
+            built = false;
+            changeSeq = 0;
+            bitmaps = new Bitmaps();
+        }
+
+        Roaring64Bitmap match(GetItemRequest request) {
+            Roaring64Bitmap result = switch (request.state()) {
+                case UNREAD -> Roaring64Bitmap.and(bitmaps.all, bitmaps.unread);
+                case READ -> Roaring64Bitmap.andNot(bitmaps.all, bitmaps.unread);
+                case ALL -> Roaring64Bitmap.or(new Roaring64Bitmap(), bitmaps.all);
+            };
+            if (request.contentType() != GetItemRequest.ContentType.ALL) {
+                result.and(bitmaps.byMimeType.getOrDefault(request.contentType().mimeType(), new Roaring64Bitmap()));
+            }
+            // ссылка подходит, если у неё есть хотя бы один из тэгов
+            if (request.tags() != null && !request.tags().isEmpty()) {
+                Roaring64Bitmap tagged = new Roaring64Bitmap();
+                for (String tag : request.tags()) {
+                    Roaring64Bitmap withTag = bitmaps.byTag.get(tag);
+                    if (withTag != null) {
+                        tagged.or(withTag);
+                    }
+                }
+                result.and(tagged);
+            }
+            return result;
+        }
+    }
+
+    private static final class Bitmaps {
+        private final Roaring64Bitmap all = new Roaring64Bitmap();
+        private final Roaring64Bitmap unread = new Roaring64Bitmap();
+        private final Map<String, Roaring64Bitmap> byMimeType = new HashMap<>();
+        private final Map<String, Roaring64Bitmap> byTag = new HashMap<>();
+
+        void add(ItemFilterRepository.ItemFilters item) {
+            all.addLong(item.id());
+            if (item.unread()) {
+                unread.addLong(item.id());
+            }
+            if (item.mimeType() != null) {
+                byMimeType.computeIfAbsent(item.mimeType(), type -> new Roaring64Bitmap()).addLong(item.id());
+            }
+        }
+
+        void addTag(long itemId, String name) {
+            byTag.computeIfAbsent(name, tag -> new Roaring64Bitmap()).addLong(itemId);
+        }
+
+        void addAll(Bitmaps other) {
+            all.or(other.all);
+            unread.or(other.unread);
+            other.byMimeType.forEach((type, ids) ->
+                    byMimeType.computeIfAbsent(type, t -> new Roaring64Bitmap()).or(ids));
+            // тэги удалённой ссылки ещё могли быть прочитаны - учитываются только существующие ссылки
+            other.byTag.forEach((tag, ids) ->
+                    byTag.computeIfAbsent(tag, t -> new Roaring64Bitmap()).or(Roaring64Bitmap.and(ids, other.all)));
+        }
+
+        void remove(Roaring64Bitmap ids) {
+            all.andNot(ids);
+            unread.andNot(ids);
+            byMimeType.values().forEach(bitmap -> bitmap.andNot(ids));
+            byTag.values().removeIf(bitmap -> {
+                bitmap.andNot(ids);
+                return bitmap.isEmpty();
+            });
+        }
+
+        void optimize() {
+            all.runOptimize();
+            unread.runOptimize();
+            byMimeType.values().forEach(Roaring64Bitmap::runOptimize);
+            byTag.values().forEach(Roaring64Bitmap::runOptimize);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.item;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Поля ссылок, по которым фильтрует GET /items, - для индекса фильтров (ItemFilterIndex).
+// Ссылки и тэги пользователя читаются построчно, без загрузки всего результата в память.
+// Выполняется в транзакции вызывающего кода.
+@Repository
+@Timed(ItemMetrics.JDBC_REPOSITORY_INVOCATIONS)
+@RequiredArgsConstructor
+class ItemFilterRepository {
+    private static final int FETCH_SIZE = 10_000;
+
+    static final String COUNT_ITEMS = "SELECT count(*) FROM items WHERE user_id = ?";
+    static final String LAST_CHANGE_SEQ = "SELECT coalesce(max(change_seq), 0) FROM item_changes WHERE user_id = ?";
+    static final String FIND_ITEMS = "SELECT id, unread, mime_type FROM items WHERE user_id = ?";
+    static final String FIND_ITEMS_BY_IDS = "SELECT id, unread, mime_type FROM items WHERE user_id = ? AND id = ANY (?)";
+    static final String FIND_TAGS = """
+            SELECT it.item_id, t.name
+            FROM tags t
+            JOIN item_tags it ON it.tag_id = t.id
+            WHERE t.user_id = ?""";
+    static final String FIND_TAGS_BY_ITEM_IDS = """
+            SELECT it.item_id, t.name
+            FROM item_tags it
+            JOIN tags t ON t.id = it.tag_id
+            WHERE it.item_id = ANY (?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    record ItemFilters(long id, boolean unread, String mimeType) {
+    }
+
+    long countItems(long userId) {
+        return jdbcTemplate.queryForObject(COUNT_ITEMS, Long.class, userId);
+    }
+
+    // Номер последней записи журнала изменений пользователя (item_changes), 0 - если записей нет
+    long lastChangeSeq(long userId) {
+        return jdbcTemplate.queryForObject(LAST_CHANGE_SEQ, Long.class, userId);
+    }
+
+    void findItems(long userId, Consumer<ItemFilters> consumer) {
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(FIND_ITEMS);
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setLong(1, userId);
+                    return ps;
+                },
+                rs -> {
+                    consumer.accept(new ItemFilters(rs.getLong("id"), rs.getBoolean("unread"),
+                            rs.getString("mime_type")));
+                });
+    }
+
+    void findItems(long userId, Collection<Long> itemIds, Consumer<ItemFilters> consumer) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query(FIND_ITEMS_BY_IDS,
+                ps -> {
+                    ps.setLong(1, userId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", itemIds.toArray()));
+                },
+                rs -> {
+                    consumer.accept(new ItemFilters(rs.getLong("id"), rs.getBoolean("unread"),
+                            rs.getString("mime_type")));
+                });
+    }
+
+    // Пары (ссылка, название тэга) всех ссылок пользователя
+    void findTags(long userId, BiConsumer<Long, String> consumer) {
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(FIND_TAGS);
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setLong(1, userId);
+                    return ps;
+                },
+                rs -> {
+                    consumer.accept(rs.getLong("item_id"), rs.getString("name"));
+                });
+    }
+
+    void findTags(Collection<Long> itemIds, BiConsumer<Long, String> consumer) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query(FIND_TAGS_BY_ITEM_IDS,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", itemIds.toArray())),
+                rs -> {
+                    consumer.accept(rs.getLong("item_id"), rs.getString("name"));
+                });
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.item;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+class ItemImportConfig {
+
+    // Пул для одновременного получения метаданных при импорте. Очередь не ограничена,
+    // но импорт ставит в неё не больше одной порции ссылок за раз.
+    @Bean
+    ThreadPoolTaskExecutor itemImportExecutor(
+            @Value("${item-import.concurrency:8}") int concurrency,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setThreadNamePrefix("item-import-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("item-import-", 0).factory());
+        }
+        return executor;
+    }
+}
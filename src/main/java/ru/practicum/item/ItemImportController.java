@@ -0,0 +1,63 @@
+package ru.practicum.item;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.item.dto.ItemImportResult;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// Импорт ссылок из других сервисов отложенного чтения.
+// Тело запроса - NDJSON или CSV, ответ - NDJSON с результатом по каждой строке.
+// Результаты отправляются клиенту по мере обработки, не дожидаясь конца файла.
+@RestController
+@RequestMapping("/items/import")
+@RequiredArgsConstructor
+public class ItemImportController {
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final ItemImportService itemImportService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping(consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importItems(
+            @RequestHeader("X-Later-User-Id") long userId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            HttpServletRequest request) throws IOException {
+        // несуществующего пользователя отклоняем до начала передачи ответа
+        itemImportService.checkUser(userId);
+
+        ItemImportService.Format format = contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? ItemImportService.Format.NDJSON
+                : ItemImportService.Format.CSV;
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        Reader source = new InputStreamReader(request.getInputStream(), charset);
+
+        StreamingResponseBody body = out -> itemImportService.importItems(userId, format, source, results -> {
+            try {
+                for (ItemImportResult result : results) {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,163 @@
+package ru.practicum.item;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.practicum.item.dto.AddItemRequest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Построчное чтение файла импорта. Файл не загружается в память целиком:
+// каждый вызов next() читает только очередную порцию строк.
+//
+// NDJSON - в каждой строке объект {"url": "...", "tags": ["...", ...]}.
+// CSV - url в первой колонке, тэги во второй через "|". Если первая строка
+// содержит заголовок с колонкой "url" (например, экспорт из Pocket), колонки
+// url и tags ищутся по заголовку.
+final class ItemImportReader {
+    private static final int MAX_URL_LENGTH = 1000;
+    private static final int MAX_TAG_LENGTH = 50;
+
+    private final ItemImportService.Format format;
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+
+    private int lineNumber;
+    private boolean headerChecked;
+    private int urlColumn = 0;
+    private int tagsColumn = 1;
+
+    // Строка файла: либо ссылка с тэгами, либо описание ошибки разбора
+    record Entry(int line, String url, Set<String> tags, String error) {
+        boolean isValid() {
+            return error == null;
+        }
+    }
+
+    ItemImportReader(ItemImportService.Format format, Reader source, ObjectMapper objectMapper) {
+        this.format = format;
+        this.reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source);
+        this.objectMapper = objectMapper;
+    }
+
+    // Возвращает не больше maxEntries строк, пустой список - файл закончился
+    List<Entry> next(int maxEntries) {
+        List<Entry> entries = new ArrayList<>(maxEntries);
+        try {
+            String line;
+            while (entries.size() < maxEntries && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                Entry entry = format == ItemImportService.Format.NDJSON ? parseJson(line) : parseCsv(line);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entries;
+    }
+
+    private Entry parseJson(String line) {
+        AddItemRequest request;
+        try {
+            request = objectMapper.readValue(line, AddItemRequest.class);
+        } catch (JsonProcessingException e) {
+            return error("Malformed JSON");
+        }
+        if (request == null) {
+            return error("Malformed JSON");
+        }
+        return validate(request.url(), request.tags());
+    }
+
+    private Entry parseCsv(String line) {
+        List<String> columns = splitCsv(line);
+        if (!headerChecked) {
+            headerChecked = true;
+            List<String> header = columns.stream()
+                    .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                    .toList();
+            if (header.contains("url")) {
+                urlColumn = header.indexOf("url");
+                tagsColumn = header.indexOf("tags");
+                return null;
+            }
+        }
+
+        String url = urlColumn < columns.size() ? columns.get(urlColumn).trim() : null;
+        Set<String> tags = new HashSet<>();
+        if (tagsColumn >= 0 && tagsColumn < columns.size()) {
+            for (String tag : columns.get(tagsColumn).split("\\|")) {
+                tags.add(tag.trim());
+            }
+        }
+        return validate(url, tags);
+    }
+
+    private Entry validate(String url, Set<String> tags) {
+        if (url == null || url.isBlank()) {
+            return error("URL is missing");
+        }
+        if (url.length() > MAX_URL_LENGTH) {
+            return new Entry(lineNumber, url, Set.of(), "URL is too long");
+        }
+        Set<String> cleanTags = new HashSet<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                if (tag == null || tag.isBlank()) {
+                    continue;
+                }
+                if (tag.length() > MAX_TAG_LENGTH) {
+                    return new Entry(lineNumber, url, Set.of(), "Tag is too long: " + tag);
+                }
+                cleanTags.add(tag);
+            }
+        }
+        return new Entry(lineNumber, url, cleanTags, null);
+    }
+
+    private Entry error(String message) {
+        return new Entry(lineNumber, null, Set.of(), message);
+    }
+
+    // Разбор строки CSV по RFC 4180: поля в кавычках могут содержать запятые,
+    // кавычка внутри поля записывается двумя кавычками
+    static List<String> splitCsv(String line) {
+        List<String> columns = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    current.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                columns.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(ch);
+            }
+        }
+        columns.add(current.toString());
+        return columns;
+    }
+}
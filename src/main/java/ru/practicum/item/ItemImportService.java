@@ -0,0 +1,17 @@
+package ru.practicum.item;
+
+import ru.practicum.item.dto.ItemImportResult;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface ItemImportService {
+    // Импортирует ссылки из source. Результаты передаются в listener
+    // порциями по мере обработки, в порядке строк исходного файла.
+    void importItems(long userId, Format format, Reader source, Consumer<List<ItemImportResult>> listener);
+
+    void checkUser(long userId);
+
+    enum Format {NDJSON, CSV}
+}
@@ -0,0 +1,232 @@
+package ru.practicum.item;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.common.NotFoundException;
+import ru.practicum.common.UserVersions;
+import ru.practicum.item.dto.ItemImportResult;
+import ru.practicum.item.model.Item;
+import ru.practicum.user.UserRepository;
+
+import java.io.Reader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+// Массовый импорт ссылок. Файл обрабатывается порциями по batch-size строк:
+// метаданные порции получаются параллельно (не больше per-host-concurrency
+// запросов к одному сайту одновременно), затем вся порция сохраняется
+// в одной транзакции - повторы ищутся одним запросом, а ссылки и тэги
+// добавляются пакетными вставками.
+@Slf4j
+@Service
+public class ItemImportServiceImpl implements ItemImportService {
+    private static final int MAX_TITLE_LENGTH = 255;
+    private static final int MAX_URL_LENGTH = 1000;
+
+    private final UserRepository userRepository;
+    private final UrlMetaDataRetriever urlMetaDataRetriever;
+    private final ItemJdbcRepository itemJdbcRepository;
+    private final PageRepository pageRepository;
+    private final UserVersions userVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor executor;
+    private final int batchSize;
+    private final int perHostConcurrency;
+
+    ItemImportServiceImpl(UserRepository userRepository,
+                          UrlMetaDataRetriever urlMetaDataRetriever,
+                          ItemJdbcRepository itemJdbcRepository,
+                          PageRepository pageRepository,
+                          UserVersions userVersions,
+                          TransactionTemplate transactionTemplate,
+                          ObjectMapper objectMapper,
+                          @Qualifier("itemImportExecutor") TaskExecutor executor,
+                          @Value("${item-import.batch-size:100}") int batchSize,
+                          @Value("${item-import.per-host-concurrency:2}") int perHostConcurrency) {
+        this.userRepository = userRepository;
+        this.urlMetaDataRetriever = urlMetaDataRetriever;
+        this.itemJdbcRepository = itemJdbcRepository;
+        this.pageRepository = pageRepository;
+        this.userVersions = userVersions;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.perHostConcurrency = perHostConcurrency;
+    }
+
+    @Override
+    public void checkUser(long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException(String.format("User with id %d not found", userId));
+        }
+    }
+
+    @Override
+    public void importItems(long userId, Format format, Reader source, Consumer<List<ItemImportResult>> listener) {
+        checkUser(userId);
+
+        ItemImportReader reader = new ItemImportReader(format, source, objectMapper);
+        // ограничения по сайтам действуют на протяжении всего импорта, а не одной порции
+        Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+        List<ItemImportReader.Entry> entries;
+        while (!(entries = reader.next(batchSize)).isEmpty()) {
+            listener.accept(importBatch(userId, entries, hostPermits));
+        }
+    }
+
+    private List<ItemImportResult> importBatch(long userId, List<ItemImportReader.Entry> entries,
+                                               Map<String, Semaphore> hostPermits) {
+        List<CompletableFuture<UrlMetaDataRetriever.UrlMetadata>> futures = entries.stream()
+                .map(entry -> entry.isValid()
+                        ? CompletableFuture.supplyAsync(() -> retrieve(userId, entry.url(), hostPermits), executor)
+                        : CompletableFuture.<UrlMetaDataRetriever.UrlMetadata>completedFuture(null))
+                .toList();
+
+        ItemImportResult[] results = new ItemImportResult[entries.size()];
+        List<Resolved> resolved = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            ItemImportReader.Entry entry = entries.get(i);
+            if (!entry.isValid()) {
+                results[i] = failed(entry, entry.error());
+                continue;
+            }
+            try {
+                UrlMetaDataRetriever.UrlMetadata metadata = futures.get(i).join();
+                if (metadata.getResolvedUrl() == null || metadata.getResolvedUrl().length() > MAX_URL_LENGTH) {
+                    results[i] = failed(entry, "Resolved URL is too long");
+                } else {
+                    resolved.add(new Resolved(i, entry, metadata));
+                }
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results[i] = failed(entry, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            }
+        }
+
+        if (!resolved.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> save(userId, resolved, results));
+            } catch (DataIntegrityViolationException e) {
+                // одну из страниц порции только что сохранил параллельный запрос -
+                // повторно она найдётся среди уже сохранённых и будет объединена
+                transactionTemplate.executeWithoutResult(status -> save(userId, resolved, results));
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private UrlMetaDataRetriever.UrlMetadata retrieve(long userId, String url, Map<String, Semaphore> hostPermits) {
+        Semaphore permits = hostPermits.computeIfAbsent(hostOf(url), host -> new Semaphore(perHostConcurrency));
+        permits.acquireUninterruptibly();
+        try {
+            return HostRequestScheduler.onBehalfOf(userId, () -> urlMetaDataRetriever.retrieve(url));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void save(long userId, List<Resolved> resolved, ItemImportResult[] results) {
+        // одна и та же страница может встретиться в порции несколько раз
+        // (например, под сокращённой и полной ссылкой) - сохраняем её один раз
+        Map<String, List<Resolved>> byResolvedUrl = new LinkedHashMap<>();
+        for (Resolved r : resolved) {
+            byResolvedUrl.computeIfAbsent(r.metadata().getResolvedUrl(), url -> new ArrayList<>()).add(r);
+        }
+
+        Map<String, Long> existingIds = itemJdbcRepository.findIdsByResolvedUrls(userId, byResolvedUrl.keySet());
+
+        List<Item> newItems = new ArrayList<>();
+        List<String> pageTexts = new ArrayList<>();
+        List<UrlMetaDataRetriever.UrlMetadata> newPages = new ArrayList<>();
+        for (Map.Entry<String, List<Resolved>> group : byResolvedUrl.entrySet()) {
+            if (!existingIds.containsKey(group.getKey())) {
+                Resolved first = group.getValue().getFirst();
+                Item item = ItemMapper.mapToItem(first.metadata(), null, new HashSet<>());
+                item.setUrl(first.entry().url());
+                if (item.getTitle() != null && item.getTitle().length() > MAX_TITLE_LENGTH) {
+                    item.setTitle(item.getTitle().substring(0, MAX_TITLE_LENGTH));
+                }
+                newItems.add(item);
+                pageTexts.add(first.metadata().getText());
+                newPages.add(first.metadata());
+            }
+        }
+        itemJdbcRepository.insertItems(userId, newItems, pageTexts);
+        pageRepository.save(newPages);
+
+        Map<String, Long> ids = new HashMap<>(existingIds);
+        newItems.forEach(item -> ids.put(item.getResolvedUrl(), item.getId()));
+
+        // к уже сохранённым ссылкам добавляем только недостающие тэги
+        Map<Long, Set<String>> currentTags = itemJdbcRepository.findTags(existingIds.values());
+        Map<Long, Set<String>> newTags = new HashMap<>();
+        for (Map.Entry<String, List<Resolved>> group : byResolvedUrl.entrySet()) {
+            long itemId = ids.get(group.getKey());
+            Set<String> tags = new HashSet<>();
+            group.getValue().forEach(r -> tags.addAll(r.entry().tags()));
+            tags.removeAll(currentTags.getOrDefault(itemId, Set.of()));
+            if (!tags.isEmpty()) {
+                newTags.put(itemId, tags);
+            }
+
+            boolean created = !existingIds.containsKey(group.getKey());
+            for (Resolved r : group.getValue()) {
+                ItemImportResult.Status status = created && r == group.getValue().getFirst()
+                        ? ItemImportResult.Status.CREATED
+                        : ItemImportResult.Status.MERGED;
+                results[r.index()] = ItemImportResult.builder()
+                        .line(r.entry().line())
+                        .url(r.entry().url())
+                        .status(status)
+                        .itemId(itemId)
+                        .build();
+            }
+        }
+        itemJdbcRepository.insertTags(userId, newTags);
+        userVersions.changed(userId);
+    }
+
+    private static ItemImportResult failed(ItemImportReader.Entry entry, String error) {
+        return ItemImportResult.builder()
+                .line(entry.line())
+                .url(entry.url())
+                .status(ItemImportResult.Status.FAILED)
+                .error(error)
+                .build();
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    // Ссылка с полученными метаданными и её позиция в порции
+    private record Resolved(int index, ItemImportReader.Entry entry, UrlMetaDataRetriever.UrlMetadata metadata) {
+    }
+}
@@ -0,0 +1,153 @@
+package ru.practicum.item;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.item.model.Item;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Пакетные операции над ссылками на чистом JDBC - для импорта, где
+// сохранение тысяч строк по одной через JPA слишком медленное.
+// Выполняются в транзакции вызывающего кода.
+@Repository
+@Timed(ItemMetrics.JDBC_REPOSITORY_INVOCATIONS)
+@RequiredArgsConstructor
+class ItemJdbcRepository {
+    // Размер блока id, который Hibernate получает одним nextval('items_seq') -
+    // allocationSize у Item и INCREMENT BY у items_seq (V3__sequence_ids.sql)
+    static final int ITEM_ID_BLOCK = 50;
+    // nextval - верхняя граница блока: блок - nextval - 49 .. nextval
+    private static final String RESERVE_ITEM_ID_BLOCKS = "SELECT nextval('items_seq') FROM generate_series(1, ?)";
+    private static final String INSERT_ITEM = """
+            INSERT INTO items (id, user_id, url, resolved_url, mime_type, title, has_image, has_video,
+                               unread, date_resolved, status, search_vector)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, item_search_vector(?, ?))""";
+    private static final String INSERT_TAG_NAME = "INSERT INTO tags (user_id, name) VALUES (?, ?) ON CONFLICT DO NOTHING";
+    private static final String INSERT_ITEM_TAG = """
+            INSERT INTO item_tags (item_id, tag_id)
+            SELECT ?, id FROM tags WHERE user_id = ? AND name = ?
+            ON CONFLICT DO NOTHING""";
+    static final String FIND_IDS_BY_RESOLVED_URLS =
+            "SELECT id, resolved_url FROM items WHERE user_id = ? AND resolved_url = ANY (?) ORDER BY id";
+    static final String FIND_TAGS = """
+            SELECT it.item_id, t.name
+            FROM item_tags it
+            JOIN tags t ON t.id = it.tag_id
+            WHERE it.item_id = ANY (?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Идентификаторы уже сохранённых пользователем ссылок по итоговому адресу -
+    // одним запросом на всю порцию адресов
+    Map<String, Long> findIdsByResolvedUrls(long userId, Collection<String> resolvedUrls) {
+        Map<String, Long> ids = new HashMap<>();
+        if (resolvedUrls.isEmpty()) {
+            return ids;
+        }
+        jdbcTemplate.query(FIND_IDS_BY_RESOLVED_URLS,
+                ps -> {
+                    ps.setLong(1, userId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("varchar", resolvedUrls.toArray()));
+                },
+                rs -> {
+                    ids.putIfAbsent(rs.getString("resolved_url"), rs.getLong("id"));
+                });
+        return ids;
+    }
+
+    Map<Long, Set<String>> findTags(Collection<Long> itemIds) {
+        Map<Long, Set<String>> tags = new HashMap<>();
+        if (itemIds.isEmpty()) {
+            return tags;
+        }
+        jdbcTemplate.query(FIND_TAGS,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", itemIds.toArray())),
+                rs -> {
+                    tags.computeIfAbsent(rs.getLong("item_id"), id -> new HashSet<>()).add(rs.getString("name"));
+                });
+        return tags;
+    }
+
+    // Сохраняет ссылки одним пакетом и проставляет им идентификаторы.
+    // pageTexts.get(i) - текст страницы items.get(i) для полнотекстового поиска
+    void insertItems(long userId, List<Item> items, List<String> pageTexts) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<Long> ids = reserveItemIds(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setId(ids.get(i));
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Item item = items.get(i);
+                ps.setLong(1, item.getId());
+                ps.setLong(2, userId);
+                ps.setString(3, item.getUrl());
+                ps.setString(4, item.getResolvedUrl());
+                ps.setString(5, item.getMimeType());
+                ps.setString(6, item.getTitle());
+                ps.setBoolean(7, item.isHasImage());
+                ps.setBoolean(8, item.isHasVideo());
+                ps.setBoolean(9, item.isUnread());
+                // так же, как Hibernate с hibernate.jdbc.time_zone=UTC
+                ps.setTimestamp(10, item.getDateResolved() == null ? null
+                        : Timestamp.valueOf(LocalDateTime.ofInstant(item.getDateResolved(), ZoneOffset.UTC)));
+                ps.setString(11, item.getStatus().name());
+                ps.setString(12, item.getTitle());
+                ps.setString(13, pageTexts.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return items.size();
+            }
+        });
+    }
+
+    // id для count ссылок - блоками по ITEM_ID_BLOCK, как их выделяет себе Hibernate.
+    // Значение по умолчанию столбца id забирало бы целый блок на каждую строку
+    private List<Long> reserveItemIds(int count) {
+        int blocks = (count + ITEM_ID_BLOCK - 1) / ITEM_ID_BLOCK;
+        List<Long> ids = new ArrayList<>(blocks * ITEM_ID_BLOCK);
+        jdbcTemplate.query(RESERVE_ITEM_ID_BLOCKS, ps -> ps.setInt(1, blocks), rs -> {
+            long last = rs.getLong(1);
+            for (long id = last - ITEM_ID_BLOCK + 1; id <= last; id++) {
+                ids.add(id);
+            }
+        });
+        return ids.subList(0, count);
+    }
+
+    // Недостающие тэги сначала добавляются в словарь пользователя - по порядку названий,
+    // как в TagRepository.findOrCreate, - затем ссылки связываются с ними
+    void insertTags(long userId, Map<Long, Set<String>> tagsByItemId) {
+        Set<String> names = new TreeSet<>();
+        List<Object[]> rows = new ArrayList<>();
+        tagsByItemId.forEach((itemId, tags) -> tags.forEach(tag -> {
+            names.add(tag);
+            rows.add(new Object[]{itemId, userId, tag});
+        }));
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_TAG_NAME, names.stream().map(name -> new Object[]{userId, name}).toList());
+        jdbcTemplate.batchUpdate(INSERT_ITEM_TAG, rows);
+    }
+}
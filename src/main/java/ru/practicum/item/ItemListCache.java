@@ -0,0 +1,121 @@
+package ru.practicum.item;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.common.UserVersions;
+import ru.practicum.item.dto.GetItemRequest;
+import ru.practicum.item.dto.ItemDto;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Кэш результатов GET /items. Список ссылок пользователя меняется только при его
+// собственных изменениях, а запрашивается намного чаще - обычно одна и та же первая
+// страница с одними и теми же фильтрами.
+// Кэшируются только первые страницы: курсор у каждой следующей страницы свой,
+// и повторно одну и ту же страницу запрашивают редко.
+// Ключ кэша включает версию данных пользователя (UserVersions). Любое изменение
+// ссылок пользователя даёт новую версию - прежние результаты больше не находятся
+// и со временем вытесняются. Результат, который читался из БД одновременно
+// с изменением, сохраняется под старой версией и тоже не будет найден.
+// Размер кэша ограничен общим числом ссылок во всех сохранённых страницах.
+// В кэше хранятся CompletableFuture: запрос к БД выполняет поток, первым запросивший
+// страницу, вне блокировок кэша, поэтому медленный запрос не задерживает другие ключи.
+@Component
+class ItemListCache {
+    private final boolean enabled;
+    private final UserVersions userVersions;
+    private final AsyncCache<Key, List<ItemDto>> pages;
+
+    @Autowired
+    ItemListCache(UserVersions userVersions,
+                  @Value("${item-list-cache.enabled:true}") boolean enabled,
+                  @Value("${item-list-cache.max-items:50000}") long maxItems,
+                  @Value("${item-list-cache.ttl-sec:600}") long ttlSeconds) {
+        this(userVersions, enabled, maxItems, Duration.ofSeconds(ttlSeconds), Ticker.systemTicker());
+    }
+
+    ItemListCache(UserVersions userVersions, boolean enabled, long maxItems, Duration ttl, Ticker ticker) {
+        this.enabled = enabled;
+        this.userVersions = userVersions;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxItems)
+                .<Key, List<ItemDto>>weigher((key, items) -> items.size() + 1)
+                // страховка на случай изменений в обход приложения
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .recordStats()
+                .buildAsync();
+    }
+
+    // Возвращает сохранённый результат запроса или выполняет loader и запоминает его.
+    // Транзакция, которая сама изменила ссылки пользователя, читает их мимо кэша
+    List<ItemDto> get(GetItemRequest request, Supplier<List<ItemDto>> loader) {
+        if (!enabled || request.cursor() != null || userVersions.changedInTransaction(request.userId())) {
+            return loader.get();
+        }
+        Key key = Key.of(userVersions.current(request.userId()), request);
+
+        // Под блокировкой Caffeine в кэш только кладётся незавершённый future,
+        // результат загружает поток, чей future попал в кэш. Ошибки в кэш не попадают
+        CompletableFuture<List<ItemDto>> loading = new CompletableFuture<>();
+        CompletableFuture<List<ItemDto>> future = pages.get(key, (k, executor) -> loading);
+        if (future == loading) {
+            load(key, loader, loading);
+        }
+        return join(future);
+    }
+
+    // счётчики попаданий, промахов и вытеснений
+    CacheStats stats() {
+        return pages.synchronous().stats();
+    }
+
+    long size() {
+        return pages.synchronous().estimatedSize();
+    }
+
+    private void load(Key key, Supplier<List<ItemDto>> loader, CompletableFuture<List<ItemDto>> loading) {
+        try {
+            loading.complete(List.copyOf(loader.get()));
+        } catch (RuntimeException | Error e) {
+            pages.asMap().remove(key, loading);
+            loading.completeExceptionally(e);
+        }
+    }
+
+    // Результат загрузки; ошибка загрузчика выбрасывается как есть, без CompletionException
+    private static List<ItemDto> join(CompletableFuture<List<ItemDto>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Параметры запроса в едином виде: порядок тэгов не важен
+    private record Key(long userId, long version, GetItemRequest.State state,
+                       GetItemRequest.ContentType contentType, GetItemRequest.Sort sort, int limit,
+                       List<String> tags) {
+        static Key of(long version, GetItemRequest request) {
+            List<String> tags = request.tags() == null ? List.of() : request.tags().stream().sorted().toList();
+            return new Key(request.userId(), version, request.state(), request.contentType(), request.sort(),
+                    request.limit(), tags);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import ru.practicum.item.dto.ItemDto;
 import ru.practicum.item.model.Item;
+import ru.practicum.item.model.ItemStatus;
+import ru.practicum.item.model.Tag;
 import ru.practicum.user.User;
 
 import java.time.ZoneOffset;
@@ -11,6 +13,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
@@ -19,18 +22,35 @@ final class ItemMapper {
             .ISO_INSTANT
             .withZone(ZoneOffset.UTC);
 
-    public static Item mapToItem(UrlMetaDataRetriever.UrlMetadata result, User user, Set<String> tags) {
+    public static Item mapToItem(UrlMetaDataRetriever.UrlMetadata result, User user, Set<Tag> tags) {
         Item item = new Item();
         item.setUser(user);
         item.setUrl(result.getNormalUrl());
+        applyMetadata(item, result);
+        item.setTags(tags);
+        return item;
+    }
+
+    // Ссылка, для которой метаданные будут получены позже, в фоне
+    public static Item mapToPendingItem(String url, User user, Set<Tag> tags) {
+        Item item = new Item();
+        item.setUser(user);
+        item.setUrl(url);
+        item.setStatus(ItemStatus.PENDING);
+        if (tags != null) {
+            item.setTags(new HashSet<>(tags));
+        }
+        return item;
+    }
+
+    public static void applyMetadata(Item item, UrlMetaDataRetriever.UrlMetadata result) {
         item.setResolvedUrl(result.getResolvedUrl());
         item.setMimeType(result.getMimeType());
         item.setTitle(result.getTitle());
         item.setHasImage(result.isHasImage());
         item.setHasVideo(result.isHasVideo());
         item.setDateResolved(result.getDateResolved());
-        item.setTags(tags);
-        return item;
+        item.setStatus(ItemStatus.RESOLVED);
     }
 
     public static ItemDto mapToItemDto(Item item) {
@@ -43,9 +63,10 @@ final class ItemMapper {
                 .hasVideo(item.isHasVideo())
                 .mimeType(item.getMimeType())
                 .unread(item.isUnread())
-                .dateResolved(dtFormatter.format(item.getDateResolved()))
-                // Нужно скопировать все элементы в новую коллекцию - чтобы запустить механизм ленивой загрузки.
-                .tags(new HashSet<>(item.getTags()))
+                .dateResolved(item.getDateResolved() != null ? dtFormatter.format(item.getDateResolved()) : null)
+                // Обход коллекции запускает её ленивую загрузку
+                .tags(item.getTags().stream().map(Tag::getName).collect(Collectors.toCollection(HashSet::new)))
+                .status(item.getStatus())
                 .build();
     }
 
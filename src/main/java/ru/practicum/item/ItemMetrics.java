@@ -0,0 +1,177 @@
+package ru.practicum.item;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+// Метрики состояния в памяти: кэши, очереди запросов к сайтам и индекс фильтров.
+// Значения читаются из их счётчиков при каждом снятии метрик (GET /actuator/prometheus).
+// Время запросов репозиториев Spring Data и HTTP-запросов к приложению, состояние
+// пула соединений записывает Spring Boot Actuator
+@Component
+@RequiredArgsConstructor
+class ItemMetrics implements MeterBinder {
+    // время вызовов методов JDBC-репозиториев - с тэгами class и method, как у Spring Data
+    static final String JDBC_REPOSITORY_INVOCATIONS = "jdbc.repository.invocations";
+    // сколько сайтов публикуется с тэгом host
+    static final int BUSIEST_HOSTS = 10;
+
+    private final ItemListCache itemListCache;
+    // кэш метаданных можно отключить
+    private final ObjectProvider<CachingUrlMetaDataRetriever> cachingUrlMetaDataRetriever;
+    private final HostRequestScheduler hostRequestScheduler;
+    private final ItemFilterIndex itemFilterIndex;
+
+    private volatile MultiGauge hostQueued;
+    private volatile MultiGauge hostMaxWait;
+    private volatile MultiGauge hostAverageWait;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindCache(registry, "item-list", itemListCache, ItemListCache::stats, ItemListCache::size);
+        cachingUrlMetaDataRetriever.ifAvailable(retriever -> bindCache(registry, "url-metadata", retriever,
+                CachingUrlMetaDataRetriever::stats, CachingUrlMetaDataRetriever::size));
+
+        // суммы по всем сайтам; по отдельным сайтам - только для самых загруженных (publishBusiestHosts)
+        Gauge.builder("url.metadata.hosts", hostRequestScheduler, scheduler -> scheduler.stats().size())
+                .description("Hosts with a request queue")
+                .register(registry);
+        Gauge.builder("url.metadata.hosts.queued", hostRequestScheduler,
+                        scheduler -> sum(scheduler, HostRequestScheduler.HostStats::queued))
+                .description("Requests waiting for their turn to a host")
+                .register(registry);
+        Gauge.builder("url.metadata.hosts.in.flight", hostRequestScheduler,
+                        scheduler -> sum(scheduler, HostRequestScheduler.HostStats::inFlight))
+                .description("Requests being sent to hosts")
+                .register(registry);
+        Gauge.builder("url.metadata.hosts.paused", hostRequestScheduler,
+                        scheduler -> scheduler.stats().values().stream()
+                                .filter(host -> host.pausedFor().isPositive())
+                                .count())
+                .description("Hosts paused after 429 or 503")
+                .register(registry);
+        Gauge.builder("url.metadata.hosts.wait.max", hostRequestScheduler,
+                        scheduler -> scheduler.stats().values().stream()
+                                .mapToDouble(host -> seconds(host.maxWait()))
+                                .max()
+                                .orElse(0))
+                .description("Longest wait for a turn to any host")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("url.metadata.hosts.wait.average", hostRequestScheduler, ItemMetrics::averageWait)
+                .description("Average wait for a turn to a host, over all granted requests")
+                .baseUnit("seconds")
+                .register(registry);
+
+        hostQueued = MultiGauge.builder("url.metadata.host.queued")
+                .description("Requests waiting for their turn to the host")
+                .register(registry);
+        hostMaxWait = MultiGauge.builder("url.metadata.host.wait.max")
+                .description("Longest wait for a turn to the host")
+                .baseUnit("seconds")
+                .register(registry);
+        hostAverageWait = MultiGauge.builder("url.metadata.host.wait.average")
+                .description("Average wait for a turn to the host")
+                .baseUnit("seconds")
+                .register(registry);
+        publishBusiestHosts();
+
+        Gauge.builder("item.filter.index.users", itemFilterIndex, ItemFilterIndex::users)
+                .description("Users with a filter index in memory")
+                .register(registry);
+        Gauge.builder("item.filter.index.items", itemFilterIndex, ItemFilterIndex::items)
+                .description("Items in the filter indexes of all users")
+                .register(registry);
+    }
+
+    // Ряды с тэгом host - для BUSIEST_HOSTS сайтов с самыми длинными очередями.
+    // Набор сайтов меняется, поэтому ряды пересобираются по расписанию: выбывшие
+    // сайты удаляются, число рядов не растёт с числом сайтов, к которым обращались
+    @Scheduled(fixedDelayString = "${url-metadata-retriever.per-host.metrics-interval-ms:15000}")
+    void publishBusiestHosts() {
+        if (hostQueued == null) {
+            return;
+        }
+        List<Map.Entry<String, HostRequestScheduler.HostStats>> busiest =
+                busiestHosts(hostRequestScheduler.stats(), BUSIEST_HOSTS);
+        hostQueued.register(rows(busiest, HostRequestScheduler.HostStats::queued), true);
+        hostMaxWait.register(rows(busiest, host -> seconds(host.maxWait())), true);
+        hostAverageWait.register(rows(busiest, host -> seconds(host.averageWait())), true);
+    }
+
+    // Сначала приостановленные сайты и сайты с длинной очередью, затем - с долгим ожиданием
+    static List<Map.Entry<String, HostRequestScheduler.HostStats>> busiestHosts(
+            Map<String, HostRequestScheduler.HostStats> stats, int limit) {
+        return stats.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<String, HostRequestScheduler.HostStats> e) ->
+                                e.getValue().pausedFor().isPositive())
+                        .thenComparingInt(e -> e.getValue().queued())
+                        .thenComparing(e -> e.getValue().maxWait())
+                        .reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static List<MultiGauge.Row<?>> rows(List<Map.Entry<String, HostRequestScheduler.HostStats>> hosts,
+                                                ToDoubleFunction<HostRequestScheduler.HostStats> value) {
+        return hosts.stream()
+                .<MultiGauge.Row<?>>map(e -> MultiGauge.Row.of(Tags.of("host", e.getKey()),
+                        value.applyAsDouble(e.getValue())))
+                .toList();
+    }
+
+    private static long sum(HostRequestScheduler scheduler, ToLongFunction<HostRequestScheduler.HostStats> value) {
+        return scheduler.stats().values().stream().mapToLong(value).sum();
+    }
+
+    // общее время ожидания, делённое на число выданных разрешений по всем сайтам
+    private static double averageWait(HostRequestScheduler scheduler) {
+        Map<String, HostRequestScheduler.HostStats> stats = scheduler.stats();
+        long granted = stats.values().stream().mapToLong(HostRequestScheduler.HostStats::granted).sum();
+        if (granted == 0) {
+            return 0;
+        }
+        Duration totalWait = stats.values().stream()
+                .map(HostRequestScheduler.HostStats::totalWait)
+                .reduce(Duration.ZERO, Duration::plus);
+        return seconds(totalWait) / granted;
+    }
+
+    private static double seconds(Duration duration) {
+        return (double) duration.toNanos() / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    // Те же метрики, что у кэшей Spring (CaffeineCacheMetrics): cache.gets, cache.evictions, cache.size
+    private static <T> void bindCache(MeterRegistry registry, String name, T cache,
+                                      Function<T, CacheStats> stats, ToLongFunction<T> size) {
+        FunctionCounter.builder("cache.gets", cache, c -> stats.apply(c).hitCount())
+                .tags("cache", name, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", cache, c -> stats.apply(c).missCount())
+                .tags("cache", name, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", cache, c -> stats.apply(c).evictionCount())
+                .tags("cache", name)
+                .register(registry);
+        Gauge.builder("cache.size", cache, size::applyAsLong)
+                .tags("cache", name)
+                .register(registry);
+    }
+}
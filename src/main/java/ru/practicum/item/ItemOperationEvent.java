@@ -0,0 +1,85 @@
+package ru.practicum.item;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import ru.practicum.item.dto.GetItemRequest;
+import ru.practicum.item.dto.ItemSelection;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Событие JFR на операцию ItemServiceImpl, которая читает или изменяет много строк.
+// shape - вид запроса без значений параметров: по нему запросы группируются при анализе
+// записи (JfrSummary). Поля заполняются, только если событие будет записано
+@Name(ItemOperationEvent.NAME)
+@Label("Item Operation")
+@Category({"Later", "Items"})
+@Description("Item service operation: query shape, rows and time spent mapping them")
+@StackTrace(false)
+class ItemOperationEvent extends jdk.jfr.Event {
+    static final String NAME = "ru.practicum.ItemOperation";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Shape")
+    String shape;
+
+    @Label("User Id")
+    long userId;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Mapping Time")
+    @Timespan
+    long mappingTime;
+
+    ItemOperationEvent(String operation, long userId) {
+        this.operation = operation;
+        this.userId = userId;
+    }
+
+    // Завершает событие и записывает его с заполненными полями. Вид запроса
+    // составляется, только если событие записывается
+    void commit(Supplier<String> shape, long rows, long mappingTime) {
+        end();
+        if (shouldCommit()) {
+            this.shape = shape.get();
+            this.rows = rows;
+            this.mappingTime = mappingTime;
+            commit();
+        }
+    }
+
+    // source - кто проверил фильтры: индекс в памяти (index) или БД (db)
+    static String shape(GetItemRequest request, String source) {
+        return "state=" + request.state()
+               + " contentType=" + request.contentType()
+               + " tags=" + tags(request.tags())
+               + (request.sort() != null ? " sort=" + request.sort() : "")
+               + (request.cursor() != null ? " cursor" : "")
+               + (source != null ? " filter=" + source : "");
+    }
+
+    static String shape(ItemSelection selection) {
+        if (selection.hasItemIds()) {
+            return "ids";
+        }
+        return "state=" + selection.state()
+               + " contentType=" + selection.contentType()
+               + " tags=" + tags(selection.tags());
+    }
+
+    // число тэгов важно только как "нет, один, несколько"
+    private static String tags(Set<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return "none";
+        }
+        return tags.size() == 1 ? "one" : "many";
+    }
+}
@@ -0,0 +1,130 @@
+package ru.practicum.item;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.common.UserVersions;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Фоновое обновление метаданных сохранённых страниц. За один проход проверяется
+// до batch-size страниц, которые дольше всего не проверялись (и не раньше, чем
+// через max-age-hours после прошлой проверки). Страница запрашивается условным GET
+// с сохранёнными ETag и Last-Modified: неизменившаяся страница отвечает 304 без тела,
+// и у неё только отмечается время проверки. Изменившаяся обновляет метаданные
+// всех ссылок на неё. Запросы всего обновления идут не чаще rate-per-sec в секунду
+// и, как запросы без пользователя, делят очередь к сайту с запросами пользователей.
+@Slf4j
+@Component
+class ItemRefreshJob {
+    private final PageRepository pageRepository;
+    private final UrlMetaDataRetrieverImpl urlMetaDataRetriever;
+    private final UserVersions userVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final int batchSize;
+    private final long requestIntervalNanos;
+
+    // когда можно отправить следующий запрос; проходы выполняются по одному
+    private long nextRequestAt = System.nanoTime();
+
+    ItemRefreshJob(PageRepository pageRepository,
+                   UrlMetaDataRetrieverImpl urlMetaDataRetriever,
+                   UserVersions userVersions,
+                   TransactionTemplate transactionTemplate,
+                   @Value("${item-refresh.enabled:false}") boolean enabled,
+                   @Value("${item-refresh.max-age-hours:168}") long maxAgeHours,
+                   @Value("${item-refresh.batch-size:100}") int batchSize,
+                   @Value("${item-refresh.rate-per-sec:2}") double ratePerSecond) {
+        this.pageRepository = pageRepository;
+        this.urlMetaDataRetriever = urlMetaDataRetriever;
+        this.userVersions = userVersions;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.maxAge = Duration.ofHours(maxAgeHours);
+        this.batchSize = batchSize;
+        this.requestIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${item-refresh.interval-ms:60000}")
+    void refreshStale() {
+        if (enabled) {
+            refresh(Instant.now().minus(maxAge));
+        }
+    }
+
+    // Проверяет страницы, проверенные раньше checkedBefore. Возвращает число изменившихся
+    int refresh(Instant checkedBefore) {
+        List<PageRepository.Page> pages = pageRepository.findStale(checkedBefore, batchSize);
+        int revalidated = 0;
+        int modified = 0;
+        for (PageRepository.Page page : pages) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(
+                    status -> pageRepository.deleteIfUnused(page.resolvedUrl())))) {
+                continue;
+            }
+            if (!pace()) {
+                break;
+            }
+            Outcome outcome = refresh(page);
+            if (outcome != Outcome.FAILED) {
+                revalidated++;
+            }
+            if (outcome == Outcome.MODIFIED) {
+                modified++;
+            }
+        }
+        // удалённые, недоступные и не проверенные из-за прерывания страницы не считаются
+        if (!pages.isEmpty()) {
+            log.info("Revalidated {} of {} stale pages, {} modified", revalidated, pages.size(), modified);
+        }
+        return modified;
+    }
+
+    private Outcome refresh(PageRepository.Page page) {
+        final Optional<UrlMetaDataRetriever.UrlMetadata> metadata;
+        try {
+            metadata = urlMetaDataRetriever.revalidate(page.resolvedUrl(), page.etag(), page.lastModified());
+        } catch (RuntimeException e) {
+            // недоступная страница не должна задерживать остальные - проверим её в следующий раз
+            log.warn("Cannot refresh {}: {}", page.resolvedUrl(), e.getMessage());
+            transactionTemplate.executeWithoutResult(status ->
+                    pageRepository.markChecked(page.resolvedUrl(), Instant.now()));
+            return Outcome.FAILED;
+        }
+
+        if (metadata.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    pageRepository.markChecked(page.resolvedUrl(), Instant.now()));
+            return Outcome.NOT_MODIFIED;
+        }
+        transactionTemplate.executeWithoutResult(status -> pageRepository.update(page.resolvedUrl(), metadata.get())
+                .forEach(userVersions::changed));
+        return Outcome.MODIFIED;
+    }
+
+    // Ждёт, пока можно будет отправить следующий запрос, не превышая rate-per-sec
+    private boolean pace() {
+        long wait = nextRequestAt - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        nextRequestAt = Math.max(nextRequestAt, System.nanoTime()) + requestIntervalNanos;
+        return true;
+    }
+
+    // итог проверки страницы: FAILED - сайт не ответил, страница будет проверена в следующий раз
+    private enum Outcome {MODIFIED, NOT_MODIFIED, FAILED}
+}
@@ -1,8 +1,15 @@
 package ru.practicum.item;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.item.model.Item;
+import ru.practicum.item.model.ItemStatus;
 import ru.practicum.user.User;
 
 import java.util.List;
@@ -10,6 +17,8 @@ import java.util.Optional;
 
 public interface ItemRepository extends JpaRepository<Item, Long>, QuerydslPredicateExecutor<Item> {
 
+    // список без ограничения размера - тэги получаем в том же запросе
+    @EntityGraph(attributePaths = "tags")
     List<Item> findByUserId(long userId);
 
     void deleteByUserIdAndId(long userId, long itemId);
@@ -19,4 +28,44 @@ public interface ItemRepository extends JpaRepository<Item, Long>, QuerydslPredi
     Optional<Item> findByUserAndResolvedUrl(User user, String resolvedUrl);
 
     Optional<Item> findByUserIdAndId(long userId, long itemId);
+
+    Optional<Item> findFirstByUserAndUrl(User user, String url);
+
+    @Query("select i.id from Item i where i.status = ?1 order by i.id")
+    List<Long> findIdsByStatus(ItemStatus status, Pageable pageable);
+
+    // Поисковый вектор ссылки: заголовок из items и переданный текст страницы.
+    // Сам текст страницы в items не хранится
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(nativeQuery = true,
+            value = "UPDATE items SET search_vector = item_search_vector(title, :pageText) WHERE id = :itemId")
+    void updateSearchVector(@Param("itemId") long itemId, @Param("pageText") String pageText);
+
+    // Полнотекстовый поиск по заголовку и тексту страницы (items.search_vector)
+    // и по заметкам к ссылке (item_notes.search_vector). Сначала - наиболее подходящие ссылки,
+    // совпадения в ссылке и в её заметках складываются
+    @Query(nativeQuery = true, value = """
+            WITH matches AS (
+                SELECT i.id, ts_rank(i.search_vector, websearch_to_tsquery('russian', :query)) AS rank
+                FROM items i
+                WHERE i.user_id = :userId AND i.search_vector @@ websearch_to_tsquery('russian', :query)
+                UNION ALL
+                SELECT n.item_id, ts_rank(n.search_vector, websearch_to_tsquery('russian', :query))
+                FROM item_notes n
+                JOIN items i ON i.id = n.item_id
+                WHERE i.user_id = :userId AND n.search_vector @@ websearch_to_tsquery('russian', :query)
+            ),
+            ranked AS (
+                SELECT id, sum(rank) AS rank
+                FROM matches
+                GROUP BY id
+                ORDER BY rank DESC, id DESC
+                LIMIT :limit
+            )
+            SELECT i.id, i.user_id, i.url, i.resolved_url, i.mime_type, i.title, i.has_image, i.has_video,
+                   i.date_resolved, i.unread, i.status
+            FROM ranked r JOIN items i ON i.id = r.id
+            ORDER BY r.rank DESC, r.id DESC""")
+    List<Item> search(@Param("userId") long userId, @Param("query") String query, @Param("limit") int limit);
 }
\ No newline at end of file
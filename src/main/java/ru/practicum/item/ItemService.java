@@ -1,10 +1,17 @@
 package ru.practicum.item;
 
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.item.dto.AddItemRequest;
+import ru.practicum.item.dto.ItemBatchResult;
+import ru.practicum.item.dto.ItemChangesDto;
 import ru.practicum.item.dto.GetItemRequest;
 import ru.practicum.item.dto.ItemDto;
+import ru.practicum.item.dto.ItemFacetsDto;
+import ru.practicum.item.dto.ItemSelection;
 import ru.practicum.item.dto.ModifyItemRequest;
+import ru.practicum.item.dto.ModifyItemsRequest;
 
 import java.util.List;
 
@@ -14,7 +21,17 @@ public interface ItemService {
 
     List<ItemDto> getItems(GetItemRequest request);
 
-    @Transactional
+    ItemFacetsDto getFacets(GetItemRequest request);
+
+    ItemDto getItem(long userId, long itemId);
+
+    List<ItemDto> search(long userId, String query, int limit);
+
+    // журнал изменений и сами ссылки читаются из одного снимка БД
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    ItemChangesDto getChanges(long userId, String since, int limit);
+
+    @Transactional(propagation = Propagation.SUPPORTS)
     ItemDto addNewItem(long userId, AddItemRequest request);
 
     @Transactional
@@ -23,4 +40,10 @@ public interface ItemService {
     @Transactional
     ItemDto modifyItem(long userId, ModifyItemRequest request);
 
+    @Transactional
+    ItemBatchResult modifyItems(long userId, ModifyItemsRequest request);
+
+    @Transactional
+    ItemBatchResult deleteItems(long userId, ItemSelection selection);
+
 }
@@ -1,24 +1,43 @@
 package ru.practicum.item;
 
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpression;
+import com.querydsl.jpa.JPAExpressions;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.common.BadRequestException;
 import ru.practicum.common.NotFoundException;
+import ru.practicum.common.UserVersions;
 import ru.practicum.item.dto.AddItemRequest;
+import ru.practicum.item.dto.ItemBatchResult;
+import ru.practicum.item.dto.ItemChangesDto;
 import ru.practicum.item.dto.GetItemRequest;
 import ru.practicum.item.dto.ItemDto;
+import ru.practicum.item.dto.ItemFacetsDto;
+import ru.practicum.item.dto.ItemSelection;
 import ru.practicum.item.dto.ModifyItemRequest;
+import ru.practicum.item.dto.ModifyItemsRequest;
 import ru.practicum.item.model.Item;
 import ru.practicum.item.model.QItem;
+import ru.practicum.item.model.QTag;
+import ru.practicum.item.model.Tag;
 import ru.practicum.user.User;
 import ru.practicum.user.UserRepository;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,7 +45,18 @@ import java.util.Optional;
 public class ItemServiceImpl implements ItemService {
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
+    private final TagRepository tagRepository;
     private final UrlMetaDataRetriever urlMetaDataRetriever;
+    private final PageRepository pageRepository;
+    private final ItemChangeRepository itemChangeRepository;
+    private final ItemChangeLog itemChangeLog;
+    private final ItemCountRepository itemCountRepository;
+    private final ItemBatchRepository itemBatchRepository;
+    private final ItemListCache itemListCache;
+    private final ItemFilterIndex itemFilterIndex;
+    private final UserVersions userVersions;
+    private final PendingItemResolver pendingItemResolver;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public List<ItemDto> getItems(long userId) {
@@ -35,6 +65,44 @@ public class ItemServiceImpl implements ItemService {
 
     @Override
     public List<ItemDto> getItems(GetItemRequest request) {
+        return itemListCache.get(request, () -> findItems(request));
+    }
+
+    private List<ItemDto> findItems(GetItemRequest request) {
+        ItemOperationEvent event = new ItemOperationEvent("getItems", request.userId());
+        event.begin();
+        // Фильтры по состоянию, типу содержимого и тэгам может сразу вычислить индекс
+        // в памяти. Если под них подходит немного ссылок, страница выбирается среди них
+        // по id, иначе фильтры проверяет БД
+        List<Long> matchingIds = itemFilterIndex.find(request);
+        String filterSource = matchingIds != null ? "index" : "db";
+        if (matchingIds != null && matchingIds.isEmpty()) {
+            event.commit(() -> ItemOperationEvent.shape(request, filterSource), 0, 0);
+            return List.of();
+        }
+        BooleanExpression finalCondition = makeCondition(request, matchingIds);
+
+        // анализируем, какой вариант сортировки выбрал пользователь
+        // и какое количество элементов он выбрал для отображения
+        Sort sort = makeOrderByClause(request.sort());
+
+        // выполняем запрос к базе данных со всеми подготовленными настройками
+        // конвертируем результат в DTO и возвращаем контроллеру.
+        // Нужна только первая страница, поэтому запрос без подсчёта общего количества
+        List<Item> items = itemRepository.findBy(finalCondition, query -> query
+                .sortBy(sort)
+                .limit(request.limit())
+                .all());
+        long mappingStarted = System.nanoTime();
+        List<ItemDto> result = ItemMapper.mapToItemDto(items);
+        event.commit(() -> ItemOperationEvent.shape(request, filterSource), result.size(),
+                System.nanoTime() - mappingStarted);
+        return result;
+    }
+
+    // Условие выборки страницы ссылок. matchingIds - ссылки, подходящие под фильтры
+    // по данным индекса, или null, если фильтры должна проверить БД
+    static BooleanExpression makeCondition(GetItemRequest request, List<Long> matchingIds) {
         // Для поиска ссылок используем QueryDSL чтобы было удобно настраивать разные варианты фильтров
         QItem item = QItem.item;
         // Мы будем анализировать какие фильтры указал пользователь
@@ -44,6 +112,27 @@ public class ItemServiceImpl implements ItemService {
         // должен быть тем же пользователем, что сохранил ссылку
         conditions.add(item.user.id.eq(request.userId()));
 
+        if (matchingIds != null) {
+            conditions.add(item.id.in(matchingIds));
+        } else {
+            addFilterConditions(request, conditions);
+        }
+
+        // если запрошена не первая страница, продолжаем сразу после последней
+        // ссылки предыдущей страницы (keyset pagination) - без OFFSET
+        if (request.cursor() != null) {
+            conditions.add(makeCursorCondition(ItemCursor.decode(request.cursor(), request.sort())));
+        }
+
+        // из всех подготовленных условий, составляем единое условие
+        return conditions.stream()
+                .reduce(BooleanExpression::and)
+                .get();
+    }
+
+    private static void addFilterConditions(GetItemRequest request, List<BooleanExpression> conditions) {
+        QItem item = QItem.item;
+
         // Проверяем один из фильтров указанных в запросе - state
         GetItemRequest.State state = request.state();
         // Если пользователь указал, что его интересуют все ссылки, вне зависимости
@@ -62,53 +151,235 @@ public class ItemServiceImpl implements ItemService {
         }
 
         // если пользователя интересуют ссылки с конкретными тэгами,
-        // то добавляем это условие в запрос
+        // то добавляем это условие в запрос: названия ищутся в словаре пользователя
+        // (tags_user_id_name_key), а ссылки связаны с найденными тэгами по их id
         if (request.tags() != null && !request.tags().isEmpty()) {
-            conditions.add(item.tags.any().in(request.tags()));
+            QTag tag = QTag.tag;
+            conditions.add(JPAExpressions.selectOne()
+                    .from(tag)
+                    .where(tag.in(item.tags), tag.user.id.eq(request.userId()), tag.name.in(request.tags()))
+                    .exists());
         }
+    }
 
-        // из всех подготовленных условий, составляем единое условие
-        BooleanExpression finalCondition = conditions.stream()
-                .reduce(BooleanExpression::and)
-                .get();
+    // Счётчики для панели фильтров - из item_counts: без фильтра по тэгам и с одним тэгом
+    // ответ собирается из строк счётчиков пользователя, сколько бы у него ни было ссылок.
+    // Ссылки хотя бы с одним из нескольких тэгов считаются запросом по этим ссылкам
+    @Override
+    public ItemFacetsDto getFacets(GetItemRequest request) {
+        ItemOperationEvent event = new ItemOperationEvent("getFacets", request.userId());
+        event.begin();
+        List<ItemCountRepository.Count> counts = itemCountRepository.findCounts(request.userId());
 
-        // анализируем, какой вариант сортировки выбрал пользователь
-        // и какое количество элементов он выбрал для отображения
-        Sort sort = makeOrderByClause(request.sort());
-        PageRequest pageRequest = PageRequest.of(0, request.limit(), sort);
+        // ссылки, подходящие под фильтр по тэгам, по состоянию и типу
+        List<ItemCountRepository.Count> filtered;
+        if (request.tags() == null || request.tags().isEmpty()) {
+            filtered = counts.stream().filter(count -> count.tag() == null).toList();
+        } else if (request.tags().size() == 1) {
+            String tag = request.tags().iterator().next();
+            filtered = counts.stream().filter(count -> tag.equals(count.tag())).toList();
+        } else {
+            filtered = itemCountRepository.findTaggedCounts(request.userId(), request.tags());
+        }
+        long mappingStarted = System.nanoTime();
 
-        // выполняем запрос к базе данных со всеми подготовленными настройками
-        // конвертируем результат в DTO и возвращаем контроллеру
-        Iterable<Item> items = itemRepository.findAll(finalCondition, pageRequest);
-        return ItemMapper.mapToItemDto(items);
+        Map<String, Long> states = new LinkedHashMap<>();
+        for (GetItemRequest.State state : GetItemRequest.State.values()) {
+            states.put(state.name().toLowerCase(), filtered.stream()
+                    .filter(count -> matches(count, state) && matches(count, request.contentType()))
+                    .mapToLong(ItemCountRepository.Count::count)
+                    .sum());
+        }
+        Map<String, Long> contentTypes = new LinkedHashMap<>();
+        for (GetItemRequest.ContentType contentType : GetItemRequest.ContentType.values()) {
+            contentTypes.put(contentType.name().toLowerCase(), filtered.stream()
+                    .filter(count -> matches(count, request.state()) && matches(count, contentType))
+                    .mapToLong(ItemCountRepository.Count::count)
+                    .sum());
+        }
+        Map<String, Long> tags = counts.stream()
+                .filter(count -> count.tag() != null)
+                .filter(count -> matches(count, request.state()) && matches(count, request.contentType()))
+                .collect(Collectors.groupingBy(ItemCountRepository.Count::tag,
+                        Collectors.summingLong(ItemCountRepository.Count::count)))
+                .entrySet().stream()
+                .filter(tag -> tag.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+
+        ItemFacetsDto facets = ItemFacetsDto.builder()
+                .states(states)
+                .contentTypes(contentTypes)
+                .tags(tags)
+                .build();
+        event.commit(() -> ItemOperationEvent.shape(request, null), counts.size(),
+                System.nanoTime() - mappingStarted);
+        return facets;
+    }
+
+    private static boolean matches(ItemCountRepository.Count count, GetItemRequest.State state) {
+        return switch (state) {
+            case UNREAD -> count.unread();
+            case READ -> !count.unread();
+            case ALL -> true;
+        };
+    }
+
+    private static boolean matches(ItemCountRepository.Count count, GetItemRequest.ContentType contentType) {
+        return contentType == GetItemRequest.ContentType.ALL || contentType.mimeType().equals(count.mimeType());
+    }
+
+    @Override
+    public ItemDto getItem(long userId, long itemId) {
+        return itemRepository.findByUserIdAndId(userId, itemId)
+                .map(ItemMapper::mapToItemDto)
+                .orElseThrow(() -> new NotFoundException(String.format("Item with id %d not found", itemId)));
+    }
+
+    @Override
+    public List<ItemDto> search(long userId, String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("Search query is empty");
+        }
+        ItemOperationEvent event = new ItemOperationEvent("search", userId);
+        event.begin();
+        List<Item> items = itemRepository.search(userId, query, limit);
+        long mappingStarted = System.nanoTime();
+        List<ItemDto> result = ItemMapper.mapToItemDto(items);
+        event.commit(() -> "search", result.size(), System.nanoTime() - mappingStarted);
+        return result;
+    }
+
+    // Изменения ссылок после токена since по журналу item_changes. Без токена - все ссылки
+    // пользователя: у каждой существующей ссылки в журнале есть запись
+    @Override
+    public ItemChangesDto getChanges(long userId, String since, int limit) {
+        if (limit <= 0) {
+            throw new BadRequestException("Limit must be positive");
+        }
+        ItemOperationEvent event = new ItemOperationEvent("getChanges", userId);
+        event.begin();
+        // время до чтения: токен не должен обещать изменений, которых в снимке ещё нет
+        Instant now = Instant.now();
+        ItemChangesToken token = since == null
+                ? new ItemChangesToken(0, now)
+                : itemChangeLog.check(ItemChangesToken.decode(since), now);
+
+        List<ItemChangeRepository.Change> changes = itemChangeRepository.findChanges(userId, token.changeSeq(),
+                limit + 1);
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+
+        Map<Long, Item> found = itemRepository.findAllById(changes.stream()
+                        .filter(change -> !change.deleted())
+                        .map(ItemChangeRepository.Change::itemId)
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        long mappingStarted = System.nanoTime();
+        List<ItemDto> items = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (ItemChangeRepository.Change change : changes) {
+            Item item = found.get(change.itemId());
+            if (item != null) {
+                items.add(ItemMapper.mapToItemDto(item));
+            } else if (since != null) {
+                // клиенту без токена об удалённых ссылках знать незачем
+                deleted.add(change.itemId());
+            }
+        }
+
+        // Неполный ответ переносит время исходного токена: оставшиеся записи могли
+        // появиться задолго до текущего запроса
+        long lastSeq = changes.isEmpty() ? token.changeSeq() : changes.getLast().changeSeq();
+        ItemChangesToken next = new ItemChangesToken(lastSeq, hasMore ? token.issuedAt() : now);
+        ItemChangesDto result = ItemChangesDto.builder()
+                .items(items)
+                .deleted(deleted)
+                .token(next.encode())
+                .hasMore(hasMore)
+                .build();
+        event.commit(() -> since == null ? "full" : "since", changes.size(),
+                System.nanoTime() - mappingStarted);
+        return result;
     }
 
-    @Transactional
+    // Транзакции открываются внутри метода через transactionTemplate
+    @Transactional(propagation = Propagation.SUPPORTS)
     @Override
     public ItemDto addNewItem(long userId, AddItemRequest request) {
+        // В асинхронном режиме сразу сохраняем ссылку, а метаданные
+        // получаем в фоне - запрос не ждёт ответа от удалённого сайта
+        if (pendingItemResolver.isEnabled()) {
+            return transactionTemplate.execute(status -> addPendingItem(userId, request));
+        }
+
+        // Метаданные получаем до начала транзакции, чтобы не занимать
+        // соединение с БД на время обращения к удалённому сайту
+        UrlMetaDataRetriever.UrlMetadata urlMetadata = HostRequestScheduler.onBehalfOf(userId,
+                () -> urlMetaDataRetriever.retrieve(request.url()));
+
+        try {
+            return transactionTemplate.execute(status -> addResolvedItem(userId, request, urlMetadata));
+        } catch (DataIntegrityViolationException e) {
+            // ту же страницу одновременно сохранил другой запрос пользователя (ограничение
+            // уникальности user_id + resolved_url) - теперь она найдётся, и тэги добавятся к ней
+            return transactionTemplate.execute(status -> addResolvedItem(userId, request, urlMetadata));
+        }
+    }
+
+    private ItemDto addResolvedItem(long userId, AddItemRequest request, UrlMetaDataRetriever.UrlMetadata urlMetadata) {
         User user = userRepository.getReferenceById(userId);
-        UrlMetaDataRetriever.UrlMetadata urlMetadata =
-                urlMetaDataRetriever.retrieve(request.url());
 
         Item item;
         Optional<Item> foundItem = itemRepository.findByUserAndResolvedUrl(user, urlMetadata.getResolvedUrl());
 
         if (foundItem.isPresent()) {
             item = foundItem.get();
-            if (request.tags() != null || !request.tags().isEmpty()) {
-                item.getTags().addAll(request.tags());
+            if (request.tags() != null && !request.tags().isEmpty()) {
+                item.getTags().addAll(tagRepository.findOrCreate(userId, request.tags()));
                 itemRepository.save(item);
             }
         } else {
-            item = itemRepository.save(ItemMapper.mapToItem(urlMetadata, user, request.tags()));
+            item = itemRepository.save(ItemMapper.mapToItem(urlMetadata, user,
+                    tagRepository.findOrCreate(userId, request.tags())));
+            itemRepository.updateSearchVector(item.getId(), urlMetadata.getText());
+            pageRepository.save(List.of(urlMetadata));
         }
 
+        userVersions.changed(userId);
+        return ItemMapper.mapToItemDto(item);
+    }
+
+    private ItemDto addPendingItem(long userId, AddItemRequest request) {
+        User user = userRepository.getReferenceById(userId);
+        userVersions.changed(userId);
+
+        // До получения метаданных итоговый адрес неизвестен,
+        // поэтому повторы ищем по адресу, который прислал пользователь
+        Optional<Item> foundItem = itemRepository.findFirstByUserAndUrl(user, request.url());
+        if (foundItem.isPresent()) {
+            Item item = foundItem.get();
+            if (request.tags() != null && !request.tags().isEmpty()) {
+                item.getTags().addAll(tagRepository.findOrCreate(userId, request.tags()));
+                itemRepository.save(item);
+            }
+            return ItemMapper.mapToItemDto(item);
+        }
+
+        Item item = itemRepository.save(ItemMapper.mapToPendingItem(request.url(), user,
+                tagRepository.findOrCreate(userId, request.tags())));
+        pendingItemResolver.submitAfterCommit(item.getId());
         return ItemMapper.mapToItemDto(item);
     }
 
     @Override
     public void deleteItem(long userId, long item) {
         itemRepository.deleteByUserIdAndId(userId, item);
+        userVersions.changed(userId);
     }
 
     @Override
@@ -126,13 +397,77 @@ public class ItemServiceImpl implements ItemService {
         }
 
         if (request.hasTags()) {
-            item.getTags().addAll(request.tags());
+            item.getTags().addAll(tagRepository.findOrCreate(userId, request.tags()));
         }
 
+        userVersions.changed(userId);
         return ItemMapper.mapToItemDto(itemRepository.save(item));
     }
 
-    private BooleanExpression makeStateCondition(GetItemRequest.State state) {
+    // Пакетные операции изменяют каждую таблицу одним запросом сразу для всех выбранных ссылок
+    @Override
+    public ItemBatchResult modifyItems(long userId, ModifyItemsRequest request) {
+        ItemOperationEvent event = new ItemOperationEvent("modifyItems", userId);
+        event.begin();
+        List<Long> itemIds = findSelected(userId, request.selection());
+        if (itemIds.isEmpty()) {
+            event.commit(() -> ItemOperationEvent.shape(request.selection()), 0, 0);
+            return new ItemBatchResult(0);
+        }
+
+        if (request.read() != null) {
+            itemBatchRepository.setUnread(itemIds, !request.read());
+        }
+
+        Set<Long> tagIds = tagRepository.findOrCreate(userId, request.tags()).stream()
+                .map(Tag::getId)
+                .collect(Collectors.toSet());
+        if (request.replaceTags()) {
+            itemBatchRepository.deleteOtherTags(itemIds, tagIds);
+        }
+        itemBatchRepository.insertTags(itemIds, tagIds);
+
+        userVersions.changed(userId);
+        event.commit(() -> ItemOperationEvent.shape(request.selection()), itemIds.size(), 0);
+        return new ItemBatchResult(itemIds.size());
+    }
+
+    @Override
+    public ItemBatchResult deleteItems(long userId, ItemSelection selection) {
+        ItemOperationEvent event = new ItemOperationEvent("deleteItems", userId);
+        event.begin();
+        List<Long> itemIds = findSelected(userId, selection);
+        if (!itemIds.isEmpty()) {
+            itemBatchRepository.delete(itemIds);
+            userVersions.changed(userId);
+        }
+        event.commit(() -> ItemOperationEvent.shape(selection), itemIds.size(), 0);
+        return new ItemBatchResult(itemIds.size());
+    }
+
+    // id выбранных ссылок пользователя; ссылки блокируются до конца транзакции
+    private List<Long> findSelected(long userId, ItemSelection selection) {
+        if (selection == null || selection.hasItemIds() == selection.hasFilters()) {
+            throw new BadRequestException("Either item ids or filters must be specified");
+        }
+        if (selection.hasItemIds()) {
+            return itemBatchRepository.findIds(userId, selection.itemIds());
+        }
+
+        GetItemRequest.State state = selection.state() == null ? GetItemRequest.State.ALL
+                : GetItemRequest.State.valueOf(selection.state().toUpperCase());
+        GetItemRequest.ContentType contentType = selection.contentType() == null ? GetItemRequest.ContentType.ALL
+                : GetItemRequest.ContentType.valueOf(selection.contentType().toUpperCase());
+        Boolean unread = switch (state) {
+            case UNREAD -> true;
+            case READ -> false;
+            case ALL -> null;
+        };
+        return itemBatchRepository.findIds(userId, unread, contentType.mimeType(),
+                selection.hasTags() ? selection.tags() : null);
+    }
+
+    private static BooleanExpression makeStateCondition(GetItemRequest.State state) {
         switch (state) {
             case READ:
                 return QItem.item.unread.isFalse();
@@ -142,30 +477,57 @@ public class ItemServiceImpl implements ItemService {
         }
     }
 
-    private BooleanExpression makeContentTypeCondition(GetItemRequest.ContentType contentType) {
-        switch (contentType) {
-            case IMAGE:
-                return QItem.item.mimeType.eq("image");
-            case VIDEO:
-                return QItem.item.mimeType.eq("video");
-            case ARTICLE:
+    private static BooleanExpression makeContentTypeCondition(GetItemRequest.ContentType contentType) {
+        return QItem.item.mimeType.eq(contentType.mimeType());
+    }
+
+    // Сортировка всегда дополняется id, чтобы порядок был однозначным и курсор
+    // указывал на конкретное место в списке. Ссылки без значения ключа (ещё не
+    // получены метаданные) идут так же, как по умолчанию в PostgreSQL: при сортировке
+    // по возрастанию - в конце, по убыванию - в начале.
+    static Sort makeOrderByClause(GetItemRequest.Sort sort) {
+        switch (sort) {
+            case TITLE:
+                return Sort.by(Sort.Order.asc("title").nullsLast(), Sort.Order.asc("id"));
+            case SITE:
+                return Sort.by(Sort.Order.asc("resolvedUrl").nullsLast(), Sort.Order.asc("id"));
+            case OLDEST:
+                return Sort.by(Sort.Order.asc("dateResolved").nullsLast(), Sort.Order.asc("id"));
+            case NEWEST:
             default:
-                return QItem.item.mimeType.eq("text");
+                return Sort.by(Sort.Order.desc("dateResolved").nullsFirst(), Sort.Order.desc("id"));
         }
     }
 
-    private Sort makeOrderByClause(GetItemRequest.Sort sort) {
-        switch (sort) {
+    // Условие "строго после курсора" для порядка из makeOrderByClause
+    private static BooleanExpression makeCursorCondition(ItemCursor cursor) {
+        QItem item = QItem.item;
+        switch (cursor.sort()) {
             case TITLE:
-                return Sort.by("title");
+                return after(item.title, cursor.value(), cursor.id(), true);
             case SITE:
-                return Sort.by("resolvedUrl");
+                return after(item.resolvedUrl, cursor.value(), cursor.id(), true);
             case OLDEST:
-                return Sort.by("dateResolved");
+                return after(item.dateResolved, cursor.instantValue(), cursor.id(), true);
             case NEWEST:
             default:
-                return Sort.by("dateResolved").descending();
+                return after(item.dateResolved, cursor.instantValue(), cursor.id(), false);
+        }
+    }
+
+    private static <T extends Comparable<?>> BooleanExpression after(ComparableExpression<T> key, T value,
+                                                                     long id, boolean ascending) {
+        QItem item = QItem.item;
+        BooleanExpression idAfter = ascending ? item.id.gt(id) : item.id.lt(id);
+        if (value == null) {
+            // по возрастанию пустые значения в конце, после них ничего нет;
+            // по убыванию - в начале, после них идут все непустые
+            BooleanExpression sameKey = key.isNull().and(idAfter);
+            return ascending ? sameKey : sameKey.or(key.isNotNull());
         }
+        BooleanExpression keyAfter = ascending ? key.gt(value) : key.lt(value);
+        BooleanExpression next = keyAfter.or(key.eq(value).and(idAfter));
+        return ascending ? next.or(key.isNull()) : next;
     }
 
 }
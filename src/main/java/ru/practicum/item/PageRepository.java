@@ -0,0 +1,114 @@
+package ru.practicum.item;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Сохранённые страницы (таблица pages): валидаторы HTTP-кэша и время последней
+// проверки страницы. По ним ItemRefreshJob обновляет метаданные ссылок.
+// Выполняется в транзакции вызывающего кода.
+@Repository
+@Timed(ItemMetrics.JDBC_REPOSITORY_INVOCATIONS)
+@RequiredArgsConstructor
+class PageRepository {
+    // более старые сведения о странице (например, из кэша метаданных) не заменяют более новые
+    private static final String UPSERT_PAGE = """
+            INSERT INTO pages (resolved_url, etag, last_modified, date_checked)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (resolved_url) DO UPDATE
+            SET etag = EXCLUDED.etag, last_modified = EXCLUDED.last_modified, date_checked = EXCLUDED.date_checked
+            WHERE pages.date_checked < EXCLUDED.date_checked""";
+    static final String FIND_STALE = """
+            SELECT resolved_url, etag, last_modified, date_checked
+            FROM pages
+            WHERE date_checked < ?
+            ORDER BY date_checked
+            LIMIT ?""";
+    static final String MARK_CHECKED = "UPDATE pages SET date_checked = ? WHERE resolved_url = ?";
+    private static final String UPDATE_PAGE = """
+            UPDATE pages SET etag = ?, last_modified = ?, date_checked = ? WHERE resolved_url = ?""";
+    static final String UPDATE_ITEMS = """
+            UPDATE items
+            SET mime_type = ?, title = left(?, 255), has_image = ?, has_video = ?,
+                search_vector = item_search_vector(left(?, 255), ?)
+            WHERE resolved_url = ? AND status = 'RESOLVED'
+            RETURNING user_id""";
+    private static final String DELETE_PAGE = "DELETE FROM pages WHERE resolved_url = ?";
+    static final String DELETE_UNUSED_PAGE = """
+            DELETE FROM pages p
+            WHERE p.resolved_url = ? AND NOT EXISTS (SELECT 1 FROM items i WHERE i.resolved_url = p.resolved_url)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    record Page(String resolvedUrl, String etag, String lastModified, Instant dateChecked) {
+    }
+
+    // Запоминает страницы, метаданные которых только что получены
+    void save(Collection<UrlMetaDataRetriever.UrlMetadata> pages) {
+        Map<String, UrlMetaDataRetriever.UrlMetadata> byUrl = new LinkedHashMap<>();
+        for (UrlMetaDataRetriever.UrlMetadata page : pages) {
+            if (page.getResolvedUrl() != null) {
+                byUrl.putIfAbsent(page.getResolvedUrl(), page);
+            }
+        }
+        if (byUrl.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        byUrl.forEach((url, page) -> rows.add(new Object[]{url, page.getEtag(), page.getLastModified(),
+                timestamp(page.getDateResolved() != null ? page.getDateResolved() : Instant.now())}));
+        jdbcTemplate.batchUpdate(UPSERT_PAGE, rows);
+    }
+
+    // Страницы, которые проверялись раньше checkedBefore, начиная с самых давних
+    List<Page> findStale(Instant checkedBefore, int limit) {
+        return jdbcTemplate.query(FIND_STALE,
+                (rs, rowNum) -> new Page(
+                        rs.getString("resolved_url"),
+                        rs.getString("etag"),
+                        rs.getString("last_modified"),
+                        rs.getTimestamp("date_checked").toLocalDateTime().toInstant(ZoneOffset.UTC)),
+                timestamp(checkedBefore), limit);
+    }
+
+    // Удаляет страницу, если все ссылки на неё удалены - проверять её больше незачем
+    boolean deleteIfUnused(String resolvedUrl) {
+        return jdbcTemplate.update(DELETE_UNUSED_PAGE, resolvedUrl) > 0;
+    }
+
+    // Страница не изменилась (или проверить её не удалось) - в очереди она встаёт в конец
+    void markChecked(String resolvedUrl, Instant dateChecked) {
+        jdbcTemplate.update(MARK_CHECKED, timestamp(dateChecked), resolvedUrl);
+    }
+
+    // Страница изменилась: новые валидаторы и метаданные всех ссылок на неё.
+    // Возвращает пользователей, чьи ссылки обновлены. Страница, на которую ссылок больше нет, удаляется
+    List<Long> update(String resolvedUrl, UrlMetaDataRetriever.UrlMetadata metadata) {
+        List<Long> users = jdbcTemplate.queryForList(UPDATE_ITEMS, Long.class, metadata.getMimeType(),
+                metadata.getTitle(), metadata.isHasImage(), metadata.isHasVideo(), metadata.getTitle(),
+                metadata.getText(), resolvedUrl);
+        if (users.isEmpty()) {
+            jdbcTemplate.update(DELETE_PAGE, resolvedUrl);
+        } else {
+            jdbcTemplate.update(UPDATE_PAGE, metadata.getEtag(), metadata.getLastModified(),
+                    timestamp(metadata.getDateResolved()), resolvedUrl);
+        }
+        return users;
+    }
+
+    // так же, как Hibernate с hibernate.jdbc.time_zone=UTC
+    private static Timestamp timestamp(Instant instant) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+}
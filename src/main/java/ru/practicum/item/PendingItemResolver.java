@@ -0,0 +1,161 @@
+package ru.practicum.item;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.common.UserVersions;
+import ru.practicum.item.model.Item;
+import ru.practicum.item.model.ItemStatus;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Получает метаданные для ссылок, сохранённых в состоянии PENDING.
+// Обращение к удалённому сайту выполняется вне транзакции, поэтому
+// соединение с БД занимается только на время чтения и записи строки.
+@Slf4j
+@Component
+class PendingItemResolver {
+    private static final int RESUBMIT_BATCH_SIZE = 100;
+
+    private final ItemRepository itemRepository;
+    private final UrlMetaDataRetriever urlMetaDataRetriever;
+    private final PageRepository pageRepository;
+    private final UserVersions userVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor executor;
+    private final boolean enabled;
+
+    // ссылки, которые уже стоят в очереди или обрабатываются
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    PendingItemResolver(ItemRepository itemRepository,
+                        UrlMetaDataRetriever urlMetaDataRetriever,
+                        PageRepository pageRepository,
+                        UserVersions userVersions,
+                        TransactionTemplate transactionTemplate,
+                        @Qualifier("pendingItemResolverExecutor") TaskExecutor executor,
+                        @Value("${url-metadata-retriever.async.enabled:false}") boolean enabled) {
+        this.itemRepository = itemRepository;
+        this.urlMetaDataRetriever = urlMetaDataRetriever;
+        this.pageRepository = pageRepository;
+        this.userVersions = userVersions;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    // Ставит ссылку в очередь после фиксации текущей транзакции,
+    // иначе фоновый поток может не увидеть ещё не сохранённую строку
+    void submitAfterCommit(long itemId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(itemId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(itemId);
+            }
+        });
+    }
+
+    void submit(long itemId) {
+        if (!inFlight.add(itemId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> resolve(itemId));
+        } catch (TaskRejectedException e) {
+            // очередь переполнена - ссылка останется PENDING и будет подобрана позже
+            inFlight.remove(itemId);
+            log.warn("Resolver queue is full, item {} will be retried later", itemId);
+        }
+    }
+
+    // Подбирает ссылки, которые не попали в очередь (очередь была заполнена
+    // или приложение перезапускалось, пока они ожидали обработки)
+    @Scheduled(fixedDelayString = "${url-metadata-retriever.async.resubmit-interval-ms:60000}")
+    void resubmitPending() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> ids = transactionTemplate.execute(status ->
+                itemRepository.findIdsByStatus(ItemStatus.PENDING, PageRequest.of(0, RESUBMIT_BATCH_SIZE)));
+        if (ids != null) {
+            ids.forEach(this::submit);
+        }
+    }
+
+    void resolve(long itemId) {
+        try {
+            Item pending = transactionTemplate.execute(status -> itemRepository.findById(itemId)
+                    .filter(item -> item.getStatus() == ItemStatus.PENDING)
+                    .orElse(null));
+            if (pending == null) {
+                // ссылку успели удалить или уже обработали
+                return;
+            }
+            String url = pending.getUrl();
+
+            final UrlMetaDataRetriever.UrlMetadata metadata;
+            try {
+                metadata = HostRequestScheduler.onBehalfOf(pending.getUser().getId(),
+                        () -> urlMetaDataRetriever.retrieve(url));
+            } catch (RuntimeException e) {
+                log.warn("Cannot resolve item {} ({}): {}", itemId, url, e.getMessage());
+                transactionTemplate.executeWithoutResult(status -> markFailed(itemId));
+                return;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> complete(itemId, metadata));
+        } finally {
+            inFlight.remove(itemId);
+        }
+    }
+
+    private void complete(long itemId, UrlMetaDataRetriever.UrlMetadata metadata) {
+        Optional<Item> itemOpt = itemRepository.findById(itemId);
+        if (itemOpt.isEmpty()) {
+            return;
+        }
+        Item item = itemOpt.get();
+        userVersions.changed(item.getUser().getId());
+
+        // Пользователь мог уже сохранить эту же страницу под другим адресом.
+        // В этом случае переносим тэги в существующую ссылку, а новую удаляем.
+        Optional<Item> existing = itemRepository.findByUserAndResolvedUrl(item.getUser(), metadata.getResolvedUrl());
+        if (existing.isPresent() && !existing.get().getId().equals(itemId)) {
+            existing.get().getTags().addAll(item.getTags());
+            itemRepository.delete(item);
+            return;
+        }
+
+        ItemMapper.applyMetadata(item, metadata);
+        itemRepository.updateSearchVector(itemId, metadata.getText());
+        pageRepository.save(List.of(metadata));
+    }
+
+    private void markFailed(long itemId) {
+        itemRepository.findById(itemId)
+                .filter(item -> item.getStatus() == ItemStatus.PENDING)
+                .ifPresent(item -> {
+                    item.setStatus(ItemStatus.FAILED);
+                    userVersions.changed(item.getUser().getId());
+                });
+    }
+}
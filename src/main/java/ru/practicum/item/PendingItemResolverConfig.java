@@ -0,0 +1,33 @@
+package ru.practicum.item;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableScheduling
+class PendingItemResolverConfig {
+
+    // Ограниченный пул потоков для фонового получения метаданных.
+    // Если очередь заполнена, новые задачи отклоняются, а ссылки остаются
+    // в состоянии PENDING до следующего прохода PendingItemResolver.resubmitPending().
+    @Bean
+    ThreadPoolTaskExecutor pendingItemResolverExecutor(
+            @Value("${url-metadata-retriever.async.pool-size:4}") int poolSize,
+            @Value("${url-metadata-retriever.async.queue-capacity:1000}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("item-resolver-");
+        // Размер пула и очереди остаются ограниченными, но сами рабочие потоки
+        // виртуальные - ожидание ответа сайта не занимает платформенный поток
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("item-resolver-", 0).factory());
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.item;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.item.model.Tag;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public interface TagRepository extends JpaRepository<Tag, Long> {
+
+    List<Tag> findByUserIdAndNameIn(long userId, Collection<String> names);
+
+    // Добавляет в словарь пользователя тэги, которых в нём ещё нет. Если тот же тэг
+    // одновременно добавляет другая транзакция, вставка дожидается её и пропускает тэг
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO tags (user_id, name)
+            SELECT :userId, name FROM unnest(CAST(:names AS VARCHAR[])) AS name
+            ON CONFLICT DO NOTHING""")
+    void insertMissing(@Param("userId") long userId, @Param("names") String[] names);
+
+    // Тэги пользователя с данными названиями; недостающие добавляются в словарь.
+    // Названия вставляются по порядку, чтобы одновременные вставки не ждали друг друга по кругу
+    default Set<Tag> findOrCreate(long userId, Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return new HashSet<>();
+        }
+        Set<String> sorted = new TreeSet<>(names);
+        insertMissing(userId, sorted.toArray(String[]::new));
+        return new HashSet<>(findByUserIdAndNameIn(userId, sorted));
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.item;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Событие JFR на каждую попытку запроса к сайту в UrlMetaDataRetrieverImpl: длительность
+// события - от постановки в очередь к сайту до прочитанного тела ответа.
+// Пока запись JFR не ведётся, событие не записывается и почти ничего не стоит
+@Name(UrlFetchEvent.NAME)
+@Label("URL Fetch")
+@Category({"Later", "Metadata"})
+@Description("Request to a site for page metadata")
+@StackTrace(false)
+class UrlFetchEvent extends jdk.jfr.Event {
+    static final String NAME = "ru.practicum.UrlFetch";
+
+    @Label("Host")
+    String host;
+
+    @Label("Method")
+    String method;
+
+    // 0 - ответа нет
+    @Label("Status")
+    int status;
+
+    @Label("Redirected")
+    boolean redirected;
+
+    // прочитано из тела ответа (у HEAD - 0, тела нет); -1 - неизвестно
+    @Label("Bytes")
+    @DataAmount
+    long bytes = -1;
+
+    @Label("Queue Time")
+    @Timespan
+    long queueTime;
+
+    @Label("Request Time")
+    @Timespan
+    long requestTime;
+
+    @Label("Body Time")
+    @Timespan
+    long bodyTime;
+}
@@ -26,5 +26,14 @@ public interface UrlMetaDataRetriever {
         boolean isHasVideo();
 
         Instant getDateResolved();
+
+        // начало текста страницы для полнотекстового поиска, пустая строка - если текста нет
+        String getText();
+
+        // валидаторы HTTP-кэша из ответа сайта для последующей проверки, не изменилась
+        // ли страница; null - если сайт их не прислал
+        String getEtag();
+
+        String getLastModified();
     }
 }
@@ -1,34 +1,63 @@
 package ru.practicum.item;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.MimeType;
 import ru.practicum.common.ItemRetrieverException;
 
-import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+// Время получения метаданных - в метриках: целиком (url.metadata.retrieve, url.metadata.revalidate)
+// и по этапам каждого запроса к сайту: ожидание очереди к сайту (url.metadata.queue), запрос
+// до получения заголовков ответа вместе с перенаправлениями (url.metadata.request) и чтение
+// с разбором тела (url.metadata.body)
 @Slf4j
 @Service
 public class UrlMetaDataRetrieverImpl implements UrlMetaDataRetriever {
+    private static final String NONE = "none";
+
     private final HttpClient client;
+    private final HostRequestScheduler scheduler;
+    private final MeterRegistry meterRegistry;
+    private final long maxHtmlBytes;
+    private final int maxTextLength;
+    private final boolean singleRequest;
 
-    UrlMetaDataRetrieverImpl(@Value("${url-metadata-retriever.read_timeout-sec:120}") int readTimeout) {
+    UrlMetaDataRetrieverImpl(HostRequestScheduler scheduler,
+                             MeterRegistry meterRegistry,
+                             @Value("${url-metadata-retriever.single-request:true}") boolean singleRequest,
+                             @Value("${url-metadata-retriever.read_timeout-sec:120}") int readTimeout,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                             @Value("${url-metadata-retriever.max-html-bytes:524288}") long maxHtmlBytes,
+                             @Value("${url-metadata-retriever.max-text-length:4096}") int maxTextLength) {
+        this.scheduler = scheduler;
+        this.meterRegistry = meterRegistry;
+        this.singleRequest = singleRequest;
+        this.maxHtmlBytes = maxHtmlBytes;
+        this.maxTextLength = maxTextLength;
         // Для получения метаданных об URL воспользуемся стандартным HttpClient'ом.
         // Для этого создадим его экземпляр с нужными нам настройками
         // Во первых, указываем всегда переходить по новому адресу, если сервер
@@ -36,10 +65,15 @@ public class UrlMetaDataRetrieverImpl implements UrlMetaDataRetriever {
         // например если пользователь сохраняет сокращенную ссылку (полученную, например
         // через сервис bitly.com) или по каким-либо другим причинам. Также указываем таймаут
         // ожидания соединения.
-        this.client = HttpClient.newBuilder()
+        HttpClient.Builder builder = HttpClient.newBuilder()
                 .followRedirects(HttpClient.Redirect.ALWAYS)
-                .connectTimeout(Duration.ofSeconds(readTimeout))
-                .build();
+                .connectTimeout(Duration.ofSeconds(readTimeout));
+        // В режиме виртуальных потоков внутренние задачи клиента тоже выполняются
+        // на виртуальных потоках, а не в отдельном пуле платформенных
+        if (virtualThreads) {
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        this.client = builder.build();
     }
 
     @Override
@@ -52,18 +86,117 @@ public class UrlMetaDataRetrieverImpl implements UrlMetaDataRetriever {
             throw new ItemRetrieverException("The URL is malformed: " + urlString, e);
         }
 
-        HttpResponse<Void> resp = connect(uri, "HEAD", HttpResponse.BodyHandlers.discarding());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        String contentType = NONE;
+        try {
+            final UrlMetadataImpl result = singleRequest ? get(uri) : headThenGet(uri);
+            outcome = "success";
+            contentType = result.getMimeType();
+
+            return result.toBuilder()
+                    .normalUrl(urlString)
+                    .dateResolved(Instant.now())
+                    .build();
+        } finally {
+            sample.stop(meterRegistry.timer("url.metadata.retrieve", "outcome", outcome, "content.type", contentType));
+        }
+    }
+
+    // Проверяет, изменилась ли сохранённая страница, условным GET-запросом с её ETag
+    // и Last-Modified. Если нет, сайт отвечает 304 без тела и результат пустой.
+    // Сайт без валидаторов отдаёт страницу целиком - она разбирается как при сохранении
+    Optional<UrlMetadata> revalidate(String resolvedUrl, String etag, String lastModified) {
+        final URI uri;
+        try {
+            uri = new URI(resolvedUrl);
+        } catch (URISyntaxException e) {
+            throw new ItemRetrieverException("The URL is malformed: " + resolvedUrl, e);
+        }
+
+        HttpRequest.Builder request = requestBuilder(uri, "GET");
+        if (etag != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            request.header(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        UrlMetadataImpl result;
+        try {
+            result = exchange(request.build(), countingInputStream(), false, resp -> {
+                try (InputStream body = resp.body()) {
+                    return resp.statusCode() == HttpStatus.NOT_MODIFIED.value()
+                            ? null
+                            : describe(resp, mediaTypeOf(resp), body);
+                }
+            });
+            outcome = result == null ? "not_modified" : "modified";
+        } finally {
+            sample.stop(meterRegistry.timer("url.metadata.revalidate", "outcome", outcome));
+        }
+        return Optional.ofNullable(result)
+                .map(metadata -> metadata.toBuilder()
+                        .normalUrl(resolvedUrl)
+                        .dateResolved(Instant.now())
+                        .build());
+    }
 
-        String contentType = resp.headers()
+    // Один GET-запрос: тип содержимого берётся из заголовков ответа. Для текста
+    // разбирается начало тела, а для изображений и видео тело не читается вовсе -
+    // закрытие потока сразу обрывает загрузку.
+    private UrlMetadataImpl get(URI uri) {
+        return exchange(request(uri, "GET"), countingInputStream(), false, resp -> {
+            try (InputStream body = resp.body()) {
+                return describe(resp, mediaTypeOf(resp), body);
+            }
+        });
+    }
+
+    // Сначала HEAD, и только для текста - GET по итоговому адресу. Сайты, которые
+    // не поддерживают HEAD или отвечают на него ошибкой, обрабатываются одним GET
+    private UrlMetadataImpl headThenGet(URI uri) {
+        HttpResponse<Void> resp = exchange(request(uri, "HEAD"), HttpResponse.BodyHandlers.discarding(), true,
+                response -> response);
+        if (HttpStatus.valueOf(resp.statusCode()).isError()) {
+            log.debug("HEAD {} returned {}, falling back to GET", uri, resp.statusCode());
+            return get(uri);
+        }
+
+        MediaType mediaType = mediaTypeOf(resp);
+        if (mediaType.isCompatibleWith(MimeType.valueOf("text/*"))) {
+            return exchange(request(resp.uri(), "GET"), countingInputStream(), false, page -> {
+                try (InputStream body = page.body()) {
+                    return describe(page, mediaType, body);
+                }
+            });
+        }
+        return describe(resp, mediaType, null);
+    }
+
+    private MediaType mediaTypeOf(HttpResponse<?> resp) {
+        return parseMediaType(resp.headers()
                 .firstValue(HttpHeaders.CONTENT_TYPE)
-                .orElse("*");
+                .orElse("*"));
+    }
 
-        MediaType mediaType = MediaType.parseMediaType(contentType);
+    static MediaType parseMediaType(String contentType) {
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            throw new ItemRetrieverException("The content type [" + contentType
+                                             + "] at the specified URL is not supported.");
+        }
+    }
 
+    // Метаданные по типу содержимого. Тело страницы читается только для текста
+    private UrlMetadataImpl describe(HttpResponse<?> resp, MediaType mediaType, InputStream body) {
         final UrlMetadataImpl result;
 
         if (mediaType.isCompatibleWith(MimeType.valueOf("text/*"))) {
-            result = handleText(resp.uri());
+            result = handleText(resp.uri(), body, charsetOf(resp));
         } else if (mediaType.isCompatibleWith(MimeType.valueOf("image/*"))) {
             result = handleImage(resp.uri());
         } else if (mediaType.isCompatibleWith(MimeType.valueOf("video/*"))) {
@@ -74,74 +207,202 @@ public class UrlMetaDataRetrieverImpl implements UrlMetaDataRetriever {
         }
 
         return result.toBuilder()
-                .normalUrl(urlString)
                 .resolvedUrl(resp.uri().toString())
                 .mimeType(mediaType.getType())
-                .dateResolved(Instant.now())
+                .etag(resp.headers().firstValue(HttpHeaders.ETAG).orElse(null))
+                .lastModified(resp.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null))
                 .build();
     }
 
-    private <T> HttpResponse<T> connect(URI url,
-                                        String method,
-                                        HttpResponse.BodyHandler<T> responseBodyHandler) {
-        //делаем запрос к данному url
-        HttpRequest request = HttpRequest.newBuilder()
+    //делаем запрос к данному url
+    private static HttpRequest request(URI url, String method) {
+        return requestBuilder(url, method).build();
+    }
+
+    private static HttpRequest.Builder requestBuilder(URI url, String method) {
+        return HttpRequest.newBuilder()
                 .uri(url)
-                .method(method, HttpRequest.BodyPublishers.noBody())
-                .build();
+                .method(method, HttpRequest.BodyPublishers.noBody());
+    }
 
-        final HttpResponse<T> response;
-        try {
-            response = client.send(request, responseBodyHandler);
-        } catch (IOException e) {
-            throw new ItemRetrieverException("Cannot retrieve data from the URL: " + url, e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Cannot get the metadata for url: " + url
-                                       + " because the thread was interrupted.", e);
-        }
+    // Выполняет запрос в очереди запросов к сайту и читает ответ, пока занято место в ней:
+    // тело ответа, которое читается потоком, тоже загружается с сайта.
+    // На 429 и 503 запрос повторяется после паузы, которую назначил HostRequestScheduler.
+    // Остальные ошибки сайта передаются reader'у, только если allowErrors
+    private <T, R> R exchange(HttpRequest request,
+                              HttpResponse.BodyHandler<T> responseBodyHandler,
+                              boolean allowErrors,
+                              ResponseReader<T, R> reader) {
+        URI url = request.uri();
+        for (int attempt = 1; ; attempt++) {
+            UrlFetchEvent event = new UrlFetchEvent();
+            event.begin();
+            long queued = System.nanoTime();
+            try (HostRequestScheduler.Permit permit = scheduler.acquire(url.getHost())) {
+                long sent = System.nanoTime();
+                event.queueTime = sent - queued;
+                meterRegistry.timer("url.metadata.queue", "method", request.method())
+                        .record(event.queueTime, TimeUnit.NANOSECONDS);
+                HttpResponse<T> response = send(request, responseBodyHandler, sent, event);
 
-        HttpStatus status = HttpStatus.resolve(response.statusCode());
-        if (status == null) {
-            throw new ItemRetrieverException("The server returned an unknown status code: " + response.statusCode());
+                HttpStatus status = HttpStatus.resolve(response.statusCode());
+                if (status == null) {
+                    throw new ItemRetrieverException("The server returned an unknown status code: "
+                                                     + response.statusCode());
+                }
+
+                if (status.equals(HttpStatus.TOO_MANY_REQUESTS) || status.equals(HttpStatus.SERVICE_UNAVAILABLE)) {
+                    closeBody(response);
+                    Optional<Duration> delay = permit.throttle(
+                            response.headers().firstValue(HttpHeaders.RETRY_AFTER).orElse(null), attempt);
+                    if (delay.isPresent()) {
+                        log.debug("{} returned {}, retrying in {}", url, status.value(), delay.get());
+                        continue;
+                    }
+                    throw new ItemRetrieverException("The server is busy, try again later. Response status: "
+                                                     + status);
+                }
+                if (allowErrors) {
+                    return read(request, response, reader, event);
+                }
+                if (status.equals(HttpStatus.UNAUTHORIZED) || status.equals(HttpStatus.FORBIDDEN)) {
+                    closeBody(response);
+                    throw new ItemRetrieverException("There is no access to the resource at the specified URL: "
+                                                     + url);
+                }
+                if (status.isError()) {
+                    closeBody(response);
+                    throw new ItemRetrieverException("Cannot get the data on the item because the server returned "
+                                                     + "an error. Response status: " + status);
+                }
+
+                return read(request, response, reader, event);
+            } catch (IOException e) {
+                throw new ItemRetrieverException("Cannot retrieve data from the URL: " + url, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Cannot get the metadata for url: " + url
+                                           + " because the thread was interrupted.", e);
+            } finally {
+                event.host = url.getHost();
+                event.method = request.method();
+                event.commit();
+            }
         }
+    }
 
-        if (status.equals(HttpStatus.UNAUTHORIZED) || status.equals(HttpStatus.FORBIDDEN)) {
-            throw new ItemRetrieverException("There is no access to the resource at the specified URL: " + url);
+    // Запрос до получения заголовков ответа. Статус - класс ответа (2xx, 3xx, ...) или error,
+    // если ответа нет; redirected - ответ получен по другому адресу после перенаправлений
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler,
+                                     long started, UrlFetchEvent event) throws IOException, InterruptedException {
+        String status = "error";
+        String contentType = NONE;
+        try {
+            HttpResponse<T> response = client.send(request, responseBodyHandler);
+            event.status = response.statusCode();
+            event.redirected = !request.uri().equals(response.uri());
+            status = response.statusCode() / 100 + "xx";
+            contentType = contentTypeTag(response);
+            return response;
+        } finally {
+            event.requestTime = System.nanoTime() - started;
+            meterRegistry.timer("url.metadata.request", "method", request.method(), "status", status,
+                            "redirected", String.valueOf(event.redirected), "content.type", contentType)
+                    .record(event.requestTime, TimeUnit.NANOSECONDS);
         }
-        if (status.isError()) {
-            throw new ItemRetrieverException("Cannot get the data on the item because the server returned an error."
-                                             + "Response status: " + status);
+    }
+
+    // Чтение и разбор тела ответа - пока занято место в очереди к сайту
+    private <T, R> R read(HttpRequest request, HttpResponse<T> response, ResponseReader<T, R> reader,
+                          UrlFetchEvent event) throws IOException {
+        long started = System.nanoTime();
+        String outcome = "error";
+        try {
+            R result = reader.read(response);
+            outcome = "success";
+            return result;
+        } finally {
+            event.bodyTime = System.nanoTime() - started;
+            // Content-Length не подходит: у HEAD это размер тела, которое не загружалось
+            if (response.body() instanceof CountingInputStream body) {
+                event.bytes = body.count;
+            } else if ("HEAD".equals(request.method())) {
+                event.bytes = 0;
+            }
+            meterRegistry.timer("url.metadata.body", "method", request.method(), "outcome", outcome,
+                            "content.type", contentTypeTag(response))
+                    .record(event.bodyTime, TimeUnit.NANOSECONDS);
         }
+    }
 
-        return response;
+    // Тело ответа потоком, который считает прочитанные байты - для UrlFetchEvent
+    private static HttpResponse.BodyHandler<InputStream> countingInputStream() {
+        return info -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(),
+                CountingInputStream::new);
     }
 
-    private UrlMetadataImpl handleText(URI url) {
-        //заполняем поля для случая, когда страница содержит текст (в том числе html)
-        // Отправим get-запрос, чтобы получить содержимое
-        HttpResponse<String> resp = connect(url, "GET", HttpResponse.BodyHandlers.ofString());
+    // Тип содержимого для метрик - только основные типы, чтобы число рядов метрик было ограничено
+    private static String contentTypeTag(HttpResponse<?> response) {
+        String type = response.headers().firstValue(HttpHeaders.CONTENT_TYPE)
+                .map(value -> value.split("/", 2)[0].trim().toLowerCase(Locale.ROOT))
+                .orElse(NONE);
+        return switch (type) {
+            case "text", "image", "video", NONE -> type;
+            default -> "other";
+        };
+    }
 
-        // воспользуемся библиотекой Jsoup для парсинга содержимого
-        Document doc = Jsoup.parse(resp.body());
+    // Ответ с ошибкой не читаем - закрытие потока освобождает соединение
+    private static void closeBody(HttpResponse<?> response) throws IOException {
+        if (response.body() instanceof InputStream body) {
+            body.close();
+        }
+    }
 
-        // ищем в полученном документе html-тэги, говорящие, что он
-        // содержит видео или аудио информацию
-        Elements imgElements = doc.getElementsByTag("img");
-        Elements videoElements = doc.getElementsByTag("video");
+    private UrlMetadataImpl handleText(URI url, InputStream body, Charset charset) {
+        //заполняем поля для случая, когда страница содержит текст (в том числе html)
+        // Тело ответа читаем потоком: страница может весить несколько мегабайт,
+        // а нам нужны только заголовок, признаки наличия изображений и видео
+        // и начало текста для поиска.
+        // Разбираем страницу по мере чтения, не строя DOM. Чтение прекращается, как только
+        // всё нужное найдено или прочитано maxHtmlBytes байт. Закрытие потока
+        // до конца тела ответа обрывает загрузку остатка страницы.
+        final HtmlMetadataExtractor.Result page;
+        try {
+            page = HtmlMetadataExtractor.extract(body, charset, maxHtmlBytes, maxTextLength);
+        } catch (IOException e) {
+            throw new ItemRetrieverException("Cannot read the content at the URL: " + url, e);
+        }
 
-        // Добавляем полученные данные в ответ. В том числе находим заголовок
-        // полученной страницы.
+        // Добавляем полученные данные в ответ. В том числе заголовок полученной страницы.
         return UrlMetadataImpl.builder()
-                .title(doc.title())
-                .hasImage(!imgElements.isEmpty())
-                .hasVideo(!videoElements.isEmpty())
+                .title(page.title())
+                .hasImage(page.hasImage())
+                .hasVideo(page.hasVideo())
+                .text(page.text())
                 .build();
     }
 
+    private static Charset charsetOf(HttpResponse<?> resp) {
+        return resp.headers()
+                .firstValue(HttpHeaders.CONTENT_TYPE)
+                .map(UrlMetaDataRetrieverImpl::charsetOf)
+                .orElse(StandardCharsets.UTF_8);
+    }
+
+    static Charset charsetOf(String contentType) {
+        try {
+            Charset charset = MediaType.parseMediaType(contentType).getCharset();
+            return charset != null ? charset : StandardCharsets.UTF_8;
+        } catch (IllegalArgumentException e) {
+            // неизвестная кодировка или некорректный заголовок
+            return StandardCharsets.UTF_8;
+        }
+    }
+
     private UrlMetadataImpl handleVideo(URI url) {
         //заполняем поля для случая, когда страница содержит видео
-        String name = new File(url).getName();
+        String name = fileName(url);
         return UrlMetadataImpl.builder()
                 .title(name)
                 .hasVideo(true)
@@ -150,13 +411,63 @@ public class UrlMetaDataRetrieverImpl implements UrlMetaDataRetriever {
 
     private UrlMetadataImpl handleImage(URI url) {
         //заполняем поля для случая, когда страница содержит изображение
-        String name = new File(url).getName();
+        String name = fileName(url);
         return UrlMetadataImpl.builder()
                 .title(name)
                 .hasImage(true)
                 .build();
     }
 
+    // Последний сегмент пути: имя файла изображения или видео
+    private static String fileName(URI url) {
+        String path = url.getPath();
+        if (path == null) {
+            return "";
+        }
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseReader<T, R> {
+        R read(HttpResponse<T> response) throws IOException;
+    }
+
     @lombok.Value
     @Builder(toBuilder = true)
     static class UrlMetadataImpl implements UrlMetadata {
@@ -167,5 +478,9 @@ public class UrlMetaDataRetrieverImpl implements UrlMetaDataRetriever {
         boolean hasImage;
         boolean hasVideo;
         Instant dateResolved;
+        @Builder.Default
+        String text = "";
+        String etag;
+        String lastModified;
     }
 }
@@ -0,0 +1,30 @@
+package ru.practicum.item.dto;
+
+import lombok.Builder;
+import ru.practicum.item.model.ItemStatus;
+
+import java.util.List;
+
+// Строка выгрузки GET /items/export. url и tags называются так же, как в файле
+// импорта, поэтому выгрузку в NDJSON можно загрузить обратно через POST /items/import
+public record ExportedItem(
+        long id,
+        String url,
+        String resolvedUrl,
+        String mimeType,
+        String title,
+        boolean hasImage,
+        boolean hasVideo,
+        boolean unread,
+        String dateResolved,
+        ItemStatus status,
+        List<String> tags,
+        List<Note> notes
+) {
+    @Builder(toBuilder = true)
+    public ExportedItem {
+    }
+
+    public record Note(String text, String date) {
+    }
+}
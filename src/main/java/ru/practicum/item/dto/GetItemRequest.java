@@ -10,7 +10,9 @@ public record GetItemRequest(
         ContentType contentType,
         Sort sort,
         int limit,
-        Set<String> tags
+        Set<String> tags,
+        // непрозрачный курсор из заголовка X-Later-Next-Cursor предыдущей страницы
+        String cursor
 ) {
     @Builder(toBuilder = true)
     public GetItemRequest {
@@ -18,7 +20,20 @@ public record GetItemRequest(
 
     public enum State {UNREAD, READ, ALL}
 
-    public enum ContentType {ARTICLE, VIDEO, IMAGE, ALL}
+    // mimeType - значение items.mime_type ссылок этого типа
+    public enum ContentType {
+        ARTICLE("text"), VIDEO("video"), IMAGE("image"), ALL(null);
+
+        private final String mimeType;
+
+        ContentType(String mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        public String mimeType() {
+            return mimeType;
+        }
+    }
 
     public enum Sort {NEWEST, OLDEST, TITLE, SITE}
 }
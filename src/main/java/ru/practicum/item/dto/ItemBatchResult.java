@@ -0,0 +1,5 @@
+package ru.practicum.item.dto;
+
+// Результат пакетной операции: сколько ссылок под неё попало
+public record ItemBatchResult(int affected) {
+}
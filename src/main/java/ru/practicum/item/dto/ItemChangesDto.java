@@ -0,0 +1,19 @@
+package ru.practicum.item.dto;
+
+import lombok.Builder;
+
+import java.util.List;
+
+// Изменения ссылок пользователя после токена синхронизации: добавленные и изменённые
+// ссылки в их текущем виде и id удалённых. С token клиент запрашивает следующие
+// изменения; hasMore - изменения получены не все, и следующий запрос нужно сделать сразу
+public record ItemChangesDto(
+        List<ItemDto> items,
+        List<Long> deleted,
+        String token,
+        boolean hasMore
+) {
+    @Builder(toBuilder = true)
+    public ItemChangesDto {
+    }
+}
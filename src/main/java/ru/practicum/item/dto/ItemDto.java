@@ -1,6 +1,7 @@
 package ru.practicum.item.dto;
 
 import lombok.Builder;
+import ru.practicum.item.model.ItemStatus;
 
 import java.util.Set;
 
@@ -15,7 +16,8 @@ public record ItemDto(
         boolean hasVideo,
         boolean unread,
         String dateResolved,
-        Set<String> tags
+        Set<String> tags,
+        ItemStatus status
 ) {
     @Builder(toBuilder = true)
     public ItemDto {
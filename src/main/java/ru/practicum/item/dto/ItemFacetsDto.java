@@ -0,0 +1,20 @@
+package ru.practicum.item.dto;
+
+import lombok.Builder;
+
+import java.util.Map;
+
+// Число ссылок для панели фильтров GET /items: по состоянию (unread, read, all),
+// типу содержимого (article, video, image, all) и тэгам. Каждая группа считается
+// с фильтрами запроса из остальных групп - states с contentType и tags, contentTypes
+// с state и tags, tags с state и contentType: так видно, сколько ссылок покажет
+// список при выборе другого значения. Тэги - по убыванию числа ссылок
+public record ItemFacetsDto(
+        Map<String, Long> states,
+        Map<String, Long> contentTypes,
+        Map<String, Long> tags
+) {
+    @Builder(toBuilder = true)
+    public ItemFacetsDto {
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.item.dto;
+
+import lombok.Builder;
+
+public record ItemImportResult(
+        int line,
+        String url,
+        Status status,
+        Long itemId,
+        String error
+) {
+    @Builder(toBuilder = true)
+    public ItemImportResult {
+    }
+
+    // CREATED - добавлена новая ссылка, MERGED - такая страница уже была сохранена
+    // и к ней добавлены тэги, FAILED - ссылку сохранить не удалось, причина в error
+    public enum Status {CREATED, MERGED, FAILED}
+}
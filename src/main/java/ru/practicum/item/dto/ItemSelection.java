@@ -0,0 +1,32 @@
+package ru.practicum.item.dto;
+
+import lombok.Builder;
+
+import java.util.List;
+import java.util.Set;
+
+// Ссылки для пакетной операции: перечисленные в itemIds или все ссылки, подходящие
+// под фильтры - те же, что у GET /items. Не указанный фильтр ссылки не ограничивает,
+// поэтому все ссылки пользователя выбираются только явным state = all
+public record ItemSelection(
+        List<Long> itemIds,
+        String state,
+        String contentType,
+        Set<String> tags
+) {
+    @Builder(toBuilder = true)
+    public ItemSelection {
+    }
+
+    public boolean hasItemIds() {
+        return itemIds != null;
+    }
+
+    public boolean hasFilters() {
+        return state != null || contentType != null || hasTags();
+    }
+
+    public boolean hasTags() {
+        return tags != null && !tags.isEmpty();
+    }
+}
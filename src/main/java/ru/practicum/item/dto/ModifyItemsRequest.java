@@ -0,0 +1,22 @@
+package ru.practicum.item.dto;
+
+import lombok.Builder;
+
+import java.util.Set;
+
+// Изменение нескольких ссылок сразу - как ModifyItemRequest для одной.
+// read == null - состояние ссылок не меняется
+public record ModifyItemsRequest(
+        ItemSelection selection,
+        Boolean read,
+        Set<String> tags,
+        boolean replaceTags
+) {
+    @Builder(toBuilder = true)
+    public ModifyItemsRequest {
+    }
+
+    public boolean hasTags() {
+        return tags != null && !tags.isEmpty();
+    }
+}
@@ -2,6 +2,7 @@ package ru.practicum.item.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.proxy.HibernateProxy;
 import ru.practicum.user.User;
 
@@ -20,7 +21,8 @@ import java.util.Set;
 @NoArgsConstructor
 public class Item {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_seq")
+    @SequenceGenerator(name = "items_seq", sequenceName = "items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -31,11 +33,16 @@ public class Item {
     @Column
     private String url;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "tags", joinColumns = @JoinColumn(name = "item_id"))
-    @Column(name = "name")
+    // Тэги из словаря пользователя. Загружаются при первом обращении, причём сразу
+    // для всех ссылок (до 100), прочитанных в текущей сессии - одним запросом, а не по запросу на ссылку
+    @ManyToMany
+    @BatchSize(size = 100)
+    @JoinTable(name = "item_tags",
+            joinColumns = @JoinColumn(name = "item_id"),
+            inverseJoinColumns = @JoinColumn(name = "tag_id"))
+    @ToString.Exclude
     @Builder.Default
-    private Set<String> tags = new HashSet<>();
+    private Set<Tag> tags = new HashSet<>();
 
     @Column(name = "resolved_url")
     private String resolvedUrl;
@@ -56,6 +63,10 @@ public class Item {
 
     private boolean unread = true;
 
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private ItemStatus status = ItemStatus.RESOLVED;
+
     @Override
     public final boolean equals(Object object) {
         if (this == object) return true;
@@ -0,0 +1,10 @@
+package ru.practicum.item.model;
+
+public enum ItemStatus {
+    // ссылка сохранена, но метаданные ещё не получены
+    PENDING,
+    // метаданные получены и записаны в ссылку
+    RESOLVED,
+    // метаданные получить не удалось
+    FAILED
+}
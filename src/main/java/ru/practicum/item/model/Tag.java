@@ -0,0 +1,50 @@
+package ru.practicum.item.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.proxy.HibernateProxy;
+import ru.practicum.user.User;
+
+import java.util.Objects;
+
+// Тэг из словаря пользователя. У каждого пользователя название тэга встречается
+// один раз, ссылки связаны с тэгами через item_tags
+@Entity
+@Table(name = "tags")
+@Getter
+@Setter
+@ToString
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class Tag {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tags_seq")
+    // тэги добавляются только запросами INSERT (TagRepository.insertMissing, импорт),
+    // шаг последовательности - 1 (V10__tags_seq_increment.sql)
+    @SequenceGenerator(name = "tags_seq", sequenceName = "tags_seq", allocationSize = 1)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    @ToString.Exclude
+    private User user;
+
+    private String name;
+
+    @Override
+    public final boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null) return false;
+        Class<?> oEffectiveClass = object instanceof HibernateProxy proxy ? proxy.getHibernateLazyInitializer().getPersistentClass() : object.getClass();
+        Class<?> thisEffectiveClass = this instanceof HibernateProxy proxy ? proxy.getHibernateLazyInitializer().getPersistentClass() : this.getClass();
+        if (thisEffectiveClass != oEffectiveClass) return false;
+        Tag tag = (Tag) object;
+        return getId() != null && Objects.equals(getId(), tag.getId());
+    }
+
+    @Override
+    public final int hashCode() {
+        return this instanceof HibernateProxy proxy ? proxy.getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
+    }
+}
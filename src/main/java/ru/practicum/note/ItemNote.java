@@ -18,7 +18,8 @@ import java.util.Objects;
 @ToString
 public class ItemNote {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_notes_seq")
+    @SequenceGenerator(name = "item_notes_seq", sequenceName = "item_notes_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "text")
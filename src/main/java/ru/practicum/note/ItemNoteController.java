@@ -1,7 +1,10 @@
 package ru.practicum.note;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.practicum.common.UserVersions;
 
 import java.util.List;
 
@@ -9,25 +12,55 @@ import java.util.List;
 @RequestMapping("/notes")
 @RequiredArgsConstructor
 public class ItemNoteController {
+    private static final String NEXT_CURSOR_HEADER = "X-Later-Next-Cursor";
+
     private final ItemNoteService itemNoteService;
+    private final UserVersions userVersions;
 
     @GetMapping(params = "url")
     public List<ItemNoteDto> searchByUrl(@RequestHeader("X-Later-User-Id") long userId,
-                                         @RequestParam(name = "url") String url) {
+                                         @RequestParam(name = "url") String url,
+                                         WebRequest webRequest) {
+        if (webRequest.checkNotModified(userVersions.etag(userId))) {
+            return null;
+        }
         return itemNoteService.searchNotesByUrl(url, userId);
     }
 
     @GetMapping(params = "tag")
     public List<ItemNoteDto> searchByTags(@RequestHeader("X-Later-User-Id") long userId,
-                                          @RequestParam(name = "tag") String tag) {
+                                          @RequestParam(name = "tag") String tag,
+                                          WebRequest webRequest) {
+        if (webRequest.checkNotModified(userVersions.etag(userId))) {
+            return null;
+        }
         return itemNoteService.searchNotesByTag(userId, tag);
     }
 
+    // Постраничный вывод по курсору: следующая страница запрашивается с cursor
+    // из заголовка X-Later-Next-Cursor. Параметр from (смещение) оставлен для
+    // совместимости, он медленнее на больших смещениях.
     @GetMapping
-    public List<ItemNoteDto> listAllNotes(@RequestHeader("X-Later-User-Id") long userId,
-                                          @RequestParam(name = "from", defaultValue = "0") int from,
-                                          @RequestParam(name = "size", defaultValue = "10") int size) {
-        return itemNoteService.listAllItemsWithNotes(userId, from, size);
+    public ResponseEntity<List<ItemNoteDto>> listAllNotes(
+            @RequestHeader("X-Later-User-Id") long userId,
+            @RequestParam(name = "from", defaultValue = "0") int from,
+            @RequestParam(name = "size", defaultValue = "10") int size,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            WebRequest webRequest) {
+        // Данные пользователя не менялись с прошлого запроса клиента - 304 без обращения к БД
+        if (webRequest.checkNotModified(userVersions.etag(userId))) {
+            return null;
+        }
+        if (from > 0 && cursor == null) {
+            return ResponseEntity.ok(itemNoteService.listAllItemsWithNotes(userId, from, size));
+        }
+
+        List<ItemNoteDto> notes = itemNoteService.listAllItemsWithNotes(userId, cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (size > 0 && notes.size() == size) {
+            response.header(NEXT_CURSOR_HEADER, ItemNoteCursor.encode(notes.getLast().getId()));
+        }
+        return response.body(notes);
     }
 
     @PostMapping
@@ -0,0 +1,25 @@
+package ru.practicum.note;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.practicum.common.BadRequestException;
+import ru.practicum.common.CursorCodec;
+
+// Курсор для списка заметок: id последней заметки предыдущей страницы.
+// Заметки выводятся по возрастанию id, поэтому следующая страница - это
+// заметки с большим id, и её стоимость не зависит от глубины.
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class ItemNoteCursor {
+
+    static String encode(long lastNoteId) {
+        return CursorCodec.encode(String.valueOf(lastNoteId));
+    }
+
+    static long decode(String cursor) {
+        try {
+            return Long.parseLong(CursorCodec.decode(cursor, 1).getFirst());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+}
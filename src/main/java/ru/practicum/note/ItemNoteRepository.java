@@ -1,7 +1,9 @@
 package ru.practicum.note;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
@@ -9,17 +11,27 @@ import ru.practicum.item.model.Item;
 
 import java.util.List;
 
+// Заметки всегда показываются вместе с адресом ссылки, поэтому ссылка
+// загружается в том же запросе, что и заметки (@EntityGraph)
 public interface ItemNoteRepository extends JpaRepository<ItemNote, Long>, QuerydslPredicateExecutor<Item> {
 
+    @EntityGraph(attributePaths = "item")
     List<ItemNote> findAllByItemUrlContainingAndItemUserId(String url, long userId);
 
+    @EntityGraph(attributePaths = "item")
     @Query("""
             select inote from ItemNote as inote
             join inote.item as i
+            join i.tags as t
             where i.user.id = ?1
-            and ?2 member of i.tags
+            and t.user.id = ?1 and t.name = ?2
             """)
     List<ItemNote> findByUserIdAndTags(long userId, String tag);
 
+    @EntityGraph(attributePaths = "item")
     Page<ItemNote> findAllByItemUserId(long userId, Pageable pageable);
+
+    // страница заметок после заметки с id afterId (keyset pagination)
+    @EntityGraph(attributePaths = "item")
+    List<ItemNote> findByItemUserIdAndIdGreaterThanOrderByIdAsc(long userId, long afterId, Limit limit);
 }
@@ -14,4 +14,7 @@ public interface ItemNoteService {
     List<ItemNoteDto> searchNotesByTag(long userId, String tag);
 
     List<ItemNoteDto> listAllItemsWithNotes(long userId, int from, int size);
+
+    // cursor - значение заголовка X-Later-Next-Cursor предыдущей страницы, null - первая страница
+    List<ItemNoteDto> listAllItemsWithNotes(long userId, String cursor, int size);
 }
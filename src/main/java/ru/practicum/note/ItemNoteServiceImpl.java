@@ -1,8 +1,11 @@
 package ru.practicum.note;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import ru.practicum.common.UserVersions;
 import ru.practicum.item.ItemRepository;
 import ru.practicum.item.model.Item;
 
@@ -13,12 +16,14 @@ import java.util.List;
 public class ItemNoteServiceImpl implements ItemNoteService {
     private final ItemNoteRepository itemNoteRepository;
     private final ItemRepository itemRepository;
+    private final UserVersions userVersions;
 
     @Override
     public ItemNoteDto addNewItemNote(long userId, ItemNoteDto itemNoteDto) {
         Item item = itemRepository.findById(itemNoteDto.getItemId())
                 .orElseThrow(() -> new RuntimeException("Item not found"));
         ItemNote savedItemNote = itemNoteRepository.save(ItemNoteMapper.mapToItemNote(itemNoteDto, item));
+        userVersions.changed(item.getUser().getId());
         return ItemNoteMapper.mapToItemNoteDto(savedItemNote);
     }
 
@@ -36,9 +41,17 @@ public class ItemNoteServiceImpl implements ItemNoteService {
 
     @Override
     public List<ItemNoteDto> listAllItemsWithNotes(long userId, int from, int size) {
-        PageRequest page = PageRequest.of(from > 0 ? from / size : 0, size);
+        PageRequest page = PageRequest.of(from > 0 ? from / size : 0, size, Sort.by("id"));
         return itemNoteRepository.findAllByItemUserId(userId, page)
                 .map(ItemNoteMapper::mapToItemNoteDto)
                 .getContent();
     }
+
+    @Override
+    public List<ItemNoteDto> listAllItemsWithNotes(long userId, String cursor, int size) {
+        long afterId = cursor != null ? ItemNoteCursor.decode(cursor) : 0;
+        List<ItemNote> itemNotes = itemNoteRepository.findByItemUserIdAndIdGreaterThanOrderByIdAsc(userId, afterId,
+                Limit.of(size));
+        return ItemNoteMapper.mapToItemNoteDto(itemNotes);
+    }
 }
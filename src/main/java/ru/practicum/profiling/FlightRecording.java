@@ -0,0 +1,71 @@
+package ru.practicum.profiling;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Постоянная запись JDK Flight Recorder без внешнего агента: стандартные настройки JDK
+// (default - накладные расходы около 1%) и события приложения из jfr/later.jfc.
+// Запись хранится на диске не дольше max-age и не больше max-size. При остановке
+// приложения она сохраняется в destination; запись работающего приложения снимается
+// командой jcmd <pid> JFR.dump name=later filename=later.jfr
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "flight-recording", name = "enabled")
+class FlightRecording {
+    static final String SETTINGS = "jfr/later.jfc";
+
+    private final Recording recording;
+
+    FlightRecording(@Value("${flight-recording.max-age-min:360}") long maxAgeMinutes,
+                    @Value("${flight-recording.max-size-mb:250}") long maxSizeMb,
+                    @Value("${flight-recording.destination:later.jfr}") String destination)
+            throws IOException, ParseException {
+        recording = new Recording(settings());
+        recording.setName("later");
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        recording.setDestination(Path.of(destination));
+    }
+
+    // стандартные настройки, дополненные событиями приложения
+    static Map<String, String> settings() throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        try (Reader reader = new InputStreamReader(new ClassPathResource(SETTINGS).getInputStream(),
+                StandardCharsets.UTF_8)) {
+            settings.putAll(Configuration.create(reader).getSettings());
+        }
+        return settings;
+    }
+
+    @PostConstruct
+    void start() {
+        recording.start();
+        log.info("Flight recording started, destination {}", recording.getDestination());
+    }
+
+    @PreDestroy
+    void stop() {
+        // остановка записи с destination сохраняет её в файл
+        recording.stop();
+        recording.close();
+        log.info("Flight recording saved to {}", recording.getDestination());
+    }
+}
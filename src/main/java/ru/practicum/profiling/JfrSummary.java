@@ -0,0 +1,126 @@
+package ru.practicum.profiling;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Сводка записи JFR по событиям приложения (jfr/later.jfc): самые медленные сайты
+// по событиям ru.practicum.UrlFetch и самые медленные виды запросов по ru.practicum.ItemOperation.
+// Медленнее тот, у кого больше 95-й перцентиль длительности.
+// Запуск: java -cp target/classes ru.practicum.profiling.JfrSummary later.jfr [top]
+public final class JfrSummary {
+    static final String URL_FETCH = "ru.practicum.UrlFetch";
+    static final String ITEM_OPERATION = "ru.practicum.ItemOperation";
+    private static final int DEFAULT_TOP = 10;
+
+    private JfrSummary() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: JfrSummary <recording.jfr> [top]");
+            System.exit(2);
+        }
+        int top = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TOP;
+        print(summarize(Path.of(args[0])), top, System.out);
+    }
+
+    record HostSummary(String host, int count, Duration total, Duration p95, Duration max, long bytes) {
+    }
+
+    record ShapeSummary(String operation, String shape, int count, Duration total, Duration p95, Duration max,
+                        long rows, Duration mapping) {
+    }
+
+    record Summary(List<HostSummary> hosts, List<ShapeSummary> shapes) {
+    }
+
+    // Читает запись событие за событием, не загружая её в память целиком
+    static Summary summarize(Path recording) throws IOException {
+        Map<String, Group> hosts = new HashMap<>();
+        Map<List<String>, Group> shapes = new HashMap<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                switch (event.getEventType().getName()) {
+                    case URL_FETCH -> hosts.computeIfAbsent(event.getString("host"), host -> new Group())
+                            .add(event.getDuration(), Math.max(event.getLong("bytes"), 0), Duration.ZERO);
+                    case ITEM_OPERATION -> shapes.computeIfAbsent(
+                                    List.of(event.getString("operation"), String.valueOf(event.getString("shape"))),
+                                    key -> new Group())
+                            .add(event.getDuration(), event.getLong("rows"), event.getDuration("mappingTime"));
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        List<HostSummary> hostSummaries = new ArrayList<>();
+        hosts.forEach((host, group) -> hostSummaries.add(new HostSummary(host, group.count(), group.total(),
+                group.p95(), group.max(), group.amount)));
+        hostSummaries.sort(Comparator.comparing(HostSummary::p95).reversed());
+
+        List<ShapeSummary> shapeSummaries = new ArrayList<>();
+        shapes.forEach((key, group) -> shapeSummaries.add(new ShapeSummary(key.get(0), key.get(1), group.count(),
+                group.total(), group.p95(), group.max(), group.amount, group.mapping)));
+        shapeSummaries.sort(Comparator.comparing(ShapeSummary::p95).reversed());
+
+        return new Summary(hostSummaries, shapeSummaries);
+    }
+
+    static void print(Summary summary, int top, PrintStream out) {
+        out.println("Slowest hosts (" + URL_FETCH + ")");
+        out.printf("%-40s %8s %10s %10s %10s %12s%n", "host", "count", "p95 ms", "max ms", "total ms", "bytes");
+        summary.hosts().stream().limit(top).forEach(host -> out.printf("%-40s %8d %10d %10d %10d %12d%n",
+                host.host(), host.count(), host.p95().toMillis(), host.max().toMillis(), host.total().toMillis(),
+                host.bytes()));
+
+        out.println();
+        out.println("Slowest query shapes (" + ITEM_OPERATION + ")");
+        out.printf("%-12s %-60s %8s %10s %10s %10s %10s %12s%n", "operation", "shape", "count", "p95 ms",
+                "max ms", "total ms", "avg rows", "mapping ms");
+        summary.shapes().stream().limit(top).forEach(shape -> out.printf(
+                "%-12s %-60s %8d %10d %10d %10d %10d %12d%n",
+                shape.operation(), shape.shape(), shape.count(), shape.p95().toMillis(), shape.max().toMillis(),
+                shape.total().toMillis(), shape.rows() / shape.count(), shape.mapping().toMillis()));
+    }
+
+    // Длительности событий группы и суммы их величин: байт или строк и времени преобразования
+    private static final class Group {
+        private final List<Duration> durations = new ArrayList<>();
+        private long amount;
+        private Duration mapping = Duration.ZERO;
+
+        void add(Duration duration, long amount, Duration mapping) {
+            durations.add(duration);
+            this.amount += amount;
+            this.mapping = this.mapping.plus(mapping);
+        }
+
+        int count() {
+            return durations.size();
+        }
+
+        Duration total() {
+            return durations.stream().reduce(Duration.ZERO, Duration::plus);
+        }
+
+        Duration max() {
+            return durations.stream().max(Comparator.naturalOrder()).orElse(Duration.ZERO);
+        }
+
+        Duration p95() {
+            List<Duration> sorted = durations.stream().sorted().toList();
+            return sorted.get((int) Math.ceil(sorted.size() * 0.95) - 1);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+-- Шаг 1 у последовательности тэгов.
+-- С шагом 50 (V8__tag_dictionary.sql) каждая строка, добавленная значением по умолчанию
+-- столбца id, забирала целый диапазон из 50 id, а INSERT ... ON CONFLICT DO NOTHING
+-- вычисляет значение по умолчанию и для уже существующего тэга. Hibernate тэги не вставляет:
+-- их добавляют только запросы TagRepository.insertMissing и импорта (ItemJdbcRepository),
+-- поэтому диапазоны pooled-оптимизатора для tags не нужны (allocationSize = 1 у Tag).
+--
+-- У items, users и item_notes шаг остаётся 50: их вставляет Hibernate. Импорт ссылок
+-- через JDBC не пользуется значением по умолчанию, а берёт id из тех же диапазонов
+-- (ItemJdbcRepository.reserveItemIds): nextval на каждые 50 ссылок, а не на каждую.
+-- Значение по умолчанию у этих таблиц остаётся только для ручных вставок.
+
+ALTER SEQUENCE tags_seq INCREMENT BY 1;
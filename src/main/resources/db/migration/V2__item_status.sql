@@ -0,0 +1,2 @@
+-- Состояние получения метаданных ссылки (PENDING, RESOLVED, FAILED)
+ALTER TABLE items ADD COLUMN IF NOT EXISTS status VARCHAR(20) DEFAULT 'RESOLVED';
@@ -0,0 +1,24 @@
+-- Идентификаторы из последовательностей вместо IDENTITY-столбцов.
+-- С IDENTITY Hibernate вынужден выполнять каждую вставку отдельно, чтобы узнать id,
+-- а последовательность он опрашивает один раз на 50 строк (pooled-оптимизатор)
+-- и может отправлять вставки пакетами.
+--
+-- При pooled-оптимизаторе значение nextval - верхняя граница выделенного диапазона,
+-- поэтому последовательность начинается с max(id) + 50: первый диапазон - max(id) + 1 .. max(id) + 50.
+-- Значение по умолчанию оставлено для вставок в обход Hibernate (импорт через JDBC):
+-- такая вставка забирает себе целый диапазон и с Hibernate не пересекается.
+
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50 OWNED BY users.id;
+SELECT setval('users_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 50, false);
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_seq');
+
+ALTER TABLE items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS items_seq INCREMENT BY 50 OWNED BY items.id;
+SELECT setval('items_seq', COALESCE((SELECT MAX(id) FROM items), 0) + 50, false);
+ALTER TABLE items ALTER COLUMN id SET DEFAULT nextval('items_seq');
+
+ALTER TABLE item_notes ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS item_notes_seq INCREMENT BY 50 OWNED BY item_notes.id;
+SELECT setval('item_notes_seq', COALESCE((SELECT MAX(id) FROM item_notes), 0) + 50, false);
+ALTER TABLE item_notes ALTER COLUMN id SET DEFAULT nextval('item_notes_seq');
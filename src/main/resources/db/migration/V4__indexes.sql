@@ -0,0 +1,55 @@
+-- Индексы под запросы ItemRepository, ItemNoteRepository и ItemJdbcRepository.
+-- Все списки ссылок выбираются по user_id, поэтому он первый во всех индексах items,
+-- за ним - фильтр и ключ сортировки GetItemRequest, в конце - id для однозначного
+-- порядка и постраничного вывода по курсору.
+
+-- Одна страница сохраняется пользователем один раз. Перед добавлением ограничения
+-- объединяем уже существующие повторы: тэги и заметки переносим в самую раннюю ссылку.
+CREATE TEMPORARY TABLE item_duplicates ON COMMIT DROP AS
+SELECT id, keep_id
+FROM (SELECT id, MIN(id) OVER (PARTITION BY user_id, resolved_url) AS keep_id
+      FROM items
+      WHERE resolved_url IS NOT NULL) AS grouped
+WHERE id <> keep_id;
+
+INSERT INTO tags (item_id, name)
+SELECT DISTINCT d.keep_id, t.name
+FROM tags t
+JOIN item_duplicates d ON d.id = t.item_id
+WHERE NOT EXISTS (SELECT 1 FROM tags k WHERE k.item_id = d.keep_id AND k.name = t.name);
+
+UPDATE item_notes n SET item_id = d.keep_id FROM item_duplicates d WHERE n.item_id = d.id;
+DELETE FROM tags t USING item_duplicates d WHERE t.item_id = d.id;
+DELETE FROM items i USING item_duplicates d WHERE i.id = d.id;
+
+-- UNIQUE(id, url) из исходной схемы ничего не добавляет к первичному ключу,
+-- но планировщик выбирает его вместо items_pkey
+ALTER TABLE items DROP CONSTRAINT IF EXISTS items_id_url_key;
+
+-- повторы при добавлении ссылки и импорте, сортировка SITE
+ALTER TABLE items ADD CONSTRAINT items_user_id_resolved_url_key UNIQUE (user_id, resolved_url);
+
+-- state=all, сортировки NEWEST (обратный проход) и OLDEST; список всех ссылок пользователя
+CREATE INDEX items_user_id_date_resolved_idx ON items (user_id, date_resolved, id);
+-- state=unread/read (по умолчанию - непрочитанные, сначала новые)
+CREATE INDEX items_user_id_unread_date_resolved_idx ON items (user_id, unread, date_resolved, id);
+-- сортировка TITLE
+CREATE INDEX items_user_id_title_idx ON items (user_id, title, id);
+-- поиск повтора по исходному адресу для ссылок в состоянии PENDING
+CREATE INDEX items_user_id_url_idx ON items (user_id, url);
+-- очередь фонового получения метаданных
+CREATE INDEX items_pending_idx ON items (id) WHERE status = 'PENDING';
+
+-- тэги ссылки (загрузка и фильтр по тэгу) и внешний ключ на items
+CREATE INDEX tags_item_id_name_idx ON tags (item_id, name);
+
+-- заметки к ссылке и внешний ключ на items
+CREATE INDEX item_notes_item_id_idx ON item_notes (item_id, id);
+
+-- поиск по началу фамилии (LIKE 'prefix%')
+CREATE INDEX users_last_name_idx ON users (last_name varchar_pattern_ops);
+
+-- поиск по подстроке (LIKE '%text%'): заметки по адресу ссылки и пользователи по email
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX items_url_trgm_idx ON items USING gin (url gin_trgm_ops);
+CREATE INDEX users_email_trgm_idx ON users USING gin (upper(email) gin_trgm_ops);
@@ -0,0 +1,27 @@
+-- Полнотекстовый поиск по ссылкам (GET /items/search): заголовок и начало текста
+-- страницы хранятся в items.search_vector, текст заметок - в item_notes.search_vector.
+-- Конфигурация russian разбирает русские слова и, как english, латинские.
+
+-- Заголовок весомее текста страницы. Текст страницы в items не хранится,
+-- поэтому вектор заполняет приложение при сохранении метаданных ссылки
+CREATE FUNCTION item_search_vector(title text, page_text text) RETURNS tsvector
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE AS
+$$
+SELECT setweight(to_tsvector('russian', coalesce(title, '')), 'A')
+           || setweight(to_tsvector('russian', coalesce(page_text, '')), 'B')
+$$;
+
+ALTER TABLE items ADD COLUMN search_vector tsvector;
+-- для уже сохранённых ссылок текст страницы неизвестен - ищутся по заголовку
+UPDATE items SET search_vector = item_search_vector(title, NULL) WHERE title IS NOT NULL;
+
+-- btree_gin позволяет включить user_id в GIN-индекс: поиск идёт
+-- сразу только по ссылкам пользователя, а не по ссылкам всех пользователей
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+CREATE INDEX items_search_idx ON items USING gin (user_id, search_vector);
+
+-- заметки пишет сам пользователь - по весу они как заголовок
+ALTER TABLE item_notes
+    ADD COLUMN search_vector tsvector
+        GENERATED ALWAYS AS (setweight(to_tsvector('russian', coalesce(text, '')), 'A')) STORED;
+CREATE INDEX item_notes_search_idx ON item_notes USING gin (search_vector);
@@ -0,0 +1,24 @@
+-- Валидаторы HTTP-кэша сохранённых страниц (ETag, Last-Modified) и время последней
+-- проверки. Одну страницу могут сохранить многие пользователи - проверяется она
+-- один раз для всех, поэтому ключ - итоговый адрес, а не ссылка.
+CREATE TABLE IF NOT EXISTS pages (
+    resolved_url VARCHAR(1000) PRIMARY KEY,
+    etag VARCHAR(1000),
+    last_modified VARCHAR(100),
+    date_checked TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+-- очередь проверки: сначала страницы, которые проверялись дольше всего назад
+CREATE INDEX IF NOT EXISTS pages_date_checked_idx ON pages (date_checked);
+
+-- обновление метаданных всех ссылок на проверенную страницу
+CREATE INDEX IF NOT EXISTS items_resolved_url_idx ON items (resolved_url);
+
+-- Уже сохранённые страницы встают в очередь по времени получения их метаданных.
+-- Валидаторов у них нет, поэтому первая проверка загрузит страницу целиком
+INSERT INTO pages (resolved_url, date_checked)
+SELECT resolved_url, min(coalesce(date_resolved, now() AT TIME ZONE 'UTC'))
+FROM items
+WHERE resolved_url IS NOT NULL
+GROUP BY resolved_url
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,87 @@
+-- Журнал изменений ссылок для синхронизации клиентов (GET /items/changes).
+-- Каждое добавление, изменение (в том числе тэгов) и удаление ссылки пишет в журнал
+-- запись с очередным номером. Записи пишут триггеры - так в журнал попадает любое
+-- изменение: через JPA, пакетный импорт на JDBC или фоновое обновление метаданных.
+CREATE TABLE item_changes (
+    user_id BIGINT NOT NULL,
+    change_seq BIGINT NOT NULL,
+    item_id BIGINT NOT NULL,
+    deleted BOOLEAN NOT NULL,
+    changed_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (user_id, change_seq)
+);
+-- для удаления записей, после которых у ссылки есть более новые
+CREATE INDEX item_changes_item_id_change_seq_idx ON item_changes (item_id, change_seq);
+-- для удаления старых записей об удалении ссылок
+CREATE INDEX item_changes_deleted_changed_at_idx ON item_changes (changed_at) WHERE deleted;
+
+CREATE SEQUENCE item_changes_seq;
+
+-- Уже сохранённые ссылки попадают в журнал как добавленные
+INSERT INTO item_changes (user_id, change_seq, item_id, deleted, changed_at)
+SELECT user_id, nextval('item_changes_seq'), id, false, now() AT TIME ZONE 'UTC'
+FROM (SELECT user_id, id FROM items WHERE user_id IS NOT NULL ORDER BY user_id, id) i;
+
+-- Запись журнала. Вызывается при фиксации транзакции (триггеры ниже - отложенные)
+-- под блокировкой пользователя до её конца: транзакции, изменяющие ссылки одного
+-- пользователя, получают номера по очереди - следующая только после фиксации
+-- предыдущей. Поэтому запись с меньшим номером не может стать видимой позже записи
+-- с большим, и клиент, получивший изменения до номера N, ничего до N не пропустит.
+-- Блокировка берётся только при фиксации, когда транзакция уже не ждёт блокировок строк.
+CREATE FUNCTION log_item_change(user_id BIGINT, item_id BIGINT, deleted BOOLEAN) RETURNS void
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    PERFORM pg_advisory_xact_lock(user_id);
+    INSERT INTO item_changes (user_id, change_seq, item_id, deleted, changed_at)
+    VALUES (user_id, nextval('item_changes_seq'), item_id, deleted, clock_timestamp() AT TIME ZONE 'UTC');
+END
+$$;
+
+CREATE FUNCTION items_log_change() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        IF OLD.user_id IS NOT NULL THEN
+            PERFORM log_item_change(OLD.user_id, OLD.id, true);
+        END IF;
+    ELSIF NEW.user_id IS NOT NULL THEN
+        PERFORM log_item_change(NEW.user_id, NEW.id, false);
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+-- поисковый вектор клиенту не передаётся - его обновление изменением не считается
+CREATE CONSTRAINT TRIGGER items_log_change
+    AFTER INSERT OR DELETE OR UPDATE OF url, resolved_url, mime_type, title, has_image, has_video, unread,
+        date_resolved, status
+    ON items
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW
+EXECUTE FUNCTION items_log_change();
+
+-- тэги хранятся отдельно, но для клиента это изменение ссылки.
+-- Тэги удалённой ссылки не записываются - записано удаление самой ссылки
+CREATE FUNCTION tags_log_change() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    changed_item_id BIGINT := CASE WHEN TG_OP = 'DELETE' THEN OLD.item_id ELSE NEW.item_id END;
+    owner_id BIGINT;
+BEGIN
+    SELECT user_id INTO owner_id FROM items WHERE id = changed_item_id;
+    IF owner_id IS NOT NULL THEN
+        PERFORM log_item_change(owner_id, changed_item_id, false);
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE CONSTRAINT TRIGGER tags_log_change
+    AFTER INSERT OR DELETE
+    ON tags
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW
+EXECUTE FUNCTION tags_log_change();
@@ -0,0 +1,55 @@
+-- Тэги - словарь пользователя (tags) и связи ссылок с ними (item_tags).
+-- Раньше название тэга хранилось строкой при каждой ссылке, и фильтр по тэгу сравнивал
+-- строки. Теперь название ищется один раз в словаре пользователя по (user_id, name),
+-- а ссылки связаны с тэгом по его целочисленному id.
+
+ALTER TABLE tags RENAME TO tags_old;
+ALTER INDEX tags_pkey RENAME TO tags_old_pkey;
+
+-- id из последовательности с шагом 50, как у остальных сущностей (V3__sequence_ids.sql)
+CREATE SEQUENCE tags_seq INCREMENT BY 50;
+
+CREATE TABLE tags (
+    id BIGINT PRIMARY KEY DEFAULT nextval('tags_seq'),
+    user_id BIGINT NOT NULL,
+    name VARCHAR(50) NOT NULL,
+    CONSTRAINT fk_tags_to_users FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT tags_user_id_name_key UNIQUE (user_id, name)
+);
+ALTER SEQUENCE tags_seq OWNED BY tags.id;
+
+INSERT INTO tags (id, user_id, name)
+SELECT row_number() OVER (ORDER BY user_id, name), user_id, name
+FROM (SELECT DISTINCT i.user_id, t.name
+      FROM tags_old t
+      JOIN items i ON i.id = t.item_id
+      WHERE i.user_id IS NOT NULL AND t.name IS NOT NULL) AS names;
+SELECT setval('tags_seq', COALESCE((SELECT MAX(id) FROM tags), 0) + 50, false);
+
+-- первичный ключ - тэги ссылки при загрузке; второй индекс - ссылки с тэгом
+CREATE TABLE item_tags (
+    item_id BIGINT NOT NULL,
+    tag_id BIGINT NOT NULL,
+    PRIMARY KEY (item_id, tag_id),
+    CONSTRAINT fk_item_tags_to_items FOREIGN KEY (item_id) REFERENCES items (id),
+    CONSTRAINT fk_item_tags_to_tags FOREIGN KEY (tag_id) REFERENCES tags (id)
+);
+CREATE INDEX item_tags_tag_id_item_id_idx ON item_tags (tag_id, item_id);
+
+INSERT INTO item_tags (item_id, tag_id)
+SELECT DISTINCT t.item_id, d.id
+FROM tags_old t
+JOIN items i ON i.id = t.item_id
+JOIN tags d ON d.user_id = i.user_id AND d.name = t.name;
+
+DROP TABLE tags_old;
+
+-- изменение тэгов ссылки записывается в журнал изменений (V7__item_changes.sql)
+CREATE CONSTRAINT TRIGGER item_tags_log_change
+    AFTER INSERT OR DELETE
+    ON item_tags
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW
+EXECUTE FUNCTION tags_log_change();
+
+ANALYZE tags, item_tags;
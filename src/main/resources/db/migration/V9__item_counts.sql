@@ -0,0 +1,102 @@
+-- Счётчики ссылок для панели фильтров (GET /items/facets): число ссылок пользователя
+-- по состоянию (unread) и типу содержимого (mime_type) - всех (tag_id IS NULL) и с каждым тэгом.
+-- Триггеры не изменяют общие строки счётчиков, а добавляют строки-приращения (+1 / -1):
+-- одновременные изменения ссылок одного пользователя не ждут друг друга на одной строке.
+-- Фоновая задача (ItemCountCompactor) складывает приращения пользователя в итоговые строки,
+-- поэтому строк у пользователя столько, сколько у него сочетаний тэга, состояния и типа,
+-- а не ссылок.
+CREATE TABLE item_counts (
+    user_id BIGINT NOT NULL,
+    tag_id BIGINT,
+    unread BOOLEAN NOT NULL,
+    mime_type VARCHAR(100),
+    item_count BIGINT NOT NULL,
+    -- false - приращение, ещё не сложенное с итоговыми строками
+    compacted BOOLEAN NOT NULL DEFAULT false
+);
+CREATE INDEX item_counts_user_id_idx ON item_counts (user_id);
+-- пользователи с несложенными приращениями
+CREATE INDEX item_counts_user_id_not_compacted_idx ON item_counts (user_id) WHERE NOT compacted;
+
+INSERT INTO item_counts (user_id, tag_id, unread, mime_type, item_count, compacted)
+SELECT user_id, NULL, unread, mime_type, count(*), true
+FROM items
+WHERE user_id IS NOT NULL
+GROUP BY user_id, unread, mime_type;
+
+INSERT INTO item_counts (user_id, tag_id, unread, mime_type, item_count, compacted)
+SELECT i.user_id, it.tag_id, i.unread, i.mime_type, count(*), true
+FROM item_tags it
+JOIN items i ON i.id = it.item_id
+WHERE i.user_id IS NOT NULL
+GROUP BY i.user_id, it.tag_id, i.unread, i.mime_type;
+
+-- Добавленная ссылка ещё без тэгов, у удаляемой тэги уже удалены (внешний ключ item_tags).
+-- Изменение состояния или типа переносит ссылку и все её тэги в другую строку счётчиков
+CREATE FUNCTION items_count() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.user_id IS NOT NULL THEN
+        INSERT INTO item_counts (user_id, tag_id, unread, mime_type, item_count)
+        VALUES (OLD.user_id, NULL, OLD.unread, OLD.mime_type, -1);
+    END IF;
+    IF TG_OP IN ('UPDATE', 'INSERT') AND NEW.user_id IS NOT NULL THEN
+        INSERT INTO item_counts (user_id, tag_id, unread, mime_type, item_count)
+        VALUES (NEW.user_id, NULL, NEW.unread, NEW.mime_type, 1);
+    END IF;
+    IF TG_OP = 'UPDATE' THEN
+        INSERT INTO item_counts (user_id, tag_id, unread, mime_type, item_count)
+        SELECT OLD.user_id, it.tag_id, OLD.unread, OLD.mime_type, -1
+        FROM item_tags it
+        WHERE it.item_id = OLD.id AND OLD.user_id IS NOT NULL
+        UNION ALL
+        SELECT NEW.user_id, it.tag_id, NEW.unread, NEW.mime_type, 1
+        FROM item_tags it
+        WHERE it.item_id = NEW.id AND NEW.user_id IS NOT NULL;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER items_count
+    AFTER INSERT OR DELETE
+    ON items
+    FOR EACH ROW
+EXECUTE FUNCTION items_count();
+
+CREATE TRIGGER items_count_update
+    AFTER UPDATE OF user_id, unread, mime_type
+    ON items
+    FOR EACH ROW
+    WHEN (OLD.user_id IS DISTINCT FROM NEW.user_id OR OLD.unread IS DISTINCT FROM NEW.unread
+        OR OLD.mime_type IS DISTINCT FROM NEW.mime_type)
+EXECUTE FUNCTION items_count();
+
+-- Тэг считается по текущему состоянию и типу ссылки. Строка ссылки блокируется
+-- (FOR SHARE) до конца транзакции: одновременное изменение её состояния дождётся
+-- этой транзакции и перенесёт тэг вместе с остальными, а не мимо счётчика
+CREATE FUNCTION item_tags_count() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    changed item_tags := CASE WHEN TG_OP = 'DELETE' THEN OLD ELSE NEW END;
+    item items;
+BEGIN
+    SELECT * INTO item FROM items WHERE id = changed.item_id FOR SHARE;
+    IF item.user_id IS NOT NULL THEN
+        INSERT INTO item_counts (user_id, tag_id, unread, mime_type, item_count)
+        VALUES (item.user_id, changed.tag_id, item.unread, item.mime_type,
+                CASE WHEN TG_OP = 'DELETE' THEN -1 ELSE 1 END);
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER item_tags_count
+    AFTER INSERT OR DELETE
+    ON item_tags
+    FOR EACH ROW
+EXECUTE FUNCTION item_tags_count();
+
+ANALYZE item_counts;
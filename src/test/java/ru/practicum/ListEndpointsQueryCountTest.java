@@ -0,0 +1,189 @@
+package ru.practicum;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.item.TagRepository;
+import ru.practicum.item.model.Item;
+import ru.practicum.note.ItemNote;
+import ru.practicum.user.User;
+import ru.practicum.user.UserState;
+
+import java.time.Instant;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Число SQL-запросов на один вызов списочных эндпоинтов не должно зависеть
+// от количества ссылок и заметок в ответе (нет N+1).
+@Transactional
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:postgresql://localhost:5432/later",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=ru.practicum.SqlStatementCounter"
+})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ListEndpointsQueryCountTest {
+    private static final int FEW = 2;
+    private static final int MANY = 40;
+
+    private final MockMvc mvc;
+    private final EntityManager em;
+    private final TagRepository tagRepository;
+
+    private User fewUser;
+    private User manyUser;
+
+    @BeforeEach
+    void setUp() {
+        fewUser = createUserWithItems("few@mail.com", FEW);
+        manyUser = createUserWithItems("many@mail.com", MANY);
+        em.flush();
+        // ответы должны собираться из БД, а не из уже загруженных в сессию объектов
+        em.clear();
+    }
+
+    private User createUserWithItems(String email, int count) {
+        User user = User.builder()
+                .email(email)
+                .firstName("Query")
+                .lastName("Count")
+                .registrationDate(Instant.parse("2020-01-01T00:00:00Z"))
+                .state(UserState.ACTIVE)
+                .build();
+        em.persist(user);
+        for (int i = 0; i < count; i++) {
+            String url = "https://site.ru/" + email + "/" + i;
+            Item item = Item.builder()
+                    .user(user)
+                    .url(url)
+                    .resolvedUrl(url)
+                    .mimeType("text")
+                    .title("Item " + i)
+                    .unread(true)
+                    .dateResolved(Instant.parse("2022-07-03T00:00:00Z").plusSeconds(i))
+                    .tags(tagRepository.findOrCreate(user.getId(), Set.of("common", "tag" + i, "other" + i)))
+                    .build();
+            em.persist(item);
+            em.persist(ItemNote.builder().item(item).text("note " + i).build());
+        }
+        return user;
+    }
+
+    // Выполняет запрос и возвращает число SQL-запросов, которое на него понадобилось
+    private int countStatements(MockHttpServletRequestBuilder request, User user, int expectedSize) throws Exception {
+        // все запросы теста выполняются в одной транзакции и сессии Hibernate -
+        // очищаем её, чтобы ничего не досталось от предыдущего запроса
+        em.clear();
+        SqlStatementCounter.reset();
+        mvc.perform(request.header("X-Later-User-Id", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(expectedSize)));
+        return SqlStatementCounter.count();
+    }
+
+    private void assertConstant(int maxStatements, int few, int many) {
+        assertEquals(few, many, "Number of statements grows with the size of the list: "
+                                + SqlStatementCounter.statements());
+        assertTrue(many <= maxStatements, "Expected at most " + maxStatements + " statements, but was "
+                                          + many + ": " + SqlStatementCounter.statements());
+    }
+
+    @Test
+    void getItems_ShouldLoadItemsAndTagsInConstantNumberOfQueries() throws Exception {
+        int few = countStatements(get("/items").param("state", "all").param("limit", "100"), fewUser, FEW);
+        int many = countStatements(get("/items").param("state", "all").param("limit", "100"), manyUser, MANY);
+
+        // ссылки + тэги
+        assertConstant(2, few, many);
+    }
+
+    @Test
+    void getItemsByTag_ShouldLoadItemsAndTagsInConstantNumberOfQueries() throws Exception {
+        int few = countStatements(get("/items").param("state", "all").param("limit", "100")
+                .param("tags", "common"), fewUser, FEW);
+        int many = countStatements(get("/items").param("state", "all").param("limit", "100")
+                .param("tags", "common"), manyUser, MANY);
+
+        assertConstant(2, few, many);
+    }
+
+    @Test
+    void listAllNotes_ShouldLoadNotesWithItemsInOneQuery() throws Exception {
+        int few = countStatements(get("/notes").param("size", "100"), fewUser, FEW);
+        int many = countStatements(get("/notes").param("size", "100"), manyUser, MANY);
+
+        assertConstant(1, few, many);
+    }
+
+    @Test
+    void nextPages_ShouldCostTheSameAsFirstPage() throws Exception {
+        String itemsCursor = null;
+        String notesCursor = null;
+        for (int page = 0; page < MANY / 10; page++) {
+            MockHttpServletRequestBuilder items = get("/items").param("state", "all").param("limit", "10");
+            MockHttpServletRequestBuilder notes = get("/notes").param("size", "10");
+            if (page > 0) {
+                items.param("cursor", itemsCursor);
+                notes.param("cursor", notesCursor);
+            }
+
+            em.clear();
+            SqlStatementCounter.reset();
+            itemsCursor = mvc.perform(items.header("X-Later-User-Id", manyUser.getId()))
+                    .andExpect(jsonPath("$", hasSize(10)))
+                    .andReturn().getResponse().getHeader("X-Later-Next-Cursor");
+            assertConstant(2, 2, SqlStatementCounter.count());
+
+            em.clear();
+            SqlStatementCounter.reset();
+            notesCursor = mvc.perform(notes.header("X-Later-User-Id", manyUser.getId()))
+                    .andExpect(jsonPath("$", hasSize(10)))
+                    .andReturn().getResponse().getHeader("X-Later-Next-Cursor");
+            assertConstant(1, 1, SqlStatementCounter.count());
+        }
+    }
+
+    @Test
+    void searchNotesByUrl_ShouldLoadNotesWithItemsInOneQuery() throws Exception {
+        int few = countStatements(get("/notes").param("url", "site.ru"), fewUser, FEW);
+        int many = countStatements(get("/notes").param("url", "site.ru"), manyUser, MANY);
+
+        assertConstant(1, few, many);
+    }
+
+    @Test
+    void searchNotesByTag_ShouldLoadNotesWithItemsInOneQuery() throws Exception {
+        int few = countStatements(get("/notes").param("tag", "common"), fewUser, FEW);
+        int many = countStatements(get("/notes").param("tag", "common"), manyUser, MANY);
+
+        assertConstant(1, few, many);
+    }
+
+    @Test
+    void conditionalGet_WhenNothingChanged_ShouldNotQueryDatabase() throws Exception {
+        String etag = mvc.perform(get("/items").header("X-Later-User-Id", fewUser.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        SqlStatementCounter.reset();
+        mvc.perform(get("/items").header("X-Later-User-Id", fewUser.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/notes").header("X-Later-User-Id", fewUser.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        assertEquals(0, SqlStatementCounter.count(), "Statements: " + SqlStatementCounter.statements());
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Метрики приложения, репозиториев, HTTP-запросов и пула соединений доступны Prometheus.
+// В тестах Spring Boot по умолчанию не выгружает метрики - их включает @AutoConfigureObservability
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:postgresql://localhost:5432/later")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class MetricsEndpointTest {
+    private final MockMvc mvc;
+
+    @Test
+    void prometheus_ShouldExposeRequestRepositoryAndPoolMetrics() throws Exception {
+        // GET /items читает ссылки через ItemRepository, GET /items/facets - счётчики через ItemCountRepository
+        mvc.perform(get("/items").header("X-Later-User-Id", -1).param("state", "all"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/items/facets").header("X-Later-User-Id", -1))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(allOf(
+                        matchesPattern("(?s).*http_server_requests_seconds_bucket\\{[^}]*uri=\"/items/facets\".*"),
+                        matchesPattern("(?s).*spring_data_repository_invocations_seconds_count\\{[^}]*"
+                                       + "repository=\"ItemRepository\".*"),
+                        matchesPattern("(?s).*jdbc_repository_invocations_seconds_count\\{[^}]*"
+                                       + "class=\"ru.practicum.item.ItemCountRepository\"[^}]*method=\"findCounts\".*"),
+                        containsString("hikaricp_connections_pending"),
+                        containsString("hikaricp_connections_acquire_seconds_bucket"),
+                        matchesPattern("(?s).*cache_gets_total\\{[^}]*cache=\"item-list\".*"),
+                        containsString("url_metadata_hosts_queued"),
+                        containsString("item_filter_index_items"))));
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Запоминает SQL-запросы, которые Hibernate отправляет в БД из текущего потока.
+// Подключается в тесте свойством
+// spring.jpa.properties.hibernate.session_factory.statement_inspector=ru.practicum.SqlStatementCounter
+// Запросы через JdbcTemplate сюда не попадают.
+public class SqlStatementCounter implements StatementInspector {
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+
+    public static void reset() {
+        STATEMENTS.get().clear();
+    }
+
+    public static List<String> statements() {
+        return List.copyOf(STATEMENTS.get());
+    }
+
+    public static int count() {
+        return STATEMENTS.get().size();
+    }
+}
@@ -0,0 +1,212 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.common.ItemRetrieverException;
+import ru.practicum.item.UrlMetaDataRetriever.UrlMetadata;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingUrlMetaDataRetrieverTest {
+    private static final String URL = "https://ya.ru/";
+    private static final String RESOLVED_URL = "https://yandex.ru/";
+
+    @Mock
+    private UrlMetaDataRetriever delegate;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private CachingUrlMetaDataRetriever retriever;
+
+    @BeforeEach
+    void setUp() {
+        retriever = new CachingUrlMetaDataRetriever(delegate, Duration.ofMinutes(10), 2, nanos::get);
+    }
+
+    private UrlMetadata makeMetadata(String url, String resolvedUrl) {
+        return UrlMetaDataRetrieverImpl.UrlMetadataImpl.builder()
+                .normalUrl(url)
+                .resolvedUrl(resolvedUrl)
+                .mimeType("text")
+                .title("Яндекс")
+                .dateResolved(Instant.parse("2022-07-03T00:00:00Z"))
+                .build();
+    }
+
+    @Test
+    void retrieve_SameUrlTwice_ShouldCallDelegateOnce() {
+        when(delegate.retrieve(URL)).thenReturn(makeMetadata(URL, RESOLVED_URL));
+
+        UrlMetadata first = retriever.retrieve(URL);
+        UrlMetadata second = retriever.retrieve(URL);
+
+        assertEquals(RESOLVED_URL, second.getResolvedUrl());
+        assertEquals(first.getTitle(), second.getTitle());
+        verify(delegate, times(1)).retrieve(URL);
+        assertEquals(1, retriever.stats().hitCount());
+        assertEquals(1, retriever.stats().missCount());
+    }
+
+    @Test
+    void retrieve_EquivalentUrl_ShouldHitCacheAndKeepRequestedUrl() {
+        when(delegate.retrieve(URL)).thenReturn(makeMetadata(URL, RESOLVED_URL));
+        retriever.retrieve(URL);
+
+        UrlMetadata result = retriever.retrieve("HTTPS://YA.RU:443#top");
+
+        assertEquals("HTTPS://YA.RU:443#top", result.getNormalUrl());
+        assertEquals(RESOLVED_URL, result.getResolvedUrl());
+        verify(delegate, times(1)).retrieve(anyString());
+    }
+
+    @Test
+    void retrieve_ResolvedUrl_ShouldHitCache() {
+        when(delegate.retrieve(URL)).thenReturn(makeMetadata(URL, RESOLVED_URL));
+        retriever.retrieve(URL);
+
+        UrlMetadata result = retriever.retrieve(RESOLVED_URL);
+
+        assertEquals(RESOLVED_URL, result.getNormalUrl());
+        assertEquals(RESOLVED_URL, result.getResolvedUrl());
+        verify(delegate, never()).retrieve(RESOLVED_URL);
+    }
+
+    @Test
+    void retrieve_CacheHit_ShouldHaveFreshDateResolved() {
+        when(delegate.retrieve(URL)).thenReturn(makeMetadata(URL, RESOLVED_URL));
+        retriever.retrieve(URL);
+
+        // значение пролежало в кэше почти весь ttl
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(9));
+        Instant requested = Instant.now();
+        UrlMetadata sameUrl = retriever.retrieve(URL);
+        UrlMetadata resolvedUrl = retriever.retrieve(RESOLVED_URL);
+
+        verify(delegate, times(1)).retrieve(anyString());
+        assertFalse(sameUrl.getDateResolved().isBefore(requested));
+        assertFalse(resolvedUrl.getDateResolved().isBefore(requested));
+    }
+
+    @Test
+    void retrieve_AfterTtl_ShouldCallDelegateAgain() {
+        when(delegate.retrieve(URL)).thenReturn(makeMetadata(URL, URL));
+        retriever.retrieve(URL);
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(11));
+        retriever.retrieve(URL);
+
+        verify(delegate, times(2)).retrieve(URL);
+    }
+
+    @Test
+    void retrieve_MoreUrlsThanMaxSize_ShouldEvict() {
+        for (int i = 0; i < 5; i++) {
+            String url = "https://site" + i + ".ru/";
+            when(delegate.retrieve(url)).thenReturn(makeMetadata(url, url));
+            retriever.retrieve(url);
+        }
+
+        assertTrue(retriever.size() <= 2);
+        assertEquals(3, retriever.stats().evictionCount());
+    }
+
+    @Test
+    void retrieve_WhenDelegateFails_ShouldNotCacheError() {
+        when(delegate.retrieve(URL))
+                .thenThrow(new ItemRetrieverException("boom"))
+                .thenReturn(makeMetadata(URL, RESOLVED_URL));
+
+        assertThrows(ItemRetrieverException.class, () -> retriever.retrieve(URL));
+        assertEquals(RESOLVED_URL, retriever.retrieve(URL).getResolvedUrl());
+        verify(delegate, times(2)).retrieve(URL);
+    }
+
+    @Test
+    void retrieve_MalformedUrl_ShouldBypassCache() {
+        when(delegate.retrieve("invalid url")).thenThrow(new ItemRetrieverException("malformed"));
+
+        assertThrows(ItemRetrieverException.class, () -> retriever.retrieve("invalid url"));
+        assertEquals(0, retriever.size());
+    }
+
+    @Test
+    void retrieve_ConcurrentRequestsForSameUrl_ShouldBeCoalesced() throws Exception {
+        CountDownLatch delegateStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.retrieve(URL)).thenAnswer(invocation -> {
+            delegateStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return makeMetadata(URL, RESOLVED_URL);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<UrlMetadata> first = executor.submit(() -> retriever.retrieve(URL));
+            assertTrue(delegateStarted.await(5, TimeUnit.SECONDS));
+            Future<UrlMetadata> second = executor.submit(() -> retriever.retrieve(URL));
+            Future<UrlMetadata> third = executor.submit(() -> retriever.retrieve(URL));
+            release.countDown();
+
+            assertEquals(RESOLVED_URL, first.get(5, TimeUnit.SECONDS).getResolvedUrl());
+            assertEquals(RESOLVED_URL, second.get(5, TimeUnit.SECONDS).getResolvedUrl());
+            assertEquals(RESOLVED_URL, third.get(5, TimeUnit.SECONDS).getResolvedUrl());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(delegate, times(1)).retrieve(URL);
+    }
+
+    @Test
+    void retrieve_SlowLoad_ShouldNotDelayOtherUrls() throws Exception {
+        String otherUrl = "https://other.ru/";
+        CountDownLatch delegateStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.retrieve(URL)).thenAnswer(invocation -> {
+            delegateStarted.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return makeMetadata(URL, URL);
+        });
+        when(delegate.retrieve(otherUrl)).thenReturn(makeMetadata(otherUrl, otherUrl));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<UrlMetadata> slow = executor.submit(() -> retriever.retrieve(URL));
+            assertTrue(delegateStarted.await(5, TimeUnit.SECONDS));
+
+            Future<UrlMetadata> other = executor.submit(() -> retriever.retrieve(otherUrl));
+            assertEquals(otherUrl, other.get(2, TimeUnit.SECONDS).getResolvedUrl());
+            assertFalse(slow.isDone());
+
+            release.countDown();
+            assertEquals(URL, slow.get(5, TimeUnit.SECONDS).getResolvedUrl());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void normalize_ShouldProduceCanonicalForm() {
+        assertEquals("http://example.com/", CachingUrlMetaDataRetriever.normalize("HTTP://Example.COM:80"));
+        assertEquals("https://example.com/a/c?x=1",
+                CachingUrlMetaDataRetriever.normalize("https://example.com/a/b/../c?x=1#frag"));
+        assertEquals("https://example.com:8443/", CachingUrlMetaDataRetriever.normalize("https://example.com:8443/"));
+        assertNull(CachingUrlMetaDataRetriever.normalize("invalid url"));
+        assertNull(CachingUrlMetaDataRetriever.normalize("mailto:someone@example.com"));
+    }
+}
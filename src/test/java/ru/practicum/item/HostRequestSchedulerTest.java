@@ -0,0 +1,180 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.common.ItemRetrieverException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostRequestSchedulerTest {
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private HostRequestScheduler scheduler(int maxConcurrency, Duration backoff) {
+        return new HostRequestScheduler(maxConcurrency, backoff, Duration.ofSeconds(1), 2, Duration.ofSeconds(10),
+                Duration.ZERO);
+    }
+
+    // Запускает поток, который от имени пользователя получает разрешение
+    // на запрос к сайту, отмечается в order и сразу освобождает место
+    private Thread request(HostRequestScheduler scheduler, long userId, String host, List<String> order) {
+        return Thread.ofPlatform().start(() -> HostRequestScheduler.onBehalfOf(userId, () -> {
+            try (HostRequestScheduler.Permit permit = scheduler.acquire(host)) {
+                order.add("user" + userId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+    }
+
+    private void awaitQueued(HostRequestScheduler scheduler, String host, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + WAIT.toNanos();
+        while (scheduler.stats().get(host).queued() != queued) {
+            assertTrue(System.nanoTime() < deadline, "Expected " + queued + " queued requests to " + host);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void acquire_ShouldLimitConcurrentRequestsPerHost() throws Exception {
+        HostRequestScheduler scheduler = scheduler(2, Duration.ofSeconds(1));
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        HostRequestScheduler.Permit first = scheduler.acquire("site.ru");
+        HostRequestScheduler.Permit second = scheduler.acquire("site.ru");
+        Thread third = request(scheduler, 1, "site.ru", order);
+        awaitQueued(scheduler, "site.ru", 1);
+
+        // другой сайт не ждёт
+        try (HostRequestScheduler.Permit other = scheduler.acquire("other.ru")) {
+            assertEquals(1, scheduler.stats().get("other.ru").inFlight());
+        }
+        assertEquals(2, scheduler.stats().get("site.ru").inFlight());
+        assertTrue(order.isEmpty());
+
+        first.close();
+        third.join(WAIT.toMillis());
+        assertEquals(List.of("user1"), order);
+        second.close();
+
+        HostRequestScheduler.HostStats stats = scheduler.stats().get("site.ru");
+        assertEquals(0, stats.inFlight());
+        assertEquals(0, stats.queued());
+        assertEquals(3, stats.granted());
+        assertTrue(stats.maxWait().compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void acquire_ShouldAlternateBetweenWaitingUsers() throws Exception {
+        HostRequestScheduler scheduler = scheduler(1, Duration.ofSeconds(1));
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        HostRequestScheduler.Permit busy = scheduler.acquire("site.ru");
+        List<Thread> threads = new ArrayList<>();
+        // первый пользователь поставил в очередь три запроса раньше, чем второй - один
+        for (int i = 1; i <= 3; i++) {
+            threads.add(request(scheduler, 1, "site.ru", order));
+            awaitQueued(scheduler, "site.ru", i);
+        }
+        threads.add(request(scheduler, 2, "site.ru", order));
+        awaitQueued(scheduler, "site.ru", 4);
+
+        busy.close();
+        for (Thread thread : threads) {
+            thread.join(WAIT.toMillis());
+        }
+
+        assertEquals(List.of("user1", "user2", "user1", "user1"), order);
+    }
+
+    @Test
+    void throttle_ShouldPauseAllRequestsToHost() throws Exception {
+        HostRequestScheduler scheduler = scheduler(2, Duration.ofMillis(200));
+
+        Optional<Duration> delay;
+        try (HostRequestScheduler.Permit permit = scheduler.acquire("site.ru")) {
+            delay = permit.throttle(null, 1);
+        }
+        assertEquals(Optional.of(Duration.ofMillis(200)), delay);
+
+        long begin = System.nanoTime();
+        try (HostRequestScheduler.Permit permit = scheduler.acquire("site.ru")) {
+            assertTrue(System.nanoTime() - begin >= Duration.ofMillis(150).toNanos(), "Request was not paused");
+            // пауза без Retry-After растёт с каждым отказом подряд
+            assertEquals(Optional.of(Duration.ofMillis(400)), permit.throttle(null, 2));
+        }
+        assertEquals(2, scheduler.stats().get("site.ru").throttled());
+    }
+
+    @Test
+    void throttle_AfterMaxRetries_ShouldNotRetry() throws Exception {
+        HostRequestScheduler scheduler = scheduler(2, Duration.ofMillis(1));
+
+        try (HostRequestScheduler.Permit permit = scheduler.acquire("site.ru")) {
+            assertTrue(permit.throttle("0", 3).isEmpty());
+        }
+    }
+
+    @Test
+    void acquire_WhenHostPausedLongerThanMaxWait_ShouldFailImmediately() throws Exception {
+        HostRequestScheduler scheduler = scheduler(2, Duration.ofMillis(1));
+
+        try (HostRequestScheduler.Permit permit = scheduler.acquire("site.ru")) {
+            assertTrue(permit.throttle("3600", 1).isEmpty());
+        }
+
+        assertThrows(ItemRetrieverException.class, () -> scheduler.acquire("site.ru"));
+        assertThrows(ItemRetrieverException.class, () -> scheduler.acquire("SITE.ru"));
+        assertNotNull(scheduler.acquire("other.ru"));
+    }
+
+    @Test
+    void acquire_WhenInterrupted_ShouldLeaveQueue() throws Exception {
+        HostRequestScheduler scheduler = scheduler(1, Duration.ofSeconds(1));
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        HostRequestScheduler.Permit busy = scheduler.acquire("site.ru");
+        Thread waiting = request(scheduler, 1, "site.ru", order);
+        awaitQueued(scheduler, "site.ru", 1);
+
+        waiting.interrupt();
+        waiting.join(WAIT.toMillis());
+        assertEquals(0, scheduler.stats().get("site.ru").queued());
+
+        busy.close();
+        assertTrue(order.isEmpty());
+        assertEquals(0, scheduler.stats().get("site.ru").inFlight());
+    }
+
+    @Test
+    void removeIdleHosts_ShouldForgetOnlyUnusedHosts() throws Exception {
+        HostRequestScheduler scheduler = scheduler(2, Duration.ofSeconds(1));
+
+        scheduler.acquire("idle.ru").close();
+        HostRequestScheduler.Permit busy = scheduler.acquire("busy.ru");
+
+        scheduler.removeIdleHosts();
+
+        assertEquals(List.of("busy.ru"), List.copyOf(scheduler.stats().keySet()));
+        busy.close();
+    }
+
+    @Test
+    void parseRetryAfter_ShouldAcceptSecondsAndDate() {
+        ZonedDateTime now = ZonedDateTime.parse("2024-01-01T10:00:00Z");
+
+        assertEquals(Optional.of(Duration.ofSeconds(120)), HostRequestScheduler.parseRetryAfter("120", now));
+        assertEquals(Optional.of(Duration.ofSeconds(30)),
+                HostRequestScheduler.parseRetryAfter("Mon, 01 Jan 2024 10:00:30 GMT", now));
+        assertEquals(Optional.of(Duration.ZERO),
+                HostRequestScheduler.parseRetryAfter("Mon, 01 Jan 2024 09:00:00 GMT", now));
+        assertEquals(Optional.empty(), HostRequestScheduler.parseRetryAfter("soon", now));
+        assertEquals(Optional.empty(), HostRequestScheduler.parseRetryAfter(null, now));
+    }
+}
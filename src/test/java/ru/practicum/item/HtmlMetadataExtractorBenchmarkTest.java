@@ -0,0 +1,156 @@
+package ru.practicum.item;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Сравнение прежнего способа (страница целиком в строку + Jsoup.parse) и потокового
+// HtmlMetadataExtractor по времени и объёму выделенной памяти на одну страницу.
+// Страницы генерируются по образцу реальных: большой <head> со скриптами и стилями,
+// навигация, статья с абзацами и картинками, счётчики в конце страницы.
+// Запуск: mvn test -Pbenchmarks -Dtest=HtmlMetadataExtractorBenchmarkTest
+@Tag("benchmark")
+class HtmlMetadataExtractorBenchmarkTest {
+    private static final long MAX_BYTES = 512 * 1024;
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 30;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void compareWithFullJsoupParse() throws IOException {
+        int[] sizes = {150, 1_500, 6_000};
+        byte[][] pages = new byte[sizes.length][];
+        for (int i = 0; i < sizes.length; i++) {
+            pages[i] = makePage(sizes[i]);
+        }
+
+        // прогрев JIT на всех страницах, чтобы первая из них не измерялась в интерпретаторе
+        for (byte[] page : pages) {
+            measure(() -> parseWithJsoup(page));
+            measure(() -> parseStreaming(page));
+        }
+
+        System.out.printf("%n%-10s %10s %-10s %12s %16s%n", "page", "size, KB", "parser", "ms/op", "allocated MB/op");
+        for (int i = 0; i < sizes.length; i++) {
+            byte[] page = pages[i];
+
+            Measurement jsoup = measure(() -> parseWithJsoup(page));
+            Measurement streaming = measure(() -> parseStreaming(page));
+
+            String name = sizes[i] + "p";
+            jsoup.print(name, page.length, "jsoup");
+            streaming.print(name, page.length, "streaming");
+
+            assertEquals(jsoup.result().title(), streaming.result().title());
+            assertEquals(jsoup.result().hasImage(), streaming.result().hasImage());
+        }
+    }
+
+    // Так handleText работал раньше: BodyHandlers.ofString() + полный DOM
+    private static HtmlMetadataExtractor.Result parseWithJsoup(byte[] page) {
+        Document doc = Jsoup.parse(new String(page, StandardCharsets.UTF_8));
+        return new HtmlMetadataExtractor.Result(doc.title(),
+                !doc.getElementsByTag("img").isEmpty(),
+                !doc.getElementsByTag("video").isEmpty(),
+                "");
+    }
+
+    private static HtmlMetadataExtractor.Result parseStreaming(byte[] page) throws IOException {
+        return HtmlMetadataExtractor.extract(new ByteArrayInputStream(page), StandardCharsets.UTF_8, MAX_BYTES);
+    }
+
+    private static Measurement measure(Parser parser) throws IOException {
+        HtmlMetadataExtractor.Result result = null;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            result = parser.parse();
+        }
+
+        long allocatedBefore = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            result = parser.parse();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        return new Measurement(result, elapsed / MEASURED_ITERATIONS, allocated / MEASURED_ITERATIONS);
+    }
+
+    private static byte[] makePage(int paragraphs) {
+        Random random = new Random(paragraphs);
+        StringBuilder html = new StringBuilder(paragraphs * 700 + 100_000);
+        html.append("<!DOCTYPE html>\n<html lang=\"ru\"><head>\n<meta charset=\"utf-8\">\n");
+        for (int i = 0; i < 25; i++) {
+            html.append("<meta property=\"og:tag").append(i).append("\" content=\"").append(words(random, 8))
+                    .append("\">\n");
+        }
+        html.append("<link rel=\"stylesheet\" href=\"/static/main.css\">\n");
+        html.append("<script>window.__STATE__ = {");
+        for (int i = 0; i < 1_500; i++) {
+            html.append("\"key").append(i).append("\":\"").append(words(random, 3)).append("\",");
+        }
+        html.append("};</script>\n<style>");
+        for (int i = 0; i < 400; i++) {
+            html.append(".block-").append(i).append(" { margin: 0 ").append(i % 16).append("px; color: #333; }\n");
+        }
+        html.append("</style>\n<title>Длинная статья о производительности &mdash; Later</title>\n</head>\n<body>\n");
+        html.append("<header><nav><ul>");
+        for (int i = 0; i < 60; i++) {
+            html.append("<li><a href=\"/section/").append(i).append("\">").append(words(random, 2))
+                    .append("</a></li>");
+        }
+        html.append("</ul></nav></header>\n<article>\n<h1>").append(words(random, 6)).append("</h1>\n");
+        for (int i = 0; i < paragraphs; i++) {
+            html.append("<p class=\"block-").append(i % 400).append("\">").append(words(random, 90))
+                    .append("</p>\n");
+            if (i % 12 == 11) {
+                html.append("<figure><img src=\"/img/").append(i).append(".jpg\" alt=\"")
+                        .append(words(random, 4)).append("\"><figcaption>").append(words(random, 10))
+                        .append("</figcaption></figure>\n");
+            }
+            if (i % 50 == 49) {
+                html.append("<!-- ad slot ").append(i).append(" -->\n");
+            }
+        }
+        html.append("</article>\n<footer>").append(words(random, 40)).append("</footer>\n");
+        html.append("<script src=\"/static/analytics.js\"></script>\n</body></html>\n");
+        return html.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final String[] WORDS = {"производительность", "память", "поток", "запрос", "страница",
+            "latency", "throughput", "allocation", "парсер", "кэш", "сервер", "данные", "the", "and", "ссылка"};
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    @FunctionalInterface
+    private interface Parser {
+        HtmlMetadataExtractor.Result parse() throws IOException;
+    }
+
+    private record Measurement(HtmlMetadataExtractor.Result result, long nanosPerOp, long bytesPerOp) {
+        void print(String page, int size, String parser) {
+            System.out.printf("%-10s %10d %-10s %12.2f %16.2f%n", page, size / 1024, parser,
+                    nanosPerOp / 1_000_000.0, bytesPerOp / (1024.0 * 1024.0));
+        }
+    }
+}
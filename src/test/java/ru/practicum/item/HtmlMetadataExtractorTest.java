@@ -0,0 +1,161 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HtmlMetadataExtractorTest {
+    private static final long MAX_BYTES = 512 * 1024;
+
+    private HtmlMetadataExtractor.Result extract(String html) throws IOException {
+        return extract(html, StandardCharsets.UTF_8, MAX_BYTES);
+    }
+
+    private HtmlMetadataExtractor.Result extract(String html, Charset charset, long maxBytes) throws IOException {
+        return HtmlMetadataExtractor.extract(new ByteArrayInputStream(html.getBytes(charset)), charset, maxBytes);
+    }
+
+    @Test
+    void extract_ShouldReturnTitleImagesAndVideos() throws IOException {
+        HtmlMetadataExtractor.Result result = extract("""
+                <!DOCTYPE html>
+                <html><head><meta charset="utf-8"><title>Новости дня</title></head>
+                <body><IMG src="a.png"><Video src="b.mp4"></video></body></html>
+                """);
+
+        assertEquals("Новости дня", result.title());
+        assertTrue(result.hasImage());
+        assertTrue(result.hasVideo());
+    }
+
+    @Test
+    void extract_ShouldDecodeEntitiesAndNormalizeWhitespace() throws IOException {
+        HtmlMetadataExtractor.Result result = extract(
+                "<title lang=\"en\">\n   Tom &amp; Jerry&nbsp;&mdash;\t cartoons  \n</TITLE>");
+
+        assertEquals("Tom & Jerry — cartoons", result.title());
+    }
+
+    @Test
+    void extract_WithoutTitle_ShouldReturnEmptyTitle() throws IOException {
+        HtmlMetadataExtractor.Result result = extract("<html><head></head><body><p>text</p></body></html>");
+
+        assertEquals("", result.title());
+        assertFalse(result.hasImage());
+        assertFalse(result.hasVideo());
+    }
+
+    @Test
+    void extract_ShouldIgnoreTagsInCommentsScriptsAndStyles() throws IOException {
+        HtmlMetadataExtractor.Result result = extract("""
+                <html><head><title>Page</title>
+                <script>var s = "<img src='x.png'>"; if (a < b) {}</script>
+                <style>/* <video> */ img { border: 0 }</style>
+                </head><body><!-- <img src="hidden.png"> --><p>text</p></body></html>
+                """);
+
+        assertEquals("Page", result.title());
+        assertFalse(result.hasImage());
+        assertFalse(result.hasVideo());
+    }
+
+    @Test
+    void extract_ShouldUseFirstTitle() throws IOException {
+        HtmlMetadataExtractor.Result result = extract(
+                "<title>First</title><body><svg><title>Second</title></svg></body>");
+
+        assertEquals("First", result.title());
+    }
+
+    @Test
+    void extract_ShouldNotReadPastMaxBytes() throws IOException {
+        String head = "<html><head><title>Big</title></head><body>";
+        String html = head + "<p>filler</p>".repeat(10_000) + "<img src='late.png'>";
+
+        HtmlMetadataExtractor.Result result = extract(html, StandardCharsets.UTF_8, 4096);
+
+        assertEquals("Big", result.title());
+        assertFalse(result.hasImage());
+    }
+
+    @Test
+    void extract_ShouldStopReadingWhenEverythingIsFound() throws IOException {
+        byte[] page = "<title>T</title><img src='a'><video></video>".getBytes(StandardCharsets.UTF_8);
+        // после страницы поток никогда не заканчивается - чтение обязано остановиться само
+        InputStream endless = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                return position < page.length ? page[position++] : ' ';
+            }
+        };
+
+        HtmlMetadataExtractor.Result result = HtmlMetadataExtractor.extract(endless, StandardCharsets.UTF_8,
+                Long.MAX_VALUE);
+
+        assertEquals("T", result.title());
+        assertTrue(result.hasImage());
+        assertTrue(result.hasVideo());
+    }
+
+    @Test
+    void extract_ShouldDecodeUsingGivenCharset() throws IOException {
+        Charset windows1251 = Charset.forName("windows-1251");
+
+        HtmlMetadataExtractor.Result result = extract("<title>Привет</title>", windows1251, MAX_BYTES);
+
+        assertEquals("Привет", result.title());
+    }
+
+    @Test
+    void extract_WithUnterminatedTitle_ShouldLimitTitleLength() throws IOException {
+        HtmlMetadataExtractor.Result result = extract("<title>" + "a".repeat(10_000));
+
+        assertEquals(2048, result.title().length());
+    }
+
+    @Test
+    void extract_ShouldReturnVisibleTextWithoutMarkup() throws IOException {
+        String html = """
+                <html><head><title>Заголовок</title><style>p { color: red }</style></head>
+                <body><h1 class="big">Новости</h1><p>Tom &amp; Jerry</p><p>a < b</p>
+                <script>var x = "<p>скрипт</p>";</script><!-- комментарий --><a href="/x">ссылка</a></body></html>
+                """;
+
+        HtmlMetadataExtractor.Result result = HtmlMetadataExtractor.extract(
+                new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, MAX_BYTES, 100);
+
+        assertEquals("Новости Tom & Jerry a < b ссылка", result.text());
+        assertEquals("Заголовок", result.title());
+    }
+
+    @Test
+    void extract_ShouldLimitTextAndStopReading() throws IOException {
+        byte[] page = "<title>T</title><img src='a'><video></video><p>".getBytes(StandardCharsets.UTF_8);
+        InputStream endless = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                return position < page.length ? page[position++] : 'a';
+            }
+        };
+
+        HtmlMetadataExtractor.Result result = HtmlMetadataExtractor.extract(endless, StandardCharsets.UTF_8,
+                Long.MAX_VALUE, 10);
+
+        assertTrue(result.text().matches("a{1,10}"), result.text());
+    }
+
+    @Test
+    void extract_WithoutTextLimit_ShouldReturnEmptyText() throws IOException {
+        assertEquals("", extract("<title>T</title><p>text</p>").text());
+    }
+}
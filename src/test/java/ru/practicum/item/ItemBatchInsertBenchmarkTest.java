@@ -0,0 +1,149 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.LaterApplication;
+import ru.practicum.item.model.Item;
+import ru.practicum.user.User;
+import ru.practicum.user.UserRepository;
+import ru.practicum.user.UserState;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Вставка 100 000 ссылок с пятью тэгами (из заранее заполненного словаря) через ItemRepository.saveAll
+// при разных настройках пакетной записи Hibernate и драйвера PostgreSQL:
+//   - без пакетов: каждая строка - отдельный запрос к БД, как было с IDENTITY;
+//   - пакеты Hibernate (hibernate.jdbc.batch_size, order_inserts);
+//   - пакеты Hibernate + reWriteBatchedInserts драйвера (настройки по умолчанию).
+// Нужна запущенная БД из compose.yaml.
+// Запуск: mvn test -Pbenchmarks -Dtest=ItemBatchInsertBenchmarkTest [-Dbenchmark.items=100000]
+@Tag("benchmark")
+class ItemBatchInsertBenchmarkTest {
+    private static final int ITEMS = Integer.getInteger("benchmark.items", 100_000);
+    private static final int TAGS_PER_ITEM = 5;
+    private static final int ITEMS_PER_TRANSACTION = 1_000;
+
+    @Test
+    void compareInsertModes() {
+        Result rowByRow = run("hibernate.jdbc.batch_size=0", "hibernate.order_inserts=false",
+                "reWriteBatchedInserts=false");
+        Result batched = run("hibernate.jdbc.batch_size=50", "hibernate.order_inserts=true",
+                "reWriteBatchedInserts=false");
+        Result rewritten = run("hibernate.jdbc.batch_size=50", "hibernate.order_inserts=true",
+                "reWriteBatchedInserts=true");
+
+        System.out.printf("%n%d items, %d tags each%n", ITEMS, TAGS_PER_ITEM);
+        System.out.printf("%-28s %10s %12s %12s%n", "mode", "seconds", "items/s", "rows/s");
+        rowByRow.print("row by row");
+        batched.print("hibernate batches");
+        rewritten.print("batches + reWriteBatched");
+
+        assertEquals(ITEMS, rowByRow.items());
+        assertEquals(ITEMS, batched.items());
+        assertEquals(ITEMS, rewritten.items());
+    }
+
+    private Result run(String batchSize, String orderInserts, String reWriteBatchedInserts) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LaterApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.jpa.properties." + batchSize,
+                        "spring.jpa.properties." + orderInserts,
+                        "spring.datasource.hikari.data-source-properties." + reWriteBatchedInserts,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.org.hibernate.SQL=INFO",
+                        "logging.level.org.hibernate.orm.jdbc.bind=INFO")
+                .run()) {
+            ItemRepository itemRepository = context.getBean(ItemRepository.class);
+            TagRepository tagRepository = context.getBean(TagRepository.class);
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+            User user = userRepository.save(User.builder()
+                    .email("batch@test.ru")
+                    .firstName("Batch")
+                    .lastName("Insert")
+                    .state(UserState.ACTIVE)
+                    .build());
+            try {
+                Map<String, ru.practicum.item.model.Tag> dictionary = transactionTemplate.execute(status ->
+                        tagRepository.findOrCreate(user.getId(), tagNames()).stream()
+                                .collect(Collectors.toMap(ru.practicum.item.model.Tag::getName, Function.identity())));
+                long begin = System.nanoTime();
+                for (int from = 0; from < ITEMS; from += ITEMS_PER_TRANSACTION) {
+                    int chunkStart = from;
+                    transactionTemplate.executeWithoutResult(status ->
+                            itemRepository.saveAll(makeItems(user, dictionary, chunkStart,
+                                    Math.min(ITEMS_PER_TRANSACTION, ITEMS - chunkStart))));
+                }
+                long elapsed = System.nanoTime() - begin;
+
+                Integer saved = jdbc.queryForObject("select count(*) from items where user_id = ?", Integer.class,
+                        user.getId());
+                return new Result(saved == null ? 0 : saved, elapsed);
+            } finally {
+                jdbc.update("delete from item_tags where item_id in (select id from items where user_id = ?)",
+                        user.getId());
+                jdbc.update("delete from items where user_id = ?", user.getId());
+                jdbc.update("delete from item_changes where user_id = ?", user.getId());
+                jdbc.update("delete from tags where user_id = ?", user.getId());
+                jdbc.update("delete from users where id = ?", user.getId());
+            }
+        }
+    }
+
+    private static Set<String> tagNames() {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < 17; i++) {
+            names.addAll(tagNames(i));
+        }
+        return names;
+    }
+
+    private static Set<String> tagNames(int i) {
+        return Set.of("site" + i % 7, "topic" + i % 11, "lang" + i % 3, "year" + i % 13, "list" + i % 17);
+    }
+
+    private static List<Item> makeItems(User user, Map<String, ru.practicum.item.model.Tag> dictionary,
+                                        int from, int count) {
+        List<Item> items = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            String url = "https://example.com/articles/" + i;
+            items.add(Item.builder()
+                    .user(user)
+                    .url(url)
+                    .resolvedUrl(url)
+                    .mimeType("text")
+                    .title("Article " + i)
+                    .hasImage(i % 3 == 0)
+                    .unread(true)
+                    .dateResolved(Instant.parse("2024-01-01T00:00:00Z"))
+                    .tags(tagNames(i).stream().map(dictionary::get).collect(Collectors.toCollection(HashSet::new)))
+                    .build());
+        }
+        return items;
+    }
+
+    private record Result(int items, long nanos) {
+        void print(String mode) {
+            double seconds = nanos / 1_000_000_000.0;
+            System.out.printf("%-28s %10.1f %12.0f %12.0f%n", mode, seconds, items / seconds,
+                    items * (1 + TAGS_PER_ITEM) / seconds);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package ru.practicum.item;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.common.BadRequestException;
+import ru.practicum.item.dto.GetItemRequest;
+import ru.practicum.item.dto.ItemSelection;
+import ru.practicum.item.dto.ModifyItemsRequest;
+import ru.practicum.item.model.Item;
+import ru.practicum.item.model.Tag;
+import ru.practicum.note.ItemNote;
+import ru.practicum.user.User;
+import ru.practicum.user.UserRepository;
+import ru.practicum.user.UserState;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Transactional
+@SpringBootTest(
+        properties = "spring.datasource.url=jdbc:postgresql://localhost:5432/later",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemBatchTest {
+    private final EntityManager em;
+    private final ItemService itemService;
+    private final ItemRepository itemRepository;
+    private final TagRepository tagRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private UrlMetaDataRetriever urlMetaDataRetriever;
+
+    private User user;
+    private Item java;
+    private Item spring;
+    private Item video;
+    private Item image;
+    private Item foreign;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(user("batch@mail.com"));
+        User other = userRepository.save(user("other-batch@mail.com"));
+        java = save(user, "https://batch.ru/1", true, "text", "java");
+        spring = save(user, "https://batch.ru/2", false, "text", "java", "spring");
+        video = save(user, "https://batch.ru/3", true, "video", "spring");
+        image = save(user, "https://batch.ru/4", true, "image");
+        foreign = save(other, "https://batch.ru/5", true, "text", "java");
+        em.persist(ItemNote.builder().item(java).text("note").build());
+        em.persist(ItemNote.builder().item(foreign).text("note").build());
+        flush();
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .email(email)
+                .firstName("Batch")
+                .lastName("Test")
+                .state(UserState.ACTIVE)
+                .build();
+    }
+
+    private Item save(User owner, String url, boolean unread, String mimeType, String... tags) {
+        return itemRepository.save(Item.builder()
+                .user(owner)
+                .url(url)
+                .resolvedUrl(url)
+                .mimeType(mimeType)
+                .title(url)
+                .dateResolved(Instant.parse("2024-01-01T00:00:00Z"))
+                .unread(unread)
+                .tags(tagRepository.findOrCreate(owner.getId(), Set.of(tags)))
+                .build());
+    }
+
+    // пакетные операции изменяют таблицы в обход сессии JPA
+    private void flush() {
+        em.flush();
+        em.clear();
+    }
+
+    private Item reload(Item item) {
+        return itemRepository.findById(item.getId()).orElse(null);
+    }
+
+    private Set<String> tags(Item item) {
+        return reload(item).getTags().stream().map(Tag::getName).collect(Collectors.toSet());
+    }
+
+    private long notes(Item item) {
+        return jdbcTemplate.queryForObject("select count(*) from item_notes where item_id = ?", Long.class,
+                item.getId());
+    }
+
+    @Test
+    void modifyItems_ByTag_ShouldMarkAllTaggedItems() {
+        ModifyItemsRequest request = ModifyItemsRequest.builder()
+                .selection(ItemSelection.builder().tags(Set.of("java")).build())
+                .read(true)
+                .build();
+
+        assertEquals(2, itemService.modifyItems(user.getId(), request).affected());
+        flush();
+
+        assertFalse(reload(java).isUnread());
+        assertFalse(reload(spring).isUnread());
+        assertTrue(reload(video).isUnread());
+        assertTrue(reload(foreign).isUnread());
+        assertEquals(Set.of("java", "spring"), tags(spring));
+    }
+
+    @Test
+    void modifyItems_ByIds_ShouldReplaceTagsOfOwnItemsOnly() {
+        ModifyItemsRequest request = ModifyItemsRequest.builder()
+                .selection(ItemSelection.builder()
+                        .itemIds(List.of(spring.getId(), image.getId(), foreign.getId()))
+                        .build())
+                .tags(Set.of("spring", "later"))
+                .replaceTags(true)
+                .build();
+
+        assertEquals(2, itemService.modifyItems(user.getId(), request).affected());
+        flush();
+
+        assertEquals(Set.of("spring", "later"), tags(spring));
+        assertEquals(Set.of("spring", "later"), tags(image));
+        assertEquals(Set.of("java"), tags(java));
+        assertEquals(Set.of("java"), tags(foreign));
+        // состояние без read не меняется
+        assertFalse(reload(spring).isUnread());
+        assertTrue(reload(image).isUnread());
+    }
+
+    @Test
+    void modifyItems_ShouldKeepFacetCountsInStep() {
+        ModifyItemsRequest request = ModifyItemsRequest.builder()
+                .selection(ItemSelection.builder().state("unread").contentType("article").build())
+                .read(true)
+                .tags(Set.of("done"))
+                .build();
+
+        assertEquals(1, itemService.modifyItems(user.getId(), request).affected());
+        flush();
+
+        Map<String, Long> tags = itemService.getFacets(GetItemRequest.builder()
+                .userId(user.getId())
+                .state(GetItemRequest.State.READ)
+                .contentType(GetItemRequest.ContentType.ALL)
+                .tags(Set.of())
+                .build()).tags();
+        assertEquals(Map.of("java", 2L, "spring", 1L, "done", 1L), tags);
+    }
+
+    @Test
+    void deleteItems_ByFilter_ShouldDeleteItemsWithNotes() {
+        ItemSelection selection = ItemSelection.builder().tags(Set.of("java")).build();
+
+        assertEquals(2, itemService.deleteItems(user.getId(), selection).affected());
+        flush();
+
+        assertNull(reload(java));
+        assertNull(reload(spring));
+        assertEquals(0, notes(java));
+        assertNotNull(reload(video));
+        assertNotNull(reload(foreign));
+        assertEquals(1, notes(foreign));
+    }
+
+    @Test
+    void deleteItems_AllStates_ShouldDeleteOnlyOwnItems() {
+        ItemSelection selection = ItemSelection.builder().state("all").build();
+
+        assertEquals(4, itemService.deleteItems(user.getId(), selection).affected());
+        flush();
+
+        assertTrue(itemRepository.findByUserId(user.getId()).isEmpty());
+        assertNotNull(reload(foreign));
+    }
+
+    @Test
+    void deleteItems_WithoutSelection_ShouldThrowException() {
+        assertThrows(BadRequestException.class,
+                () -> itemService.deleteItems(user.getId(), ItemSelection.builder().build()));
+        assertThrows(BadRequestException.class,
+                () -> itemService.deleteItems(user.getId(), ItemSelection.builder()
+                        .itemIds(List.of(java.getId()))
+                        .state("read")
+                        .build()));
+        flush();
+
+        assertEquals(4, itemRepository.findByUserId(user.getId()).size());
+    }
+}
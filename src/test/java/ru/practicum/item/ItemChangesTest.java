@@ -0,0 +1,214 @@
+package ru.practicum.item;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.common.BadRequestException;
+import ru.practicum.common.GoneException;
+import ru.practicum.item.dto.ItemChangesDto;
+import ru.practicum.item.dto.ItemDto;
+import ru.practicum.item.dto.ModifyItemRequest;
+import ru.practicum.item.model.Item;
+import ru.practicum.item.model.Tag;
+import ru.practicum.user.User;
+import ru.practicum.user.UserRepository;
+import ru.practicum.user.UserState;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Журнал изменений пишется отложенными триггерами при фиксации транзакции, а тест
+// выполняется в откатываемой транзакции. SET CONSTRAINTS ALL IMMEDIATE заставляет
+// триггеры срабатывать сразу после каждого запроса
+@Transactional
+@SpringBootTest(
+        properties = "spring.datasource.url=jdbc:postgresql://localhost:5432/later",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemChangesTest {
+    private final EntityManager em;
+    private final ItemService itemService;
+    private final ItemRepository itemRepository;
+    private final TagRepository tagRepository;
+    private final UserRepository userRepository;
+    private final ItemChangeLog itemChangeLog;
+    private final JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private UrlMetaDataRetriever urlMetaDataRetriever;
+
+    private User user;
+    private User other;
+    private Item first;
+    private Item second;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("SET CONSTRAINTS ALL IMMEDIATE");
+        user = userRepository.save(user("sync@mail.com"));
+        other = userRepository.save(user("other-sync@mail.com"));
+        first = itemRepository.save(item(user, "https://sync.ru/1", tagRepository.findOrCreate(user.getId(), Set.of("sync"))));
+        second = itemRepository.save(item(user, "https://sync.ru/2", Set.of()));
+        itemRepository.save(item(other, "https://sync.ru/3", Set.of()));
+        em.flush();
+        em.clear();
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .email(email)
+                .firstName("Sync")
+                .lastName("Test")
+                .state(UserState.ACTIVE)
+                .build();
+    }
+
+    private static Item item(User user, String url, Set<Tag> tags) {
+        return Item.builder()
+                .user(user)
+                .url(url)
+                .resolvedUrl(url)
+                .mimeType("text")
+                .title(url)
+                .dateResolved(Instant.parse("2024-01-01T00:00:00Z"))
+                .unread(true)
+                .tags(new HashSet<>(tags))
+                .build();
+    }
+
+    private static List<Long> ids(ItemChangesDto changes) {
+        return changes.items().stream().map(ItemDto::id).toList();
+    }
+
+    private void flush() {
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void getChanges_WithoutToken_ShouldReturnAllItemsOfUser() {
+        ItemChangesDto changes = itemService.getChanges(user.getId(), null, 100);
+
+        assertEquals(Set.of(first.getId(), second.getId()), Set.copyOf(ids(changes)));
+        assertEquals(Set.of("sync"), changes.items().stream()
+                .filter(item -> item.id().equals(first.getId())).findFirst().orElseThrow().tags());
+        assertEquals(List.of(), changes.deleted());
+        assertFalse(changes.hasMore());
+
+        ItemChangesDto next = itemService.getChanges(user.getId(), changes.token(), 100);
+        assertEquals(List.of(), next.items());
+        assertEquals(List.of(), next.deleted());
+    }
+
+    @Test
+    void getChanges_AfterModify_ShouldReturnOnlyModifiedItem() {
+        String token = itemService.getChanges(user.getId(), null, 100).token();
+
+        itemService.modifyItem(user.getId(), new ModifyItemRequest(first.getId(), true, Set.of("read"), false));
+        flush();
+
+        ItemChangesDto changes = itemService.getChanges(user.getId(), token, 100);
+        assertEquals(List.of(first.getId()), ids(changes));
+        assertFalse(changes.items().getFirst().unread());
+        assertEquals(Set.of("sync", "read"), changes.items().getFirst().tags());
+    }
+
+    @Test
+    void getChanges_AfterTagsRemoved_ShouldReturnItem() {
+        String token = itemService.getChanges(user.getId(), null, 100).token();
+
+        jdbcTemplate.update("DELETE FROM item_tags WHERE item_id = ?", first.getId());
+        em.clear();
+
+        ItemChangesDto changes = itemService.getChanges(user.getId(), token, 100);
+        assertEquals(List.of(first.getId()), ids(changes));
+        assertEquals(Set.of(), changes.items().getFirst().tags());
+    }
+
+    @Test
+    void getChanges_AfterDelete_ShouldReturnDeletedId() {
+        String token = itemService.getChanges(user.getId(), null, 100).token();
+
+        itemService.deleteItem(user.getId(), second.getId());
+        flush();
+
+        ItemChangesDto changes = itemService.getChanges(user.getId(), token, 100);
+        assertEquals(List.of(), changes.items());
+        assertEquals(List.of(second.getId()), changes.deleted());
+        // клиенту без токена удалённые ссылки не нужны
+        assertEquals(List.of(), itemService.getChanges(user.getId(), null, 100).deleted());
+    }
+
+    @Test
+    void getChanges_WhenMoreThanLimit_ShouldContinueFromToken() {
+        ItemChangesDto page = itemService.getChanges(user.getId(), null, 1);
+        assertEquals(1, page.items().size());
+        assertTrue(page.hasMore());
+
+        ItemChangesDto next = itemService.getChanges(user.getId(), page.token(), 1);
+        assertEquals(1, next.items().size());
+        assertFalse(next.hasMore());
+        assertEquals(Set.of(first.getId(), second.getId()), Set.of(ids(page).getFirst(), ids(next).getFirst()));
+    }
+
+    @Test
+    void getChanges_ItemChangedTwice_ShouldReturnItOnceInOrderOfLastChange() {
+        String token = itemService.getChanges(user.getId(), null, 100).token();
+
+        itemService.modifyItem(user.getId(), new ModifyItemRequest(first.getId(), true, Set.of(), false));
+        flush();
+        itemService.modifyItem(user.getId(), new ModifyItemRequest(second.getId(), true, Set.of(), false));
+        flush();
+        itemService.modifyItem(user.getId(), new ModifyItemRequest(first.getId(), false, Set.of(), false));
+        flush();
+
+        assertEquals(List.of(second.getId(), first.getId()), ids(itemService.getChanges(user.getId(), token, 100)));
+    }
+
+    @Test
+    void getChanges_WithExpiredToken_ShouldBeGone() {
+        String expired = new ItemChangesToken(0, Instant.now().minus(Duration.ofDays(31))).encode();
+
+        assertThrows(GoneException.class, () -> itemService.getChanges(user.getId(), expired, 100));
+    }
+
+    @Test
+    void getChanges_WithInvalidToken_ShouldBeBadRequest() {
+        assertThrows(BadRequestException.class, () -> itemService.getChanges(user.getId(), "garbage", 100));
+        assertThrows(BadRequestException.class, () -> itemService.getChanges(user.getId(), null, 0));
+    }
+
+    @Test
+    void compact_ShouldKeepLastEntryOfEachItemAndRecentDeletions() {
+        itemService.modifyItem(user.getId(), new ModifyItemRequest(first.getId(), true, Set.of(), false));
+        itemService.deleteItem(user.getId(), second.getId());
+        flush();
+        jdbcTemplate.update("""
+                INSERT INTO item_changes (user_id, change_seq, item_id, deleted, changed_at)
+                VALUES (?, nextval('item_changes_seq'), -1, true, ?)""",
+                user.getId(), Timestamp.valueOf(LocalDateTime.ofInstant(
+                        Instant.now().minus(Duration.ofDays(40)), ZoneOffset.UTC)));
+
+        itemChangeLog.compact();
+
+        assertEquals(List.of(first.getId(), second.getId()), jdbcTemplate.queryForList(
+                "SELECT item_id FROM item_changes WHERE user_id = ? ORDER BY change_seq", Long.class, user.getId()));
+        assertEquals(List.of(second.getId()), jdbcTemplate.queryForList(
+                "SELECT item_id FROM item_changes WHERE user_id = ? AND deleted", Long.class, user.getId()));
+        assertEquals(List.of(first.getId()), ids(itemService.getChanges(user.getId(), null, 100)));
+    }
+}
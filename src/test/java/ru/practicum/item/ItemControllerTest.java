@@ -4,28 +4,45 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.common.BadRequestException;
+import ru.practicum.common.GoneException;
+import ru.practicum.common.NotFoundException;
+import ru.practicum.common.UserVersions;
 import ru.practicum.item.dto.AddItemRequest;
+import ru.practicum.item.dto.ItemBatchResult;
+import ru.practicum.item.dto.ItemChangesDto;
 import ru.practicum.item.dto.GetItemRequest;
 import ru.practicum.item.dto.ItemDto;
+import ru.practicum.item.dto.ItemFacetsDto;
+import ru.practicum.item.dto.ItemSelection;
 import ru.practicum.item.dto.ModifyItemRequest;
+import ru.practicum.item.dto.ModifyItemsRequest;
+import ru.practicum.item.model.ItemStatus;
 
 import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ItemController.class)
+@Import(UserVersions.class)
 class ItemControllerTest {
     @Autowired
     private ObjectMapper mapper;
@@ -36,6 +53,9 @@ class ItemControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private UserVersions userVersions;
+
     ItemDto itemDto = new ItemDto(
             1L,
             "https://ya.ru/",
@@ -46,7 +66,8 @@ class ItemControllerTest {
             false,
             true,
             "2022.07.03 00:00:00",
-            new HashSet<>(List.of("tag1", "tag2", "tag3"))
+            new HashSet<>(List.of("tag1", "tag2", "tag3")),
+            ItemStatus.RESOLVED
     );
 
     @Test
@@ -81,6 +102,52 @@ class ItemControllerTest {
                 .andExpect(jsonPath("$[0].id", is(itemDto.id()), Long.class));
     }
 
+    @Test
+    public void getFullPage_ShouldReturnNextCursor() throws Exception {
+        when(itemService.getItems(any(GetItemRequest.class))).thenReturn(List.of(itemDto));
+        String expectedCursor = ItemCursor.after(GetItemRequest.Sort.TITLE, itemDto).encode();
+
+        mvc.perform(get("/items")
+                        .header("X-Later-User-Id", 1)
+                        .param("sort", "title")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Later-Next-Cursor", expectedCursor));
+    }
+
+    @Test
+    public void getLastPage_ShouldNotReturnNextCursor() throws Exception {
+        when(itemService.getItems(any(GetItemRequest.class))).thenReturn(List.of(itemDto));
+
+        mvc.perform(get("/items")
+                        .header("X-Later-User-Id", 1)
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Later-Next-Cursor"));
+    }
+
+    @Test
+    public void getWithCursor_ShouldPassCursorToService() throws Exception {
+        when(itemService.getItems(any(GetItemRequest.class))).thenReturn(List.of());
+
+        mvc.perform(get("/items")
+                        .header("X-Later-User-Id", 1)
+                        .param("cursor", "abc"))
+                .andExpect(status().isOk());
+
+        verify(itemService).getItems(argThat(request -> "abc".equals(request.cursor())));
+    }
+
+    @Test
+    public void getWithInvalidCursor_ShouldReturnBadRequest() throws Exception {
+        when(itemService.getItems(any(GetItemRequest.class))).thenThrow(new BadRequestException("Invalid cursor"));
+
+        mvc.perform(get("/items")
+                        .header("X-Later-User-Id", 1)
+                        .param("cursor", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void addTest() throws Exception {
         AddItemRequest addItemRequest =
@@ -111,6 +178,50 @@ class ItemControllerTest {
                 .andExpect(jsonPath("$.tags", hasItems(itemDto.tags().toArray())));
     }
 
+    @Test
+    public void addPendingItemShouldReturnAccepted() throws Exception {
+        AddItemRequest addItemRequest = new AddItemRequest("https://ya.ru/", new HashSet<>(List.of("tag1")));
+        ItemDto pendingItemDto = ItemDto.builder()
+                .id(2L)
+                .normalUrl("https://ya.ru/")
+                .tags(new HashSet<>(List.of("tag1")))
+                .unread(true)
+                .status(ItemStatus.PENDING)
+                .build();
+
+        when(itemService.addNewItem(anyLong(), any(AddItemRequest.class))).thenReturn(pendingItemDto);
+
+        mvc.perform(post("/items")
+                        .header("X-Later-User-Id", 1)
+                        .content(mapper.writeValueAsString(addItemRequest))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id", is(pendingItemDto.id()), Long.class))
+                .andExpect(jsonPath("$.status", is("PENDING")));
+    }
+
+    @Test
+    public void getItemTest() throws Exception {
+        when(itemService.getItem(1L, 1L)).thenReturn(itemDto);
+
+        mvc.perform(get("/items/1")
+                        .header("X-Later-User-Id", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(itemDto.id()), Long.class))
+                .andExpect(jsonPath("$.status", is("RESOLVED")));
+    }
+
+    @Test
+    public void getItemWhenNotFoundShouldReturnNotFound() throws Exception {
+        when(itemService.getItem(1L, 99L)).thenThrow(new NotFoundException("Item with id 99 not found"));
+
+        mvc.perform(get("/items/99")
+                        .header("X-Later-User-Id", 1))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void deleteItemTest() throws Exception {
         doNothing().when(itemService).deleteItem(anyLong(), anyLong());
@@ -141,7 +252,8 @@ class ItemControllerTest {
                 false,
                 false,
                 "2022.07.03 00:00:00",
-                new HashSet<>(List.of("newTag1", "newTag2"))
+                new HashSet<>(List.of("newTag1", "newTag2")),
+                ItemStatus.RESOLVED
         );
 
         when(itemService.modifyItem(anyLong(), any(ModifyItemRequest.class))).thenReturn(updatedItemDto);
@@ -187,4 +299,147 @@ class ItemControllerTest {
                 .andExpect(jsonPath("$[0].id", is(itemDto.id()), Long.class));
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void searchTest() throws Exception {
+        when(itemService.search(1L, "яндекс поиск", 5)).thenReturn(List.of(itemDto));
+
+        mvc.perform(get("/items/search")
+                        .header("X-Later-User-Id", 1)
+                        .param("q", "яндекс поиск")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(itemDto.id()), Long.class))
+                .andExpect(jsonPath("$[0].title", is(itemDto.title()), String.class));
+    }
+
+    @Test
+    void search_WithBlankQuery_ShouldReturnBadRequest() throws Exception {
+        when(itemService.search(1L, "", 10)).thenThrow(new BadRequestException("Search query is empty"));
+
+        mvc.perform(get("/items/search")
+                        .header("X-Later-User-Id", 1)
+                        .param("q", ""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void get_WithCurrentEtag_ShouldReturnNotModifiedWithoutCallingService() throws Exception {
+        when(itemService.getItems(any(GetItemRequest.class))).thenReturn(List.of(itemDto));
+        String etag = mvc.perform(get("/items").header("X-Later-User-Id", 1))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/items").header("X-Later-User-Id", 1).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+        mvc.perform(get("/items/1").header("X-Later-User-Id", 1).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        verify(itemService, times(1)).getItems(any(GetItemRequest.class));
+        verify(itemService, never()).getItem(anyLong(), anyLong());
+    }
+
+    @Test
+    void get_AfterUserDataChanged_ShouldReturnNewEtag() throws Exception {
+        when(itemService.getItems(any(GetItemRequest.class))).thenReturn(List.of(itemDto));
+        String etag = mvc.perform(get("/items").header("X-Later-User-Id", 1))
+                .andReturn().getResponse().getHeader("ETag");
+
+        userVersions.changed(1);
+
+        mvc.perform(get("/items").header("X-Later-User-Id", 1).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(itemDto.id()), Long.class));
+        // версия другого пользователя не совпадает с версией первого
+        mvc.perform(get("/items").header("X-Later-User-Id", 2).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getChanges_ShouldReturnItemsDeletedIdsAndToken() throws Exception {
+        when(itemService.getChanges(1L, "abc", 1000)).thenReturn(ItemChangesDto.builder()
+                .items(List.of(itemDto))
+                .deleted(List.of(7L))
+                .token("def")
+                .hasMore(false)
+                .build());
+
+        mvc.perform(get("/items/changes")
+                        .header("X-Later-User-Id", 1)
+                        .param("since", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id", is(itemDto.id()), Long.class))
+                .andExpect(jsonPath("$.deleted[0]", is(7L), Long.class))
+                .andExpect(jsonPath("$.token", is("def")))
+                .andExpect(jsonPath("$.hasMore", is(false)));
+    }
+
+    @Test
+    void getChanges_WithExpiredToken_ShouldReturnGone() throws Exception {
+        when(itemService.getChanges(anyLong(), any(), anyInt())).thenThrow(new GoneException("Sync token expired"));
+
+        mvc.perform(get("/items/changes")
+                        .header("X-Later-User-Id", 1)
+                        .param("since", "abc"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void getFacets_ShouldPassFiltersToService() throws Exception {
+        when(itemService.getFacets(any(GetItemRequest.class))).thenReturn(ItemFacetsDto.builder()
+                .states(Map.of("unread", 2L, "read", 1L, "all", 3L))
+                .contentTypes(Map.of("article", 2L, "video", 0L, "image", 0L, "all", 2L))
+                .tags(Map.of("java", 2L))
+                .build());
+
+        mvc.perform(get("/items/facets")
+                        .header("X-Later-User-Id", 1)
+                        .param("state", "read")
+                        .param("contentType", "article")
+                        .param("tags", "java", "spring"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.states.all", is(3)))
+                .andExpect(jsonPath("$.contentTypes.article", is(2)))
+                .andExpect(jsonPath("$.tags.java", is(2)));
+
+        verify(itemService).getFacets(argThat(request -> request.userId() == 1
+                && request.state() == GetItemRequest.State.READ
+                && request.contentType() == GetItemRequest.ContentType.ARTICLE
+                && request.tags().equals(Set.of("java", "spring"))));
+    }
+
+    @Test
+    void modifyItems_ShouldReturnAffectedCount() throws Exception {
+        when(itemService.modifyItems(anyLong(), any(ModifyItemsRequest.class))).thenReturn(new ItemBatchResult(3));
+
+        mvc.perform(patch("/items/batch")
+                        .header("X-Later-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"selection": {"state": "unread", "tags": ["java"]}, "read": true}"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected", is(3)));
+
+        verify(itemService).modifyItems(eq(1L), argThat(request -> request.read()
+                && request.selection().state().equals("unread")
+                && request.selection().tags().equals(Set.of("java"))
+                && request.selection().itemIds() == null));
+    }
+
+    @Test
+    void deleteItems_ShouldPassItemIdsToService() throws Exception {
+        when(itemService.deleteItems(anyLong(), any(ItemSelection.class))).thenReturn(new ItemBatchResult(2));
+
+        mvc.perform(post("/items/batch/delete")
+                        .header("X-Later-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(ItemSelection.builder().itemIds(List.of(1L, 2L)).build())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected", is(2)));
+
+        verify(itemService).deleteItems(1L, ItemSelection.builder().itemIds(List.of(1L, 2L)).build());
+    }
+}
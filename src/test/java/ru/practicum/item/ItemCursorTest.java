@@ -0,0 +1,58 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.common.BadRequestException;
+import ru.practicum.item.dto.GetItemRequest;
+import ru.practicum.item.dto.ItemDto;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemCursorTest {
+    private final ItemDto last = ItemDto.builder()
+            .id(42L)
+            .title("Заголовок: 7:колонки")
+            .resolvedUrl("https://ya.ru/")
+            .dateResolved("2022-07-03T10:15:30.123456Z")
+            .build();
+
+    @Test
+    void encodeAndDecode_ShouldKeepSortKeyAndId() {
+        for (GetItemRequest.Sort sort : GetItemRequest.Sort.values()) {
+            ItemCursor cursor = ItemCursor.after(sort, last);
+
+            assertEquals(cursor, ItemCursor.decode(cursor.encode(), sort));
+        }
+        assertEquals("Заголовок: 7:колонки",
+                ItemCursor.decode(ItemCursor.after(GetItemRequest.Sort.TITLE, last).encode(),
+                        GetItemRequest.Sort.TITLE).value());
+        assertEquals(Instant.parse("2022-07-03T10:15:30.123456Z"),
+                ItemCursor.decode(ItemCursor.after(GetItemRequest.Sort.NEWEST, last).encode(),
+                        GetItemRequest.Sort.NEWEST).instantValue());
+    }
+
+    @Test
+    void encodeAndDecode_ShouldKeepNullValue() {
+        ItemDto pending = last.toBuilder().dateResolved(null).build();
+
+        ItemCursor cursor = ItemCursor.decode(ItemCursor.after(GetItemRequest.Sort.NEWEST, pending).encode(),
+                GetItemRequest.Sort.NEWEST);
+
+        assertNull(cursor.value());
+        assertEquals(42L, cursor.id());
+    }
+
+    @Test
+    void decode_WithAnotherSort_ShouldThrowBadRequest() {
+        String cursor = ItemCursor.after(GetItemRequest.Sort.TITLE, last).encode();
+
+        assertThrows(BadRequestException.class, () -> ItemCursor.decode(cursor, GetItemRequest.Sort.SITE));
+    }
+
+    @Test
+    void decode_Garbage_ShouldThrowBadRequest() {
+        assertThrows(BadRequestException.class, () -> ItemCursor.decode("not a cursor!", GetItemRequest.Sort.TITLE));
+        assertThrows(BadRequestException.class, () -> ItemCursor.decode("MTI6YWJj", GetItemRequest.Sort.TITLE));
+    }
+}
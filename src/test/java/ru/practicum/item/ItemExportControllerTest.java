@@ -0,0 +1,86 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.common.NotFoundException;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ItemExportController.class)
+class ItemExportControllerTest {
+    @MockitoBean
+    private ItemExportService itemExportService;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void exportItems_ShouldStreamNdjsonByDefault() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("{\"url\":\"https://ya.ru/\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(itemExportService).exportItems(eq(1L), eq(ItemExportService.Format.NDJSON), any());
+
+        MvcResult result = mvc.perform(get("/items/export")
+                        .header("X-Later-User-Id", 1))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"later-items.ndjson\""))
+                .andExpect(content().string("{\"url\":\"https://ya.ru/\"}\n"));
+    }
+
+    @Test
+    void exportItems_Html_ShouldPassHtmlFormat() throws Exception {
+        MvcResult result = mvc.perform(get("/items/export")
+                        .header("X-Later-User-Id", 1)
+                        .param("format", "html"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/html;charset=UTF-8"));
+
+        verify(itemExportService).exportItems(eq(1L), eq(ItemExportService.Format.HTML), any());
+    }
+
+    @Test
+    void exportItems_UnknownFormat_ShouldReturnBadRequest() throws Exception {
+        mvc.perform(get("/items/export")
+                        .header("X-Later-User-Id", 1)
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(itemExportService);
+    }
+
+    @Test
+    void exportItems_UnknownUser_ShouldReturnNotFound() throws Exception {
+        doThrow(new NotFoundException("User with id 1 not found")).when(itemExportService).checkUser(1L);
+
+        mvc.perform(get("/items/export")
+                        .header("X-Later-User-Id", 1))
+                .andExpect(status().isNotFound());
+
+        verify(itemExportService, never()).exportItems(anyLong(), any(), any());
+    }
+}
@@ -0,0 +1,194 @@
+package ru.practicum.item;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.item.dto.ExportedItem;
+import ru.practicum.item.model.Item;
+import ru.practicum.item.model.ItemStatus;
+import ru.practicum.note.ItemNote;
+import ru.practicum.user.User;
+import ru.practicum.user.UserRepository;
+import ru.practicum.user.UserState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Выгрузка из БД: запрос с подзапросами тэгов и заметок, чтение курсором
+// (fetch-size меньше числа ссылок - строки читаются за несколько обращений)
+// и повторная загрузка выгрузки через ItemImportReader
+@Transactional
+@SpringBootTest(
+        properties = {
+                "spring.datasource.url=jdbc:postgresql://localhost:5432/later",
+                "item-export.fetch-size=2"
+        },
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemExportTest {
+    private final EntityManager em;
+    private final ItemExportService itemExportService;
+    private final ItemRepository itemRepository;
+    private final TagRepository tagRepository;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    @MockitoBean
+    private UrlMetaDataRetriever urlMetaDataRetriever;
+
+    private User user;
+    private User empty;
+    private Item article;
+    private Item bare;
+    private Item video;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(user("export@mail.com"));
+        empty = userRepository.save(user("empty-export@mail.com"));
+        User other = userRepository.save(user("other-export@mail.com"));
+        article = save(user, "https://export.ru/1", "Первая, \"статья\"", true, "text",
+                "2024-01-01T00:00:00Z", "java", "spring");
+        bare = save(user, "https://export.ru/2", "Без тэгов", false, "text", "2024-01-02T00:00:00Z");
+        video = save(user, "https://export.ru/3", "Видео", true, "video", "2024-01-03T00:00:00Z", "later");
+        save(other, "https://export.ru/4", "Чужая", true, "text", "2024-01-01T00:00:00Z", "java");
+        note(article, "первая\nзаметка", "2024-02-01T10:00:00Z");
+        note(article, "<вторая>", "2024-02-02T10:00:00Z");
+        note(video, "о видео", "2024-02-03T10:00:00Z");
+        em.flush();
+        em.clear();
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .email(email)
+                .firstName("Export")
+                .lastName("Test")
+                .state(UserState.ACTIVE)
+                .build();
+    }
+
+    private Item save(User owner, String url, String title, boolean unread, String mimeType, String dateResolved,
+                      String... tags) {
+        return itemRepository.save(Item.builder()
+                .user(owner)
+                .url(url)
+                .resolvedUrl(url)
+                .mimeType(mimeType)
+                .title(title)
+                .dateResolved(Instant.parse(dateResolved))
+                .unread(unread)
+                .tags(tagRepository.findOrCreate(owner.getId(), Set.of(tags)))
+                .build());
+    }
+
+    private void note(Item item, String text, String date) {
+        em.persist(ItemNote.builder().item(item).text(text).itemNoteDate(Instant.parse(date)).build());
+    }
+
+    private String export(User owner, ItemExportService.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        itemExportService.exportItems(owner.getId(), format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private List<ExportedItem> exportNdjson(User owner) throws IOException {
+        List<ExportedItem> items = new ArrayList<>();
+        for (String line : export(owner, ItemExportService.Format.NDJSON).lines().toList()) {
+            items.add(objectMapper.readValue(line, ExportedItem.class));
+        }
+        return items;
+    }
+
+    @Test
+    void exportItems_Ndjson_ShouldExportOwnItemsWithTagsAndNotes() throws IOException {
+        List<ExportedItem> items = exportNdjson(user);
+
+        assertEquals(List.of(article.getId(), bare.getId(), video.getId()),
+                items.stream().map(ExportedItem::id).toList());
+
+        ExportedItem first = items.getFirst();
+        assertEquals("https://export.ru/1", first.url());
+        assertEquals("Первая, \"статья\"", first.title());
+        assertEquals("text", first.mimeType());
+        assertTrue(first.unread());
+        assertEquals("2024-01-01T00:00:00Z", first.dateResolved());
+        assertEquals(ItemStatus.RESOLVED, first.status());
+        assertEquals(List.of("java", "spring"), first.tags());
+        assertEquals(List.of(new ExportedItem.Note("первая\nзаметка", "2024-02-01T10:00:00Z"),
+                new ExportedItem.Note("<вторая>", "2024-02-02T10:00:00Z")), first.notes());
+
+        ExportedItem second = items.get(1);
+        assertFalse(second.unread());
+        assertEquals(List.of(), second.tags());
+        assertEquals(List.of(), second.notes());
+
+        assertEquals(List.of("later"), items.get(2).tags());
+        assertEquals(List.of(new ExportedItem.Note("о видео", "2024-02-03T10:00:00Z")), items.get(2).notes());
+    }
+
+    @Test
+    void exportItems_Csv_ShouldWriteRowPerItem() throws IOException {
+        List<String> lines = export(user, ItemExportService.Format.CSV).lines().toList();
+
+        assertEquals(4, lines.size());
+        assertEquals(ItemExportWriter.CSV_HEADER.strip(), lines.getFirst());
+        assertEquals("https://export.ru/1,\"Первая, \"\"статья\"\"\",java|spring,true,2024-01-01T00:00:00Z,"
+                     + "https://export.ru/1,text,false,false,RESOLVED,первая заметка|<вторая>", lines.get(1));
+        assertEquals("https://export.ru/2,Без тэгов,,false,2024-01-02T00:00:00Z,"
+                     + "https://export.ru/2,text,false,false,RESOLVED,", lines.get(2));
+    }
+
+    @Test
+    void exportItems_Html_ShouldWriteBookmarks() throws IOException {
+        String html = export(user, ItemExportService.Format.HTML);
+
+        assertTrue(html.startsWith(ItemExportWriter.HTML_HEADER));
+        assertTrue(html.endsWith(ItemExportWriter.HTML_FOOTER));
+        assertTrue(html.contains("<DT><A HREF=\"https://export.ru/1\" ADD_DATE=\"1704067200\" TAGS=\"java,spring\""
+                                 + " TOREAD=\"1\">Первая, &quot;статья&quot;</A>\n"
+                                 + "    <DD>первая<br>заметка<br>&lt;вторая&gt;\n"));
+        assertTrue(html.contains("<DT><A HREF=\"https://export.ru/2\" ADD_DATE=\"1704153600\">Без тэгов</A>\n"
+                                 + "    <DT>"));
+        assertFalse(html.contains("https://export.ru/4"));
+    }
+
+    @Test
+    void exportItems_NdjsonAndCsv_ShouldBeAcceptedByImport() throws IOException {
+        for (ItemExportService.Format format : List.of(ItemExportService.Format.NDJSON,
+                ItemExportService.Format.CSV)) {
+            ItemImportReader reader = new ItemImportReader(ItemImportService.Format.valueOf(format.name()),
+                    new StringReader(export(user, format)), objectMapper);
+
+            List<ItemImportReader.Entry> entries = reader.next(10);
+
+            assertTrue(entries.stream().allMatch(ItemImportReader.Entry::isValid), format.name());
+            assertEquals(List.of("https://export.ru/1", "https://export.ru/2", "https://export.ru/3"),
+                    entries.stream().map(ItemImportReader.Entry::url).toList(), format.name());
+            assertEquals(List.of(Set.of("java", "spring"), Set.of(), Set.of("later")),
+                    entries.stream().map(ItemImportReader.Entry::tags).toList(), format.name());
+        }
+    }
+
+    @Test
+    void exportItems_UserWithoutItems_ShouldWriteEmptyFiles() throws IOException {
+        assertEquals("", export(empty, ItemExportService.Format.NDJSON));
+        assertEquals(ItemExportWriter.CSV_HEADER, export(empty, ItemExportService.Format.CSV));
+        assertEquals(ItemExportWriter.HTML_HEADER + ItemExportWriter.HTML_FOOTER,
+                export(empty, ItemExportService.Format.HTML));
+    }
+}
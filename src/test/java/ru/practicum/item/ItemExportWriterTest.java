@@ -0,0 +1,92 @@
+package ru.practicum.item;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.practicum.item.dto.ExportedItem;
+import ru.practicum.item.model.ItemStatus;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemExportWriterTest {
+    // настройки как у ObjectMapper приложения: неизвестные поля при чтении пропускаются
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final ExportedItem item = ExportedItem.builder()
+            .id(1L)
+            .url("https://ya.ru/?a=1&b=2")
+            .resolvedUrl("https://ya.ru/")
+            .mimeType("text")
+            .title("Яндекс, \"поиск\"")
+            .unread(true)
+            .dateResolved("2024-01-02T03:04:05Z")
+            .status(ItemStatus.RESOLVED)
+            .tags(List.of("news", "tech"))
+            .notes(List.of(new ExportedItem.Note("первая\nзаметка", "2024-01-03T00:00:00Z"),
+                    new ExportedItem.Note("<вторая>", "2024-01-04T00:00:00Z")))
+            .build();
+
+    private String export(ItemExportService.Format format, ExportedItem... items) throws IOException {
+        StringWriter out = new StringWriter();
+        ItemExportWriter writer = new ItemExportWriter(format, out, objectMapper);
+        writer.begin();
+        for (ExportedItem exportedItem : items) {
+            writer.write(exportedItem);
+        }
+        writer.end();
+        return out.toString();
+    }
+
+    @Test
+    void write_Ndjson_ShouldWriteObjectPerLine() throws IOException {
+        String result = export(ItemExportService.Format.NDJSON, item, item.toBuilder().id(2L).build());
+
+        List<String> lines = result.lines().toList();
+        assertEquals(2, lines.size());
+        assertEquals(item, objectMapper.readValue(lines.getFirst(), ExportedItem.class));
+    }
+
+    @Test
+    void write_Csv_ShouldQuoteFieldsAndKeepItemOnOneLine() throws IOException {
+        String result = export(ItemExportService.Format.CSV, item);
+
+        assertEquals(ItemExportWriter.CSV_HEADER
+                     + "https://ya.ru/?a=1&b=2,\"Яндекс, \"\"поиск\"\"\",news|tech,true,2024-01-02T03:04:05Z,"
+                     + "https://ya.ru/,text,false,false,RESOLVED,первая заметка|<вторая>\n", result);
+    }
+
+    @Test
+    void write_ShouldProduceFilesAcceptedByImport() throws IOException {
+        for (ItemExportService.Format format : List.of(ItemExportService.Format.NDJSON,
+                ItemExportService.Format.CSV)) {
+            ItemImportReader reader = new ItemImportReader(ItemImportService.Format.valueOf(format.name()),
+                    new StringReader(export(format, item)), objectMapper);
+
+            List<ItemImportReader.Entry> entries = reader.next(10);
+            assertEquals(1, entries.size(), format.name());
+            assertTrue(entries.getFirst().isValid(), format.name());
+            assertEquals("https://ya.ru/?a=1&b=2", entries.getFirst().url());
+            assertEquals(Set.of("news", "tech"), entries.getFirst().tags());
+        }
+    }
+
+    @Test
+    void write_Html_ShouldWriteNetscapeBookmarks() throws IOException {
+        String result = export(ItemExportService.Format.HTML, item,
+                item.toBuilder().id(2L).url("https://x.ru/").title(null).unread(false).dateResolved(null)
+                        .tags(List.of()).notes(List.of()).build());
+
+        assertTrue(result.startsWith("<!DOCTYPE NETSCAPE-Bookmark-file-1>"));
+        assertTrue(result.contains("<DT><A HREF=\"https://ya.ru/?a=1&amp;b=2\" ADD_DATE=\"1704164645\""
+                                   + " TAGS=\"news,tech\" TOREAD=\"1\">Яндекс, &quot;поиск&quot;</A>\n"
+                                   + "    <DD>первая<br>заметка<br>&lt;вторая&gt;\n"));
+        assertTrue(result.contains("<DT><A HREF=\"https://x.ru/\">https://x.ru/</A>\n"));
+        assertTrue(result.endsWith(ItemExportWriter.HTML_FOOTER));
+    }
+}
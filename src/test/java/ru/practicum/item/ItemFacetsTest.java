@@ -0,0 +1,172 @@
+package ru.practicum.item;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.item.dto.GetItemRequest;
+import ru.practicum.item.dto.ItemFacetsDto;
+import ru.practicum.item.dto.ModifyItemRequest;
+import ru.practicum.item.model.Item;
+import ru.practicum.user.User;
+import ru.practicum.user.UserRepository;
+import ru.practicum.user.UserState;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Счётчики item_counts изменяют обычные (не отложенные) триггеры - их результат
+// виден в той же откатываемой транзакции теста
+@Transactional
+@SpringBootTest(
+        properties = "spring.datasource.url=jdbc:postgresql://localhost:5432/later",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemFacetsTest {
+    private final EntityManager em;
+    private final ItemService itemService;
+    private final ItemRepository itemRepository;
+    private final TagRepository tagRepository;
+    private final UserRepository userRepository;
+    private final ItemCountRepository itemCountRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private UrlMetaDataRetriever urlMetaDataRetriever;
+
+    private User user;
+    private Item java;
+    private Item video;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(user("facets@mail.com"));
+        User other = userRepository.save(user("other-facets@mail.com"));
+        java = save(user, "https://facets.ru/1", true, "text", "java");
+        save(user, "https://facets.ru/2", false, "text", "java", "spring");
+        video = save(user, "https://facets.ru/3", true, "video", "spring");
+        save(user, "https://facets.ru/4", true, "image");
+        save(other, "https://facets.ru/5", true, "text", "java");
+        flush();
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .email(email)
+                .firstName("Facets")
+                .lastName("Test")
+                .state(UserState.ACTIVE)
+                .build();
+    }
+
+    private Item save(User owner, String url, boolean unread, String mimeType, String... tags) {
+        return itemRepository.save(Item.builder()
+                .user(owner)
+                .url(url)
+                .resolvedUrl(url)
+                .mimeType(mimeType)
+                .title(url)
+                .dateResolved(Instant.parse("2024-01-01T00:00:00Z"))
+                .unread(unread)
+                .tags(tagRepository.findOrCreate(owner.getId(), Set.of(tags)))
+                .build());
+    }
+
+    private void flush() {
+        em.flush();
+        em.clear();
+    }
+
+    private ItemFacetsDto facets(GetItemRequest.State state, GetItemRequest.ContentType contentType,
+                                 String... tags) {
+        return itemService.getFacets(GetItemRequest.builder()
+                .userId(user.getId())
+                .state(state)
+                .contentType(contentType)
+                .tags(Set.of(tags))
+                .build());
+    }
+
+    private static Map<String, Long> states(long unread, long read, long all) {
+        return Map.of("unread", unread, "read", read, "all", all);
+    }
+
+    private static Map<String, Long> contentTypes(long article, long video, long image, long all) {
+        return Map.of("article", article, "video", video, "image", image, "all", all);
+    }
+
+    @Test
+    void getFacets_WithoutTags_ShouldCountEachGroupWithOtherFilters() {
+        ItemFacetsDto facets = facets(GetItemRequest.State.UNREAD, GetItemRequest.ContentType.ALL);
+
+        assertEquals(states(3, 1, 4), facets.states());
+        assertEquals(contentTypes(1, 1, 1, 3), facets.contentTypes());
+        assertEquals(Map.of("java", 1L, "spring", 1L), facets.tags());
+    }
+
+    @Test
+    void getFacets_ByContentType_ShouldCountTagsOfThatType() {
+        ItemFacetsDto facets = facets(GetItemRequest.State.ALL, GetItemRequest.ContentType.ARTICLE);
+
+        assertEquals(states(1, 1, 2), facets.states());
+        assertEquals(contentTypes(2, 1, 1, 4), facets.contentTypes());
+        // по убыванию числа ссылок
+        assertEquals(List.of("java", "spring"), List.copyOf(facets.tags().keySet()));
+        assertEquals(Map.of("java", 2L, "spring", 1L), facets.tags());
+    }
+
+    @Test
+    void getFacets_ByTag_ShouldCountItemsWithTag() {
+        ItemFacetsDto facets = facets(GetItemRequest.State.ALL, GetItemRequest.ContentType.ALL, "spring");
+
+        assertEquals(states(1, 1, 2), facets.states());
+        assertEquals(contentTypes(1, 1, 0, 2), facets.contentTypes());
+        assertEquals(Map.of("java", 2L, "spring", 2L), facets.tags());
+    }
+
+    @Test
+    void getFacets_ByAnyOfTags_ShouldCountEachItemOnce() {
+        ItemFacetsDto facets = facets(GetItemRequest.State.ALL, GetItemRequest.ContentType.ALL, "java", "spring");
+
+        assertEquals(states(2, 1, 3), facets.states());
+        assertEquals(contentTypes(2, 1, 0, 3), facets.contentTypes());
+    }
+
+    @Test
+    void getFacets_AfterChanges_ShouldReflectThem() {
+        itemService.modifyItem(user.getId(), new ModifyItemRequest(java.getId(), true, Set.of("kotlin"), true));
+        itemService.deleteItem(user.getId(), video.getId());
+        flush();
+
+        ItemFacetsDto facets = facets(GetItemRequest.State.ALL, GetItemRequest.ContentType.ALL);
+
+        assertEquals(states(1, 2, 3), facets.states());
+        assertEquals(contentTypes(2, 0, 1, 3), facets.contentTypes());
+        assertEquals(Map.of("java", 1L, "spring", 1L, "kotlin", 1L), facets.tags());
+    }
+
+    @Test
+    void compact_ShouldKeepCountsAndFoldIncrements() {
+        itemService.modifyItem(user.getId(), new ModifyItemRequest(java.getId(), true, Set.of(), false));
+        flush();
+        ItemFacetsDto before = facets(GetItemRequest.State.UNREAD, GetItemRequest.ContentType.ALL);
+
+        itemCountRepository.compact(user.getId());
+
+        assertEquals(before, facets(GetItemRequest.State.UNREAD, GetItemRequest.ContentType.ALL));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from item_counts where user_id = ? and not compacted", Long.class, user.getId()));
+        // по строке на сочетание тэга, состояния и типа: 3 без тэга и 3 с тэгами
+        assertEquals(6, jdbcTemplate.queryForObject(
+                "select count(*) from item_counts where user_id = ?", Long.class, user.getId()));
+    }
+}
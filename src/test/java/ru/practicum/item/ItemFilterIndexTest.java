@@ -0,0 +1,273 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.common.UserVersions;
+import ru.practicum.item.dto.GetItemRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemFilterIndexTest {
+    private static final long USER_ID = 1;
+
+    // ссылки и журнал изменений в памяти вместо БД
+    private final Map<Long, ItemFilterRepository.ItemFilters> items = new TreeMap<>();
+    private final Map<Long, Set<String>> tags = new HashMap<>();
+    private final List<ItemChangeRepository.Change> changes = new ArrayList<>();
+    private final AtomicInteger builds = new AtomicInteger();
+    private final AtomicInteger statements = new AtomicInteger();
+    private UserVersions versions;
+    private ItemFilterIndex index;
+    // вызывается в начале построения индекса
+    private Runnable onBuild = () -> {
+    };
+
+    @BeforeEach
+    void setUp() {
+        versions = new UserVersions(1000);
+        index = index(3, 3, 10);
+        save(1, true, "text", "java");
+        save(2, false, "text", "java", "spring");
+        save(3, true, "video", "spring");
+        save(4, true, "image");
+        save(5, false, "text", "rare");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private ItemFilterIndex index(long minItems, int maxIds, int maxCatchUp) {
+        return new ItemFilterIndex(versions, new FakeFilterRepository(), new FakeChangeRepository(), true,
+                minItems, maxIds, maxCatchUp, 1000);
+    }
+
+    private void save(long id, boolean unread, String mimeType, String... names) {
+        items.put(id, new ItemFilterRepository.ItemFilters(id, unread, mimeType));
+        tags.put(id, new HashSet<>(Set.of(names)));
+        changes.add(new ItemChangeRepository.Change(id, changes.size() + 1, false));
+        versions.changed(USER_ID);
+    }
+
+    private void delete(long id) {
+        items.remove(id);
+        tags.remove(id);
+        changes.add(new ItemChangeRepository.Change(id, changes.size() + 1, true));
+        versions.changed(USER_ID);
+    }
+
+    private static GetItemRequest request(GetItemRequest.State state, GetItemRequest.ContentType contentType,
+                                          String... tags) {
+        return GetItemRequest.builder()
+                .userId(USER_ID)
+                .state(state)
+                .contentType(contentType)
+                .sort(GetItemRequest.Sort.NEWEST)
+                .limit(10)
+                .tags(Set.of(tags))
+                .build();
+    }
+
+    private static GetItemRequest request(String... tags) {
+        return request(GetItemRequest.State.ALL, GetItemRequest.ContentType.ALL, tags);
+    }
+
+    @Test
+    void find_ShouldCombineFilters() {
+        assertEquals(List.of(1L, 2L, 3L), index.find(request("java", "spring")));
+        assertEquals(List.of(1L, 3L), index.find(request(GetItemRequest.State.UNREAD,
+                GetItemRequest.ContentType.ALL, "java", "spring")));
+        assertEquals(List.of(2L), index.find(request(GetItemRequest.State.READ,
+                GetItemRequest.ContentType.ARTICLE, "java", "spring")));
+        assertEquals(List.of(4L), index.find(request(GetItemRequest.State.UNREAD,
+                GetItemRequest.ContentType.IMAGE)));
+        assertEquals(List.of(), index.find(request("unknown")));
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    void find_WithoutFilters_ShouldLeaveQueryToDatabase() {
+        assertNull(index.find(request()));
+        assertEquals(0, statements.get());
+    }
+
+    @Test
+    void find_WhenTooManyMatches_ShouldLeaveQueryToDatabase() {
+        assertNull(index.find(request("java", "spring", "rare")));
+    }
+
+    @Test
+    void find_ForUserWithFewItems_ShouldNotBuildIndex() {
+        index = index(10, 3, 10);
+
+        assertNull(index.find(request("rare")));
+        assertNull(index.find(request("rare")));
+
+        assertEquals(0, builds.get());
+        // пока данные не изменились, число ссылок не проверяется заново
+        assertEquals(1, statements.get());
+    }
+
+    @Test
+    void find_WithoutChanges_ShouldNotQueryDatabase() {
+        index.find(request("rare"));
+        int afterBuild = statements.get();
+
+        assertEquals(List.of(5L), index.find(request("rare")));
+        assertEquals(afterBuild, statements.get());
+    }
+
+    @Test
+    void find_AfterChanges_ShouldCatchUpFromChangeLog() {
+        index.find(request("rare"));
+
+        save(1, false, "text", "rare");
+        save(6, true, "video", "rare", "java");
+        delete(5);
+
+        assertEquals(List.of(1L, 6L), index.find(request("rare")));
+        assertEquals(List.of(2L), index.find(request("java", "spring").toBuilder()
+                .state(GetItemRequest.State.READ).contentType(GetItemRequest.ContentType.ARTICLE).build()));
+        assertEquals(List.of(3L, 6L), index.find(request(GetItemRequest.State.UNREAD,
+                GetItemRequest.ContentType.VIDEO)));
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    void find_AfterManyChanges_ShouldRebuild() {
+        index = index(3, 3, 1);
+        index.find(request("rare"));
+
+        save(1, false, "text", "rare");
+        save(2, false, "text", "rare");
+
+        assertEquals(List.of(1L, 2L, 5L), index.find(request("rare")));
+        assertEquals(List.of(), index.find(request("java")));
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void find_InTransactionThatChangedItems_ShouldLeaveQueryToDatabase() {
+        TransactionSynchronizationManager.initSynchronization();
+        versions.changed(USER_ID);
+
+        assertNull(index.find(request("rare")));
+        assertEquals(0, statements.get());
+    }
+
+    @Test
+    void find_WhileIndexIsBuilt_ShouldLeaveQueryToDatabaseWithoutWaiting() throws Exception {
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        onBuild = () -> {
+            building.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() -> index.find(request("rare")));
+        try {
+            assertTrue(building.await(5, TimeUnit.SECONDS));
+
+            assertNull(index.find(request("rare")));
+            assertFalse(first.isDone());
+        } finally {
+            release.countDown();
+        }
+        assertEquals(List.of(5L), first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, builds.get());
+    }
+
+    private class FakeFilterRepository extends ItemFilterRepository {
+        FakeFilterRepository() {
+            super(null);
+        }
+
+        @Override
+        long countItems(long userId) {
+            statements.incrementAndGet();
+            return items.size();
+        }
+
+        @Override
+        long lastChangeSeq(long userId) {
+            statements.incrementAndGet();
+            return changes.size();
+        }
+
+        @Override
+        void findItems(long userId, Consumer<ItemFilters> consumer) {
+            statements.incrementAndGet();
+            builds.incrementAndGet();
+            onBuild.run();
+            items.values().forEach(consumer);
+        }
+
+        @Override
+        void findItems(long userId, Collection<Long> itemIds, Consumer<ItemFilters> consumer) {
+            statements.incrementAndGet();
+            itemIds.stream().filter(items::containsKey).map(items::get).forEach(consumer);
+        }
+
+        @Override
+        void findTags(long userId, BiConsumer<Long, String> consumer) {
+            statements.incrementAndGet();
+            tags.forEach((itemId, names) -> names.forEach(name -> consumer.accept(itemId, name)));
+        }
+
+        @Override
+        void findTags(Collection<Long> itemIds, BiConsumer<Long, String> consumer) {
+            statements.incrementAndGet();
+            itemIds.forEach(itemId -> tags.getOrDefault(itemId, Set.of())
+                    .forEach(name -> consumer.accept(itemId, name)));
+        }
+    }
+
+    private class FakeChangeRepository extends ItemChangeRepository {
+        FakeChangeRepository() {
+            super(null);
+        }
+
+        // у ссылки - только последняя запись, как в ItemChangeRepository.FIND_CHANGES
+        @Override
+        List<Change> findChanges(long userId, long afterSeq, int limit) {
+            statements.incrementAndGet();
+            Map<Long, Change> last = new LinkedHashMap<>();
+            changes.stream()
+                    .filter(change -> change.changeSeq() > afterSeq)
+                    .forEach(change -> last.put(change.itemId(), change));
+            return last.values().stream()
+                    .sorted(Comparator.comparingLong(Change::changeSeq))
+                    .limit(limit)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.common.NotFoundException;
+import ru.practicum.item.dto.ItemImportResult;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ItemImportController.class)
+class ItemImportControllerTest {
+    @MockitoBean
+    private ItemImportService itemImportService;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importItems_ShouldStreamResultsAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Reader source = invocation.getArgument(2);
+            assertEquals("{\"url\": \"https://ya.ru/\"}", new BufferedReader(source).readLine());
+            Consumer<List<ItemImportResult>> listener = invocation.getArgument(3);
+            listener.accept(List.of(new ItemImportResult(1, "https://ya.ru/", ItemImportResult.Status.CREATED,
+                    10L, null)));
+            listener.accept(List.of(new ItemImportResult(2, "https://x.ru/", ItemImportResult.Status.FAILED,
+                    null, "boom")));
+            return null;
+        }).when(itemImportService).importItems(eq(1L), eq(ItemImportService.Format.NDJSON), any(), any());
+
+        MvcResult result = mvc.perform(post("/items/import")
+                        .header("X-Later-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"url\": \"https://ya.ru/\"}\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("""
+                        {"line":1,"url":"https://ya.ru/","status":"CREATED","itemId":10,"error":null}
+                        {"line":2,"url":"https://x.ru/","status":"FAILED","itemId":null,"error":"boom"}
+                        """));
+    }
+
+    @Test
+    void importItems_Csv_ShouldPassCsvFormat() throws Exception {
+        MvcResult result = mvc.perform(post("/items/import")
+                        .header("X-Later-User-Id", 1)
+                        .contentType("text/csv")
+                        .content("https://ya.ru/\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        verify(itemImportService).importItems(eq(1L), eq(ItemImportService.Format.CSV), any(), any());
+    }
+
+    @Test
+    void importItems_UnknownUser_ShouldReturnNotFound() throws Exception {
+        doThrow(new NotFoundException("User with id 1 not found")).when(itemImportService).checkUser(1L);
+
+        mvc.perform(post("/items/import")
+                        .header("X-Later-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"url\": \"https://ya.ru/\"}\n"))
+                .andExpect(status().isNotFound());
+
+        verify(itemImportService, never()).importItems(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void importItems_UnsupportedContentType_ShouldBeRejected() throws Exception {
+        mvc.perform(post("/items/import")
+                        .header("X-Later-User-Id", 1)
+                        .contentType(MediaType.APPLICATION_XML)
+                        .content("<items/>"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+}
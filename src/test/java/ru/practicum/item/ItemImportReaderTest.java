@@ -0,0 +1,69 @@
+package ru.practicum.item;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemImportReaderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ItemImportReader reader(ItemImportService.Format format, String content) {
+        return new ItemImportReader(format, new StringReader(content), objectMapper);
+    }
+
+    @Test
+    void next_ShouldReturnEntriesInPortions() {
+        ItemImportReader reader = reader(ItemImportService.Format.NDJSON, """
+                {"url": "https://a.ru/"}
+                {"url": "https://b.ru/"}
+                {"url": "https://c.ru/"}
+                """);
+
+        assertEquals(2, reader.next(2).size());
+        List<ItemImportReader.Entry> last = reader.next(2);
+        assertEquals(1, last.size());
+        assertEquals(3, last.getFirst().line());
+        assertTrue(reader.next(2).isEmpty());
+    }
+
+    @Test
+    void next_Csv_WithoutHeader_ShouldTakeUrlAndTagsFromFirstColumns() {
+        List<ItemImportReader.Entry> entries = reader(ItemImportService.Format.CSV, """
+                https://a.ru/,news | tech
+                https://b.ru/
+                """).next(10);
+
+        assertEquals(new ItemImportReader.Entry(1, "https://a.ru/", Set.of("news", "tech"), null), entries.get(0));
+        assertEquals(new ItemImportReader.Entry(2, "https://b.ru/", Set.of(), null), entries.get(1));
+    }
+
+    @Test
+    void next_Csv_ShouldReportMissingUrl() {
+        List<ItemImportReader.Entry> entries = reader(ItemImportService.Format.CSV, "url,tags\n,news\n").next(10);
+
+        assertEquals(1, entries.size());
+        assertFalse(entries.getFirst().isValid());
+        assertEquals("URL is missing", entries.getFirst().error());
+        assertEquals(2, entries.getFirst().line());
+    }
+
+    @Test
+    void next_Ndjson_ShouldRejectTooLongUrl() {
+        String url = "https://a.ru/" + "a".repeat(1000);
+
+        ItemImportReader.Entry entry = reader(ItemImportService.Format.NDJSON,
+                "{\"url\": \"" + url + "\"}").next(1).getFirst();
+
+        assertEquals("URL is too long", entry.error());
+    }
+
+    @Test
+    void splitCsv_ShouldHandleQuotes() {
+        assertEquals(List.of("a, b", "c \"d\"", "", "e"), ItemImportReader.splitCsv("\"a, b\",\"c \"\"d\"\"\",,e"));
+    }
+}
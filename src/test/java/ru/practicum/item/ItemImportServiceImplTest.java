@@ -0,0 +1,246 @@
+package ru.practicum.item;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.common.ItemRetrieverException;
+import ru.practicum.common.NotFoundException;
+import ru.practicum.item.dto.ItemImportResult;
+import ru.practicum.item.model.Item;
+import ru.practicum.item.model.Tag;
+import ru.practicum.user.User;
+import ru.practicum.user.UserRepository;
+import ru.practicum.user.UserState;
+
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@Transactional
+@SpringBootTest(
+        properties = {
+                "spring.datasource.url=jdbc:postgresql://localhost:5432/later",
+                "item-import.batch-size=3",
+                "item-import.concurrency=8",
+                "item-import.per-host-concurrency=2"
+        },
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemImportServiceImplTest {
+    private final EntityManager em;
+    private final ItemImportService itemImportService;
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final TagRepository tagRepository;
+
+    @MockitoBean
+    private UrlMetaDataRetriever urlMetaDataRetriever;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .email("import@mail.com")
+                .firstName("Ivan")
+                .lastName("Importer")
+                .registrationDate(Instant.parse("2020-01-01T00:00:00Z"))
+                .state(UserState.ACTIVE)
+                .build());
+    }
+
+    private static UrlMetaDataRetriever.UrlMetadata metadata(String url, String resolvedUrl) {
+        return UrlMetaDataRetrieverImpl.UrlMetadataImpl.builder()
+                .normalUrl(url)
+                .resolvedUrl(resolvedUrl)
+                .mimeType("text")
+                .title("Title of " + resolvedUrl)
+                .hasImage(true)
+                .dateResolved(Instant.parse("2022-07-03T00:00:00Z"))
+                .build();
+    }
+
+    private List<ItemImportResult> importItems(ItemImportService.Format format, String content) {
+        List<ItemImportResult> results = new ArrayList<>();
+        itemImportService.importItems(user.getId(), format, new StringReader(content), results::addAll);
+        em.flush();
+        em.clear();
+        return results;
+    }
+
+    private static List<String> tagNames(Item item) {
+        return item.getTags().stream().map(Tag::getName).toList();
+    }
+
+    private List<Item> userItems() {
+        return em.createQuery("select i from Item i where i.user.id = :userId order by i.id", Item.class)
+                .setParameter("userId", user.getId())
+                .getResultList();
+    }
+
+    @Test
+    void importItems_Ndjson_ShouldCreateItemsWithTags() {
+        when(urlMetaDataRetriever.retrieve("https://a.ru/")).thenReturn(metadata("https://a.ru/", "https://a.ru/"));
+        when(urlMetaDataRetriever.retrieve("https://b.ru/")).thenReturn(metadata("https://b.ru/", "https://b.ru/"));
+
+        List<ItemImportResult> results = importItems(ItemImportService.Format.NDJSON, """
+                {"url": "https://a.ru/", "tags": ["news", "ru"]}
+                {"url": "https://b.ru/"}
+                """);
+
+        assertEquals(2, results.size());
+        assertThat(results.stream().map(ItemImportResult::status).toList(),
+                everyItem(is(ItemImportResult.Status.CREATED)));
+        List<Item> items = userItems();
+        assertEquals(2, items.size());
+        Item first = items.getFirst();
+        assertEquals(results.getFirst().itemId(), first.getId());
+        assertEquals("https://a.ru/", first.getUrl());
+        assertEquals("Title of https://a.ru/", first.getTitle());
+        assertTrue(first.isHasImage());
+        assertTrue(first.isUnread());
+        assertEquals(Instant.parse("2022-07-03T00:00:00Z"), first.getDateResolved());
+        assertThat(tagNames(first), containsInAnyOrder("news", "ru"));
+        assertThat(tagNames(items.get(1)), empty());
+    }
+
+    @Test
+    void importItems_WhenPageAlreadySaved_ShouldMergeTags() {
+        itemRepository.save(Item.builder()
+                .user(user)
+                .url("https://short.ru/x")
+                .resolvedUrl("https://long.ru/article")
+                .tags(tagRepository.findOrCreate(user.getId(), Set.of("old")))
+                .build());
+        em.flush();
+        when(urlMetaDataRetriever.retrieve("https://long.ru/article"))
+                .thenReturn(metadata("https://long.ru/article", "https://long.ru/article"));
+
+        List<ItemImportResult> results = importItems(ItemImportService.Format.NDJSON,
+                "{\"url\": \"https://long.ru/article\", \"tags\": [\"old\", \"new\"]}");
+
+        assertEquals(ItemImportResult.Status.MERGED, results.getFirst().status());
+        List<Item> items = userItems();
+        assertEquals(1, items.size());
+        assertEquals(items.getFirst().getId(), results.getFirst().itemId());
+        assertThat(tagNames(items.getFirst()), containsInAnyOrder("old", "new"));
+    }
+
+    @Test
+    void importItems_SamePageTwiceInFile_ShouldSaveItOnce() {
+        when(urlMetaDataRetriever.retrieve("https://bit.ly/1")).thenReturn(metadata("https://bit.ly/1", "https://c.ru/"));
+        when(urlMetaDataRetriever.retrieve("https://c.ru/")).thenReturn(metadata("https://c.ru/", "https://c.ru/"));
+
+        // строки попадают в разные порции (batch-size=3)
+        List<ItemImportResult> results = importItems(ItemImportService.Format.NDJSON, """
+                {"url": "https://bit.ly/1", "tags": ["a"]}
+                {"url": "https://c.ru/", "tags": ["b"]}
+                {"url": "https://c.ru/", "tags": ["c"]}
+                {"url": "https://bit.ly/1", "tags": ["d"]}
+                """);
+
+        assertEquals(List.of(ItemImportResult.Status.CREATED, ItemImportResult.Status.MERGED,
+                        ItemImportResult.Status.MERGED, ItemImportResult.Status.MERGED),
+                results.stream().map(ItemImportResult::status).toList());
+        assertThat(results.stream().map(ItemImportResult::itemId).distinct().toList(), hasSize(1));
+        List<Item> items = userItems();
+        assertEquals(1, items.size());
+        assertEquals("https://bit.ly/1", items.getFirst().getUrl());
+        assertThat(tagNames(items.getFirst()), containsInAnyOrder("a", "b", "c", "d"));
+    }
+
+    @Test
+    void importItems_ShouldReportFailuresPerLineInOrder() {
+        when(urlMetaDataRetriever.retrieve("https://ok.ru/")).thenReturn(metadata("https://ok.ru/", "https://ok.ru/"));
+        when(urlMetaDataRetriever.retrieve("https://down.ru/"))
+                .thenThrow(new ItemRetrieverException("Cannot get the data on the item because of an error"));
+
+        List<ItemImportResult> results = importItems(ItemImportService.Format.NDJSON, """
+                {"url": "https://down.ru/"}
+                not json
+
+                {"tags": ["no url"]}
+                {"url": "https://ok.ru/", "tags": ["%s"]}
+                {"url": "https://ok.ru/"}
+                """.formatted("x".repeat(51)));
+
+        assertEquals(List.of(1, 2, 4, 5, 6), results.stream().map(ItemImportResult::line).toList());
+        assertEquals(List.of(ItemImportResult.Status.FAILED, ItemImportResult.Status.FAILED,
+                        ItemImportResult.Status.FAILED, ItemImportResult.Status.FAILED,
+                        ItemImportResult.Status.CREATED),
+                results.stream().map(ItemImportResult::status).toList());
+        assertEquals("Cannot get the data on the item because of an error", results.get(0).error());
+        assertEquals("Malformed JSON", results.get(1).error());
+        assertEquals("URL is missing", results.get(2).error());
+        assertThat(results.get(3).error(), startsWith("Tag is too long"));
+        assertNull(results.get(4).error());
+        assertEquals(1, userItems().size());
+    }
+
+    @Test
+    void importItems_CsvWithHeader_ShouldUseNamedColumns() {
+        when(urlMetaDataRetriever.retrieve("https://a.ru/")).thenReturn(metadata("https://a.ru/", "https://a.ru/"));
+        when(urlMetaDataRetriever.retrieve("https://b.ru/?q=1,2"))
+                .thenReturn(metadata("https://b.ru/?q=1,2", "https://b.ru/?q=1,2"));
+
+        List<ItemImportResult> results = importItems(ItemImportService.Format.CSV, """
+                title,url,time_added,tags,status
+                "A, the site",https://a.ru/,1700000000,news|tech,unread
+                B,"https://b.ru/?q=1,2",1700000001,,archive
+                """);
+
+        assertEquals(List.of(2, 3), results.stream().map(ItemImportResult::line).toList());
+        List<Item> items = userItems();
+        assertEquals(2, items.size());
+        assertThat(tagNames(items.get(0)), containsInAnyOrder("news", "tech"));
+        assertEquals("https://b.ru/?q=1,2", items.get(1).getUrl());
+    }
+
+    @Test
+    void importItems_ShouldLimitConcurrentRequestsPerHost() {
+        ConcurrentHashMap<String, AtomicInteger> active = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, Integer> maxActive = new ConcurrentHashMap<>();
+        when(urlMetaDataRetriever.retrieve(anyString())).thenAnswer(invocation -> {
+            String url = invocation.getArgument(0);
+            String host = java.net.URI.create(url).getHost();
+            int now = active.computeIfAbsent(host, h -> new AtomicInteger()).incrementAndGet();
+            maxActive.merge(host, now, Math::max);
+            Thread.sleep(50);
+            active.get(host).decrementAndGet();
+            return metadata(url, url);
+        });
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 9; i++) {
+            content.append("{\"url\": \"https://same.ru/").append(i).append("\"}\n");
+        }
+
+        List<ItemImportResult> results = importItems(ItemImportService.Format.NDJSON, content.toString());
+
+        assertEquals(9, results.size());
+        assertThat(maxActive.get("same.ru"), lessThanOrEqualTo(2));
+        assertEquals(9, userItems().size());
+    }
+
+    @Test
+    void importItems_UnknownUser_ShouldThrowNotFound() {
+        assertThrows(NotFoundException.class, () -> itemImportService.importItems(-1L,
+                ItemImportService.Format.NDJSON, new StringReader(""), results -> {
+                }));
+    }
+}
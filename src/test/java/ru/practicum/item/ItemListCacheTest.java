@@ -0,0 +1,255 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.common.UserVersions;
+import ru.practicum.item.dto.GetItemRequest;
+import ru.practicum.item.dto.ItemDto;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemListCacheTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private UserVersions versions;
+    private ItemListCache cache;
+
+    @BeforeEach
+    void setUp() {
+        versions = new UserVersions(1000);
+        cache = new ItemListCache(versions, true, 100, Duration.ofMinutes(10), nanos::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            rollback();
+        }
+    }
+
+    private static GetItemRequest.GetItemRequestBuilder request(long userId) {
+        return GetItemRequest.builder()
+                .userId(userId)
+                .state(GetItemRequest.State.UNREAD)
+                .contentType(GetItemRequest.ContentType.ALL)
+                .sort(GetItemRequest.Sort.NEWEST)
+                .limit(10)
+                .tags(Set.of());
+    }
+
+    // Загрузчик, который считает обращения к БД и возвращает count ссылок
+    private Supplier<List<ItemDto>> loader(int count) {
+        return () -> {
+            loads.incrementAndGet();
+            return LongStream.rangeClosed(1, count)
+                    .mapToObj(id -> ItemDto.builder().id(id).title("Title " + id).build())
+                    .toList();
+        };
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static void rollback() {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void get_SameRequestTwice_ShouldLoadOnce() {
+        Set<String> tags = new LinkedHashSet<>(List.of("b", "a"));
+        Set<String> reordered = new LinkedHashSet<>(List.of("a", "b"));
+
+        List<ItemDto> first = cache.get(request(1).tags(tags).build(), loader(3));
+        List<ItemDto> second = cache.get(request(1).tags(reordered).build(), loader(3));
+
+        assertEquals(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void get_DifferentFilters_ShouldBeCachedSeparately() {
+        cache.get(request(1).build(), loader(3));
+        cache.get(request(1).state(GetItemRequest.State.ALL).build(), loader(3));
+        cache.get(request(1).limit(20).build(), loader(3));
+        cache.get(request(2).build(), loader(3));
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void get_NextPage_ShouldNotBeCached() {
+        cache.get(request(1).cursor("abc").build(), loader(3));
+        cache.get(request(1).cursor("abc").build(), loader(3));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void userChanged_ShouldDropOnlyResultsOfThatUser() {
+        cache.get(request(1).build(), loader(3));
+        cache.get(request(2).build(), loader(3));
+
+        versions.changed(1);
+        cache.get(request(1).build(), loader(3));
+        cache.get(request(2).build(), loader(3));
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void userChanged_InTransaction_ShouldApplyAfterCommit() throws Exception {
+        cache.get(request(1).build(), loader(3));
+
+        TransactionSynchronizationManager.initSynchronization();
+        versions.changed(1);
+        // до фиксации другие транзакции видят старые данные - и старый результат остаётся верным
+        Thread.ofPlatform().start(() -> cache.get(request(1).build(), loader(3))).join();
+        assertEquals(1, loads.get());
+
+        commit();
+        cache.get(request(1).build(), loader(3));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_InTransactionThatChangedItems_ShouldReadOwnChanges() {
+        cache.get(request(1).build(), loader(3));
+        cache.get(request(2).build(), loader(3));
+
+        TransactionSynchronizationManager.initSynchronization();
+        versions.changed(1);
+        cache.get(request(1).build(), loader(3));
+        cache.get(request(2).build(), loader(3));
+
+        // изменённый список пользователя читается из БД, остальные - из кэша
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void userChanged_InRolledBackTransaction_ShouldKeepResults() {
+        cache.get(request(1).build(), loader(3));
+
+        TransactionSynchronizationManager.initSynchronization();
+        versions.changed(1);
+        rollback();
+
+        cache.get(request(1).build(), loader(3));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_WhenChangedWhileLoading_ShouldNotReturnStaleResultLater() {
+        // изменение зафиксировано, пока результат читался из БД
+        cache.get(request(1).build(), () -> {
+            List<ItemDto> stale = loader(3).get();
+            versions.changed(1);
+            return stale;
+        });
+
+        cache.get(request(1).build(), loader(3));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_WhenLoaderFails_ShouldNotCacheError() {
+        assertThrows(IllegalStateException.class, () -> cache.get(request(1).build(), () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(3, cache.get(request(1).build(), loader(3)).size());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_SlowLoad_ShouldNotDelayOtherRequestsAndBeShared() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<List<ItemDto>> slow = () -> {
+            loadStarted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader(3).get();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<List<ItemDto>> first = executor.submit(() -> cache.get(request(1).build(), slow));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+            Future<List<ItemDto>> other = executor.submit(() -> cache.get(request(2).build(), loader(3)));
+            assertEquals(3, other.get(2, TimeUnit.SECONDS).size());
+            Future<List<ItemDto>> same = executor.submit(() -> cache.get(request(1).build(), loader(3)));
+            assertFalse(first.isDone());
+
+            release.countDown();
+            assertEquals(3, first.get(5, TimeUnit.SECONDS).size());
+            assertEquals(3, same.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        // второй запрос первой страницы дождался загрузки, а не читал из БД сам
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_ShouldKeepTotalNumberOfItemsBounded() {
+        for (long userId = 1; userId <= 50; userId++) {
+            cache.get(request(userId).build(), loader(10));
+        }
+
+        assertTrue(cache.size() * 11 <= 100, "Cached pages: " + cache.size());
+        assertTrue(cache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    void get_AfterTtl_ShouldReload() {
+        cache.get(request(1).build(), loader(3));
+
+        nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+        cache.get(request(1).build(), loader(3));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_WhenDisabled_ShouldAlwaysLoad() {
+        ItemListCache disabled = new ItemListCache(versions, false, 100, Duration.ofMinutes(10), nanos::get);
+
+        disabled.get(request(1).build(), loader(3));
+        disabled.get(request(1).build(), loader(3));
+
+        assertEquals(2, loads.get());
+    }
+}
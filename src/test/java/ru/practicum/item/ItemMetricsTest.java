@@ -0,0 +1,31 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemMetricsTest {
+
+    private static HostRequestScheduler.HostStats host(int queued, long maxWaitMs, boolean paused) {
+        return new HostRequestScheduler.HostStats(queued, 0, 1, 0, Duration.ofMillis(maxWaitMs),
+                Duration.ofMillis(maxWaitMs), paused ? Duration.ofSeconds(5) : Duration.ZERO);
+    }
+
+    @Test
+    void busiestHosts_ShouldPreferPausedThenQueuedThenWaitingHosts() {
+        Map<String, HostRequestScheduler.HostStats> stats = Map.of(
+                "idle.ru", host(0, 0, false),
+                "slow.ru", host(0, 900, false),
+                "busy.ru", host(7, 10, false),
+                "busier.ru", host(12, 10, false),
+                "paused.ru", host(1, 0, true));
+
+        List<String> busiest = ItemMetrics.busiestHosts(stats, 4).stream().map(Map.Entry::getKey).toList();
+
+        assertEquals(List.of("paused.ru", "busier.ru", "busy.ru", "slow.ru"), busiest);
+    }
+}
@@ -0,0 +1,177 @@
+package ru.practicum.item;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.common.ItemRetrieverException;
+import ru.practicum.item.dto.AddItemRequest;
+import ru.practicum.user.User;
+import ru.practicum.user.UserRepository;
+import ru.practicum.user.UserState;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Transactional
+@SpringBootTest(
+        properties = {
+                "spring.datasource.url=jdbc:postgresql://localhost:5432/later",
+                "item-refresh.rate-per-sec=1000"
+        },
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemRefreshJobTest {
+    private final EntityManager em;
+    private final ItemService itemService;
+    private final UserRepository userRepository;
+    private final ItemRefreshJob itemRefreshJob;
+    private final JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private UrlMetaDataRetriever urlMetaDataRetriever;
+    @MockitoBean
+    private UrlMetaDataRetrieverImpl pageRevalidator;
+
+    private static final String NORMAL_URL = "https://refresh.ru/";
+    private static final String RESOLVED_URL = "https://refresh.ru/article";
+    private static final String ETAG = "\"v1\"";
+    // страницы теста проверялись давно, а раньше CHECKED_BEFORE других страниц в базе нет
+    private static final Instant DATE_RESOLVED = Instant.parse("2000-01-01T00:00:00Z");
+    private static final Instant CHECKED_BEFORE = Instant.parse("2000-01-02T00:00:00Z");
+
+    private User first;
+    private User second;
+
+    @BeforeEach
+    void setUp() {
+        first = userRepository.save(user("first@refresh.ru"));
+        second = userRepository.save(user("second@refresh.ru"));
+
+        UrlMetaDataRetriever.UrlMetadata metadata = UrlMetaDataRetrieverImpl.UrlMetadataImpl.builder()
+                .normalUrl(NORMAL_URL)
+                .resolvedUrl(RESOLVED_URL)
+                .mimeType("text")
+                .title("Старый заголовок")
+                .dateResolved(DATE_RESOLVED)
+                .etag(ETAG)
+                .build();
+        when(urlMetaDataRetriever.retrieve(NORMAL_URL)).thenReturn(metadata);
+
+        // одна и та же страница у двух пользователей
+        itemService.addNewItem(first.getId(), new AddItemRequest(NORMAL_URL, Set.of()));
+        itemService.addNewItem(second.getId(), new AddItemRequest(NORMAL_URL, Set.of()));
+        em.flush();
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .email(email)
+                .firstName("Refresh")
+                .lastName("Test")
+                .state(UserState.ACTIVE)
+                .build();
+    }
+
+    private Instant dateChecked() {
+        return jdbcTemplate.queryForObject("SELECT date_checked FROM pages WHERE resolved_url = ?",
+                Timestamp.class, RESOLVED_URL).toLocalDateTime().toInstant(ZoneOffset.UTC);
+    }
+
+    private List<String> titles() {
+        return jdbcTemplate.queryForList("SELECT title FROM items WHERE resolved_url = ? ORDER BY user_id",
+                String.class, RESOLVED_URL);
+    }
+
+    @Test
+    void addNewItem_ShouldRememberPageOnce() {
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM pages WHERE resolved_url = ?",
+                Integer.class, RESOLVED_URL));
+        assertEquals(ETAG, jdbcTemplate.queryForObject("SELECT etag FROM pages WHERE resolved_url = ?",
+                String.class, RESOLVED_URL));
+        assertEquals(DATE_RESOLVED, dateChecked());
+    }
+
+    @Test
+    void refresh_WhenNotModified_ShouldOnlyMarkPageChecked() {
+        when(pageRevalidator.revalidate(RESOLVED_URL, ETAG, null)).thenReturn(Optional.empty());
+
+        assertEquals(0, itemRefreshJob.refresh(CHECKED_BEFORE));
+
+        verify(pageRevalidator).revalidate(RESOLVED_URL, ETAG, null);
+        assertTrue(dateChecked().isAfter(CHECKED_BEFORE));
+        assertEquals(List.of("Старый заголовок", "Старый заголовок"), titles());
+    }
+
+    @Test
+    void refresh_WhenModified_ShouldUpdateItemsOfAllUsers() {
+        Instant now = Instant.now();
+        when(pageRevalidator.revalidate(RESOLVED_URL, ETAG, null)).thenReturn(Optional.of(
+                UrlMetaDataRetrieverImpl.UrlMetadataImpl.builder()
+                        .normalUrl(RESOLVED_URL)
+                        .resolvedUrl(RESOLVED_URL)
+                        .mimeType("text")
+                        .title("Новый заголовок")
+                        .hasImage(true)
+                        .dateResolved(now)
+                        .etag("\"v2\"")
+                        .lastModified("Tue, 02 Jan 2024 10:00:00 GMT")
+                        .build()));
+
+        assertEquals(1, itemRefreshJob.refresh(CHECKED_BEFORE));
+
+        assertEquals(List.of("Новый заголовок", "Новый заголовок"), titles());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM items WHERE resolved_url = ? "
+                                                    + "AND has_image AND search_vector @@ to_tsquery('russian', 'новый')",
+                Integer.class, RESOLVED_URL));
+        assertEquals("\"v2\"", jdbcTemplate.queryForObject("SELECT etag FROM pages WHERE resolved_url = ?",
+                String.class, RESOLVED_URL));
+        assertTrue(dateChecked().isAfter(CHECKED_BEFORE));
+        // порядок ссылок в списке не меняется
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM items WHERE resolved_url = ? "
+                                                    + "AND date_resolved = ?",
+                Integer.class, RESOLVED_URL, Timestamp.valueOf("2000-01-01 00:00:00")));
+    }
+
+    @Test
+    void refresh_ShouldSkipRecentlyCheckedPages() {
+        assertEquals(0, itemRefreshJob.refresh(DATE_RESOLVED));
+
+        verifyNoInteractions(pageRevalidator);
+        assertEquals(DATE_RESOLVED, dateChecked());
+    }
+
+    @Test
+    void refresh_WhenPageUnavailable_ShouldCheckItLater() {
+        when(pageRevalidator.revalidate(any(), any(), any())).thenThrow(new ItemRetrieverException("Timeout"));
+
+        assertEquals(0, itemRefreshJob.refresh(CHECKED_BEFORE));
+
+        assertTrue(dateChecked().isAfter(CHECKED_BEFORE));
+        assertEquals(List.of("Старый заголовок", "Старый заголовок"), titles());
+    }
+
+    @Test
+    void refresh_WhenAllItemsDeleted_ShouldForgetPageWithoutRequest() {
+        jdbcTemplate.update("DELETE FROM items WHERE resolved_url = ?", RESOLVED_URL);
+
+        assertEquals(0, itemRefreshJob.refresh(CHECKED_BEFORE));
+
+        verifyNoInteractions(pageRevalidator);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM pages WHERE resolved_url = ?",
+                Integer.class, RESOLVED_URL));
+    }
+}
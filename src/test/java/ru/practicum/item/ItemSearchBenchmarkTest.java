@@ -0,0 +1,103 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.LaterApplication;
+import ru.practicum.user.User;
+import ru.practicum.user.UserRepository;
+import ru.practicum.user.UserState;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Время ответа ItemRepository.search для пользователя со 100 000 ссылок
+// и заметкой к каждой пятой из них. Запросы - от редкого слова (несколько совпадений)
+// до встречающегося в каждой седьмой ссылке: чем больше совпадений, тем больше строк
+// приходится ранжировать.
+// Нужна запущенная БД из compose.yaml.
+// Запуск: mvn test -Pbenchmarks -Dtest=ItemSearchBenchmarkTest [-Dbenchmark.items=100000]
+@Tag("benchmark")
+class ItemSearchBenchmarkTest {
+    private static final int ITEMS = Integer.getInteger("benchmark.items", 100_000);
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+    private static final List<String> QUERIES = List.of("rare42", "common42", "frequent3", "rare42 or note42",
+            "\"title 4242\"");
+
+    @Test
+    void searchLatency() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LaterApplication.class)
+                .web(WebApplicationType.NONE)
+                // аргументами командной строки, а не properties(): значения по умолчанию
+                // перекрываются настройками логирования из application.yaml
+                .run("--spring.jpa.show-sql=false",
+                        "--logging.level.org.hibernate.SQL=INFO",
+                        "--logging.level.org.hibernate.orm.jdbc.bind=INFO")) {
+            ItemRepository itemRepository = context.getBean(ItemRepository.class);
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+            User user = userRepository.save(User.builder()
+                    .email("search@test.ru")
+                    .firstName("Search")
+                    .lastName("Benchmark")
+                    .state(UserState.ACTIVE)
+                    .build());
+            try {
+                fill(jdbc, user.getId());
+
+                System.out.printf("%n%d items of one user%n", ITEMS);
+                System.out.printf("%-20s %8s %10s %10s %10s%n", "query", "found", "median ms", "p99 ms", "max ms");
+                for (String query : QUERIES) {
+                    int found = 0;
+                    for (int i = 0; i < WARMUP; i++) {
+                        found = itemRepository.search(user.getId(), query, 10).size();
+                    }
+                    long[] nanos = new long[ITERATIONS];
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        long begin = System.nanoTime();
+                        itemRepository.search(user.getId(), query, 10);
+                        nanos[i] = System.nanoTime() - begin;
+                    }
+                    Arrays.sort(nanos);
+                    System.out.printf("%-20s %8d %10.2f %10.2f %10.2f%n", query, found,
+                            nanos[ITERATIONS / 2] / 1e6, nanos[ITERATIONS * 99 / 100] / 1e6,
+                            nanos[ITERATIONS - 1] / 1e6);
+                    assertFalse(found == 0, "Nothing found for " + query);
+                }
+            } finally {
+                jdbc.update("delete from item_notes where item_id in (select id from items where user_id = ?)",
+                        user.getId());
+                jdbc.update("delete from items where user_id = ?", user.getId());
+                jdbc.update("delete from users where id = ?", user.getId());
+            }
+        }
+    }
+
+    // Ссылки добавляются одним запросом в обход приложения - измеряется только поиск.
+    // Отрицательные id не пересекаются с выдаваемыми последовательностями. После массовой
+    // вставки новые записи GIN-индексов лежат в несортированном списке ожидания, который
+    // просматривается целиком при каждом поиске - VACUUM переносит их в сам индекс, как
+    // это со временем сделал бы autovacuum
+    private static void fill(JdbcTemplate jdbc, long userId) {
+        jdbc.update("""
+                INSERT INTO items (id, user_id, url, resolved_url, mime_type, title, has_image, has_video,
+                                   unread, date_resolved, status, search_vector)
+                SELECT -i, ?, 'https://example.com/' || i, 'https://example.com/' || i, 'text', 'Title ' || i,
+                       false, false, true, now(), 'RESOLVED',
+                       item_search_vector('Title ' || i,
+                               'rare' || i % 20000 || ' common' || i % 100 || ' frequent' || i % 7 || ' '
+                               || repeat(md5(i::text) || ' ', 20))
+                FROM generate_series(1, ?) AS i""", userId, ITEMS);
+        jdbc.update("""
+                INSERT INTO item_notes (id, item_id, text, note_date)
+                SELECT -i, -i, 'note' || i % 1000, now() FROM generate_series(1, ?, 5) AS i""", ITEMS);
+        jdbc.execute("VACUUM ANALYZE items, item_notes");
+    }
+}
@@ -7,14 +7,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.common.BadRequestException;
 import ru.practicum.common.NotFoundException;
 import ru.practicum.item.dto.AddItemRequest;
 import ru.practicum.item.dto.GetItemRequest;
 import ru.practicum.item.dto.ItemDto;
 import ru.practicum.item.dto.ModifyItemRequest;
 import ru.practicum.item.model.Item;
+import ru.practicum.item.model.Tag;
+import ru.practicum.item.model.ItemStatus;
+import ru.practicum.note.ItemNote;
 import ru.practicum.user.User;
 import ru.practicum.user.UserRepository;
 import ru.practicum.user.UserState;
@@ -42,6 +47,7 @@ class ItemServiceImplTest {
     private final ItemService itemService;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final TagRepository tagRepository;
 
     @MockitoBean
     private UrlMetaDataRetriever urlMetaDataRetriever;
@@ -89,11 +95,16 @@ class ItemServiceImplTest {
                 .hasVideo(HAS_VIDEO)
                 .dateResolved(DATE_RESOLVED)
                 .unread(UNREAD)
-                .tags(TAGS)
+                .tags(tagRepository.findOrCreate(user.getId(), TAGS))
                 .user(user)
                 .build();
     }
 
+    // тэги из словаря пользователя
+    private Set<Tag> tags(String... names) {
+        return tagRepository.findOrCreate(user.getId(), Set.of(names));
+    }
+
     @Test
     void addNewItem_WhenItemNotExists_ShouldCreateNewItem() {
         // Подготовка данных
@@ -115,12 +126,26 @@ class ItemServiceImplTest {
         assertThat(item.isHasVideo(), is(HAS_VIDEO));
         assertThat(item.getDateResolved(), equalTo(DATE_RESOLVED));
         assertThat(item.isUnread(), is(UNREAD));
-        assertThat(item.getTags(), containsInAnyOrder(TAGS.toArray()));
+        assertThat(item.getTags().stream().map(Tag::getName).toList(), containsInAnyOrder(TAGS.toArray()));
 
 
         verify(urlMetaDataRetriever).retrieve(NORMAL_URL);
     }
 
+    @Test
+    void saveSameResolvedUrlTwice_ShouldBeRejectedByDatabase() {
+        itemRepository.saveAndFlush(item);
+        Item duplicate = Item.builder()
+                .url("https://other.ru/")
+                .resolvedUrl(RESOLVED_URL)
+                .title(TITLE)
+                .unread(UNREAD)
+                .user(user)
+                .build();
+
+        assertThrows(DataIntegrityViolationException.class, () -> itemRepository.saveAndFlush(duplicate));
+    }
+
     @Test
     void addNewItem_WhenItemExists_ShouldUpdateTags() {
         // Подготовка данных
@@ -169,7 +194,7 @@ class ItemServiceImplTest {
     @Test
     void getItems_ByRequestWithStateFilter_ShouldReturnFilteredItems() {
         // Подготовка данных
-        Item item1 = ItemMapper.mapToItem(urlMetadata, user, Set.of("tag1"));
+        Item item1 = ItemMapper.mapToItem(urlMetadata, user, tags("tag1"));
         item1.setUnread(true);
         itemRepository.save(item1);
 
@@ -183,7 +208,7 @@ class ItemServiceImplTest {
         item2.setHasVideo(HAS_VIDEO);
         item2.setDateResolved(DATE_RESOLVED);
         item2.setUnread(false); // READ
-        item2.setTags(new HashSet<>(Set.of("tag2")));
+        item2.setTags(tags("tag2"));
         itemRepository.save(item2);
 
         GetItemRequest request = GetItemRequest.builder()
@@ -203,6 +228,24 @@ class ItemServiceImplTest {
         assertTrue(result.get(0).unread());
     }
 
+    @Test
+    void getItems_AfterModifyItem_ShouldNotReturnCachedList() {
+        item = itemRepository.save(item);
+        GetItemRequest request = GetItemRequest.builder()
+                .userId(user.getId())
+                .state(GetItemRequest.State.UNREAD)
+                .contentType(GetItemRequest.ContentType.ALL)
+                .sort(GetItemRequest.Sort.NEWEST)
+                .limit(10)
+                .build();
+        assertEquals(1, itemService.getItems(request).size());
+
+        itemService.modifyItem(user.getId(), new ModifyItemRequest(item.getId(), true, Set.of(), false));
+
+        // изменение ещё не зафиксировано, но в своей транзакции уже видно
+        assertTrue(itemService.getItems(request).isEmpty());
+    }
+
     @Test
     void getItems_ByRequestWithContentTypeFilter_ShouldReturnFilteredItems() {
         // Подготовка данных
@@ -225,7 +268,7 @@ class ItemServiceImplTest {
         textItem.setHasVideo(HAS_VIDEO);
         textItem.setDateResolved(DATE_RESOLVED);
         textItem.setUnread(UNREAD);
-        textItem.setTags(new HashSet<>(Set.of("tag1")));
+        textItem.setTags(tags("tag1"));
         itemRepository.save(textItem);
 
         Item imageItem = new Item();
@@ -238,7 +281,7 @@ class ItemServiceImplTest {
         imageItem.setHasVideo(false);
         imageItem.setDateResolved(DATE_RESOLVED);
         imageItem.setUnread(UNREAD);
-        imageItem.setTags(new HashSet<>(Set.of("tag2")));
+        imageItem.setTags(tags("tag2"));
         itemRepository.save(imageItem);
 
         GetItemRequest request = GetItemRequest.builder()
@@ -271,7 +314,7 @@ class ItemServiceImplTest {
         item1.setHasVideo(HAS_VIDEO);
         item1.setDateResolved(DATE_RESOLVED);
         item1.setUnread(UNREAD);
-        item1.setTags(new HashSet<>(Set.of("tag1", "common")));
+        item1.setTags(tags("tag1", "common"));
         itemRepository.save(item1);
 
         Item item2 = new Item();
@@ -284,7 +327,7 @@ class ItemServiceImplTest {
         item2.setHasVideo(HAS_VIDEO);
         item2.setDateResolved(DATE_RESOLVED);
         item2.setUnread(UNREAD);
-        item2.setTags(new HashSet<>(Set.of("tag2", "common")));
+        item2.setTags(tags("tag2", "common"));
         itemRepository.save(item2);
 
         GetItemRequest request = GetItemRequest.builder()
@@ -318,7 +361,7 @@ class ItemServiceImplTest {
         item.setHasVideo(HAS_VIDEO);
         item.setDateResolved(DATE_RESOLVED);
         item.setUnread(UNREAD);
-        item.setTags(new HashSet<>(Set.of("oldTag")));
+        item.setTags(tags("oldTag"));
         item = itemRepository.save(item);
 
         ModifyItemRequest request = new ModifyItemRequest(
@@ -339,6 +382,25 @@ class ItemServiceImplTest {
         assertFalse(result.tags().contains("oldTag"));
     }
 
+    @Test
+    void getItem_WhenItemExists_ShouldReturnItem() {
+        // Подготовка данных
+        Item savedItem = itemRepository.save(item);
+
+        // Выполнение
+        ItemDto result = itemService.getItem(user.getId(), savedItem.getId());
+
+        // Проверки
+        assertEquals(savedItem.getId(), result.id());
+        assertEquals(RESOLVED_URL, result.resolvedUrl());
+        assertEquals(ItemStatus.RESOLVED, result.status());
+    }
+
+    @Test
+    void getItem_WhenItemNotFound_ShouldThrowException() {
+        assertThrows(NotFoundException.class, () -> itemService.getItem(user.getId(), 999L));
+    }
+
     @Test
     void modifyItem_WhenItemNotFound_ShouldThrowException() {
         // Подготовка данных
@@ -353,7 +415,7 @@ class ItemServiceImplTest {
     @Test
     void deleteItem_ShouldRemoveItem() {
         // Подготовка данных
-        Item item = ItemMapper.mapToItem(urlMetadata, user, Set.of("tag"));
+        Item item = ItemMapper.mapToItem(urlMetadata, user, tags("tag"));
         item = itemRepository.save(item);
 
         long initialCount = itemRepository.count();
@@ -378,4 +440,169 @@ class ItemServiceImplTest {
 
         assertEquals(initialCount, itemRepository.count());
     }
-}
\ No newline at end of file
+
+    // Набор ссылок для проверки постраничного вывода: совпадающие значения ключей
+    // сортировки и ссылка без метаданных (PENDING)
+    private void saveItemsForPaging() {
+        String[][] data = {
+                {"https://a.ru/", "B", "2022-07-01T00:00:00Z"},
+                {"https://b.ru/", "A", "2022-07-02T00:00:00Z"},
+                {"https://c.ru/", "B", "2022-07-02T00:00:00Z"},
+                {"https://d.ru/", "C", "2022-07-03T00:00:00Z"},
+                {"https://e.ru/", "A", "2022-07-02T00:00:00Z"},
+        };
+        for (String[] row : data) {
+            itemRepository.save(Item.builder()
+                    .user(user)
+                    .url(row[0])
+                    .resolvedUrl(row[0])
+                    .mimeType(MIME_TYPE)
+                    .title(row[1])
+                    .dateResolved(Instant.parse(row[2]))
+                    .build());
+        }
+        itemRepository.save(ItemMapper.mapToPendingItem("https://pending.ru/", user, Set.of()));
+    }
+
+    private GetItemRequest pageRequest(GetItemRequest.Sort sort, int limit, String cursor) {
+        return GetItemRequest.builder()
+                .userId(user.getId())
+                .state(GetItemRequest.State.ALL)
+                .contentType(GetItemRequest.ContentType.ALL)
+                .sort(sort)
+                .limit(limit)
+                .tags(Set.of())
+                .cursor(cursor)
+                .build();
+    }
+
+    // Проходит весь список страницами по limit ссылок, следуя курсорам
+    private List<Long> readAllPages(GetItemRequest.Sort sort, int limit) {
+        List<Long> ids = new java.util.ArrayList<>();
+        String cursor = null;
+        while (true) {
+            List<ItemDto> page = itemService.getItems(pageRequest(sort, limit, cursor));
+            page.forEach(dto -> ids.add(dto.id()));
+            if (page.size() < limit) {
+                return ids;
+            }
+            cursor = ItemCursor.after(sort, page.getLast()).encode();
+        }
+    }
+
+    @Test
+    void getItems_WithCursor_ShouldWalkWholeListForEverySort() {
+        saveItemsForPaging();
+
+        for (GetItemRequest.Sort sort : GetItemRequest.Sort.values()) {
+            List<Long> allAtOnce = itemService.getItems(pageRequest(sort, 100, null)).stream()
+                    .map(ItemDto::id)
+                    .toList();
+
+            assertEquals(6, allAtOnce.size());
+            assertEquals(allAtOnce, readAllPages(sort, 2), "sort " + sort);
+            assertEquals(allAtOnce, readAllPages(sort, 4), "sort " + sort);
+        }
+    }
+
+    @Test
+    void getItems_Newest_ShouldPutPendingItemsFirst() {
+        saveItemsForPaging();
+
+        List<ItemDto> items = itemService.getItems(pageRequest(GetItemRequest.Sort.NEWEST, 100, null));
+
+        assertEquals(ItemStatus.PENDING, items.getFirst().status());
+        assertEquals("https://d.ru/", items.get(1).normalUrl());
+        assertEquals("https://a.ru/", items.getLast().normalUrl());
+    }
+
+    @Test
+    void getItems_WithCursor_ShouldNotRepeatItemsAddedAfterFirstPage() {
+        saveItemsForPaging();
+        List<ItemDto> firstPage = itemService.getItems(pageRequest(GetItemRequest.Sort.NEWEST, 3, null));
+
+        // пока клиент читает список, добавляется новая ссылка - она окажется в начале
+        itemRepository.save(Item.builder()
+                .user(user)
+                .url("https://new.ru/")
+                .resolvedUrl("https://new.ru/")
+                .dateResolved(Instant.parse("2023-01-01T00:00:00Z"))
+                .build());
+        String cursor = ItemCursor.after(GetItemRequest.Sort.NEWEST, firstPage.getLast()).encode();
+        List<ItemDto> secondPage = itemService.getItems(pageRequest(GetItemRequest.Sort.NEWEST, 3, cursor));
+
+        assertEquals(3, secondPage.size());
+        assertThat(secondPage.stream().map(ItemDto::id).toList(),
+                everyItem(not(in(firstPage.stream().map(ItemDto::id).toList()))));
+        assertThat(secondPage.stream().map(ItemDto::normalUrl).toList(), not(hasItem("https://new.ru/")));
+    }
+
+    @Test
+    void getItems_WithCursorOfAnotherSort_ShouldThrowBadRequest() {
+        saveItemsForPaging();
+        List<ItemDto> page = itemService.getItems(pageRequest(GetItemRequest.Sort.TITLE, 2, null));
+        String cursor = ItemCursor.after(GetItemRequest.Sort.TITLE, page.getLast()).encode();
+
+        assertThrows(BadRequestException.class,
+                () -> itemService.getItems(pageRequest(GetItemRequest.Sort.SITE, 2, cursor)));
+    }
+
+    // Сохраняет ссылку так же, как addNewItem: с заголовком и текстом страницы
+    private Item saveForSearch(User owner, String url, String title, String pageText) {
+        UrlMetaDataRetriever.UrlMetadata metadata = mock(UrlMetaDataRetriever.UrlMetadata.class);
+        when(metadata.getNormalUrl()).thenReturn(url);
+        when(metadata.getResolvedUrl()).thenReturn(url);
+        when(metadata.getTitle()).thenReturn(title);
+        when(metadata.getText()).thenReturn(pageText);
+        when(urlMetaDataRetriever.retrieve(url)).thenReturn(metadata);
+        long id = itemService.addNewItem(owner.getId(), new AddItemRequest(url, Set.of())).id();
+        return itemRepository.findById(id).orElseThrow();
+    }
+
+    @Test
+    void search_ShouldFindByTitlePageTextAndNotesRankingTitleFirst() {
+        Item inText = saveForSearch(user, "https://a.ru/", "Рецепты", "Как приготовить борщ со сметаной");
+        Item inTitle = saveForSearch(user, "https://b.ru/", "Борщи и щи", "Первые блюда");
+        Item inNote = saveForSearch(user, "https://c.ru/", "Кулинария", "");
+        em.persist(ItemNote.builder().item(inNote).text("Лучший борщ у бабушки").build());
+        saveForSearch(user, "https://d.ru/", "Пельмени", "Тесто и фарш");
+        em.flush();
+
+        List<Long> found = itemService.search(user.getId(), "борщ", 10).stream().map(ItemDto::id).toList();
+
+        assertThat(found, containsInAnyOrder(inText.getId(), inTitle.getId(), inNote.getId()));
+        // совпадение в заголовке весомее, чем в тексте страницы
+        assertThat(found.indexOf(inTitle.getId()), lessThan(found.indexOf(inText.getId())));
+    }
+
+    @Test
+    void search_ShouldReturnOnlyUserItems() {
+        User other = userRepository.save(User.builder()
+                .email("other@mail.com")
+                .firstName("Other")
+                .lastName("User")
+                .state(UserState.ACTIVE)
+                .build());
+        saveForSearch(other, "https://a.ru/", "Spring Boot", "");
+        Item own = saveForSearch(user, "https://b.ru/", "Spring Data", "");
+
+        List<ItemDto> found = itemService.search(user.getId(), "spring", 10);
+
+        assertEquals(List.of(own.getId()), found.stream().map(ItemDto::id).toList());
+    }
+
+    @Test
+    void search_ShouldSupportPhrasesAndExclusions() {
+        Item kept = saveForSearch(user, "https://a.ru/", "Java streams", "lambda expressions");
+        saveForSearch(user, "https://b.ru/", "Java threads", "virtual threads");
+
+        List<ItemDto> found = itemService.search(user.getId(), "java -threads", 10);
+
+        assertEquals(List.of(kept.getId()), found.stream().map(ItemDto::id).toList());
+    }
+
+    @Test
+    void search_WithBlankQuery_ShouldThrowBadRequest() {
+        assertThrows(BadRequestException.class, () -> itemService.search(user.getId(), " ", 10));
+    }
+}
@@ -0,0 +1,173 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.common.ItemRetrieverException;
+import ru.practicum.common.UserVersions;
+import ru.practicum.item.model.Item;
+import ru.practicum.item.model.Tag;
+import ru.practicum.item.model.ItemStatus;
+import ru.practicum.user.User;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingItemResolverTest {
+    private static final String URL = "https://ya.ru/";
+    private static final String RESOLVED_URL = "https://yandex.ru/";
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private UrlMetaDataRetriever urlMetaDataRetriever;
+
+    @Mock
+    private PageRepository pageRepository;
+
+    @Mock
+    private UserVersions userVersions;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PendingItemResolver resolver;
+    private User user;
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        resolver = makeResolver(new SyncTaskExecutor());
+
+        user = User.builder().id(1L).firstName("John").build();
+        item = ItemMapper.mapToPendingItem(URL, user, Set.of(Tag.builder().id(1L).user(user).name("tag1").build()));
+        item.setId(10L);
+    }
+
+    private PendingItemResolver makeResolver(TaskExecutor executor) {
+        return new PendingItemResolver(itemRepository, urlMetaDataRetriever, pageRepository,
+                userVersions, new TransactionTemplate(transactionManager), executor, true);
+    }
+
+    private UrlMetaDataRetriever.UrlMetadata makeMetadata() {
+        return UrlMetaDataRetrieverImpl.UrlMetadataImpl.builder()
+                .normalUrl(URL)
+                .resolvedUrl(RESOLVED_URL)
+                .mimeType("text")
+                .title("Яндекс")
+                .hasImage(true)
+                .dateResolved(Instant.parse("2022-07-03T00:00:00Z"))
+                .build();
+    }
+
+    @Test
+    void submit_WhenRetrieveSucceeds_ShouldResolveItem() {
+        when(itemRepository.findById(10L)).thenReturn(Optional.of(item));
+        when(urlMetaDataRetriever.retrieve(URL)).thenReturn(makeMetadata());
+        when(itemRepository.findByUserAndResolvedUrl(user, RESOLVED_URL)).thenReturn(Optional.empty());
+
+        resolver.submit(10L);
+
+        assertEquals(ItemStatus.RESOLVED, item.getStatus());
+        assertEquals(RESOLVED_URL, item.getResolvedUrl());
+        assertEquals("Яндекс", item.getTitle());
+        assertEquals("text", item.getMimeType());
+        assertTrue(item.isHasImage());
+        assertNotNull(item.getDateResolved());
+        verify(userVersions).changed(1L);
+    }
+
+    @Test
+    void submit_WhenRetrieveFails_ShouldMarkItemFailed() {
+        when(itemRepository.findById(10L)).thenReturn(Optional.of(item));
+        when(urlMetaDataRetriever.retrieve(URL)).thenThrow(new ItemRetrieverException("boom"));
+
+        resolver.submit(10L);
+
+        assertEquals(ItemStatus.FAILED, item.getStatus());
+        assertNull(item.getResolvedUrl());
+        verify(userVersions).changed(1L);
+    }
+
+    @Test
+    void submit_WhenSamePageAlreadySaved_ShouldMergeTagsAndDeletePendingItem() {
+        Item existing = Item.builder()
+                .id(5L)
+                .user(user)
+                .url(RESOLVED_URL)
+                .resolvedUrl(RESOLVED_URL)
+                .tags(new HashSet<>(Set.of(Tag.builder().id(2L).user(user).name("old").build())))
+                .build();
+        when(itemRepository.findById(10L)).thenReturn(Optional.of(item));
+        when(urlMetaDataRetriever.retrieve(URL)).thenReturn(makeMetadata());
+        when(itemRepository.findByUserAndResolvedUrl(user, RESOLVED_URL)).thenReturn(Optional.of(existing));
+
+        resolver.submit(10L);
+
+        assertEquals(Set.of("old", "tag1"), existing.getTags().stream().map(Tag::getName).collect(Collectors.toSet()));
+        verify(itemRepository).delete(item);
+    }
+
+    @Test
+    void submit_WhenItemAlreadyResolved_ShouldNotCallRetriever() {
+        item.setStatus(ItemStatus.RESOLVED);
+        when(itemRepository.findById(10L)).thenReturn(Optional.of(item));
+
+        resolver.submit(10L);
+
+        verify(urlMetaDataRetriever, never()).retrieve(anyString());
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldAllowRetryLater() {
+        List<Runnable> accepted = new ArrayList<>();
+        AtomicBoolean queueIsFull = new AtomicBoolean(true);
+        PendingItemResolver limitedResolver = makeResolver(task -> {
+            if (queueIsFull.get()) {
+                throw new TaskRejectedException("queue is full");
+            }
+            accepted.add(task);
+        });
+
+        assertDoesNotThrow(() -> limitedResolver.submit(10L));
+        assertTrue(accepted.isEmpty());
+
+        // отклонённая ссылка не должна считаться "в обработке"
+        queueIsFull.set(false);
+        limitedResolver.submit(10L);
+        assertEquals(1, accepted.size());
+    }
+
+    @Test
+    void resubmitPending_ShouldSubmitPendingItems() {
+        when(itemRepository.findIdsByStatus(eq(ItemStatus.PENDING), any(Pageable.class))).thenReturn(List.of(10L));
+        when(itemRepository.findById(10L)).thenReturn(Optional.of(item));
+        when(urlMetaDataRetriever.retrieve(URL)).thenReturn(makeMetadata());
+        when(itemRepository.findByUserAndResolvedUrl(user, RESOLVED_URL)).thenReturn(Optional.empty());
+
+        resolver.resubmitPending();
+
+        assertEquals(ItemStatus.RESOLVED, item.getStatus());
+    }
+}
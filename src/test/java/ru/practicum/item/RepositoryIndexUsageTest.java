@@ -0,0 +1,393 @@
+package ru.practicum.item;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.SqlStatementCounter;
+import ru.practicum.item.dto.GetItemRequest;
+import ru.practicum.item.model.ItemStatus;
+import ru.practicum.note.ItemNoteRepository;
+import ru.practicum.user.User;
+import ru.practicum.user.UserRepository;
+import ru.practicum.user.UserState;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Каждый запрос репозиториев должен читать таблицы по индексу (миграция V4__indexes.sql).
+// SQL, который отправляет в БД метод репозитория, перехватывается SqlStatementCounter,
+// затем для него строится общий план, не зависящий от значений параметров, с запрещённым
+// последовательным чтением: если подходящего индекса нет, в плане всё равно останется Seq Scan.
+@Transactional
+@SpringBootTest(
+        properties = {
+                "spring.datasource.url=jdbc:postgresql://localhost:5432/later",
+                "spring.jpa.properties.hibernate.session_factory.statement_inspector=ru.practicum.SqlStatementCounter"
+        },
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class RepositoryIndexUsageTest {
+    private static final int USERS = 500;
+    private static final int ITEMS_PER_USER = 40;
+    // индексы, по которым можно выбрать ссылки одного пользователя
+    private static final String[] ITEMS_BY_USER = {"items_user_id_date_resolved_idx",
+            "items_user_id_unread_date_resolved_idx", "items_user_id_title_idx", "items_user_id_url_idx",
+            "items_user_id_resolved_url_key"};
+    // индексы связей ссылок с тэгами: по ссылке и по тэгу
+    private static final String[] ITEM_TAGS = {"item_tags_pkey", "item_tags_tag_id_item_id_idx"};
+
+    private final ItemRepository itemRepository;
+    private final ItemNoteRepository itemNoteRepository;
+    private final UserRepository userRepository;
+    private final ItemService itemService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private UrlMetaDataRetriever urlMetaDataRetriever;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.saveAndFlush(User.builder()
+                .email("explain@mail.com")
+                .firstName("Explain")
+                .lastName("Plan")
+                .registrationDate(Instant.parse("2020-01-01T00:00:00Z"))
+                .state(UserState.ACTIVE)
+                .build());
+        fillTables();
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    }
+
+    // План зависит от размера таблиц и статистики, поэтому на почти пустых таблицах
+    // он ничего не говорит. Заполняем их правдоподобным объёмом данных - у каждого
+    // пользователя несколько десятков ссылок с тэгами и заметками. Отрицательные id
+    // не пересекаются с выдаваемыми последовательностями, а всё добавленное
+    // откатывается вместе с тестом.
+    private void fillTables() {
+        jdbcTemplate.update("""
+                INSERT INTO users (id, email, first_name, last_name, registration_date, state)
+                SELECT -u, 'user' || u || '@mail.com', 'First', 'Last' || u, now(), 'ACTIVE'
+                FROM generate_series(1, ?) AS u""", USERS);
+        jdbcTemplate.update("""
+                INSERT INTO items (id, user_id, url, resolved_url, mime_type, title, has_image, has_video,
+                                   unread, date_resolved, status, search_vector)
+                SELECT -i, -(i % ? + 1), 'https://site' || i % 500 || '.ru/' || i, 'https://site' || i % 500 || '.ru/' || i,
+                       'text', 'Title ' || md5(i::text), false, false, i % 3 = 0,
+                       now() - i * interval '1 minute', CASE WHEN i % 100 = 0 THEN 'PENDING' ELSE 'RESOLVED' END,
+                       item_search_vector('Title ' || md5(i::text), 'word' || i % 1000 || ' word' || i % 7)
+                FROM generate_series(1, ?) AS i""", USERS, USERS * ITEMS_PER_USER);
+        // у каждого пользователя словарь из 40 тэгов, у каждой ссылки - два из них
+        jdbcTemplate.update("""
+                INSERT INTO tags (id, user_id, name)
+                SELECT -(u * 100 + k), -u, CASE WHEN k <= 20 THEN 'topic' || k - 1 ELSE 'site' || k - 21 END
+                FROM generate_series(1, ?) AS u, generate_series(1, 40) AS k""", USERS);
+        jdbcTemplate.update("""
+                INSERT INTO item_tags (item_id, tag_id)
+                SELECT -i, -((i % ? + 1) * 100 + k)
+                FROM generate_series(1, ?) AS i
+                CROSS JOIN LATERAL (VALUES (i % 20 + 1), (i % 20 + 21)) AS t(k)""", USERS, USERS * ITEMS_PER_USER);
+        jdbcTemplate.update("""
+                INSERT INTO item_notes (id, item_id, text, note_date)
+                SELECT -i, -i, 'note ' || i, now() FROM generate_series(1, ?, 5) AS i""", USERS * ITEMS_PER_USER);
+        jdbcTemplate.update("""
+                INSERT INTO pages (resolved_url, etag, date_checked)
+                SELECT resolved_url, md5(resolved_url), date_resolved FROM items WHERE id < 0
+                ON CONFLICT DO NOTHING""");
+        jdbcTemplate.update("""
+                INSERT INTO item_changes (user_id, change_seq, item_id, deleted, changed_at)
+                SELECT user_id, -id, id, id % 50 = 0, date_resolved FROM items WHERE id < 0""");
+        jdbcTemplate.execute("ANALYZE users, items, tags, item_tags, item_notes, pages, item_changes, item_counts");
+    }
+
+    // Выполняет метод репозитория и возвращает план последнего отправленного им запроса.
+    // Без значений параметров строится общий план, который не зависит от них; со значениями -
+    // частный план для них (нужен, например, для LIKE 'prefix%', который использует индекс
+    // только при известном шаблоне)
+    private String explainLast(Runnable repositoryCall, Object... values) {
+        SqlStatementCounter.reset();
+        repositoryCall.run();
+        List<String> statements = SqlStatementCounter.statements();
+        assertFalse(statements.isEmpty(), "Repository method did not query the database");
+        return explain(statements.getLast(), values);
+    }
+
+    private String explain(String sql, Object... values) {
+        // запрос готовим как PREPARE с параметрами $1, $2, ... и выполняем под EXPLAIN
+        StringBuilder prepared = new StringBuilder("PREPARE explained AS ");
+        int parameters = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                prepared.append('$').append(++parameters);
+            } else {
+                prepared.append(c);
+            }
+        }
+        List<String> arguments = new ArrayList<>();
+        for (int i = 0; i < parameters; i++) {
+            arguments.add(i < values.length ? "'" + values[i].toString().replace("'", "''") + "'" : "NULL");
+        }
+        jdbcTemplate.execute(prepared.toString());
+        try {
+            jdbcTemplate.execute("SET LOCAL plan_cache_mode = "
+                                 + (values.length == 0 ? "force_generic_plan" : "force_custom_plan"));
+            String execute = parameters == 0 ? "EXECUTE explained" : "EXECUTE explained (" + String.join(", ", arguments) + ")";
+            return jdbcTemplate.queryForList("EXPLAIN " + execute, String.class).stream()
+                    .collect(Collectors.joining("\n", sql + "\n", ""));
+        } finally {
+            jdbcTemplate.execute("DEALLOCATE explained");
+        }
+    }
+
+    // Проверяет, что в плане нет последовательного чтения и используется хотя бы один из индексов
+    private static void assertUsesIndex(String plan, String... indexes) {
+        assertFalse(plan.contains("Seq Scan"), "Sequential scan in plan:\n" + plan);
+        assertTrue(Arrays.stream(indexes).anyMatch(index -> plan.matches("(?s).* " + index + "\\b.*")),
+                "None of " + Arrays.toString(indexes) + " is used:\n" + plan);
+    }
+
+    private static void assertNoSort(String plan) {
+        assertFalse(plan.matches("(?s).*\\bSort\\b.*"), "Result is sorted instead of read in index order:\n" + plan);
+    }
+
+    private GetItemRequest.GetItemRequestBuilder request() {
+        return GetItemRequest.builder()
+                .userId(user.getId())
+                .state(GetItemRequest.State.ALL)
+                .contentType(GetItemRequest.ContentType.ALL)
+                .sort(GetItemRequest.Sort.NEWEST)
+                .limit(10);
+    }
+
+    @Test
+    void findByUserId() {
+        String plan = explainLast(() -> itemRepository.findByUserId(user.getId()));
+
+        assertUsesIndex(plan, ITEMS_BY_USER);
+        assertUsesIndex(plan, ITEM_TAGS);
+        assertUsesIndex(plan, "tags_pkey");
+    }
+
+    @Test
+    void findByUserIdAndId() {
+        assertUsesIndex(explainLast(() -> itemRepository.findByUserIdAndId(user.getId(), 1L)), "items_pkey");
+    }
+
+    @Test
+    void deleteByUserIdAndId() {
+        assertUsesIndex(explainLast(() -> itemRepository.deleteByUserIdAndId(user.getId(), 1L)), "items_pkey");
+    }
+
+    @Test
+    void findByUserAndResolvedUrl() {
+        String plan = explainLast(() -> itemRepository.findByUserAndResolvedUrl(user, "https://ya.ru/"));
+
+        assertUsesIndex(plan, "items_user_id_resolved_url_key");
+    }
+
+    @Test
+    void findFirstByUserAndUrl() {
+        assertUsesIndex(explainLast(() -> itemRepository.findFirstByUserAndUrl(user, "https://ya.ru/")),
+                "items_user_id_url_idx");
+    }
+
+    @Test
+    void findAllByUserLastNameStartingWith() {
+        String plan = explainLast(() -> itemRepository.findAllByUserLastNameStartingWith("Last12"), "Last12%");
+
+        assertUsesIndex(plan, "users_last_name_idx");
+        assertUsesIndex(plan, ITEMS_BY_USER);
+    }
+
+    @Test
+    void findIdsByStatus() {
+        // частичный индекс подходит только для известного статуса
+        String plan = explainLast(() -> itemRepository.findIdsByStatus(ItemStatus.PENDING, PageRequest.of(0, 100)),
+                ItemStatus.PENDING, 100);
+
+        assertUsesIndex(plan, "items_pending_idx");
+        assertNoSort(plan);
+    }
+
+    @Test
+    void getItems_DefaultRequest_ShouldReadUnreadIndexInOrder() {
+        String plan = explainLast(() -> itemService.getItems(request().state(GetItemRequest.State.UNREAD).build()));
+
+        assertUsesIndex(plan, "items_user_id_unread_date_resolved_idx");
+        assertNoSort(plan);
+    }
+
+    @Test
+    void getItems_AllStatesBySort_ShouldReadMatchingIndexInOrder() {
+        String newest = explainLast(() -> itemService.getItems(request().build()));
+        String oldest = explainLast(() -> itemService.getItems(request().sort(GetItemRequest.Sort.OLDEST).build()));
+        String title = explainLast(() -> itemService.getItems(request().sort(GetItemRequest.Sort.TITLE).build()));
+
+        assertUsesIndex(newest, "items_user_id_date_resolved_idx");
+        assertNoSort(newest);
+        assertUsesIndex(oldest, "items_user_id_date_resolved_idx");
+        assertNoSort(oldest);
+        assertUsesIndex(title, "items_user_id_title_idx");
+        assertNoSort(title);
+    }
+
+    @Test
+    void getItems_BySite_ShouldUseResolvedUrlIndex() {
+        String plan = explainLast(() -> itemService.getItems(request().sort(GetItemRequest.Sort.SITE).build()));
+
+        assertUsesIndex(plan, "items_user_id_resolved_url_key");
+    }
+
+    @Test
+    void getItems_NextPage_ShouldStartFromCursorInIndex() {
+        String cursor = new ItemCursor(GetItemRequest.Sort.NEWEST, "2024-01-01T00:00:00Z", 100L).encode();
+
+        String plan = explainLast(() -> itemService.getItems(request().cursor(cursor).build()));
+
+        assertUsesIndex(plan, "items_user_id_date_resolved_idx");
+        assertNoSort(plan);
+    }
+
+    @Test
+    void getItems_ByTags_ShouldCheckTagsByIndex() {
+        String plan = explainLast(() -> itemService.getItems(request().tags(Set.of("news")).build()));
+
+        assertUsesIndex(plan, "items_user_id_date_resolved_idx");
+        assertUsesIndex(plan, "tags_user_id_name_key");
+        assertUsesIndex(plan, ITEM_TAGS);
+    }
+
+    @Test
+    void findAllByItemUrlContainingAndItemUserId() {
+        String plan = explainLast(() -> itemNoteRepository.findAllByItemUrlContainingAndItemUserId("ya.ru",
+                user.getId()));
+
+        assertUsesIndex(plan, "item_notes_item_id_idx");
+    }
+
+    @Test
+    void findByUserIdAndTags() {
+        String plan = explainLast(() -> itemNoteRepository.findByUserIdAndTags(user.getId(), "news"));
+
+        assertUsesIndex(plan, "item_notes_item_id_idx");
+        assertUsesIndex(plan, "tags_user_id_name_key");
+        assertUsesIndex(plan, ITEM_TAGS);
+    }
+
+    @Test
+    void findAllByItemUserId() {
+        String plan = explainLast(() -> itemNoteRepository.findAllByItemUserId(user.getId(),
+                PageRequest.of(0, 10, Sort.by("id"))));
+
+        // заметки читаются в порядке id и отбираются по ссылкам пользователя
+        assertUsesIndex(plan, "item_notes_pkey", "item_notes_item_id_idx");
+        assertUsesIndex(plan, ITEMS_BY_USER);
+    }
+
+    @Test
+    void findByItemUserIdAndIdGreaterThanOrderByIdAsc() {
+        String plan = explainLast(() -> itemNoteRepository.findByItemUserIdAndIdGreaterThanOrderByIdAsc(user.getId(),
+                100L, Limit.of(10)));
+
+        assertUsesIndex(plan, "item_notes_pkey", "item_notes_item_id_idx");
+        assertUsesIndex(plan, ITEMS_BY_USER);
+    }
+
+    @Test
+    void updateSearchVector() {
+        assertUsesIndex(explainLast(() -> itemRepository.updateSearchVector(1L, "text")), "items_pkey");
+    }
+
+    @Test
+    void search() {
+        String plan = explainLast(() -> itemRepository.search(user.getId(), "word42", 10));
+
+        // при нескольких десятках ссылок у пользователя дешевле прочитать их все по user_id
+        // и проверить условие поиска, чем обращаться к items_search_idx - допустимы оба плана
+        assertUsesIndex(plan, Stream.concat(Stream.of("items_search_idx"), Arrays.stream(ITEMS_BY_USER))
+                .toArray(String[]::new));
+        assertUsesIndex(plan, "item_notes_search_idx", "item_notes_item_id_idx", "items_pkey");
+    }
+
+    @Test
+    void findByEmailContainingIgnoreCase() {
+        assertUsesIndex(explainLast(() -> userRepository.findByEmailContainingIgnoreCase("mail")),
+                "users_email_trgm_idx");
+    }
+
+    @Test
+    void importQueries() {
+        assertUsesIndex(explain(ItemJdbcRepository.FIND_IDS_BY_RESOLVED_URLS), "items_user_id_resolved_url_key");
+        String tags = explain(ItemJdbcRepository.FIND_TAGS);
+        assertUsesIndex(tags, "item_tags_pkey");
+        assertUsesIndex(tags, "tags_pkey");
+    }
+
+    @Test
+    void pageQueries() {
+        String stale = explain(PageRepository.FIND_STALE);
+        assertUsesIndex(stale, "pages_date_checked_idx");
+        assertNoSort(stale);
+        assertUsesIndex(explain(PageRepository.MARK_CHECKED), "pages_pkey");
+        assertUsesIndex(explain(PageRepository.UPDATE_ITEMS), "items_resolved_url_idx");
+        String deleteUnused = explain(PageRepository.DELETE_UNUSED_PAGE);
+        assertUsesIndex(deleteUnused, "pages_pkey");
+        assertUsesIndex(deleteUnused, "items_resolved_url_idx");
+    }
+
+    @Test
+    void changeLogQueries() {
+        String changes = explain(ItemChangeRepository.FIND_CHANGES);
+        assertUsesIndex(changes, "item_changes_pkey");
+        assertUsesIndex(explain(ItemChangeRepository.DELETE_OLD_DELETIONS), "item_changes_deleted_changed_at_idx");
+    }
+
+    @Test
+    void filterIndexQueries() {
+        assertUsesIndex(explain(ItemFilterRepository.COUNT_ITEMS), ITEMS_BY_USER);
+        assertUsesIndex(explain(ItemFilterRepository.LAST_CHANGE_SEQ), "item_changes_pkey");
+        assertUsesIndex(explain(ItemFilterRepository.FIND_ITEMS), ITEMS_BY_USER);
+        assertUsesIndex(explain(ItemFilterRepository.FIND_ITEMS_BY_IDS), "items_pkey");
+        String tags = explain(ItemFilterRepository.FIND_TAGS);
+        assertUsesIndex(tags, "tags_user_id_name_key");
+        assertUsesIndex(tags, "item_tags_tag_id_item_id_idx");
+        assertUsesIndex(explain(ItemFilterRepository.FIND_TAGS_BY_ITEM_IDS), "item_tags_pkey");
+    }
+
+    @Test
+    void facetQueries() {
+        assertUsesIndex(explain(ItemCountRepository.FIND_COUNTS), "item_counts_user_id_idx");
+        // начинать можно и со ссылок пользователя, и с его тэгов - в зависимости от их числа
+        assertUsesIndex(explain(ItemCountRepository.FIND_TAGGED_COUNTS), ITEM_TAGS);
+        assertUsesIndex(explain(ItemCountRepository.FIND_USERS_TO_COMPACT), "item_counts_user_id_not_compacted_idx");
+        assertUsesIndex(explain(ItemCountRepository.COMPACT), "item_counts_user_id_idx");
+    }
+
+    @Test
+    void batchQueries() {
+        assertUsesIndex(explain(ItemBatchRepository.FIND_IDS_BY_IDS), "items_pkey");
+        assertUsesIndex(explain(ItemBatchRepository.FIND_IDS), ITEMS_BY_USER);
+        assertUsesIndex(explain(ItemBatchRepository.SET_UNREAD), "items_pkey");
+        assertUsesIndex(explain(ItemBatchRepository.DELETE_OTHER_TAGS), "item_tags_pkey");
+        assertUsesIndex(explain(ItemBatchRepository.DELETE_NOTES), "item_notes_item_id_idx");
+        assertUsesIndex(explain(ItemBatchRepository.DELETE_TAGS), "item_tags_pkey");
+        assertUsesIndex(explain(ItemBatchRepository.DELETE_ITEMS), "items_pkey");
+    }
+}
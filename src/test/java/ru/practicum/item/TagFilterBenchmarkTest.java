@@ -0,0 +1,140 @@
+package ru.practicum.item;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.LaterApplication;
+import ru.practicum.item.dto.GetItemRequest;
+import ru.practicum.user.User;
+import ru.practicum.user.UserRepository;
+import ru.practicum.user.UserState;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Время ответа GET /items с фильтром по тэгам (ItemService.getItems) для пользователя
+// с 200 000 ссылок по пять тэгов у каждой - 1 000 000 связей ссылок с тэгами.
+// Тэги - от редкого (20 ссылок) до общего для всех ссылок. Ссылки просматриваются
+// по дате, и у каждой тэги проверяются по индексу (item_id, tag_id): чем реже тэг,
+// тем больше ссылок приходится просмотреть до первой страницы.
+// Те же запросы измеряются и с индексом фильтров в памяти (ItemFilterIndex): по редким
+// тэгам страница выбирается среди подходящих ссылок по id.
+// Кэш списков отключён - измеряется только чтение списка.
+// Нужна запущенная БД из compose.yaml.
+// Запуск: mvn test -Pbenchmarks -Dtest=TagFilterBenchmarkTest [-Dbenchmark.items=200000]
+@Tag("benchmark")
+class TagFilterBenchmarkTest {
+    private static final int ITEMS = Integer.getInteger("benchmark.items", 200_000);
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+    private static final List<Set<String>> FILTERS = List.of(Set.of("rare42"), Set.of("group42"),
+            Set.of("common42"), Set.of("frequent3"), Set.of("all"), Set.of("rare42", "common42"));
+
+    @Test
+    void tagFilterLatency() {
+        try (ConfigurableApplicationContext context = start(false)) {
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+            User user = userRepository.save(User.builder()
+                    .email("tags@test.ru")
+                    .firstName("Tags")
+                    .lastName("Benchmark")
+                    .state(UserState.ACTIVE)
+                    .build());
+            try {
+                fill(jdbc, user.getId());
+
+                System.out.printf("%n%d items of one user, %d item tags%n", ITEMS,
+                        jdbc.queryForObject("select count(*) from item_tags where item_id < 0", Long.class));
+                measure("database", context.getBean(ItemService.class), user.getId());
+                try (ConfigurableApplicationContext indexed = start(true)) {
+                    measure("filter index", indexed.getBean(ItemService.class), user.getId());
+                }
+            } finally {
+                jdbc.update("delete from item_tags where item_id in (select id from items where user_id = ?)",
+                        user.getId());
+                jdbc.update("delete from item_changes where user_id = ?", user.getId());
+                jdbc.update("delete from items where user_id = ?", user.getId());
+                jdbc.update("delete from tags where user_id = ?", user.getId());
+                jdbc.update("delete from users where id = ?", user.getId());
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean filterIndex) {
+        return new SpringApplicationBuilder(LaterApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--item-list-cache.enabled=false",
+                        "--item-filter-index.enabled=" + filterIndex,
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.hibernate.SQL=INFO",
+                        "--logging.level.org.hibernate.orm.jdbc.bind=INFO");
+    }
+
+    private static void measure(String mode, ItemService itemService, long userId) {
+        System.out.printf("%n%s%n", mode);
+        System.out.printf("%-20s %8s %10s %10s %10s%n", "tags", "found", "median ms", "p99 ms", "max ms");
+        for (Set<String> tags : FILTERS) {
+            GetItemRequest request = GetItemRequest.builder()
+                    .userId(userId)
+                    .state(GetItemRequest.State.ALL)
+                    .contentType(GetItemRequest.ContentType.ALL)
+                    .sort(GetItemRequest.Sort.NEWEST)
+                    .limit(10)
+                    .tags(tags)
+                    .build();
+            int found = 0;
+            for (int i = 0; i < WARMUP; i++) {
+                found = itemService.getItems(request).size();
+            }
+            long[] nanos = new long[ITERATIONS];
+            for (int i = 0; i < ITERATIONS; i++) {
+                long begin = System.nanoTime();
+                itemService.getItems(request);
+                nanos[i] = System.nanoTime() - begin;
+            }
+            Arrays.sort(nanos);
+            System.out.printf("%-20s %8d %10.2f %10.2f %10.2f%n", String.join(",", tags), found,
+                    nanos[ITERATIONS / 2] / 1e6, nanos[ITERATIONS * 99 / 100] / 1e6,
+                    nanos[ITERATIONS - 1] / 1e6);
+            assertFalse(found == 0, "Nothing found for " + tags);
+        }
+    }
+
+    // Ссылки и тэги добавляются запросами в обход приложения - измеряется только чтение.
+    // Отрицательные id не пересекаются с выдаваемыми последовательностями.
+    // У каждой ссылки пять тэгов: rareN (по 20 ссылок), groupN (по 200), commonN (по 2 000),
+    // frequentN (по 40 000) и all
+    private static void fill(JdbcTemplate jdbc, long userId) {
+        jdbc.update("""
+                INSERT INTO items (id, user_id, url, resolved_url, mime_type, title, has_image, has_video,
+                                   unread, date_resolved, status)
+                SELECT -i, ?, 'https://example.com/' || i, 'https://example.com/' || i, 'text', 'Title ' || i,
+                       false, false, true, now() - i * interval '1 minute', 'RESOLVED'
+                FROM generate_series(1, ?) AS i""", userId, ITEMS);
+        jdbc.update("""
+                INSERT INTO tags (user_id, name)
+                SELECT DISTINCT ?, name
+                FROM generate_series(1, ?) AS i
+                CROSS JOIN LATERAL (VALUES ('rare' || i % (? / 20)), ('group' || i % 1000),
+                                           ('common' || i % 100), ('frequent' || i % 5), ('all')) AS t(name)""",
+                userId, ITEMS, ITEMS);
+        // без статистики по только что заполненным таблицам планировщик соединяет их вложенным циклом
+        jdbc.execute("ANALYZE items, tags");
+        jdbc.update("""
+                INSERT INTO item_tags (item_id, tag_id)
+                SELECT -i, d.id
+                FROM generate_series(1, ?) AS i
+                CROSS JOIN LATERAL (VALUES ('rare' || i % (? / 20)), ('group' || i % 1000),
+                                           ('common' || i % 100), ('frequent' || i % 5), ('all')) AS t(name)
+                JOIN tags d ON d.user_id = ? AND d.name = t.name""", ITEMS, ITEMS, userId);
+        jdbc.execute("VACUUM ANALYZE items, tags, item_tags");
+    }
+}
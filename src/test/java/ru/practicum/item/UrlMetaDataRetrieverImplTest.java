@@ -1,15 +1,23 @@
 package ru.practicum.item;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.common.ItemRetrieverException;
 import ru.practicum.item.UrlMetaDataRetriever.UrlMetadata;
 
 import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URI;
@@ -17,12 +25,18 @@ import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,18 +45,31 @@ class UrlMetaDataRetrieverImplTest {
     @Mock
     private HttpClient mockHttpClient;
 
+    private HostRequestScheduler scheduler;
+    private MeterRegistry meterRegistry;
     private UrlMetaDataRetrieverImpl urlMetaDataRetriever;
 
     @BeforeEach
     void setUp() throws Exception {
-        urlMetaDataRetriever = new UrlMetaDataRetrieverImpl(120);
-        replaceHttpClientWithMock();
+        scheduler = new HostRequestScheduler(2, Duration.ofMillis(10), Duration.ofMillis(100), 2,
+                Duration.ofSeconds(1), Duration.ofMinutes(10));
+        meterRegistry = new SimpleMeterRegistry();
+        // по умолчанию метаданные получаются одним GET-запросом, как в application.yaml;
+        // режим HEAD + GET проверяется отдельно через retriever(false)
+        urlMetaDataRetriever = retriever(true);
     }
 
-    private void replaceHttpClientWithMock() throws Exception {
+    private UrlMetaDataRetrieverImpl retriever(boolean singleRequest) throws Exception {
+        UrlMetaDataRetrieverImpl retriever = new UrlMetaDataRetrieverImpl(scheduler, meterRegistry, singleRequest, 120, false,
+                512 * 1024, 4096);
+        replaceHttpClientWithMock(retriever);
+        return retriever;
+    }
+
+    private void replaceHttpClientWithMock(UrlMetaDataRetrieverImpl retriever) throws Exception {
         Field clientField = UrlMetaDataRetrieverImpl.class.getDeclaredField("client");
         clientField.setAccessible(true);
-        clientField.set(urlMetaDataRetriever, mockHttpClient);
+        clientField.set(retriever, mockHttpClient);
     }
 
     // Вспомогательный класс для создания HttpResponse
@@ -108,6 +135,11 @@ class UrlMetaDataRetrieverImplTest {
         );
     }
 
+    // Тело ответа на GET-запрос читается потоком
+    private InputStream htmlBody(String html) {
+        return new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8));
+    }
+
     // Пустые заголовки
     private HttpHeaders emptyHeaders() {
         return HttpHeaders.of(Map.of(), (s1, s2) -> true);
@@ -125,17 +157,12 @@ class UrlMetaDataRetrieverImplTest {
         String url = "https://example.com";
         URI uri = new URI(url);
 
-        HttpResponse<Void> headResponse = new MockHttpResponse<>(
-                200, null, createHeaders("text/html"), uri
-        );
-
-        HttpResponse<String> getResponse = new MockHttpResponse<>(
-                200, "<html><head><title>Test Title</title></head><body></body></html>",
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                200, htmlBody("<html><head><title>Test Title</title></head><body></body></html>"),
                 createHeaders("text/html"), uri
         );
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(headResponse)
                 .thenReturn(getResponse);
 
         // Act
@@ -156,12 +183,12 @@ class UrlMetaDataRetrieverImplTest {
         String url = "https://example.com/file.zip";
         URI uri = new URI(url);
 
-        HttpResponse<Void> headResponse = new MockHttpResponse<>(
-                200, null, createHeaders("application/zip"), uri
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                200, new ByteArrayInputStream(new byte[0]), createHeaders("application/zip"), uri
         );
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(headResponse);
+                .thenReturn(getResponse);
 
         // Act & Assert
         assertThrows(ItemRetrieverException.class,
@@ -174,12 +201,12 @@ class UrlMetaDataRetrieverImplTest {
         String url = "https://example.com";
         URI uri = new URI(url);
 
-        HttpResponse<Void> headResponse = new MockHttpResponse<>(
-                404, null, emptyHeaders(), uri
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                404, htmlBody(""), emptyHeaders(), uri
         );
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(headResponse);
+                .thenReturn(getResponse);
 
         // Act & Assert
         assertThrows(ItemRetrieverException.class,
@@ -192,12 +219,12 @@ class UrlMetaDataRetrieverImplTest {
         String url = "https://example.com";
         URI uri = new URI(url);
 
-        HttpResponse<Void> headResponse = new MockHttpResponse<>(
-                401, null, emptyHeaders(), uri
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                401, htmlBody(""), emptyHeaders(), uri
         );
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(headResponse);
+                .thenReturn(getResponse);
 
         // Act & Assert
         assertThrows(ItemRetrieverException.class,
@@ -238,20 +265,14 @@ class UrlMetaDataRetrieverImplTest {
         String url = "https://example.com";
         URI uri = new URI(url);
 
-        HttpResponse<Void> headResponse = new MockHttpResponse<>(
-                200, null, createHeaders("text/html"), uri
-        );
-
-        HttpResponse<String> getResponse = new MockHttpResponse<>(
-                200,
-                "<html><head><title>Test</title></head><body>" +
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                200, htmlBody("<html><head><title>Test</title></head><body>" +
                 "<img src='image1.jpg'><img src='image2.png'>" +
-                "</body></html>",
+                "</body></html>"),
                 createHeaders("text/html"), uri
         );
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(headResponse)
                 .thenReturn(getResponse);
 
         // Act
@@ -269,20 +290,14 @@ class UrlMetaDataRetrieverImplTest {
         String url = "https://example.com";
         URI uri = new URI(url);
 
-        HttpResponse<Void> headResponse = new MockHttpResponse<>(
-                200, null, createHeaders("text/html"), uri
-        );
-
-        HttpResponse<String> getResponse = new MockHttpResponse<>(
-                200,
-                "<html><head><title>Test</title></head><body>" +
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                200, htmlBody("<html><head><title>Test</title></head><body>" +
                 "<video src='video.mp4'></video>" +
-                "</body></html>",
+                "</body></html>"),
                 createHeaders("text/html"), uri
         );
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(headResponse)
                 .thenReturn(getResponse);
 
         // Act
@@ -300,12 +315,12 @@ class UrlMetaDataRetrieverImplTest {
         String url = "https://example.com";
         URI uri = new URI(url);
 
-        HttpResponse<Void> headResponse = new MockHttpResponse<>(
-                999, null, emptyHeaders(), uri
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                999, htmlBody(""), emptyHeaders(), uri
         );
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(headResponse);
+                .thenReturn(getResponse);
 
         // Act & Assert
         assertThrows(ItemRetrieverException.class,
@@ -318,17 +333,12 @@ class UrlMetaDataRetrieverImplTest {
         String originalUrl = "https://example.com";
         URI resolvedUri = new URI("https://example.com/resolved");
 
-        HttpResponse<Void> headResponse = new MockHttpResponse<>(
-                200, null, createHeaders("text/html"), resolvedUri
-        );
-
-        HttpResponse<String> getResponse = new MockHttpResponse<>(
-                200, "<html><head><title>Test</title></head></html>",
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                200, htmlBody("<html><head><title>Test</title></head></html>"),
                 createHeaders("text/html"), resolvedUri
         );
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(headResponse)
                 .thenReturn(getResponse);
 
         // Act
@@ -345,17 +355,12 @@ class UrlMetaDataRetrieverImplTest {
         String url = "https://example.com";
         URI uri = new URI(url);
 
-        HttpResponse<Void> headResponse = new MockHttpResponse<>(
-                200, null, createHeaders("text/html"), uri
-        );
-
-        HttpResponse<String> getResponse = new MockHttpResponse<>(
-                200, "<html><head></head><body></body></html>",
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                200, htmlBody("<html><head></head><body></body></html>"),
                 createHeaders("text/html"), uri
         );
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(headResponse)
                 .thenReturn(getResponse);
 
         // Act
@@ -372,17 +377,12 @@ class UrlMetaDataRetrieverImplTest {
         String url = "https://example.com/text.txt";
         URI uri = new URI(url);
 
-        HttpResponse<Void> headResponse = new MockHttpResponse<>(
-                200, null, createHeaders("text/plain"), uri
-        );
-
-        HttpResponse<String> getResponse = new MockHttpResponse<>(
-                200, "Plain text content",
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                200, htmlBody("Plain text content"),
                 createHeaders("text/plain"), uri
         );
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(headResponse)
                 .thenReturn(getResponse);
 
         // Act
@@ -440,26 +440,303 @@ class UrlMetaDataRetrieverImplTest {
         assertTrue((Boolean) isHasVideoField.get(result));
     }
 
-    // Тесты для метода connect
     @Test
-    void connect_WithSuccessfulResponse_ShouldReturnResponse() throws Exception {
-        // Arrange
-        URI uri = new URI("https://example.com");
-        HttpResponse<Void> expectedResponse = new MockHttpResponse<>(200, null, emptyHeaders(), uri);
+    void retrieve_WithTooManyRequests_ShouldRetryAfterPause() throws Exception {
+        String url = "https://example.com";
+        URI uri = new URI(url);
+
+        HttpResponse<InputStream> busy = new MockHttpResponse<>(429, htmlBody(""),
+                HttpHeaders.of(Map.of("Retry-After", List.of("0")), (s1, s2) -> true), uri);
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(200,
+                htmlBody("<html><head><title>Busy</title></head></html>"), createHeaders("text/html"), uri);
 
         when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(expectedResponse);
+                .thenReturn(busy)
+                .thenReturn(getResponse);
 
-        // Act через рефлексию
-        Method connectMethod = UrlMetaDataRetrieverImpl.class.getDeclaredMethod("connect",
-                URI.class, String.class, HttpResponse.BodyHandler.class);
-        connectMethod.setAccessible(true);
+        UrlMetadata result = urlMetaDataRetriever.retrieve(url);
 
-        HttpResponse<Void> result = (HttpResponse<Void>) connectMethod.invoke(
-                urlMetaDataRetriever, uri, "HEAD", HttpResponse.BodyHandlers.discarding());
+        assertEquals("Busy", result.getTitle());
+        verify(mockHttpClient, times(3)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        assertEquals(1, scheduler.stats().get("example.com").throttled());
+    }
 
-        // Assert
-        assertNotNull(result);
-        assertEquals(200, result.statusCode());
+    @Test
+    void retrieve_WithServiceUnavailable_ShouldGiveUpAfterMaxRetries() throws Exception {
+        String url = "https://example.com";
+        URI uri = new URI(url);
+
+        HttpResponse<InputStream> unavailable = new MockHttpResponse<>(503, htmlBody(""), emptyHeaders(), uri);
+
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(unavailable);
+
+        assertThrows(ItemRetrieverException.class, () -> urlMetaDataRetriever.retrieve(url));
+        // первая попытка и два повтора
+        verify(mockHttpClient, times(3)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    void retrieve_WithLongRetryAfter_ShouldFailWithoutWaiting() throws Exception {
+        String url = "https://example.com";
+        URI uri = new URI(url);
+
+        HttpResponse<InputStream> busy = new MockHttpResponse<>(429, htmlBody(""),
+                HttpHeaders.of(Map.of("Retry-After", List.of("3600")), (s1, s2) -> true), uri);
+
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(busy);
+
+        assertThrows(ItemRetrieverException.class, () -> urlMetaDataRetriever.retrieve(url));
+        // сайт на паузе - следующий запрос к нему даже не отправляется
+        assertThrows(ItemRetrieverException.class, () -> urlMetaDataRetriever.retrieve(url + "/other"));
+        verify(mockHttpClient, times(1)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    // Режим HEAD + GET (single-request: false)
+    @Test
+    void retrieve_HeadThenGet_WithTextContentType_ShouldGetPageAfterHead() throws Exception {
+        String url = "https://example.com";
+        URI uri = new URI(url);
+
+        HttpResponse<Void> headResponse = new MockHttpResponse<>(200, null, createHeaders("text/html"), uri);
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(200,
+                htmlBody("<html><head><title>Test Title</title></head></html>"), createHeaders("text/html"), uri);
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+
+        when(mockHttpClient.send(request.capture(), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(headResponse)
+                .thenReturn(getResponse);
+
+        UrlMetadata result = retriever(false).retrieve(url);
+
+        assertEquals(List.of("HEAD", "GET"), request.getAllValues().stream().map(HttpRequest::method).toList());
+        assertEquals("Test Title", result.getTitle());
+        assertEquals("text", result.getMimeType());
+    }
+
+    @Test
+    void retrieve_HeadThenGet_WithImage_ShouldNotSendGet() throws Exception {
+        String url = "https://example.com/photos/cat.jpg";
+        URI uri = new URI(url);
+
+        HttpResponse<Void> headResponse = new MockHttpResponse<>(200, null, createHeaders("image/jpeg"), uri);
+
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(headResponse);
+
+        UrlMetadata result = retriever(false).retrieve(url);
+
+        assertEquals("image", result.getMimeType());
+        assertTrue(result.isHasImage());
+        verify(mockHttpClient, times(1)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    void retrieve_WithHeadNotAllowed_ShouldFallBackToGet() throws Exception {
+        String url = "https://example.com";
+        URI uri = new URI(url);
+
+        HttpResponse<Void> headResponse = new MockHttpResponse<>(405, null, emptyHeaders(), uri);
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(200,
+                htmlBody("<html><head><title>No HEAD</title></head></html>"), createHeaders("text/html"), uri);
+
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(headResponse)
+                .thenReturn(getResponse);
+
+        UrlMetadata result = retriever(false).retrieve(url);
+
+        assertEquals("No HEAD", result.getTitle());
+        assertEquals("text", result.getMimeType());
+    }
+
+    @Test
+    void retrieve_SingleRequest_ShouldReadTextPageWithOneGet() throws Exception {
+        String url = "https://example.com/article";
+        URI resolved = new URI("https://example.com/articles/1");
+
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(200,
+                htmlBody("<html><head><title>Article</title></head><body><img src=a.png>Text</body></html>"),
+                createHeaders("text/html; charset=utf-8"), resolved);
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+
+        when(mockHttpClient.send(request.capture(), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(getResponse);
+
+        UrlMetadata result = urlMetaDataRetriever.retrieve(url);
+
+        assertEquals("GET", request.getValue().method());
+        verify(mockHttpClient, times(1)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        assertEquals("Article", result.getTitle());
+        assertEquals("text", result.getMimeType());
+        assertEquals(url, result.getNormalUrl());
+        assertEquals(resolved.toString(), result.getResolvedUrl());
+        assertTrue(result.isHasImage());
+        assertEquals("Text", result.getText());
+    }
+
+    @Test
+    void retrieve_SingleRequest_ShouldNotReadMediaBody() throws Exception {
+        String url = "https://example.com/photos/cat.jpg";
+        URI uri = new URI(url);
+
+        ByteArrayInputStream image = new ByteArrayInputStream(new byte[1024]);
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(200, image, createHeaders("image/jpeg"), uri);
+
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(getResponse);
+
+        UrlMetadata result = urlMetaDataRetriever.retrieve(url);
+
+        assertEquals("image", result.getMimeType());
+        assertEquals("cat.jpg", result.getTitle());
+        assertTrue(result.isHasImage());
+        assertEquals(1024, image.available());
+    }
+
+    @Test
+    void revalidate_WhenNotModified_ShouldSendValidatorsAndReturnEmpty() throws Exception {
+        String url = "https://example.com/article";
+        HttpResponse<InputStream> notModified = new MockHttpResponse<>(304, new ByteArrayInputStream(new byte[0]),
+                emptyHeaders(), new URI(url));
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+
+        when(mockHttpClient.send(request.capture(), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(notModified);
+
+        Optional<UrlMetadata> result = urlMetaDataRetriever.revalidate(url, "\"v1\"",
+                "Mon, 01 Jan 2024 10:00:00 GMT");
+
+        assertTrue(result.isEmpty());
+        assertEquals("GET", request.getValue().method());
+        assertEquals(Optional.of("\"v1\""), request.getValue().headers().firstValue("If-None-Match"));
+        assertEquals(Optional.of("Mon, 01 Jan 2024 10:00:00 GMT"),
+                request.getValue().headers().firstValue("If-Modified-Since"));
+    }
+
+    @Test
+    void revalidate_WhenModified_ShouldReturnNewMetadataAndValidators() throws Exception {
+        String url = "https://example.com/article";
+        HttpHeaders headers = HttpHeaders.of(Map.of(
+                "Content-Type", List.of("text/html"),
+                "ETag", List.of("\"v2\""),
+                "Last-Modified", List.of("Tue, 02 Jan 2024 10:00:00 GMT")), (s1, s2) -> true);
+        HttpResponse<InputStream> modified = new MockHttpResponse<>(200,
+                htmlBody("<html><head><title>New title</title></head></html>"), headers, new URI(url));
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+
+        when(mockHttpClient.send(request.capture(), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(modified);
+
+        UrlMetadata result = urlMetaDataRetriever.revalidate(url, "\"v1\"", null).orElseThrow();
+
+        assertTrue(request.getValue().headers().firstValue("If-Modified-Since").isEmpty());
+        assertEquals("New title", result.getTitle());
+        assertEquals(url, result.getResolvedUrl());
+        assertEquals("\"v2\"", result.getEtag());
+        assertEquals("Tue, 02 Jan 2024 10:00:00 GMT", result.getLastModified());
+        assertNotNull(result.getDateResolved());
+    }
+
+    @Test
+    void retrieve_ShouldRecordEachPhase() throws Exception {
+        String url = "https://example.com/short";
+        URI resolved = new URI("https://example.com/long");
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                200, htmlBody("<html><head><title>Test Title</title></head></html>"),
+                createHeaders("text/html; charset=UTF-8"), resolved
+        );
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(getResponse);
+
+        urlMetaDataRetriever.retrieve(url);
+
+        assertEquals(1, meterRegistry.get("url.metadata.retrieve")
+                .tags("outcome", "success", "content.type", "text").timer().count());
+        assertEquals(1, meterRegistry.get("url.metadata.queue").tags("method", "GET").timer().count());
+        assertEquals(1, meterRegistry.get("url.metadata.request")
+                .tags("method", "GET", "status", "2xx", "redirected", "true", "content.type", "text")
+                .timer().count());
+        assertEquals(1, meterRegistry.get("url.metadata.body")
+                .tags("method", "GET", "outcome", "success", "content.type", "text").timer().count());
+    }
+
+    @Test
+    void retrieve_WhenFailed_ShouldRecordError() throws Exception {
+        String url = "https://example.com/file.zip";
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                200, htmlBody(""), createHeaders("application/zip"), new URI(url)
+        );
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(getResponse);
+
+        assertThrows(ItemRetrieverException.class, () -> urlMetaDataRetriever.retrieve(url));
+
+        assertEquals(1, meterRegistry.get("url.metadata.retrieve")
+                .tags("outcome", "error", "content.type", "none").timer().count());
+        assertEquals(1, meterRegistry.get("url.metadata.body")
+                .tags("outcome", "error", "content.type", "other").timer().count());
+    }
+
+    @Test
+    void retrieve_ShouldRecordFetchEvent() throws Exception {
+        String url = "https://example.com/short";
+        URI resolved = new URI("https://example.com/long");
+        HttpResponse<InputStream> getResponse = new MockHttpResponse<>(
+                200, htmlBody("<html><head><title>Test Title</title></head></html>"),
+                createHeaders("text/html"), resolved
+        );
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(getResponse);
+
+        Path file = Files.createTempFile("url-fetch", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(UrlFetchEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            urlMetaDataRetriever.retrieve(url);
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            assertEquals("example.com", event.getString("host"));
+            assertEquals("GET", event.getString("method"));
+            assertEquals(200, event.getInt("status"));
+            assertTrue(event.getBoolean("redirected"));
+            assertFalse(event.getDuration("requestTime").isNegative());
+            assertFalse(event.getDuration("bodyTime").isNegative());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void retrieve_HeadThenGet_ShouldNotCountAdvertisedMediaSizeAsRead() throws Exception {
+        String url = "https://example.com/video.mp4";
+        HttpHeaders headers = HttpHeaders.of(Map.of(
+                "Content-Type", List.of("video/mp4"),
+                "Content-Length", List.of("52428800")), (s1, s2) -> true);
+        HttpResponse<Void> headResponse = new MockHttpResponse<>(200, null, headers, new URI(url));
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(headResponse);
+        UrlMetaDataRetrieverImpl retriever = retriever(false);
+
+        Path file = Files.createTempFile("url-fetch", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(UrlFetchEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            retriever.retrieve(url);
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            assertEquals("HEAD", events.get(0).getString("method"));
+            assertEquals(0, events.get(0).getLong("bytes"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,193 @@
+package ru.practicum.item;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.LaterApplication;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Сравнение пропускной способности и p99 для POST /items в обычном режиме
+// и в режиме виртуальных потоков (spring.threads.virtual.enabled).
+// Метаданные запрашиваются у локального сервера-заглушки, который отвечает с задержкой,
+// как медленный удалённый сайт. Нужна запущенная БД из compose.yaml.
+// Запуск: mvn test -Pload-tests -Dtest=VirtualThreadsLoadTest
+@Tag("load")
+class VirtualThreadsLoadTest {
+    private static final int REQUESTS = 1000;
+    private static final int ORIGIN_DELAY_MS = 100;
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\":(\\d+)");
+
+    private static HttpServer origin;
+    private static ExecutorService originExecutor;
+
+    @BeforeAll
+    static void startOrigin() throws IOException {
+        // очередь соединений с запасом, иначе при 1000 одновременных запросов
+        // клиенты упираются в повторные попытки установить соединение
+        origin = HttpServer.create(new InetSocketAddress("localhost", 0), REQUESTS * 2);
+        origin.createContext("/", exchange -> {
+            try {
+                Thread.sleep(ORIGIN_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("<html><head><title>" + exchange.getRequestURI().getPath()
+                           + "</title></head><body><p>text</p></body></html>").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        // заглушка не должна сама становиться узким местом
+        originExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        origin.setExecutor(originExecutor);
+        origin.start();
+    }
+
+    @AfterAll
+    static void stopOrigin() {
+        origin.stop(0);
+        originExecutor.shutdownNow();
+    }
+
+    @Test
+    void compareThroughputAndLatency() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("%n%-16s %12s %10s %10s %10s%n", "mode", "req/s", "p50, ms", "p99, ms", "max, ms");
+        platform.print("platform");
+        virtual.print("virtual");
+
+        assertEquals(REQUESTS, platform.succeeded());
+        assertEquals(REQUESTS, virtual.succeeded());
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LaterApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.org.hibernate.SQL=INFO",
+                        "logging.level.org.hibernate.orm.jdbc.bind=INFO")
+                .run()) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+
+            long userId = createUser(client, port);
+            try {
+                return fire(client, port, userId);
+            } finally {
+                jdbc.update("delete from item_tags where item_id in (select id from items where user_id = ?)",
+                        userId);
+                jdbc.update("delete from items where user_id = ?", userId);
+                jdbc.update("delete from tags where user_id = ?", userId);
+                jdbc.update("delete from users where id = ?", userId);
+            }
+        }
+    }
+
+    private long createUser(HttpClient client, int port) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"load@test.ru\",\"firstName\":\"Load\",\"lastName\":\"Test\",\"state\":\"ACTIVE\"}"))
+                .build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        Matcher matcher = ID_PATTERN.matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Cannot create user: " + body);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private Result fire(HttpClient client, int port, long userId) throws Exception {
+        URI itemsUri = URI.create("http://localhost:" + port + "/items");
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>(REQUESTS);
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < REQUESTS; i++) {
+                String url = "http://localhost:" + origin.getAddress().getPort() + "/article/" + i;
+                HttpRequest request = HttpRequest.newBuilder(itemsUri)
+                        .header("Content-Type", "application/json")
+                        .header("X-Later-User-Id", String.valueOf(userId))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"url\":\"" + url + "\",\"tags\":[\"load\"]}"))
+                        .build();
+                futures.add(clients.submit(() -> {
+                    start.await();
+                    long begin = System.nanoTime();
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    long elapsed = System.nanoTime() - begin;
+                    // неуспешные запросы помечаем отрицательной длительностью
+                    return response.statusCode() / 100 == 2 ? elapsed : -1L;
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            long[] latencies = new long[REQUESTS];
+            for (int i = 0; i < REQUESTS; i++) {
+                latencies[i] = futures.get(i).get();
+            }
+            long total = System.nanoTime() - begin;
+            return new Result(latencies, total);
+        }
+    }
+
+    private record Result(long[] latencies, long totalNanos) {
+        long succeeded() {
+            return Arrays.stream(latencies).filter(l -> l >= 0).count();
+        }
+
+        void print(String mode) {
+            long[] sorted = Arrays.stream(latencies).filter(l -> l >= 0).sorted().toArray();
+            double throughput = sorted.length / (totalNanos / 1_000_000_000.0);
+            System.out.printf("%-16s %12.1f %10.1f %10.1f %10.1f%n", mode, throughput,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0));
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
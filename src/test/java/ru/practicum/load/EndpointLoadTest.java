@@ -0,0 +1,477 @@
+package ru.practicum.load;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.LaterApplication;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Пропускная способность и задержки (p50, p95, p99, max) всех запросов ItemController,
+// ItemNoteController и UserController на наборе данных нашего масштаба из SyntheticDataGenerator.
+// Каждый сценарий - один вид запроса: concurrency клиентов отправляют его без пауз
+// в течение warmup-sec (не учитывается), затем duration-sec. Пользователи запросов выбираются
+// среди 200 пользователей набора, в том числе 10 самых крупных.
+// Метаданные новых ссылок приложение получает у локальной заглушки StubOrigin: обычные,
+// медленные, огромные страницы, перенаправления, ошибки, изображения и видео.
+// Результаты печатаются и сохраняются в target/load-report.csv.
+// Нужна запущенная БД из compose.yaml; набор данных загружается при первом запуске и потом
+// используется повторно.
+// Запуск: mvn test -Pload-tests -Dtest=EndpointLoadTest [-Dload.users=20000 -Dload.items=2000000
+//     -Dload.concurrency=32 -Dload.warmup-sec=10 -Dload.duration-sec=30 -Dload.scenarios=items.get,notes]
+@Tag("load")
+class EndpointLoadTest {
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 32);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-sec", 10));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.duration-sec", 30));
+    // сценарии, имена которых начинаются с одного из префиксов; по умолчанию - все
+    private static final List<String> ONLY = Arrays.stream(System.getProperty("load.scenarios", "").split(","))
+            .filter(prefix -> !prefix.isBlank())
+            .toList();
+    private static final int HEAVY_USERS = 10;
+    private static final int SAMPLE_USERS = 200;
+    private static final long SEED = 42;
+    private static final String USER_HEADER = "X-Later-User-Id";
+    private static final String POSTED_USERS_DOMAIN = "@load-post.test";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private HttpClient client;
+    private String base;
+
+    @Test
+    void endpoints() throws Exception {
+        try (StubOrigin origin = new StubOrigin();
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(LaterApplication.class)
+                     // аргументами командной строки, а не properties(): значения по умолчанию
+                     // перекрываются настройками логирования из application.yaml
+                     .run("--server.port=0",
+                             "--spring.jpa.show-sql=false",
+                             "--logging.level.org.hibernate.SQL=INFO",
+                             "--logging.level.org.hibernate.orm.jdbc.bind=INFO")) {
+            // схему к этому моменту уже создал Flyway, а запросов к приложению ещё нет
+            new SyntheticDataGenerator(context.getBean(DataSource.class),
+                    SyntheticDataGenerator.Config.fromSystemProperties()).generateIfMissing();
+
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            base = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+
+            List<UserSample> samples = loadSamples(jdbc);
+            ConcurrentLinkedQueue<CreatedItem> created = new ConcurrentLinkedQueue<>();
+            List<Result> results = new ArrayList<>();
+            System.out.printf("%n%-28s %8s %7s %9s %9s %9s %9s %9s%n", "scenario", "requests", "failed",
+                    "req/s", "p50, ms", "p95, ms", "p99, ms", "max, ms");
+            try {
+                for (Scenario scenario : scenarios(origin, samples, created)) {
+                    if (!ONLY.isEmpty() && ONLY.stream().noneMatch(scenario.name()::startsWith)) {
+                        continue;
+                    }
+                    drive(scenario, WARMUP);
+                    Result result = drive(scenario, DURATION);
+                    result.print();
+                    results.add(result);
+                }
+            } finally {
+                cleanUp(jdbc, created);
+            }
+
+            report(results);
+            // сценарии с ошибками сайта ошибками приложения не считаются
+            for (Result result : results) {
+                assertTrue(result.scenario().startsWith("items.post.error") || result.failed() == 0,
+                        result.scenario() + ": " + result.failed() + " failed of " + result.requests());
+            }
+        }
+    }
+
+    private List<Scenario> scenarios(StubOrigin origin, List<UserSample> samples,
+                                     ConcurrentLinkedQueue<CreatedItem> created) {
+        AtomicLong counter = new AtomicLong();
+        List<Scenario> scenarios = new ArrayList<>();
+
+        scenarios.add(new Scenario("users.get", random -> get("/users", null)));
+        scenarios.add(new Scenario("users.post", random -> send("POST", "/users", null, Map.of(
+                "email", "user" + counter.incrementAndGet() + POSTED_USERS_DOMAIN,
+                "firstName", "Load",
+                "lastName", "Post",
+                "state", "ACTIVE"))));
+
+        scenarios.add(new Scenario("items.get", random -> get("/items?state=all", pick(samples, random))));
+        scenarios.add(new Scenario("items.get.unread", random -> get("/items", pick(samples, random))));
+        scenarios.add(new Scenario("items.get.tag", random -> {
+            UserSample user = pick(samples, random);
+            return get("/items?state=all&tags=" + encode(pick(user.tags(), random)), user);
+        }));
+        scenarios.add(new Scenario("items.get.filters", random -> {
+            UserSample user = pick(samples, random);
+            return get("/items?state=unread&contentType=article&sort=oldest&limit=50&tags="
+                       + encode(pick(user.tags(), random)), user);
+        }));
+        scenarios.add(new Scenario("items.get.title", random -> get("/items?state=all&sort=title",
+                pick(samples, random))));
+        scenarios.add(new Scenario("items.get.next-page", random -> {
+            UserSample user = pick(samples, random);
+            // у пользователя с одной страницей ссылок курсора нет
+            return get(user.cursor().isEmpty() ? "/items?state=all"
+                    : "/items?state=all&cursor=" + encode(user.cursor()), user);
+        }));
+        scenarios.add(new Scenario("items.get.one", random -> {
+            UserSample user = pick(samples, random);
+            return get("/items/" + pick(user.itemIds(), random), user);
+        }));
+        scenarios.add(new Scenario("items.facets", random -> get("/items/facets?state=all",
+                pick(samples, random))));
+        scenarios.add(new Scenario("items.facets.tags", random -> {
+            UserSample user = pick(samples, random);
+            return get("/items/facets?tags=" + encode(pick(user.tags(), random))
+                       + "&tags=" + encode(pick(user.tags(), random)), user);
+        }));
+        scenarios.add(new Scenario("items.search", random -> {
+            String word = SyntheticDataGenerator.WORDS[random.nextInt(SyntheticDataGenerator.WORDS.length)];
+            return get("/items/search?q=" + encode(word), pick(samples, random));
+        }));
+        scenarios.add(new Scenario("items.changes", random -> get("/items/changes", pick(samples, random))));
+        scenarios.add(new Scenario("items.changes.since", random -> {
+            UserSample user = pick(samples, random);
+            return get("/items/changes?since=" + encode(user.changesToken()), user);
+        }));
+
+        // новые ссылки на разных сайтах заглушки; добавленные ссылки потом удаляются
+        Consumer<HttpResponse<String>> remember = response -> {
+            if (response.statusCode() / 100 == 2) {
+                JsonNode item = readJson(response.body());
+                created.add(new CreatedItem(Long.parseLong(response.request().headers()
+                        .firstValue(USER_HEADER).orElseThrow()), item.get("id").asLong()));
+            }
+        };
+        Map<String, String> posted = new LinkedHashMap<>();
+        posted.put("items.post.article", "/article/%d");
+        posted.put("items.post.slow", "/slow/%d?ms=2000");
+        posted.put("items.post.huge", "/huge/%d?mb=20");
+        posted.put("items.post.redirect", "/redirect/%d?hops=3");
+        posted.put("items.post.image", "/image/%d.jpg");
+        posted.put("items.post.video", "/video/%d.mp4");
+        posted.put("items.post.error", "/error/%d?status=500");
+        posted.put("items.post.error.not-found", "/error/%d?status=404");
+        posted.forEach((name, path) -> scenarios.add(new Scenario(name, random -> {
+            UserSample user = pick(samples, random);
+            String url = origin.url(random.nextInt(250), path.formatted(counter.incrementAndGet()));
+            return send("POST", "/items", user, Map.of("url", url, "tags", List.of(pick(user.tags(), random))));
+        }, remember)));
+
+        scenarios.add(new Scenario("items.patch", random -> {
+            UserSample user = pick(samples, random);
+            return send("PATCH", "/items", user, Map.of(
+                    "itemId", pick(user.itemIds(), random),
+                    "read", random.nextBoolean(),
+                    "tags", List.of(pick(user.tags(), random)),
+                    "replaceTags", false));
+        }));
+        scenarios.add(new Scenario("items.batch.patch", random -> {
+            UserSample user = pick(samples, random);
+            List<Long> itemIds = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                itemIds.add(pick(user.itemIds(), random));
+            }
+            return send("PATCH", "/items/batch", user, Map.of(
+                    "selection", Map.of("itemIds", itemIds),
+                    "read", random.nextBoolean()));
+        }));
+        // удаляются ссылки, добавленные сценариями items.post; если они кончились -
+        // запрос на удаление несуществующей ссылки
+        scenarios.add(new Scenario("items.delete", random -> {
+            CreatedItem item = created.poll();
+            return item != null
+                    ? request("DELETE", "/items/" + item.itemId(), item.userId(), null)
+                    : request("DELETE", "/items/0", pick(samples, random).userId(), null);
+        }));
+        scenarios.add(new Scenario("items.batch.delete", random -> {
+            CreatedItem first = created.poll();
+            long userId = first != null ? first.userId() : pick(samples, random).userId();
+            List<Long> itemIds = new ArrayList<>();
+            if (first != null) {
+                itemIds.add(first.itemId());
+            }
+            while (first != null && itemIds.size() < 10) {
+                CreatedItem item = created.poll();
+                if (item == null) {
+                    break;
+                }
+                if (item.userId() != userId) {
+                    created.add(item);
+                    break;
+                }
+                itemIds.add(item.itemId());
+            }
+            return request("POST", "/items/batch/delete", userId, Map.of("itemIds", itemIds));
+        }));
+
+        scenarios.add(new Scenario("notes.get", random -> get("/notes?size=10", pick(samples, random))));
+        scenarios.add(new Scenario("notes.get.offset", random -> get("/notes?from=100&size=10",
+                pick(samples, random))));
+        scenarios.add(new Scenario("notes.url", random -> {
+            UserSample user = pick(samples, random);
+            return get("/notes?url=" + encode(user.site()), user);
+        }));
+        scenarios.add(new Scenario("notes.tag", random -> {
+            UserSample user = pick(samples, random);
+            return get("/notes?tag=" + encode(pick(user.tags(), random)), user);
+        }));
+        scenarios.add(new Scenario("notes.post", random -> {
+            UserSample user = pick(samples, random);
+            return send("POST", "/notes", user, Map.of(
+                    "itemId", pick(user.itemIds(), random),
+                    "text", SyntheticDataGenerator.words(random, 12)));
+        }));
+        return scenarios;
+    }
+
+    // 10 самых крупных пользователей набора (у первых пользователей больше всего ссылок)
+    // и случайные из остальных. Курсор второй страницы и токен синхронизации
+    // запрашиваются заранее
+    private List<UserSample> loadSamples(JdbcTemplate jdbc) throws Exception {
+        List<Long> userIds = jdbc.queryForList("SELECT id FROM users WHERE email LIKE ? ORDER BY id",
+                Long.class, "%" + SyntheticDataGenerator.EMAIL_DOMAIN);
+        List<Long> chosen = new ArrayList<>(userIds.subList(0, Math.min(HEAVY_USERS, userIds.size())));
+        List<Long> rest = new ArrayList<>(userIds.subList(chosen.size(), userIds.size()));
+        Collections.shuffle(rest, new Random(SEED));
+        chosen.addAll(rest.subList(0, Math.min(SAMPLE_USERS - chosen.size(), rest.size())));
+
+        List<UserSample> samples = new ArrayList<>();
+        for (long userId : chosen) {
+            List<Long> itemIds = jdbc.queryForList(
+                    "SELECT id FROM items WHERE user_id = ? ORDER BY id LIMIT 500", Long.class, userId);
+            List<String> tags = jdbc.queryForList(
+                    "SELECT name FROM tags WHERE user_id = ? ORDER BY id LIMIT 20", String.class, userId);
+            String url = jdbc.queryForObject("SELECT min(url) FROM items WHERE user_id = ?", String.class, userId);
+            String site = URI.create(url).getHost();
+
+            HttpResponse<String> page = client.send(get("/items?state=all", userId),
+                    HttpResponse.BodyHandlers.ofString());
+            String cursor = page.headers().firstValue("X-Later-Next-Cursor").orElse("");
+            HttpResponse<String> changes = client.send(get("/items/changes?limit=100", userId),
+                    HttpResponse.BodyHandlers.ofString());
+            String token = readJson(changes.body()).get("token").asText();
+
+            samples.add(new UserSample(userId, itemIds, tags.isEmpty() ? List.of("none") : tags, site,
+                    cursor, token));
+        }
+        return samples;
+    }
+
+    // Запросы сценария без пауз от concurrency клиентов в течение duration
+    private Result drive(Scenario scenario, Duration duration) throws Exception {
+        long started = System.nanoTime();
+        long deadline = started + duration.toNanos();
+        List<Future<Latencies>> futures = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENCY; i++) {
+                Random random = new Random(SEED + i);
+                futures.add(clients.submit(() -> {
+                    Latencies latencies = new Latencies();
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = scenario.requests().next(random);
+                        long begin = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = client.send(request,
+                                    HttpResponse.BodyHandlers.ofString());
+                            latencies.add(System.nanoTime() - begin, response.statusCode() / 100 == 2);
+                            scenario.onResponse().accept(response);
+                        } catch (IOException e) {
+                            latencies.add(System.nanoTime() - begin, false);
+                        }
+                    }
+                    return latencies;
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        Latencies all = new Latencies();
+        for (Future<Latencies> future : futures) {
+            all.addAll(future.get());
+        }
+        return new Result(scenario.name(), all.sorted(), all.failed, elapsed);
+    }
+
+    // Ссылки, которые сценарии добавили и не удалили, и пользователи, созданные users.post:
+    // набор данных остаётся прежним для следующих запусков
+    private void cleanUp(JdbcTemplate jdbc, ConcurrentLinkedQueue<CreatedItem> created) throws Exception {
+        Map<Long, List<Long>> byUser = created.stream()
+                .collect(Collectors.groupingBy(CreatedItem::userId,
+                        Collectors.mapping(CreatedItem::itemId, Collectors.toList())));
+        for (Map.Entry<Long, List<Long>> entry : byUser.entrySet()) {
+            client.send(request("POST", "/items/batch/delete", entry.getKey(), Map.of("itemIds", entry.getValue())),
+                    HttpResponse.BodyHandlers.discarding());
+        }
+        jdbc.update("DELETE FROM users WHERE email LIKE ?", "%" + POSTED_USERS_DOMAIN);
+    }
+
+    private void report(List<Result> results) throws IOException {
+        Path path = Path.of("target", "load-report.csv");
+        Files.createDirectories(path.getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("scenario,requests,failed,rps,p50_ms,p95_ms,p99_ms,max_ms");
+            for (Result result : results) {
+                out.printf(Locale.ROOT, "%s,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f%n", result.scenario(),
+                        result.requests(), result.failed(), result.throughput(), result.percentile(0.50),
+                        result.percentile(0.95), result.percentile(0.99), result.percentile(1.0));
+            }
+        }
+        System.out.println("Report: " + path.toAbsolutePath());
+    }
+
+    private HttpRequest get(String path, UserSample user) {
+        return request("GET", path, user != null ? user.userId() : null, null);
+    }
+
+    private HttpRequest get(String path, long userId) {
+        return request("GET", path, userId, null);
+    }
+
+    private HttpRequest send(String method, String path, UserSample user, Object body) {
+        return request(method, path, user != null ? user.userId() : null, body);
+    }
+
+    private HttpRequest request(String method, String path, Long userId, Object body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(Duration.ofMinutes(2));
+        if (userId != null) {
+            builder.header(USER_HEADER, String.valueOf(userId));
+        }
+        if (body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        try {
+            return builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(JSON.writeValueAsString(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JsonNode readJson(String body) {
+        try {
+            return JSON.readTree(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unexpected response: " + body, e);
+        }
+    }
+
+    private static <T> T pick(List<T> list, Random random) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest next(Random random);
+    }
+
+    private record Scenario(String name, RequestFactory requests, Consumer<HttpResponse<String>> onResponse) {
+        Scenario(String name, RequestFactory requests) {
+            this(name, requests, response -> {
+            });
+        }
+    }
+
+    private record UserSample(long userId, List<Long> itemIds, List<String> tags, String site, String cursor,
+                              String changesToken) {
+    }
+
+    private record CreatedItem(long userId, long itemId) {
+    }
+
+    // Длительности запросов одного клиента; неуспешные запросы (не 2xx) считаются отдельно
+    private static final class Latencies {
+        private long[] nanos = new long[1024];
+        private int size;
+        private long failed;
+
+        void add(long elapsed, boolean succeeded) {
+            if (!succeeded) {
+                failed++;
+            }
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = elapsed;
+        }
+
+        void addAll(Latencies other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.nanos[i], true);
+            }
+            failed += other.failed;
+        }
+
+        long[] sorted() {
+            long[] result = Arrays.copyOf(nanos, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    private record Result(String scenario, long[] latencies, long failed, long elapsedNanos) {
+        long requests() {
+            return latencies.length;
+        }
+
+        double throughput() {
+            return latencies.length / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        double percentile(double p) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(p * latencies.length) - 1;
+            return latencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+
+        void print() {
+            System.out.printf("%-28s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", scenario, requests(), failed,
+                    throughput(), percentile(0.50), percentile(0.95), percentile(0.99), percentile(1.0));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package ru.practicum.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Локальный сайт-заглушка для UrlMetaDataRetrieverImpl. Поведение задаётся адресом:
+// /article/{n}            - обычная статья
+// /slow/{n}?ms=2000       - статья, ответ после паузы
+// /huge/{n}?mb=20         - статья в десятки мегабайт, отдаётся частями (chunked), пока её читают
+// /redirect/{n}?hops=3    - цепочка перенаправлений 302, в конце - /article/{n}
+// /error/{n}?status=500   - ответ с ошибкой
+// /image/{n}.jpg, /video/{n}.mp4 - изображение и видео на несколько мегабайт: тело
+//                           отдаётся, только пока клиент его читает
+// Сервер принимает соединения на всех адресах, в том числе на любом из 127.0.0.0/8.
+// Для HostRequestScheduler разные адреса - разные сайты, поэтому url(site, path) даёт
+// до 250 разных сайтов на одном сервере.
+final class StubOrigin implements AutoCloseable {
+    private static final int MEDIA_BYTES = 5 * 1024 * 1024;
+    private static final int BLOCK_BYTES = 64 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    StubOrigin() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 4096);
+        server.createContext("/", this::handle);
+        // заглушка не должна сама становиться узким местом
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    // Адрес на сайте с номером site: 127.0.0.2, 127.0.0.3, ...
+    String url(int site, String path) {
+        return "http://127.0.0." + (2 + Math.floorMod(site, 250)) + ":" + server.getAddress().getPort() + path;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            URI uri = exchange.getRequestURI();
+            String[] segments = uri.getPath().split("/");
+            Map<String, String> query = query(uri);
+            String kind = segments.length > 1 ? segments[1] : "";
+            switch (kind) {
+                case "article" -> sendPage(exchange, 40);
+                case "slow" -> {
+                    sleep(Long.parseLong(query.getOrDefault("ms", "2000")));
+                    sendPage(exchange, 40);
+                }
+                case "huge" -> sendHugePage(exchange, Integer.parseInt(query.getOrDefault("mb", "20")));
+                case "redirect" -> redirect(exchange, segments, Integer.parseInt(query.getOrDefault("hops", "3")));
+                case "error" -> {
+                    exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+                    exchange.sendResponseHeaders(Integer.parseInt(query.getOrDefault("status", "500")), -1);
+                }
+                case "image" -> sendMedia(exchange, "image/jpeg");
+                case "video" -> sendMedia(exchange, "video/mp4");
+                default -> exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (IOException e) {
+            // клиент закрыл соединение, не дочитав ответ, - так UrlMetaDataRetrieverImpl
+            // обрывает загрузку изображений, видео и длинных страниц
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendPage(HttpExchange exchange, int paragraphs) throws IOException {
+        byte[] body = page(exchange.getRequestURI().getPath(), paragraphs);
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+        exchange.getResponseHeaders().add("ETag", "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Заголовок и первая картинка - в начале страницы, видео нет: разбор читает
+    // страницу до лимита max-html-bytes и обрывает загрузку
+    private static void sendHugePage(HttpExchange exchange, int megabytes) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, 0);
+        byte[] block = paragraphs(new Random(1), BLOCK_BYTES);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(page(exchange.getRequestURI().getPath(), 1));
+            for (long sent = 0; sent < (long) megabytes * 1024 * 1024; sent += block.length) {
+                out.write(block);
+            }
+        }
+    }
+
+    private static void redirect(HttpExchange exchange, String[] segments, int hops) throws IOException {
+        String n = segments.length > 2 ? segments[2] : "0";
+        String location = hops > 1 ? "/redirect/" + n + "?hops=" + (hops - 1) : "/article/" + n;
+        exchange.getResponseHeaders().add("Location", location);
+        exchange.sendResponseHeaders(302, -1);
+    }
+
+    private static void sendMedia(HttpExchange exchange, String contentType) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(MEDIA_BYTES));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, MEDIA_BYTES);
+        byte[] block = new byte[BLOCK_BYTES];
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int sent = 0; sent < MEDIA_BYTES; sent += block.length) {
+                out.write(block);
+            }
+        }
+    }
+
+    private static byte[] page(String path, int paragraphs) {
+        Random random = new Random(path.hashCode());
+        String html = "<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>"
+                      + SyntheticDataGenerator.words(random, 6) + " " + path + "</title></head><body><article>"
+                      + "<img src=\"/image/cover.jpg\">"
+                      + new String(paragraphs(random, paragraphs * 600), StandardCharsets.UTF_8);
+        return html.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] paragraphs(Random random, int approximateBytes) {
+        StringBuilder html = new StringBuilder(approximateBytes + 1024);
+        // русские слова - по два байта на символ в UTF-8
+        while (html.length() < approximateBytes / 2) {
+            html.append("<p>").append(SyntheticDataGenerator.words(random, 40)).append("</p>\n");
+        }
+        return html.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        if (uri.getQuery() != null) {
+            for (String param : uri.getQuery().split("&")) {
+                String[] pair = param.split("=", 2);
+                params.put(pair[0], pair.length > 1 ? pair[1] : "");
+            }
+        }
+        return params;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package ru.practicum.load;
+
+import org.flywaydb.core.Flyway;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.ds.PGSimpleDataSource;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.TreeSet;
+
+// Синтетический набор данных для нагрузочных тестов в БД из compose.yaml: пользователи,
+// ссылки, словари тэгов, тэги ссылок и заметки. Число ссылок у пользователей распределено
+// по закону Ципфа: у первых пользователей их десятки тысяч, у большинства - десятки.
+// Популярные тэги пользователя встречаются чаще остальных.
+// Данные одинаковы при одинаковых параметрах и seed.
+//
+// Строки загружаются через COPY, триггеры и внешние ключи на время загрузки отключены
+// (session_replication_role = replica, нужен суперпользователь - как dbuser из compose.yaml).
+// Что заполняли бы триггеры - журнал изменений (item_changes), счётчики (item_counts) - и
+// очередь проверки страниц (pages) заполняются в конце одним запросом на таблицу, как в миграциях.
+// Генератор запускается, пока приложение ничего не сохраняет: он занимает id из последовательностей.
+//
+// Пользователи набора - с адресами *@load.test, drop() удаляет только их данные.
+// Запуск отдельно от тестов:
+// mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=ru.practicum.load.SyntheticDataGenerator
+//     [-Dload.users=20000 -Dload.items=2000000 -Dload.seed=42 -Dload.drop=true]
+public final class SyntheticDataGenerator {
+    static final String EMAIL_DOMAIN = "@load.test";
+    static final String[] WORDS = {"производительность", "память", "поток", "запрос", "страница", "latency",
+            "throughput", "allocation", "парсер", "кэш", "сервер", "данные", "ссылка", "postgres", "java",
+            "индекс", "очередь", "сеть", "диск", "профиль", "метрика", "тест", "нагрузка", "журнал"};
+    static final String[] TAG_NAMES = {"java", "read-later", "performance", "postgres", "jvm", "work",
+            "recipes", "travel", "music", "news", "spring", "video", "design", "science", "books", "tools"};
+
+    private static final int SITES = 2_000;
+    private static final int MAX_TAGS_PER_USER = 300;
+    private static final int MAX_TAGS_PER_ITEM = 8;
+    // после стольких байт порция данных отправляется в БД
+    private static final int CHUNK_BYTES = 8 * 1024 * 1024;
+    private static final long FIRST_DATE = LocalDateTime.of(2023, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    private static final long DATE_RANGE = 3L * 365 * 24 * 3600;
+
+    private final DataSource dataSource;
+    private final Config config;
+
+    public record Config(int users, long items, long seed) {
+        static Config fromSystemProperties() {
+            return new Config(Integer.getInteger("load.users", 20_000),
+                    Long.getLong("load.items", 2_000_000),
+                    Long.getLong("load.seed", 42));
+        }
+    }
+
+    public SyntheticDataGenerator(DataSource dataSource, Config config) {
+        this.dataSource = dataSource;
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(System.getProperty("load.db.url", "jdbc:postgresql://localhost:5432/later"));
+        dataSource.setUser(System.getProperty("load.db.user", "dbuser"));
+        dataSource.setPassword(System.getProperty("load.db.password", "12345"));
+        // схема - та же, что создаёт приложение при запуске
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(dataSource, Config.fromSystemProperties());
+        if (Boolean.getBoolean("load.drop")) {
+            generator.drop();
+        } else {
+            generator.generateIfMissing();
+        }
+    }
+
+    // Набор с тем же числом пользователей уже загружен - используется повторно:
+    // загрузка миллионов ссылок занимает минуты
+    public void generateIfMissing() throws SQLException {
+        int existing = countUsers();
+        if (existing == config.users()) {
+            System.out.printf("Synthetic dataset of %d users already loaded%n", existing);
+            return;
+        }
+        if (existing > 0) {
+            drop();
+        }
+        generate();
+    }
+
+    public void generate() throws SQLException {
+        long started = System.nanoTime();
+        Random random = new Random(config.seed());
+        long[] itemCounts = itemCounts();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+            execute(connection, "SET session_replication_role = replica");
+            try {
+                long firstUserId = reserveIds(connection, "users_seq", 50, config.users());
+                long nextItemId = reserveIds(connection, "items_seq", 50, config.items() + config.users());
+                long nextTagId = reserveIds(connection, "tags_seq", 1, (long) config.users() * MAX_TAGS_PER_USER);
+                // текст страницы в items не хранится, он нужен только для поискового вектора
+                execute(connection, """
+                        CREATE TEMPORARY TABLE load_items AS
+                        SELECT id, user_id, url, resolved_url, mime_type, title, has_image, has_video, unread,
+                               date_resolved, status, ''::text AS page_text
+                        FROM items WITH NO DATA""");
+
+                Chunk chunk = new Chunk();
+                long items = 0;
+                for (int u = 0; u < config.users(); u++) {
+                    long userId = firstUserId + u;
+                    chunk.users.row(userId, "load" + u + EMAIL_DOMAIN, "Load" + u, "User" + u,
+                            timestamp(FIRST_DATE + random.nextLong(DATE_RANGE / 2)), "ACTIVE");
+
+                    int dictionary = (int) Math.min(MAX_TAGS_PER_USER, 3 + itemCounts[u] / 50);
+                    for (int t = 0; t < dictionary; t++) {
+                        chunk.tags.row(nextTagId + t, userId, tagName(t));
+                    }
+
+                    for (long j = 0; j < itemCounts[u]; j++) {
+                        long itemId = nextItemId++;
+                        addItem(chunk, random, u, userId, itemId, j, nextTagId, dictionary);
+                    }
+                    nextTagId += dictionary;
+                    items += itemCounts[u];
+
+                    if (chunk.size() >= CHUNK_BYTES || u == config.users() - 1) {
+                        chunk.flush(connection, copy);
+                        System.out.printf("Loaded %d/%d users, %d items%n", u + 1, config.users(), items);
+                    }
+                }
+
+                long lastUserId = firstUserId + config.users() - 1;
+                System.out.println("Filling item_changes, item_counts and pages");
+                fillDerived(connection, firstUserId, lastUserId);
+            } finally {
+                execute(connection, "DROP TABLE IF EXISTS load_items");
+                execute(connection, "RESET session_replication_role");
+            }
+            execute(connection, "ANALYZE users, items, tags, item_tags, item_notes, item_changes, item_counts, pages");
+        }
+        System.out.printf("Synthetic dataset generated in %d s%n", (System.nanoTime() - started) / 1_000_000_000);
+    }
+
+    public void drop() throws SQLException {
+        String loadUsers = "SELECT id FROM users WHERE email LIKE '%" + EMAIL_DOMAIN + "'";
+        String loadItems = "SELECT id FROM items WHERE user_id IN (" + loadUsers + ")";
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            execute(connection, "SET session_replication_role = replica");
+            try {
+                execute(connection, "DELETE FROM item_counts WHERE user_id IN (" + loadUsers + ")");
+                execute(connection, "DELETE FROM item_changes WHERE user_id IN (" + loadUsers + ")");
+                execute(connection, "DELETE FROM item_notes WHERE item_id IN (" + loadItems + ")");
+                execute(connection, "DELETE FROM item_tags WHERE item_id IN (" + loadItems + ")");
+                execute(connection, "DELETE FROM pages WHERE resolved_url IN (SELECT resolved_url FROM items"
+                                    + " WHERE user_id IN (" + loadUsers + "))");
+                execute(connection, "DELETE FROM items WHERE user_id IN (" + loadUsers + ")");
+                execute(connection, "DELETE FROM tags WHERE user_id IN (" + loadUsers + ")");
+                execute(connection, "DELETE FROM users WHERE email LIKE '%" + EMAIL_DOMAIN + "'");
+            } finally {
+                execute(connection, "RESET session_replication_role");
+            }
+        }
+        System.out.println("Synthetic dataset dropped");
+    }
+
+    int countUsers() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT count(*) FROM users WHERE email LIKE '%" + EMAIL_DOMAIN + "'")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void addItem(Chunk chunk, Random random, int u, long userId, long itemId, long j,
+                         long firstTagId, int dictionary) {
+        // популярные сайты встречаются чаще
+        int site = (int) (SITES * Math.pow(random.nextDouble(), 3));
+        String path = "/p/" + u + "/" + j;
+        String url = "https://site" + site + ".example" + path + "?utm_source=later";
+        String resolvedUrl = "https://www.site" + site + ".example" + path;
+
+        int kind = random.nextInt(100);
+        String mimeType = kind < 85 ? "text" : kind < 95 ? "image" : "video";
+        String date = timestamp(FIRST_DATE + random.nextLong(DATE_RANGE));
+        chunk.items.row(itemId, userId, url, resolvedUrl, mimeType, words(random, 4 + random.nextInt(7)),
+                mimeType.equals("image") || random.nextInt(3) == 0, mimeType.equals("video"),
+                random.nextInt(10) < 6, date, "RESOLVED",
+                mimeType.equals("text") ? words(random, 30) : "");
+
+        // в среднем 2-3 тэга, популярные тэги словаря - чаще
+        int tagCount = Math.min(dictionary, random.nextInt(MAX_TAGS_PER_ITEM + 1) * random.nextInt(2)
+                                            + random.nextInt(3));
+        TreeSet<Integer> itemTags = new TreeSet<>();
+        while (itemTags.size() < tagCount) {
+            itemTags.add((int) (dictionary * Math.pow(random.nextDouble(), 2)));
+        }
+        for (int tag : itemTags) {
+            chunk.itemTags.row(itemId, firstTagId + tag);
+        }
+
+        // заметки - к каждой пятой ссылке, иногда несколько
+        if (random.nextInt(5) == 0) {
+            int notes = 1 + (random.nextInt(4) == 0 ? random.nextInt(3) : 0);
+            for (int n = 0; n < notes; n++) {
+                chunk.notes.row(itemId, words(random, 8 + random.nextInt(20)), date);
+            }
+        }
+    }
+
+    // Число ссылок каждого пользователя: доля пользователя с номером r пропорциональна 1 / r^0.8
+    private long[] itemCounts() {
+        double[] weights = new double[config.users()];
+        double total = 0;
+        for (int u = 0; u < weights.length; u++) {
+            weights[u] = 1 / Math.pow(u + 1, 0.8);
+            total += weights[u];
+        }
+        long[] counts = new long[weights.length];
+        for (int u = 0; u < weights.length; u++) {
+            counts[u] = Math.max(1, Math.round(config.items() * weights[u] / total));
+        }
+        return counts;
+    }
+
+    private static void fillDerived(Connection connection, long firstUserId, long lastUserId) throws SQLException {
+        update(connection, """
+                INSERT INTO item_changes (user_id, change_seq, item_id, deleted, changed_at)
+                SELECT user_id, nextval('item_changes_seq'), id, false, now() AT TIME ZONE 'UTC'
+                FROM (SELECT user_id, id FROM items WHERE user_id BETWEEN ? AND ? ORDER BY user_id, id) i""",
+                firstUserId, lastUserId);
+        update(connection, """
+                INSERT INTO item_counts (user_id, tag_id, unread, mime_type, item_count, compacted)
+                SELECT user_id, NULL, unread, mime_type, count(*), true
+                FROM items
+                WHERE user_id BETWEEN ? AND ?
+                GROUP BY user_id, unread, mime_type""", firstUserId, lastUserId);
+        update(connection, """
+                INSERT INTO item_counts (user_id, tag_id, unread, mime_type, item_count, compacted)
+                SELECT i.user_id, it.tag_id, i.unread, i.mime_type, count(*), true
+                FROM item_tags it
+                JOIN items i ON i.id = it.item_id
+                WHERE i.user_id BETWEEN ? AND ?
+                GROUP BY i.user_id, it.tag_id, i.unread, i.mime_type""", firstUserId, lastUserId);
+        update(connection, """
+                INSERT INTO pages (resolved_url, date_checked)
+                SELECT resolved_url, min(date_resolved)
+                FROM items
+                WHERE user_id BETWEEN ? AND ?
+                GROUP BY resolved_url
+                ON CONFLICT DO NOTHING""", firstUserId, lastUserId);
+    }
+
+    // Последовательности с шагом increment (50 - V3__sequence_ids.sql, 1 - tags_seq после
+    // V10__tags_seq_increment.sql): nextval - верхняя граница диапазона из increment id.
+    // Забираются подряд столько диапазонов, сколько нужно для count строк
+    private static long reserveIds(Connection connection, String sequence, int increment, long count)
+            throws SQLException {
+        long ranges = (count + increment - 1) / increment;
+        long last;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT nextval('" + sequence + "')")) {
+            rs.next();
+            last = rs.getLong(1);
+        }
+        execute(connection, "SELECT setval('" + sequence + "', " + (last + (ranges - 1) * increment) + ")");
+        return last - increment + 1;
+    }
+
+    private static void update(Connection connection, String sql, long firstUserId, long lastUserId)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, firstUserId);
+            statement.setLong(2, lastUserId);
+            statement.executeUpdate();
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String tagName(int index) {
+        return index < TAG_NAMES.length ? TAG_NAMES[index] : "topic" + index;
+    }
+
+    private static String timestamp(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC).toString();
+    }
+
+    static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    // Порция строк всех таблиц. Ссылки сначала попадают во временную таблицу: поисковый
+    // вектор вычисляется при переносе в items, без второго прохода по таблице
+    private static final class Chunk {
+        final CsvRows users = new CsvRows(
+                "COPY users (id, email, first_name, last_name, registration_date, state) FROM STDIN (FORMAT csv)");
+        final CsvRows tags = new CsvRows("COPY tags (id, user_id, name) FROM STDIN (FORMAT csv)");
+        final CsvRows items = new CsvRows("""
+                COPY load_items (id, user_id, url, resolved_url, mime_type, title, has_image, has_video, unread,
+                                 date_resolved, status, page_text) FROM STDIN (FORMAT csv)""");
+        final CsvRows itemTags = new CsvRows("COPY item_tags (item_id, tag_id) FROM STDIN (FORMAT csv)");
+        final CsvRows notes = new CsvRows("COPY item_notes (item_id, text, note_date) FROM STDIN (FORMAT csv)");
+
+        int size() {
+            return users.size() + tags.size() + items.size() + itemTags.size() + notes.size();
+        }
+
+        void flush(Connection connection, CopyManager copy) throws SQLException {
+            users.copy(copy);
+            tags.copy(copy);
+            items.copy(copy);
+            execute(connection, """
+                    INSERT INTO items (id, user_id, url, resolved_url, mime_type, title, has_image, has_video,
+                                       unread, date_resolved, status, search_vector)
+                    SELECT id, user_id, url, resolved_url, mime_type, title, has_image, has_video,
+                           unread, date_resolved, status, item_search_vector(title, page_text)
+                    FROM load_items""");
+            execute(connection, "TRUNCATE load_items");
+            itemTags.copy(copy);
+            notes.copy(copy);
+        }
+    }
+
+    private static final class CsvRows {
+        private final String sql;
+        private final StringBuilder rows = new StringBuilder();
+
+        CsvRows(String sql) {
+            this.sql = sql;
+        }
+
+        void row(Object... values) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    rows.append(',');
+                }
+                if (values[i] instanceof String s) {
+                    rows.append('"').append(s.replace("\"", "\"\"")).append('"');
+                } else {
+                    rows.append(values[i]);
+                }
+            }
+            rows.append('\n');
+        }
+
+        int size() {
+            return rows.length();
+        }
+
+        void copy(CopyManager copy) throws SQLException {
+            if (rows.isEmpty()) {
+                return;
+            }
+            byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+            CopyIn in = copy.copyIn(sql);
+            try {
+                in.writeToCopy(bytes, 0, bytes.length);
+                in.endCopy();
+            } finally {
+                if (in.isActive()) {
+                    in.cancelCopy();
+                }
+            }
+            rows.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.profiling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingTest {
+
+    @Test
+    void settings_ShouldAddApplicationEventsToDefault() throws Exception {
+        Map<String, String> settings = FlightRecording.settings();
+
+        assertEquals("true", settings.get(JfrSummary.URL_FETCH + "#enabled"));
+        assertEquals("0 ms", settings.get(JfrSummary.URL_FETCH + "#threshold"));
+        assertEquals("1 ms", settings.get(JfrSummary.ITEM_OPERATION + "#threshold"));
+        // события JDK из стандартных настроек остаются
+        assertEquals("true", settings.get("jdk.GarbageCollection#enabled"));
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum.profiling;
+
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.Timespan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrSummaryTest {
+
+    // события приложения закрыты в своих пакетах; JFR различает события по имени
+    @Name(JfrSummary.URL_FETCH)
+    static class UrlFetch extends jdk.jfr.Event {
+        String host;
+        String method;
+        long bytes;
+    }
+
+    @Name(JfrSummary.ITEM_OPERATION)
+    static class ItemOperation extends jdk.jfr.Event {
+        String operation;
+        String shape;
+        long rows;
+        @Timespan
+        long mappingTime;
+    }
+
+    @TempDir
+    private Path dir;
+
+    private static void fetch(String host, long bytes, long sleepMillis) throws InterruptedException {
+        UrlFetch event = new UrlFetch();
+        event.begin();
+        Thread.sleep(sleepMillis);
+        event.host = host;
+        event.method = "GET";
+        event.bytes = bytes;
+        event.commit();
+    }
+
+    private static void operation(String shape, long rows, long sleepMillis) throws InterruptedException {
+        ItemOperation event = new ItemOperation();
+        event.begin();
+        Thread.sleep(sleepMillis);
+        event.operation = "getItems";
+        event.shape = shape;
+        event.rows = rows;
+        event.mappingTime = Duration.ofMillis(1).toNanos();
+        event.commit();
+    }
+
+    private JfrSummary.Summary record() throws Exception {
+        Path file = dir.resolve("test.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(JfrSummary.URL_FETCH).withThreshold(Duration.ZERO);
+            recording.enable(JfrSummary.ITEM_OPERATION).withThreshold(Duration.ZERO);
+            recording.start();
+            fetch("fast.ru", 100, 0);
+            fetch("fast.ru", -1, 0);
+            fetch("slow.ru", 1000, 30);
+            operation("state=UNREAD contentType=ALL tags=none", 10, 0);
+            operation("state=ALL contentType=ALL tags=many filter=db", 4, 30);
+            operation("state=ALL contentType=ALL tags=many filter=db", 6, 0);
+            recording.stop();
+            recording.dump(file);
+        }
+        return JfrSummary.summarize(file);
+    }
+
+    @Test
+    void summarize_ShouldOrderHostsAndShapesBySlowest() throws Exception {
+        JfrSummary.Summary summary = record();
+
+        assertEquals(List.of("slow.ru", "fast.ru"),
+                summary.hosts().stream().map(JfrSummary.HostSummary::host).toList());
+        JfrSummary.HostSummary fast = summary.hosts().get(1);
+        assertEquals(2, fast.count());
+        // неизвестный размер (-1) не уменьшает сумму
+        assertEquals(100, fast.bytes());
+        assertTrue(summary.hosts().get(0).p95().compareTo(Duration.ofMillis(30)) >= 0);
+
+        JfrSummary.ShapeSummary slowest = summary.shapes().get(0);
+        assertEquals("getItems", slowest.operation());
+        assertEquals("state=ALL contentType=ALL tags=many filter=db", slowest.shape());
+        assertEquals(2, slowest.count());
+        assertEquals(10, slowest.rows());
+        assertEquals(Duration.ofMillis(2), slowest.mapping());
+        assertEquals(slowest.max(), slowest.p95());
+        assertEquals(2, summary.shapes().size());
+    }
+
+    @Test
+    void print_ShouldLimitRowsToTop() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        JfrSummary.print(record(), 1, new PrintStream(out, true, StandardCharsets.UTF_8));
+
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("slow.ru"));
+        assertFalse(text.contains("fast.ru"));
+        assertTrue(text.contains("tags=many filter=db"));
+        assertFalse(text.contains("state=UNREAD"));
+    }
+}